@@ -0,0 +1,177 @@
+package sushi.agent;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.ParserProperties;
+
+import sushi.execution.ExecutionResult;
+import sushi.execution.jbse.Z3Pool;
+import sushi.execution.remote.AgentMessage;
+import sushi.execution.remote.MessageInputStream;
+import sushi.execution.remote.RemoteTask;
+import sushi.logging.Logger;
+
+/**
+ * An agent that executes the tasks of a SUSHI master running on 
+ * another host (or on the same host, in another JVM). The agent opens 
+ * one connection to the master for each task it may execute in parallel 
+ * (slot), authenticates with the token shared with the master, and 
+ * executes the tasks the master sends through it until the master 
+ * closes the connection. The agent must see the files of the 
+ * master (classpath, jars, temporary directory) at the same paths, 
+ * e.g., through a shared file system.
+ * 
+ * @author Pietro Braione
+ */
+public final class Agent {
+	private static final Logger logger = new Logger(Agent.class);
+	
+	private final String host;
+	private final int port;
+	private final String token;
+	private final int slots;
+	
+	private Agent(String host, int port, String token, int slots) {
+		this.host = host;
+		this.port = port;
+		this.token = token;
+		this.slots = slots;
+	}
+	
+	private void start() throws InterruptedException {
+		final ArrayList<Thread> slotThreads = new ArrayList<>();
+		for (int i = 0; i < this.slots; ++i) {
+			final Thread t = new Thread(this::runSlot, "agent-slot-" + i);
+			slotThreads.add(t);
+			t.start();
+		}
+		for (Thread t : slotThreads) {
+			t.join();
+		}
+		logger.info("All the connections with the master are closed, the agent terminates");
+	}
+	
+	private void runSlot() {
+		try (final Socket socket = new Socket(this.host, this.port)) {
+			//authenticates before any message
+			final DataOutputStream authentication = new DataOutputStream(socket.getOutputStream());
+			authentication.writeUTF(this.token);
+			authentication.flush();
+			final ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+			out.flush();
+			final ObjectInputStream in = new MessageInputStream(socket.getInputStream());
+			
+			//names the task threads uniquely across the agents, since 
+			//EvoSuite log files are named after them
+			final String taskThreadName = "agent-" + InetAddress.getLocalHost().getHostName() + "-" + socket.getLocalPort();
+			logger.info("Connected to master " + this.host + ":" + this.port + " as " + taskThreadName);
+			
+			Thread taskThread = null;
+			while (true) {
+				final AgentMessage message = (AgentMessage) in.readObject();
+				switch (message.getKind()) {
+				case RUN:
+					final RemoteTask task = message.getTask();
+					taskThread = new Thread(() -> execute(task, out), taskThreadName);
+					taskThread.start();
+					break;
+				case CANCEL:
+					if (taskThread != null) {
+						taskThread.interrupt();
+					}
+					break;
+				default:
+					logger.warn("Unexpected message " + message.getKind() + " from master, ignoring it");
+				}
+			}
+		} catch (IOException e) {
+			logger.info("Connection with master closed: " + e.getMessage());
+		} catch (ClassNotFoundException | ClassCastException e) {
+			logger.error("Received unexpected object from master, closing connection: " + e);
+		}
+	}
+	
+	private static void execute(RemoteTask task, ObjectOutputStream out) {
+		AgentMessage answer;
+		try {
+			final ExecutionResult result = task.run(event -> send(out, AgentMessage.event(event)));
+			answer = AgentMessage.result(result);
+		} catch (InterruptedException e) {
+			answer = AgentMessage.failure("cancelled");
+		} catch (Exception e) {
+			logger.error("Task failed: " + e);
+			answer = AgentMessage.failure(e.toString());
+		}
+		send(out, answer);
+	}
+	
+	private static void send(ObjectOutputStream out, AgentMessage message) {
+		synchronized (out) {
+			try {
+				out.writeObject(message);
+				out.reset();
+				out.flush();
+			} catch (IOException e) {
+				//the slot thread will detect that the connection is closed
+				logger.warn("Unable to send message to master: " + e.getMessage());
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		final AgentOptions options = new AgentOptions();
+		final CmdLineParser parser = new CmdLineParser(options, ParserProperties.defaults().withUsageWidth(200));
+		try {
+			parser.parseArgument(args);
+		} catch (CmdLineException e) {
+			System.err.println("Error: " + e.getMessage());
+			printUsage(parser);
+			System.exit(1);
+		}
+		
+		if (options.getHelp()) {
+			printUsage(parser);
+			System.exit(0);
+		}
+		
+		final String master = options.getMaster();
+		final int colon = master.lastIndexOf(':');
+		int port = -1;
+		try {
+			port = (colon < 0 ? -1 : Integer.parseInt(master.substring(colon + 1)));
+		} catch (NumberFormatException e) {
+			//falls through
+		}
+		if (colon <= 0 || port <= 0) {
+			System.err.println("Error: the -master option must have the form host:port.");
+			printUsage(parser);
+			System.exit(1);
+		}
+		final int slots = (options.getSlots() > 0 ? options.getSlots() : Runtime.getRuntime().availableProcessors());
+		
+		Z3Pool.configure(2 * slots);
+		try {
+			new Agent(master.substring(0, colon), port, options.getToken(), slots).start();
+		} catch (InterruptedException e) {
+			//nothing to do, just exits
+		} finally {
+			Z3Pool.get().close();
+		}
+		System.exit(0);
+	}
+	
+	private static void printUsage(final CmdLineParser parser) {
+		System.err.println("Usage: java " + Agent.class.getName() + " <options>");
+		System.err.println("where <options> are:");
+		// print the list of available options
+		parser.printUsage(System.err);
+	}
+}
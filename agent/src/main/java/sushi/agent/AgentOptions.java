@@ -0,0 +1,62 @@
+package sushi.agent;
+
+import org.kohsuke.args4j.Option;
+
+/**
+ * The command line options of an {@link Agent}.
+ * 
+ * @author Pietro Braione
+ */
+public final class AgentOptions {
+	@Option(name = "-help",
+			usage = "Prints usage and exits")
+	private boolean help = false;
+
+	@Option(name = "-master",
+			usage = "Host and port of the SUSHI master (see its -agent_port option), in the form host:port",
+			metaVar = "host:port",
+			required = true)
+	private String master;
+
+	@Option(name = "-token",
+			usage = "Secret shared with the SUSHI master (see its -agent_token option)",
+			metaVar = "token",
+			required = true)
+	private String token;
+
+	@Option(name = "-slots",
+			usage = "Number of tasks the agent may execute in parallel, 0 means as many as the available cores")
+	private int slots = 0;
+
+	public boolean getHelp() {
+		return this.help;
+	}
+
+	public void setHelp(boolean help) {
+		this.help = help;
+	}
+
+	public String getMaster() {
+		return this.master;
+	}
+
+	public void setMaster(String master) {
+		this.master = master;
+	}
+
+	public String getToken() {
+		return this.token;
+	}
+
+	public void setToken(String token) {
+		this.token = token;
+	}
+
+	public int getSlots() {
+		return this.slots;
+	}
+
+	public void setSlots(int slots) {
+		this.slots = slots;
+	}
+}
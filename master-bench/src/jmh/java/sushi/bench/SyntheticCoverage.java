@@ -0,0 +1,244 @@
+package sushi.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import sushi.Coverage;
+import sushi.Options;
+import sushi.util.CoverageStore;
+import sushi.util.DirectoryUtils;
+import sushi.util.TracesIndex;
+
+/**
+ * Writes synthetic coverage files, shaped as the ones produced by
+ * JBSE and by the merger, for benchmarking the tools that parse them.
+ * The branches are split evenly among the methods, and each trace of
+ * a method covers a random subset of the branches of the method.
+ * The files are generated from a seed, so they are the same across
+ * benchmark runs.
+ *
+ * @author Pietro Braione
+ */
+public final class SyntheticCoverage {
+	/** The name of the (nonexistent) target class. */
+	public static final String TARGET_CLASS = "bench/Target";
+	
+	private static final long SEED = 20150101L;
+	
+	private final int methods;
+	private final int branches;
+	private final int traces;
+	private final int branchesPerTrace;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param methods an {@code int}, the number of target methods.
+	 * @param branches an {@code int}, the total number of branches.
+	 * @param traces an {@code int}, the total number of traces.
+	 * @param branchesPerTrace an {@code int}, the number of branches 
+	 *        each trace covers (at most).
+	 */
+	public SyntheticCoverage(int methods, int branches, int traces, int branchesPerTrace) {
+		this.methods = Math.max(1, methods);
+		this.branches = Math.max(this.methods, branches);
+		this.traces = Math.max(this.methods, traces);
+		this.branchesPerTrace = Math.max(1, branchesPerTrace);
+	}
+	
+	/**
+	 * Creates the options for a run in a fresh temporary directory.
+	 * 
+	 * @return an {@link Options} object.
+	 * @throws IOException if the temporary directory cannot be created.
+	 */
+	public static Options makeOptions() throws IOException {
+		final Options options = new Options();
+		options.setTmpDirectoryBase(Files.createTempDirectory("sushi-bench"));
+		options.setTmpDirectoryName("run");
+		options.setOutDirPath(options.getTmpDirectoryBase().resolve("out"));
+		options.setTargetClass(TARGET_CLASS);
+		options.setCoverage(Coverage.BRANCHES);
+		Files.createDirectories(DirectoryUtils.getTmpDirPath(options));
+		Files.createDirectories(options.getOutDirPath());
+		return options;
+	}
+	
+	/**
+	 * Deletes the temporary directory of a run.
+	 * 
+	 * @param options the {@link Options} of the run.
+	 * @throws IOException if deleting some file fails.
+	 */
+	public static void deleteTmpDirectory(Options options) throws IOException {
+		try (final Stream<Path> walk = Files.walk(options.getTmpDirectoryBase())) {
+			for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(p);
+			}
+		}
+	}
+	
+	private int branchesOfMethod(int method) {
+		return this.branches / this.methods + (method < this.branches % this.methods ? 1 : 0);
+	}
+	
+	private int firstBranchOfMethod(int method) {
+		return method * (this.branches / this.methods) + Math.min(method, this.branches % this.methods);
+	}
+	
+	private int tracesOfMethod(int method) {
+		return this.traces / this.methods + (method < this.traces % this.methods ? 1 : 0);
+	}
+	
+	private static String branch(int method, int localBranch) {
+		return TARGET_CLASS + ":m" + method + ":()V:" + (localBranch * 3) + ":" + (localBranch * 3 + 3);
+	}
+	
+	/** 
+	 * Chooses the branches covered by a trace, as offsets from 
+	 * the first branch of the method, and returns how many they are. 
+	 */
+	private int traceCoverage(Random random, int method, int offset, int[] coverage) {
+		final int n = branchesOfMethod(method);
+		final int covered = Math.min(n, this.branchesPerTrace);
+		final int start = random.nextInt(n);
+		final int stride = 1 + random.nextInt(Math.max(1, n / covered));
+		int b = start;
+		int count = 0;
+		final boolean[] seen = new boolean[n];
+		for (int i = 0; i < covered; ++i) {
+			if (!seen[b]) {
+				seen[b] = true;
+				coverage[count++] = offset + b;
+			}
+			b = (b + stride) % n;
+		}
+		return count;
+	}
+	
+	/**
+	 * Writes the methods file, and the local (per method) branches,
+	 * coverage and traces files, i.e., the input of the merger.
+	 * 
+	 * @param options the {@link Options} of the run.
+	 * @throws IOException if writing some file fails.
+	 */
+	public void writeLocal(Options options) throws IOException {
+		writeMethods(options);
+		final Random random = new Random(SEED);
+		final int[] coverage = new int[this.branchesPerTrace];
+		for (int method = 0; method < this.methods; ++method) {
+			try (final BufferedWriter w = Files.newBufferedWriter(DirectoryUtils.getBranchesFilePath(options, method))) {
+				for (int b = 0; b < branchesOfMethod(method); ++b) {
+					w.write(branch(method, b));
+					w.newLine();
+				}
+			}
+			try (final BufferedWriter wCoverage = Files.newBufferedWriter(DirectoryUtils.getCoverageFilePath(options, method));
+				 final BufferedWriter wTraces = Files.newBufferedWriter(DirectoryUtils.getTracesFilePath(options, method))) {
+				for (int trace = 0; trace < tracesOfMethod(method); ++trace) {
+					wCoverage.write(trace + ", " + random.nextInt(100));
+					final int count = traceCoverage(random, method, 0, coverage);
+					for (int i = 0; i < count; ++i) {
+						wCoverage.write(", " + coverage[i]);
+					}
+					wCoverage.newLine();
+					wTraces.write(trace + ", .1.1.2.1");
+					wTraces.newLine();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Writes the methods file, the global branches, coverage and 
+	 * traces files, the index of the traces file, and empty branches
+	 * to ignore, traces to ignore, covered by test and minimizer output
+	 * files, i.e., the state of the temporary directory after the merger.
+	 * As the merger does, it writes the coverage file through a 
+	 * {@link CoverageStore.Writer}, and the traces file and its 
+	 * index through a {@link TracesIndex.Writer}.
+	 * 
+	 * @param options the {@link Options} of the run.
+	 * @throws IOException if writing some file fails.
+	 */
+	public void writeGlobal(Options options) throws IOException {
+		writeMethods(options);
+		try (final BufferedWriter w = Files.newBufferedWriter(DirectoryUtils.getBranchesFilePath(options))) {
+			for (int method = 0; method < this.methods; ++method) {
+				for (int b = 0; b < branchesOfMethod(method); ++b) {
+					w.write(branch(method, b));
+					w.newLine();
+				}
+			}
+		}
+		final Random random = new Random(SEED);
+		final int[] coverage = new int[this.branchesPerTrace];
+		try (final CoverageStore.Writer wCoverage = new CoverageStore.Writer(DirectoryUtils.getCoverageFilePath(options));
+			 final TracesIndex.Writer wTraces = new TracesIndex.Writer(DirectoryUtils.getTracesFilePath(options), DirectoryUtils.getTracesIndexFilePath(options))) {
+			wCoverage.setBranches(this.branches);
+			for (int method = 0; method < this.methods; ++method) {
+				for (int trace = 0; trace < tracesOfMethod(method); ++trace) {
+					final int hardness = random.nextInt(100);
+					final int count = traceCoverage(random, method, firstBranchOfMethod(method), coverage);
+					wCoverage.addTrace(method, trace, hardness, coverage, count);
+					wTraces.addRow(method + ", " + trace + ", .1.1.2.1");
+				}
+			}
+		}
+		resetIterationFiles(options);
+		Files.write(DirectoryUtils.getMinimizerOutFilePath(options), new byte[0]);
+	}
+	
+	/**
+	 * Empties the files that the main loop updates at each iteration
+	 * (branches and traces to ignore, branches covered by tests).
+	 * 
+	 * @param options the {@link Options} of the run.
+	 * @throws IOException if writing some file fails.
+	 */
+	public void resetIterationFiles(Options options) throws IOException {
+		Files.write(DirectoryUtils.getBranchesToIgnoreFilePath(options), new byte[0]);
+		Files.write(DirectoryUtils.getTracesToIgnoreFilePath(options), new byte[0]);
+		Files.write(DirectoryUtils.getCoveredByTestFilePath(options), new byte[0]);
+	}
+	
+	/**
+	 * Writes a minimizer output file selecting some traces, spread 
+	 * evenly over all the traces.
+	 * 
+	 * @param options the {@link Options} of the run.
+	 * @param rows an {@code int}, the number of selected traces.
+	 * @throws IOException if writing the file fails.
+	 */
+	public void writeMinimizerOutput(Options options, int rows) throws IOException {
+		final int step = Math.max(1, this.traces / Math.max(1, rows));
+		try (final BufferedWriter w = Files.newBufferedWriter(DirectoryUtils.getMinimizerOutFilePath(options))) {
+			int written = 0;
+			int globalTrace = 0;
+			for (int method = 0; method < this.methods && written < rows; ++method) {
+				for (int trace = 0; trace < tracesOfMethod(method) && written < rows; ++trace, ++globalTrace) {
+					if (globalTrace % step == 0) {
+						w.write(globalTrace + ", " + method + ", " + trace);
+						w.newLine();
+						++written;
+					}
+				}
+			}
+		}
+	}
+
+	private void writeMethods(Options options) throws IOException {
+		try (final BufferedWriter w = Files.newBufferedWriter(DirectoryUtils.getMethodsFilePath(options))) {
+			for (int method = 0; method < this.methods; ++method) {
+				w.write(TARGET_CLASS + ":()V:m" + method);
+				w.newLine();
+			}
+		}
+	}
+}
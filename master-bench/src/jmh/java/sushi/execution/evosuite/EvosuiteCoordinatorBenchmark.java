@@ -0,0 +1,127 @@
+package sushi.execution.evosuite;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import sushi.Options;
+import sushi.bench.SyntheticCoverage;
+import sushi.execution.ExecutionResult;
+import sushi.util.DirectoryUtils;
+
+/**
+ * Measures the bookkeeping of the EvoSuite coordinator when the 
+ * tests of all the targets of the synthesis tasks are generated,
+ * i.e., the update of the covered branches, the detection of the 
+ * tasks whose branches are all covered, and the emission of the tests.
+ * 
+ * @author Pietro Braione
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EvosuiteCoordinatorBenchmark {
+	@Param({"100"})
+	public int methods;
+	
+	@Param({"1000", "10000"})
+	public int branches;
+	
+	@Param({"10000", "100000", "1000000"})
+	public int traces;
+	
+	@Param({"20"})
+	public int branchesPerTrace;
+	
+	@Param({"64"})
+	public int tasks;
+	
+	@Param({"5"})
+	public int targetsPerTask;
+	
+	private Options options;
+	private SyntheticCoverage coverage;
+	private ArrayList<int[]> targets;
+	private EvosuiteCoordinator coordinator;
+	
+	@Setup
+	public void setup() throws IOException {
+		this.options = SyntheticCoverage.makeOptions();
+		this.options.setParallelismEvosuite(this.tasks);
+		this.options.setRedundanceEvosuite(1);
+		this.options.setNumMOSATargets(this.targetsPerTask);
+		this.coverage = new SyntheticCoverage(this.methods, this.branches, this.traces, this.branchesPerTrace);
+		this.coverage.writeGlobal(this.options);
+		this.coverage.writeMinimizerOutput(this.options, this.tasks * this.targetsPerTask);
+		
+		//reads back the targets, and creates the (empty) 
+		//test files for them
+		this.targets = new ArrayList<>();
+		try (final BufferedReader r = Files.newBufferedReader(DirectoryUtils.getMinimizerOutFilePath(this.options))) {
+			String line;
+			int row = 0;
+			while ((line = r.readLine()) != null) {
+				final String[] fields = line.split(",");
+				final int methodNumber = Integer.parseInt(fields[1].trim());
+				final int localTraceNumber = Integer.parseInt(fields[2].trim());
+				this.targets.add(new int[] { row / this.targetsPerTask, methodNumber, localTraceNumber });
+				final String testFileName = SyntheticCoverage.TARGET_CLASS + "_" + methodNumber + "_" + localTraceNumber + "_Test";
+				final Path testFile = DirectoryUtils.getTmpDirPath(this.options).resolve(testFileName + ".java");
+				Files.createDirectories(testFile.getParent());
+				Files.write(testFile, new byte[0]);
+				Files.write(DirectoryUtils.getTmpDirPath(this.options).resolve(testFileName + "_scaffolding.java"), new byte[0]);
+				++row;
+			}
+		}
+	}
+	
+	@Setup(Level.Iteration)
+	public void setupIteration() throws IOException {
+		//a fresh coordinator, that loads the coverage data 
+		//and finds all the tasks already done
+		this.coverage.resetIterationFiles(this.options);
+		final Evosuite evosuite = new Evosuite(this.options);
+		this.coordinator = new EvosuiteCoordinator(evosuite, this.options);
+		final ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures = new ArrayList<>();
+		final BlockingQueue<Future<ExecutionResult>> completions = new LinkedBlockingQueue<>();
+		for (int task = 0; task < evosuite.tasks().size(); ++task) {
+			final FutureTask<ExecutionResult> f = new FutureTask<>(ExecutionResult::new);
+			f.run();
+			final ArrayList<Future<ExecutionResult>> replicas = new ArrayList<>();
+			replicas.add(f);
+			tasksFutures.add(replicas);
+			completions.add(f);
+		}
+		this.coordinator.start(tasksFutures, completions);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		SyntheticCoverage.deleteTmpDirectory(this.options);
+	}
+	
+	@Benchmark
+	public void generateAllTests() {
+		for (int[] target : this.targets) {
+			this.coordinator.onTestGenerated(target[0], target[1], target[2]);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package sushi.execution.loopmgr;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import sushi.Options;
+import sushi.bench.SyntheticCoverage;
+import sushi.execution.ExecutionResult;
+
+/**
+ * Measures the calculation of the branches and traces to ignore 
+ * at the end of an iteration of the main loop.
+ * 
+ * @author Pietro Braione
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoopMgrWorkerBenchmark {
+	@Param({"100"})
+	public int methods;
+	
+	@Param({"1000", "10000"})
+	public int branches;
+	
+	@Param({"10000", "100000", "1000000"})
+	public int traces;
+	
+	@Param({"20"})
+	public int branchesPerTrace;
+	
+	@Param({"1000"})
+	public int triedTraces;
+	
+	private Options options;
+	private SyntheticCoverage coverage;
+	private LoopMgr loopMgr;
+	
+	@Setup
+	public void setup() throws IOException {
+		this.options = SyntheticCoverage.makeOptions();
+		this.coverage = new SyntheticCoverage(this.methods, this.branches, this.traces, this.branchesPerTrace);
+		this.coverage.writeGlobal(this.options);
+		this.coverage.writeMinimizerOutput(this.options, this.triedTraces);
+		this.loopMgr = new LoopMgr(this.options);
+	}
+	
+	@Setup(Level.Iteration)
+	public void setupIteration() throws IOException {
+		//the worker overwrites the branches and traces to ignore
+		this.coverage.resetIterationFiles(this.options);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		SyntheticCoverage.deleteTmpDirectory(this.options);
+	}
+	
+	@Benchmark
+	public ExecutionResult manageLoop() {
+		return this.loopMgr.getWorker(0).call();
+	}
+}
@@ -0,0 +1,61 @@
+package sushi.execution.merger;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import sushi.Options;
+import sushi.bench.SyntheticCoverage;
+import sushi.execution.ExecutionResult;
+
+/**
+ * Measures the merge of the per-method branches, coverage and 
+ * traces files into the global ones.
+ * 
+ * @author Pietro Braione
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MergerWorkerBenchmark {
+	@Param({"100"})
+	public int methods;
+	
+	@Param({"1000", "10000"})
+	public int branches;
+	
+	@Param({"10000", "100000", "1000000"})
+	public int traces;
+	
+	@Param({"20"})
+	public int branchesPerTrace;
+	
+	private Options options;
+	private Merger merger;
+	
+	@Setup
+	public void setup() throws IOException {
+		this.options = SyntheticCoverage.makeOptions();
+		new SyntheticCoverage(this.methods, this.branches, this.traces, this.branchesPerTrace).writeLocal(this.options);
+		this.merger = new Merger(this.options);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		SyntheticCoverage.deleteTmpDirectory(this.options);
+	}
+	
+	@Benchmark
+	public ExecutionResult merge() {
+		return this.merger.getWorker(0).call();
+	}
+}
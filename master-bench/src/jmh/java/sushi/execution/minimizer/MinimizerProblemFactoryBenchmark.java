@@ -0,0 +1,78 @@
+package sushi.execution.minimizer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import sushi.Options;
+import sushi.bench.SyntheticCoverage;
+
+/**
+ * Measures the construction of the linear problem of the minimizer
+ * with the GLPK and the ojAlgo backends. The GLPK benchmark needs
+ * the native part of GLPK-Java in the {@code java.library.path}.
+ * 
+ * @author Pietro Braione
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MinimizerProblemFactoryBenchmark {
+	@Param({"100"})
+	public int methods;
+	
+	@Param({"1000", "10000"})
+	public int branches;
+	
+	@Param({"10000", "100000"})
+	public int traces;
+	
+	@Param({"20"})
+	public int branchesPerTrace;
+	
+	@Param({"GLPK", "OjAlgo"})
+	public String backend;
+	
+	private Options options;
+	private MinimizerParameters parameters;
+	private MinimizerProblemFactory<?> factory;
+	
+	@Setup
+	public void setup() throws IOException {
+		this.options = SyntheticCoverage.makeOptions();
+		this.options.setParallelismEvosuite(64);
+		this.options.setRedundanceEvosuite(1);
+		new SyntheticCoverage(this.methods, this.branches, this.traces, this.branchesPerTrace).writeGlobal(this.options);
+		this.parameters = new Minimizer(this.options).getInvocationParameters(0);
+	}
+	
+	@Setup(Level.Iteration)
+	public void setupIteration() throws IOException {
+		this.factory = ("GLPK".equals(this.backend) ? 
+						new MinimizerProblemFactoryGLPK(this.parameters) : 
+						new MinimizerProblemFactoryOjAlgo(this.parameters));
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		SyntheticCoverage.deleteTmpDirectory(this.options);
+	}
+	
+	@Benchmark
+	public void makeProblem(Blackhole bh) throws IOException {
+		try (final MinimizerProblem p = this.factory.makeProblem()) {
+			bh.consume(p);
+		}
+	}
+}
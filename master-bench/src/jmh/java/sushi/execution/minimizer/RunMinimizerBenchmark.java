@@ -0,0 +1,74 @@
+package sushi.execution.minimizer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import sushi.Options;
+import sushi.bench.SyntheticCoverage;
+
+/**
+ * Measures a whole minimizer run, i.e., the selection of the traces 
+ * for all the synthesis tasks. It needs the native part of GLPK-Java 
+ * in the {@code java.library.path}.
+ * 
+ * @author Pietro Braione
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RunMinimizerBenchmark {
+	@Param({"100"})
+	public int methods;
+	
+	@Param({"1000", "10000"})
+	public int branches;
+	
+	@Param({"10000", "100000"})
+	public int traces;
+	
+	@Param({"20"})
+	public int branchesPerTrace;
+	
+	@Param({"64"})
+	public int tasks;
+	
+	private Options options;
+	private SyntheticCoverage coverage;
+	private MinimizerParameters parameters;
+	
+	@Setup
+	public void setup() throws IOException {
+		this.options = SyntheticCoverage.makeOptions();
+		this.options.setParallelismEvosuite(this.tasks);
+		this.options.setRedundanceEvosuite(1);
+		this.coverage = new SyntheticCoverage(this.methods, this.branches, this.traces, this.branchesPerTrace);
+		this.coverage.writeGlobal(this.options);
+		this.parameters = new Minimizer(this.options).getInvocationParameters(0);
+	}
+	
+	@Setup(Level.Iteration)
+	public void setupIteration() throws IOException {
+		this.coverage.resetIterationFiles(this.options);
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		SyntheticCoverage.deleteTmpDirectory(this.options);
+	}
+	
+	@Benchmark
+	public int run() {
+		return new RunMinimizer(this.parameters).run();
+	}
+}
@@ -5,43 +5,62 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.ParserProperties;
 
 import sushi.exceptions.CheckClasspathException;
+import sushi.exceptions.CheckpointException;
 import sushi.exceptions.InternalUnexpectedException;
 import sushi.exceptions.TerminationException;
 import sushi.exceptions.ToolAbortException;
+import sushi.execution.BudgetLedger;
 import sushi.execution.ExecutionManager;
 import sushi.execution.ExecutionResult;
+import sushi.execution.Metrics;
+import sushi.execution.ResourceGovernor;
 import sushi.execution.Tool;
 import sushi.execution.bestpath.BestPath;
 import sushi.execution.evosuite.Evosuite;
 import sushi.execution.javac.Javac;
+import sushi.execution.jbse.JBSEChildPool;
 import sushi.execution.jbse.JBSEMethods;
 import sushi.execution.jbse.JBSETraces;
+import sushi.execution.jbse.Z3Pool;
 import sushi.execution.listpaths.ListPaths;
 import sushi.execution.loopend.LoopEnd;
 import sushi.execution.loopmgr.LoopMgr;
 import sushi.execution.merger.Merger;
 import sushi.execution.minimizer.Minimizer;
+import sushi.execution.remote.AgentPool;
 import sushi.logging.Logger;
+import sushi.util.Checkpoint;
 import sushi.util.ClassReflectionUtils;
 import sushi.util.DirectoryUtils;
+import sushi.util.LogContext;
 
 public class Main {
+	/** Matches the glob patterns in the {@code -target_classes} option. */
+	private static final Pattern GLOB = Pattern.compile("[*?\\[{]");
+	
 	/** The configuration {@link Options}. */
 	private final Options options;
-	
-	/** A flag that indicates if the global timeout has expired. */
-	private boolean timedOut;
 
 	public Main(Options options) { 
 		this.options = options;
@@ -49,27 +68,83 @@ public class Main {
 	
 	public int start() {
 		try {
+			if (this.options.getTargetClasses() != null) {
+				LogContext.install();
+			}
 			configureLogger();
 			final Logger logger = new Logger(Main.class);
 
 			logger.info("This is " + getName() + ", version " + getVersion() + ", " + '\u00a9' + " 2015-2021 " + getVendor());
 
+			ResourceGovernor.configure(this.options);
+			Z3Pool.configure(this.options);
+			if (this.options.getForkJBSE()) {
+				JBSEChildPool.configure();
+				if (this.options.getSolverCache()) {
+					logger.warn("The solver cache is not supported by the generation tasks running in child JVMs, ignoring -solver_cache");
+				}
+			}
+			
+			if (this.options.getAgentPort() > 0) {
+				if (this.options.getAgentToken() == null || this.options.getAgentToken().isEmpty()) {
+					logger.fatal("Option -agent_port requires option -agent_token");
+					return 1;
+				}
+				try {
+					AgentPool.listen(this.options.getAgentAddress(), this.options.getAgentPort(), this.options.getAgentToken());
+				} catch (IOException e) {
+					logger.fatal("Unable to listen for agents on " + this.options.getAgentAddress() + ":" + this.options.getAgentPort() + ": " + e.getMessage());
+					throw e;
+				}
+			}
+			
+			final int retVal = (this.options.getTargetClasses() == null ? run(logger) : runTargetClasses(logger));
+			if (retVal == 0) {
+				logger.info(getName() + " terminates");
+			}
+			return retVal;
+		} catch (IOException e) {
+			return 1;
+		} catch (InternalUnexpectedException e) {
+			return 2;
+		} finally {
+			Z3Pool.get().close();
+			JBSEChildPool.get().close();
+		}
+	}
+	
+	/**
+	 * Generates the tests for the target of the options.
+	 * 
+	 * @param logger a {@link Logger}.
+	 * @return an {@code int}, the exit status.
+	 */
+	private int run(Logger logger) {
+		BudgetLedger ledger = null;
+		try {
 			checkPrerequisites(logger);
 
 			final Tool<?>[] tools;
 			final int repeatFrom;
+			final int pipelineFrom, pipelineTo;
 			switch (this.options.getCoverage()) {
 			case PATHS:
 				tools = new Tool[]{ new JBSEMethods(this.options, true), new Merger(this.options), new ListPaths(this.options), new Javac(this.options), new Evosuite(this.options), new LoopEnd() };
 				repeatFrom = -1;
+				pipelineFrom = 3;
+				pipelineTo = 4;
 				break;
 			case UNSAFE:
 				tools = new Tool[]{ new JBSEMethods(this.options, false), new Merger(this.options), new BestPath(this.options), new JBSETraces(this.options), new Javac(this.options), new Evosuite(this.options), new LoopEnd() };
 				repeatFrom = -1;
+				pipelineFrom = 3;
+				pipelineTo = 5;
 				break;
 			case BRANCHES:
 				tools = new Tool[]{ new JBSEMethods(this.options, false), new Merger(this.options), new Minimizer(this.options), new JBSETraces(this.options), new Javac(this.options), new Evosuite(this.options), new LoopMgr(this.options) };
 				repeatFrom = 2;
+				pipelineFrom = 3;
+				pipelineTo = 5;
 				break;
 			default:
 				logger.error("Unexpected internal error: unexpected value for -cov option");
@@ -78,23 +153,132 @@ public class Main {
 
 			final boolean doEverything = (this.options.getPhases() == null);
 
-			makeGlobalTimeoutThread();
+			Metrics.configure(this.options, tools);
+			ledger = BudgetLedger.configure(this.options, tools);
 
-			doMainToolsLoop(logger, tools, repeatFrom, doEverything);
+			final boolean doPipeline = (doEverything && this.options.getPipeline());
+			
+			final Checkpoint checkpoint;
+			if (this.options.getResumeDirectory() == null) {
+				checkpoint = null;
+				Checkpoint.delete(this.options);
+			} else {
+				checkpoint = Checkpoint.read(this.options);
+				logger.info("Resuming after phase " + checkpoint.getPhase() + " of " + DirectoryUtils.getTmpDirPath(this.options).toString());
+			}
+
+			doMainToolsLoop(logger, tools, ledger, repeatFrom, doEverything, (doPipeline ? pipelineFrom : -1), (doPipeline ? pipelineTo : -1), checkpoint);
 
-			logger.info(getName() + " terminates");
 			return 0;
 		} catch (CheckClasspathException e) {
 			return 1;
 		} catch (ToolAbortException e) {
 			return 1;
+		} catch (CheckpointException e) {
+			return 1;
 		} catch (IOException e) {
 			return 1;
-		} catch (InternalUnexpectedException e) {
-			return 2;
+		} finally {
+			if (ledger != null) {
+				ledger.close();
+			}
 		}
 	}
 	
+	/**
+	 * Generates the tests for all the classes of the {@code -target_classes}
+	 * option in this JVM, so they share the class loaders, the timings of 
+	 * the tasks, and above all the {@link ResourceGovernor}. Each class is 
+	 * processed as with {@code -target_class}, with its own temporary 
+	 * subdirectory. Up to {@code -target_classes_parallelism} classes are
+	 * processed at the same time, so that the tasks of a class fill the 
+	 * cores while another class is in a phase with few tasks (e.g., the 
+	 * merge or the compilation); The classes are started in order.
+	 * 
+	 * @param logger a {@link Logger}.
+	 * @return an {@code int}, the exit status: {@code 0} if the tests were 
+	 *         generated for all the classes, otherwise the worst exit status 
+	 *         of the classes.
+	 * @throws IOException if the classpath cannot be scanned for the classes.
+	 */
+	private int runTargetClasses(Logger logger) throws IOException {
+		final LinkedHashSet<String> targetClasses = new LinkedHashSet<>();
+		for (String pattern : this.options.getTargetClasses()) {
+			final String internalPattern = pattern.trim().replace('.', '/');
+			if (internalPattern.isEmpty()) {
+				continue;
+			}
+			if (GLOB.matcher(internalPattern).find()) {
+				final List<String> matching = ClassReflectionUtils.getClassesMatching(this.options, internalPattern);
+				if (matching.isEmpty()) {
+					logger.warn("No class in the classpath matches " + pattern);
+				}
+				targetClasses.addAll(matching);
+			} else {
+				targetClasses.add(internalPattern);
+			}
+		}
+		if (targetClasses.isEmpty()) {
+			logger.error("No class to generate tests for");
+			return 1;
+		}
+		
+		final int parallelism = Math.max(1, Math.min(this.options.getTargetClassesParallelism(), targetClasses.size()));
+		logger.info("Generating tests for " + targetClasses.size() + " classes, " + parallelism + " at a time");
+		final Path tmpDirPath = DirectoryUtils.getTmpDirPath(this.options);
+		final ExecutorService scheduler = Executors.newFixedThreadPool(parallelism);
+		final LinkedHashMap<String, Future<Integer>> exitStatuses = new LinkedHashMap<>();
+		for (String targetClass : targetClasses) {
+			final Options targetOptions = this.options.clone();
+			targetOptions.setTargetClasses();
+			targetOptions.setTargetClass(targetClass);
+			targetOptions.setSharedDirectoryBase(this.options.getSharedDirectoryBase());
+			targetOptions.setTmpDirectoryBase(tmpDirPath);
+			targetOptions.setTmpDirectoryName(targetClass.replace('/', '.'));
+			final Main target = new Main(targetOptions);
+			exitStatuses.put(targetClass, scheduler.submit(() -> {
+				//all the log lines about the target, of all the 
+				//threads working on it, start with its name 
+				LogContext.set(targetClass.replace('/', '.') + ": ");
+				try {
+					logger.info("generating tests");
+					final int exitStatus = target.run(logger);
+					logger.info(exitStatus == 0 ? "done" : "failed with exit status " + exitStatus);
+					return exitStatus;
+				} finally {
+					LogContext.set(null);
+				}
+			}));
+		}
+		scheduler.shutdown();
+		
+		int retVal = 0;
+		final ArrayList<String> failed = new ArrayList<>();
+		for (Map.Entry<String, Future<Integer>> entry : exitStatuses.entrySet()) {
+			int exitStatus;
+			try {
+				exitStatus = entry.getValue().get();
+			} catch (ExecutionException e) {
+				logger.error(entry.getKey().replace('/', '.') + ": unexpected internal error", e.getCause());
+				exitStatus = 2;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				scheduler.shutdownNow();
+				return 2;
+			}
+			if (exitStatus != 0) {
+				failed.add(entry.getKey().replace('/', '.'));
+				retVal = Math.max(retVal, exitStatus);
+			}
+		}
+		if (failed.isEmpty()) {
+			logger.info("Generated tests for all the " + targetClasses.size() + " classes");
+		} else {
+			logger.error("Unable to generate tests for " + failed.size() + " of " + targetClasses.size() + " classes: " + String.join(", ", failed));
+		}
+		return retVal;
+	}
+	
     /**
      * Configures the logger.
      * 
@@ -159,70 +343,95 @@ public class Main {
 		DirectoryUtils.possiblyCreateTmpDir(this.options);
 	}
 	
-	/**
-	 * Makes and runs a thread that detects when the global
-	 * timeout expires.
-	 */
-	private void makeGlobalTimeoutThread() {
-		this.timedOut = false;
-		if (this.options.getGlobalBudget() > 0) {
-			Thread chrono = new Thread(() -> {
-				try {
-					Thread.sleep(this.options.getGlobalBudget() * 1000);
-				} catch (InterruptedException e) {
-					//should never happen, in any case fallthrough
-					//should be ok
-				}
-				setTimedOut();
-			});
-			chrono.start();
-		}
-	}
-	
-	private synchronized void setTimedOut() {
-		this.timedOut = true;
-	}
-	
-	private synchronized boolean timedOut() {
-		return this.timedOut;
-	}
-	
-	private void doMainToolsLoop(Logger logger, Tool<?>[] tools, int repeatFrom, boolean doEverything) 
-	throws ToolAbortException {
+	private void doMainToolsLoop(Logger logger, Tool<?>[] tools, BudgetLedger ledger, int repeatFrom, boolean doEverything, int pipelineFrom, int pipelineTo, Checkpoint checkpoint) 
+	throws ToolAbortException, CheckpointException {
 		int currentPhase = 1;
 		int nextToolIndex = 0;
+		int iteration = 0;
+		if (checkpoint != null) {
+			currentPhase = checkpoint.getPhase() + 1;
+			nextToolIndex = (checkpoint.getToolIndex() == tools.length - 1 ? repeatFrom : checkpoint.getToolIndex() + 1);
+			iteration = checkpoint.getIteration() + (checkpoint.getToolIndex() == tools.length - 1 ? 1 : 0);
+			if (nextToolIndex < 0) {
+				logger.info("Nothing left to do after the checkpoint");
+				return;
+			}
+		}
 		int lastRequiredPhase = (doEverything ? -1 : Collections.max(this.options.getPhases()));
 		while (true) {
-			final Tool<?> tool = tools[nextToolIndex];
-			if (doEverything || this.options.getPhases().contains(currentPhase)) {
-				logger.info("Phase " + currentPhase + ": executing tool " + tool.getName());
-				final ExecutionResult[] result;
+			if (nextToolIndex == pipelineFrom) {
+				//executes the tools in the pipeline together
+				final Tool<?>[] stages = Arrays.copyOfRange(tools, pipelineFrom, pipelineTo + 1);
+				logger.info("Phases " + currentPhase + "-" + (currentPhase + stages.length - 1) + ": executing tools " + Arrays.stream(stages).map(Tool::getName).collect(Collectors.joining(", ")) + " as a pipeline");
+				final ExecutionResult[][] results;
 				try {
-					result = ExecutionManager.execute(tool);
+					results = ExecutionManager.executePipeline(stages);
 				} catch (TerminationException e) {
 					if (e.getMessage() != null) {
 						logger.info(e.getMessage());
 					}
 					break;
 				}
-				tool.reset();
-				for (int i = 0; i < result.length; ++i) {
-					if (result[i] != null && result[i].getExitStatus() != 0) {
-						logger.error("Tool " + tool.getName() + " task " + tool.tasks().get(i / tool.redundance()) + " terminated with exit status " + result[i].getExitStatus());
-						throw new ToolAbortException();
+				if (ledger.expired()) {
+					//the pipeline was preempted, do not checkpoint it
+					logger.info("Global time budget exhausted");
+					break;
+				}
+				for (int stage = 0; stage < stages.length; ++stage) {
+					checkResults(logger, stages[stage], results[stage]);
+				}
+				currentPhase += stages.length - 1;
+				nextToolIndex = pipelineTo;
+				Checkpoint.write(this.options, currentPhase, nextToolIndex, iteration);
+			} else {
+				final Tool<?> tool = tools[nextToolIndex];
+				if (doEverything || this.options.getPhases().contains(currentPhase)) {
+					logger.info("Phase " + currentPhase + ": executing tool " + tool.getName());
+					final ExecutionResult[] result;
+					try {
+						result = ExecutionManager.execute(tool);
+					} catch (TerminationException e) {
+						if (e.getMessage() != null) {
+							logger.info(e.getMessage());
+						}
+						break;
+					}
+					if (ledger.expired()) {
+						//the phase was preempted, do not checkpoint it
+						logger.info("Global time budget exhausted");
+						break;
 					}
+					checkResults(logger, tool, result);
+					if (doEverything) {
+						Checkpoint.write(this.options, currentPhase, nextToolIndex, iteration);
+					}
+				} else if (currentPhase > lastRequiredPhase) {
+					break;
 				}
-			} else if (currentPhase > lastRequiredPhase) {
-				break;
 			}
 			++currentPhase;
-			nextToolIndex = (nextToolIndex == tools.length - 1 ? repeatFrom : nextToolIndex + 1);
-			if (timedOut()) {
+			if (nextToolIndex == tools.length - 1) {
+				nextToolIndex = repeatFrom;
+				++iteration;
+			} else {
+				++nextToolIndex;
+			}
+			if (ledger.expired()) {
 				logger.info("Global time budget exhausted");
 				break;
 			}
 		}
 	}
+	
+	private static void checkResults(Logger logger, Tool<?> tool, ExecutionResult[] result) throws ToolAbortException {
+		tool.reset();
+		for (int i = 0; i < result.length; ++i) {
+			if (result[i] != null && result[i].getExitStatus() != 0) {
+				logger.error("Tool " + tool.getName() + " task " + tool.tasks().get(i / tool.redundance()) + " terminated with exit status " + result[i].getExitStatus());
+				throw new ToolAbortException();
+			}
+		}
+	}
 
     /**
      * Returns the name of this application, as resulting
@@ -274,7 +483,7 @@ public class Main {
 		}
 		
 		if (!options.isConsistent()) {
-			System.err.println("Error: one of -target_class, -target_method, or -params_modifier_class options must be specified.");
+			System.err.println("Error: one of -target_class, -target_classes, -target_method, or -params_modifier_class options must be specified.");
 			printUsage(parser);
 			System.exit(1);
 		}
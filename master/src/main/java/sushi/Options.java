@@ -1,5 +1,13 @@
 package sushi;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
@@ -28,7 +36,9 @@ import sushi.optionhandlers.SignatureOptionHandler;
  * 
  * @author Pietro Braione
  */
-public final class Options {
+public final class Options implements Serializable, Cloneable {
+	private static final long serialVersionUID = -4571204783622093841L;
+
 	@Option(name = "-help",
 			usage = "Prints usage and exits",
 			help = true)
@@ -69,7 +79,16 @@ public final class Options {
 			usage = "Java signature of the class for which the tests must be generated (default: none, either this or the -target_method option or the -params_modifier_class option must be specified)")
 	private String targetClassSignature;
 
-	/* TODO -target_package? */
+	@Option(name = "-target_classes",
+			forbids = {"-target_class", "-target_method", "-options_config_class", "-resume"},
+			depends = {"-classes"},
+			usage = "Colon-separated list of the classes for which the tests must be generated in a single run, each either a class name or a glob pattern over the class names in the -classes path (e.g., com/acme/**); Each class has its own temporary subdirectory")
+	private String targetClassesPatterns;
+
+	@Option(name = "-target_classes_parallelism",
+			usage = "Maximum number of classes of -target_classes processed at the same time")
+	private int parallelismTargetClasses = 2;
+
 
 	@Option(name = "-visibility",
 			usage = "For which methods defined in the class should generate tests: PUBLIC (public methods), PACKAGE (public, protected and package methods)")
@@ -88,6 +107,22 @@ public final class Options {
 			usage = "Name of the temporary subdirectory to use or create")
 	private String tmpDirName = new SimpleDateFormat("yyyy_MM_dd_HH_mm_ss").format(new Date());
 
+	@Option(name = "-resume",
+			forbids = {"-tmp_base", "-tmp_name", "-phases"},
+			usage = "Temporary directory of an interrupted run to be resumed from the phase after its last checkpoint (the other options must be the same as the interrupted run)",
+			handler = PathOptionHandler.class)
+	private Path resumeDir;
+
+	/** 
+	 * The base directory of the files shared by subsequent runs, 
+	 * {@code null} if it is the base of the temporary directories. 
+	 */
+	private Path sharedDirBase = null;
+
+	@Option(name = "-coverage_text",
+			usage = "Whether the coverage of the traces is also exported as text in the temporary directory, for debugging")
+	private boolean coverageText = false;
+
 	@Option(name = "-out",
 			usage = "Output directory where the java source files of the created test suite must be put",
 			handler = PathOptionHandler.class)
@@ -98,6 +133,18 @@ public final class Options {
 			handler = PathOptionHandler.class)
 	private Path z3Path = Paths.get("/usr", "bin", "z3");
 
+	@Option(name = "-z3_pool_size",
+			usage = "Maximum number of idle Z3 processes kept alive to be reused by the symbolic executions, 0 means that every symbolic execution launches its own Z3 processes, -1 means two per host core")
+	private int z3PoolSize = -1;
+
+	@Option(name = "-solver_cache",
+			usage = "Whether the results of the satisfiability queries of the symbolic executions must be cached and shared by all the generation tasks and iterations (ignored if -generation_fork)")
+	private boolean solverCache = false;
+
+	@Option(name = "-solver_cache_on_disk",
+			usage = "Whether the solver cache (see -solver_cache) must be stored in the temporary directory, so it is reused when a run is resumed")
+	private boolean solverCacheOnDisk = false;
+
 	@Option(name = "-java8_home",
 			usage = "Path to Java 8 home (default: none, use Java executables on the system PATH)",
 			handler = PathOptionHandler.class)
@@ -151,10 +198,82 @@ public final class Options {
 			usage = "Number of parallel synthesis tasks per trace")
 	private int redundanceEvosuite = 3;
 
+	@Option(name = "-host_cores",
+			usage = "Number of cores of the host that the tasks of all the phases may use at the same time, 0 means all the available cores")
+	private int hostCores = 0;
+
+	@Option(name = "-host_memory",
+			usage = "Memory in MB of the host that the tasks of all the phases may use at the same time, 0 means all the physical memory")
+	private int hostMemory = 0;
+
+	@Option(name = "-agent_port",
+			usage = "Port where agents running on other hosts may connect to execute generation and synthesis tasks, 0 means no agents")
+	private int agentPort = 0;
+
+	@Option(name = "-agent_address",
+			usage = "Address of the network interface where the agents may connect (see -agent_port)")
+	private String agentAddress = "127.0.0.1";
+
+	@Option(name = "-agent_token",
+			usage = "Secret shared with the agents, which must present it when they connect (required if -agent_port is not 0)")
+	private String agentToken = null;
+
+	@Option(name = "-generation_flush_interval",
+			usage = "Interval in milliseconds between two flushes of the coverage and traces files written during generation phase, 0 means after every trace")
+	private int flushIntervalJBSE = 1000;
+
+	@Option(name = "-generation_task_memory",
+			usage = "Memory in MB reserved in the SUSHI heap by each task of the generation phase, or the heap of each child process if -generation_fork")
+	private int taskMemoryJBSE = 1024;
+
+	@Option(name = "-generation_dedup",
+			usage = "Whether the traces of a method that cover the same branches are deduplicated, keeping only the one with the smallest path condition")
+	private boolean dedupJBSE = false;
+
+	@Option(name = "-generation_adaptive_budget",
+			usage = "Whether the generation budget is split across the methods in proportion to the new coverage a short pre-flight exploration expects from them, rather than evenly (ignored if -generation_fork)")
+	private boolean adaptiveBudgetJBSE = false;
+
+	@Option(name = "-generation_preflight_budget",
+			usage = "Time budget in seconds of the pre-flight exploration of each method (see -generation_adaptive_budget)")
+	private int preflightBudgetJBSE = 2;
+
+	@Option(name = "-generation_search_stall",
+			usage = "Number of branch points after which the exploration abandons a trace that does not cover any new branch, 0 means that the exploration is plain depth-first")
+	private int searchStallJBSE = 0;
+
+	@Option(name = "-generation_cache",
+			usage = "Whether the explorations of the methods are cached across runs, so the methods whose class, the classes it depends on, and settings did not change are not explored again")
+	private boolean cacheJBSE = false;
+
+	@Option(name = "-generation_split_depth",
+			usage = "Depth in branches after which the exploration of a method is split in subregions explored in parallel, 0 means no split (ignored if -generation_fork)")
+	private int splitDepthJBSE = 0;
+
+	@Option(name = "-generation_fork",
+			usage = "Whether the tasks of the generation phase must run in a pool of child JVMs rather than in the SUSHI JVM")
+	private boolean forkJBSE = false;
+
+	@Option(name = "-synthesis_task_memory",
+			usage = "Memory in MB reserved by each EvoSuite process during synthesis phase, 0 means that it is sized based on the available memory")
+	private int taskMemoryEvosuite = 0;
+
+	@Option(name = "-synthesis_hedging",
+			usage = "Whether synthesis must start a single replica per task, and start the other ones (up to -synthesis_redundance) only when it does not generate a test soon enough or when some core is idle")
+	private boolean hedgingEvosuite = false;
+
+	@Option(name = "-synthesis_hedging_percentile",
+			usage = "Percentile of the times to the first generated test of the tasks after which a further replica of a task that did not yet generate a test is started")
+	private int hedgingPercentileEvosuite = 75;
+
 	@Option(name = "-evosuite_no_dependency",
 			usage = "Whether the generated tests should have no dependency on the EvoSuite runtime")
 	private boolean evosuiteNoDependency = false;
 
+	@Option(name = "-pipeline",
+			usage = "Whether trace emission, compilation and synthesis must overlap, so that each synthesis task starts as soon as the wrappers of its targets are compiled (ignored when -phases is specified)")
+	private boolean pipeline = false;
+
 	@Option(name = "-global_time_budget",
 			usage = "Time budget in seconds for the whole generation process, -1 for unlimited")
 	private int budgetGlobal = -1;
@@ -218,7 +337,8 @@ public final class Options {
 	public boolean isConsistent() {
 		if (this.paramsClass == null &&
 			this.targetClassSignature == null &&
-			this.targetMethodSignature == null) {
+			this.targetMethodSignature == null &&
+			this.targetClassesPatterns == null) {
 			return false;
 		}
 		return true;
@@ -287,6 +407,22 @@ public final class Options {
 		this.targetClassSignature = targetClass;
 	}
 
+	public List<String> getTargetClasses() {
+		return (this.targetClassesPatterns == null ? null : Arrays.asList(this.targetClassesPatterns.split(":")));
+	}
+
+	public void setTargetClasses(String... patterns) {
+		this.targetClassesPatterns = (patterns.length == 0 ? null : String.join(":", patterns));
+	}
+
+	public int getTargetClassesParallelism() {
+		return this.parallelismTargetClasses;
+	}
+
+	public void setTargetClassesParallelism(int parallelismTargetClasses) {
+		this.parallelismTargetClasses = parallelismTargetClasses;
+	}
+
 	public Visibility getVisibility() {
 		return this.visibility;
 	}
@@ -304,6 +440,10 @@ public final class Options {
 	}
 
 	public Path getTmpDirectoryBase() {
+		if (this.resumeDir != null) {
+			final Path parent = this.resumeDir.toAbsolutePath().getParent();
+			return (parent == null ? this.tmpDirBase : parent);
+		}
 		return this.tmpDirBase;
 	}
 
@@ -311,7 +451,35 @@ public final class Options {
 		this.tmpDirBase = base;
 	}
 
+	/**
+	 * Returns the base directory of the files shared by subsequent
+	 * runs (e.g., the timings of the tasks). It differs from the base
+	 * of the temporary directories for the targets of a batch run 
+	 * (see {@code -target_classes}), whose temporary directories are 
+	 * in the temporary directory of the batch run.
+	 * 
+	 * @return a {@link Path}.
+	 */
+	public Path getSharedDirectoryBase() {
+		return (this.sharedDirBase == null ? getTmpDirectoryBase() : this.sharedDirBase);
+	}
+
+	public void setSharedDirectoryBase(Path base) {
+		this.sharedDirBase = base;
+	}
+
+	public Path getResumeDirectory() {
+		return this.resumeDir;
+	}
+
+	public void setResumeDirectory(Path resumeDir) {
+		this.resumeDir = resumeDir;
+	}
+
 	public String getTmpDirectoryName() {
+		if (this.resumeDir != null) {
+			return this.resumeDir.toAbsolutePath().getFileName().toString();
+		}
 		return this.tmpDirName;
 	}
 
@@ -319,6 +487,14 @@ public final class Options {
 		this.tmpDirName = name;
 	}
 
+	public boolean getCoverageText() {
+		return this.coverageText;
+	}
+
+	public void setCoverageText(boolean coverageText) {
+		this.coverageText = coverageText;
+	}
+
 	public Path getOutDirPath() {
 		return this.outDir;
 	}
@@ -335,6 +511,30 @@ public final class Options {
 		this.z3Path = z3Path;
 	}
 
+	public int getZ3PoolSize() {
+		return this.z3PoolSize;
+	}
+
+	public void setZ3PoolSize(int z3PoolSize) {
+		this.z3PoolSize = z3PoolSize;
+	}
+
+	public boolean getSolverCache() {
+		return this.solverCache || this.solverCacheOnDisk;
+	}
+
+	public void setSolverCache(boolean solverCache) {
+		this.solverCache = solverCache;
+	}
+
+	public boolean getSolverCacheOnDisk() {
+		return this.solverCacheOnDisk;
+	}
+
+	public void setSolverCacheOnDisk(boolean solverCacheOnDisk) {
+		this.solverCacheOnDisk = solverCacheOnDisk;
+	}
+
 	public Path getJava8Path() {
 		return this.java8Path;
 	}
@@ -431,6 +631,142 @@ public final class Options {
 		this.redundanceEvosuite = redundanceEvosuite;
 	}
 
+	public boolean getHedgingEvosuite() {
+		return this.hedgingEvosuite;
+	}
+
+	public void setHedgingEvosuite(boolean hedgingEvosuite) {
+		this.hedgingEvosuite = hedgingEvosuite;
+	}
+
+	public int getHedgingPercentileEvosuite() {
+		return this.hedgingPercentileEvosuite;
+	}
+
+	public void setHedgingPercentileEvosuite(int hedgingPercentileEvosuite) {
+		this.hedgingPercentileEvosuite = hedgingPercentileEvosuite;
+	}
+
+	public int getHostCores() {
+		return this.hostCores;
+	}
+
+	public void setHostCores(int hostCores) {
+		this.hostCores = hostCores;
+	}
+
+	public int getHostMemory() {
+		return this.hostMemory;
+	}
+
+	public void setHostMemory(int hostMemory) {
+		this.hostMemory = hostMemory;
+	}
+
+	public int getAgentPort() {
+		return this.agentPort;
+	}
+
+	public void setAgentPort(int agentPort) {
+		this.agentPort = agentPort;
+	}
+
+	public String getAgentAddress() {
+		return this.agentAddress;
+	}
+
+	public void setAgentAddress(String agentAddress) {
+		this.agentAddress = agentAddress;
+	}
+
+	public String getAgentToken() {
+		return this.agentToken;
+	}
+
+	public void setAgentToken(String agentToken) {
+		this.agentToken = agentToken;
+	}
+
+	public int getFlushIntervalJBSE() {
+		return this.flushIntervalJBSE;
+	}
+
+	public void setFlushIntervalJBSE(int flushIntervalJBSE) {
+		this.flushIntervalJBSE = flushIntervalJBSE;
+	}
+
+	public int getTaskMemoryJBSE() {
+		return this.taskMemoryJBSE;
+	}
+
+	public void setTaskMemoryJBSE(int taskMemoryJBSE) {
+		this.taskMemoryJBSE = taskMemoryJBSE;
+	}
+
+	public boolean getDedupJBSE() {
+		return this.dedupJBSE;
+	}
+
+	public void setDedupJBSE(boolean dedupJBSE) {
+		this.dedupJBSE = dedupJBSE;
+	}
+
+	public boolean getAdaptiveBudgetJBSE() {
+		return this.adaptiveBudgetJBSE;
+	}
+
+	public void setAdaptiveBudgetJBSE(boolean adaptiveBudgetJBSE) {
+		this.adaptiveBudgetJBSE = adaptiveBudgetJBSE;
+	}
+
+	public int getPreflightBudgetJBSE() {
+		return this.preflightBudgetJBSE;
+	}
+
+	public void setPreflightBudgetJBSE(int preflightBudgetJBSE) {
+		this.preflightBudgetJBSE = preflightBudgetJBSE;
+	}
+
+	public int getSearchStallJBSE() {
+		return this.searchStallJBSE;
+	}
+
+	public void setSearchStallJBSE(int searchStallJBSE) {
+		this.searchStallJBSE = searchStallJBSE;
+	}
+
+	public boolean getCacheJBSE() {
+		return this.cacheJBSE;
+	}
+
+	public void setCacheJBSE(boolean cacheJBSE) {
+		this.cacheJBSE = cacheJBSE;
+	}
+
+	public int getSplitDepthJBSE() {
+		return this.splitDepthJBSE;
+	}
+
+	public void setSplitDepthJBSE(int splitDepthJBSE) {
+		this.splitDepthJBSE = splitDepthJBSE;
+	}
+
+	public boolean getForkJBSE() {
+		return this.forkJBSE;
+	}
+
+	public void setForkJBSE(boolean forkJBSE) {
+		this.forkJBSE = forkJBSE;
+	}
+
+	public int getTaskMemoryEvosuite() {
+		return this.taskMemoryEvosuite;
+	}
+
+	public void setTaskMemoryEvosuite(int taskMemoryEvosuite) {
+		this.taskMemoryEvosuite = taskMemoryEvosuite;
+	}
+
 	public boolean getEvosuiteNoDependency() {
 		return this.evosuiteNoDependency;
 	}
@@ -439,6 +775,14 @@ public final class Options {
 		this.evosuiteNoDependency = evosuiteNoDependency;
 	}
 
+	public boolean getPipeline() {
+		return this.pipeline;
+	}
+
+	public void setPipeline(boolean pipeline) {
+		this.pipeline = pipeline;
+	}
+
 	public int getGlobalBudget() {
 		return this.budgetGlobal;
 	}
@@ -589,4 +933,87 @@ public final class Options {
 	public void setRewriters(Rewriter rewriter, Rewriter... rewriters) {
 		this.rewriters = EnumSet.of(rewriter, rewriters);
 	}
+
+	@Override
+	public Options clone() {
+		try {
+			final Options retVal = (Options) super.clone();
+			if (this.heapScope != null) {
+				retVal.heapScope = new HashMap<>(this.heapScope);
+			}
+			return retVal;
+		} catch (CloneNotSupportedException e) {
+			//this should never happen
+			throw new AssertionError(e);
+		}
+	}
+
+	/*
+	 * Serialization, used to send the options to remote agents. Paths 
+	 * are not serializable, so they are sent as absolute path strings.
+	 */
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		final HashMap<String, Object> fields = new HashMap<>();
+		try {
+			for (Field f : Options.class.getDeclaredFields()) {
+				if (Modifier.isStatic(f.getModifiers())) {
+					continue;
+				}
+				final Object value = f.get(this);
+				if (value == null) {
+					fields.put(f.getName(), null);
+				} else if (f.getType() == Path.class) {
+					fields.put(f.getName(), ((Path) value).toAbsolutePath().toString());
+				} else if (isListOfPaths(f)) {
+					final ArrayList<String> paths = new ArrayList<>();
+					for (Object path : (List<?>) value) {
+						paths.add(((Path) path).toAbsolutePath().toString());
+					}
+					fields.put(f.getName(), paths);
+				} else if (value instanceof List) {
+					fields.put(f.getName(), new ArrayList<>((List<?>) value));
+				} else if (value instanceof Map) {
+					fields.put(f.getName(), new HashMap<>((Map<?, ?>) value));
+				} else {
+					fields.put(f.getName(), value);
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new IOException(e);
+		}
+		out.writeObject(fields);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		final Map<?, ?> fields = (Map<?, ?>) in.readObject();
+		try {
+			for (Field f : Options.class.getDeclaredFields()) {
+				if (Modifier.isStatic(f.getModifiers()) || !fields.containsKey(f.getName())) {
+					continue;
+				}
+				final Object value = fields.get(f.getName());
+				if (value == null) {
+					f.set(this, null);
+				} else if (f.getType() == Path.class) {
+					f.set(this, Paths.get((String) value));
+				} else if (isListOfPaths(f)) {
+					final ArrayList<Path> paths = new ArrayList<>();
+					for (Object path : (List<?>) value) {
+						paths.add(Paths.get((String) path));
+					}
+					f.set(this, paths);
+				} else {
+					f.set(this, value);
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static boolean isListOfPaths(Field f) {
+		final Type t = f.getGenericType();
+		return (f.getType() == List.class && t instanceof ParameterizedType && ((ParameterizedType) t).getActualTypeArguments()[0] == Path.class);
+	}
 }
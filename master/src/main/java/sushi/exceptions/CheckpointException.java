@@ -0,0 +1,19 @@
+package sushi.exceptions;
+
+public class CheckpointException extends Exception {
+
+	private static final long serialVersionUID = -2874390158437749126L;
+
+	public CheckpointException(String arg0) {
+		super(arg0);
+	}
+
+	public CheckpointException(Throwable arg0) {
+		super(arg0);
+	}
+
+	public CheckpointException(String arg0, final Throwable arg1) {
+		super(arg0, arg1);
+	}
+
+}
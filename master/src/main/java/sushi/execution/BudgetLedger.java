@@ -0,0 +1,274 @@
+package sushi.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import sushi.Options;
+import sushi.logging.Logger;
+
+/**
+ * Enforces the global time budget and shares it among the phases.
+ * When the global budget is exhausted the ledger cancels all the
+ * tasks that are running, rather than waiting for the current phase
+ * to end. Moreover, before a phase starts the ledger grants its tool
+ * a share of the remaining time (see {@link Tool#getGrantedBudget()}),
+ * proportional to the time the tool is expected to take with respect
+ * to the tools that must still be executed in the current iteration
+ * of the main loop. Initially a tool is expected to take its whole
+ * time budget, then the average time it took in the previous
+ * iterations, so the shares adapt to the actual behavior of the tools.
+ * The tools executed together as a pipeline (see {@link Pipeline}) 
+ * overlap, so they are granted their budgets together, when the 
+ * pipeline starts, as a share of the remaining time proportional to
+ * the time the whole pipeline is expected to take, i.e., the time of
+ * its longest stage; each stage may use all the share.
+ *
+ * @author Pietro Braione
+ */
+public final class BudgetLedger {
+	private static final Logger logger = new Logger(BudgetLedger.class);
+
+	/** The least budget in seconds granted to a phase. */
+	private static final int MIN_GRANT = 1;
+
+	/** The ledger of the tools that do not belong to a configured run; Its budget is unlimited. */
+	private static final BudgetLedger unconfigured = new BudgetLedger(-1);
+
+	/**
+	 * Configures the ledger of a run, i.e., of the execution of
+	 * the tools for a target, and starts its global budget. Many
+	 * runs may be executed at the same time (see the
+	 * {@code -target_classes} option), each with its ledger.
+	 *
+	 * @param options an {@link Options} object, from which
+	 *        the global time budget is taken.
+	 * @param tools a {@link Tool}{@code []}, the tools executed
+	 *        at each iteration of the main loop of the run, in
+	 *        execution order.
+	 * @return the {@link BudgetLedger} of the run. It must be
+	 *         {@link #close() closed} when the run ends.
+	 */
+	public static BudgetLedger configure(Options options, Tool<?>[] tools) {
+		final BudgetLedger ledger = new BudgetLedger(options.getGlobalBudget());
+		ledger.plan = Arrays.asList(tools);
+		for (Tool<?> tool : tools) {
+			tool.setBudgetLedger(ledger);
+		}
+		return ledger;
+	}
+
+	/**
+	 * Returns the ledger of the run a tool belongs to.
+	 *
+	 * @param tool a {@link Tool}.
+	 * @return the {@link BudgetLedger} of the run of {@code tool}.
+	 */
+	public static BudgetLedger get(Tool<?> tool) {
+		final BudgetLedger retVal = tool.getBudgetLedger();
+		return (retVal == null ? unconfigured : retVal);
+	}
+
+	/** The instant the global budget is exhausted, {@link Long#MAX_VALUE} if unlimited. */
+	private final long deadline;
+
+	/** Fires the expiration of the global budget. */
+	private final ScheduledExecutorService timer;
+
+	/** The tools of an iteration of the main loop, in execution order. */
+	private List<Tool<?>> plan = Collections.emptyList();
+
+	/** For each tool, {number of executions, total elapsed time in milliseconds}. */
+	private final IdentityHashMap<Tool<?>, long[]> elapsed = new IdentityHashMap<>();
+
+	/** The futures of the replicas of the tasks being executed. */
+	private final ArrayList<List<? extends List<Future<ExecutionResult>>>> running = new ArrayList<>();
+
+	/** Read without locking, since the explorations poll it at every step. */
+	private volatile boolean expired = false;
+
+	private BudgetLedger(int globalBudget) {
+		if (globalBudget > 0) {
+			this.deadline = System.currentTimeMillis() + globalBudget * 1000L;
+			this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+				final Thread t = new Thread(r, "global-budget");
+				t.setDaemon(true);
+				return t;
+			});
+			this.timer.schedule(this::expire, globalBudget, TimeUnit.SECONDS);
+		} else {
+			this.deadline = Long.MAX_VALUE;
+			this.timer = null;
+		}
+	}
+
+	/**
+	 * Stops the global budget of the run, that has ended.
+	 */
+	public void close() {
+		if (this.timer != null) {
+			this.timer.shutdownNow();
+		}
+	}
+
+	/**
+	 * Checks whether the global budget is exhausted.
+	 *
+	 * @return {@code true} iff the global budget is exhausted.
+	 */
+	public boolean expired() {
+		return this.expired;
+	}
+
+	private synchronized void expire() {
+		logger.info("Global time budget exhausted, cancelling the running tasks");
+		this.expired = true;
+		for (List<? extends List<Future<ExecutionResult>>> tasksFutures : this.running) {
+			for (List<Future<ExecutionResult>> futures : tasksFutures) {
+				for (Future<ExecutionResult> f : futures) {
+					Coordinator.cancel(f, TaskMetrics.Cancellation.GLOBAL_TIMEOUT);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Grants a tool its share of the remaining global budget. Does
+	 * nothing if the global budget is unlimited.
+	 *
+	 * @param tool the {@link Tool} that is about to be executed.
+	 */
+	synchronized void grant(Tool<?> tool) {
+		if (this.deadline == Long.MAX_VALUE) {
+			return;
+		}
+		final long remaining = Math.max(0, this.deadline - System.currentTimeMillis());
+
+		//the expected time of this tool and of those following it
+		//in the iteration (or of this tool only, if not planned)
+		final long expectedTool = expected(tool);
+		long expectedRest = expectedTool;
+		final int position = indexOf(tool);
+		if (position >= 0) {
+			expectedRest = 0;
+			for (int i = position; i < this.plan.size(); ++i) {
+				expectedRest += expected(this.plan.get(i));
+			}
+		}
+
+		final long share = (expectedRest == 0 ? remaining : remaining * expectedTool / expectedRest);
+		grant(tool, share, remaining);
+	}
+
+	/**
+	 * Grants the stages of a pipeline their share of the remaining
+	 * global budget. Since the stages are executed together, the 
+	 * share is that of the whole pipeline. Does nothing if the global
+	 * budget is unlimited.
+	 *
+	 * @param stages a {@link Tool}{@code []}, the stages of the pipeline
+	 *        that is about to be executed, in order.
+	 */
+	synchronized void grant(Tool<?>[] stages) {
+		if (this.deadline == Long.MAX_VALUE || stages.length == 0) {
+			return;
+		}
+		final long remaining = Math.max(0, this.deadline - System.currentTimeMillis());
+
+		//the expected time of the pipeline, i.e., of its longest 
+		//stage, and of the tools following it in the iteration
+		long expectedPipeline = 0;
+		for (Tool<?> stage : stages) {
+			expectedPipeline = Math.max(expectedPipeline, expected(stage));
+		}
+		long expectedRest = expectedPipeline;
+		final int position = indexOf(stages[stages.length - 1]);
+		if (position >= 0) {
+			for (int i = position + 1; i < this.plan.size(); ++i) {
+				expectedRest += expected(this.plan.get(i));
+			}
+		}
+
+		final long share = (expectedRest == 0 ? remaining : remaining * expectedPipeline / expectedRest);
+		for (Tool<?> stage : stages) {
+			grant(stage, share, remaining);
+		}
+	}
+
+	private void grant(Tool<?> tool, long share, long remaining) {
+		final int grant = (int) Math.max(MIN_GRANT, Math.min(tool.getTimeBudget(), share / 1000));
+		tool.setBudgetGrant(grant);
+		logger.debug("Budget ledger: granted " + grant + " seconds to tool " + tool.getName() + " (remaining " + remaining / 1000 + " seconds)");
+	}
+
+	private int indexOf(Tool<?> tool) {
+		for (int i = 0; i < this.plan.size(); ++i) {
+			if (this.plan.get(i) == tool) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the time a tool is expected to take.
+	 *
+	 * @param tool a {@link Tool}.
+	 * @return a {@code long}, the average time in milliseconds the
+	 *         tool took in the previous executions or, if it was never
+	 *         executed, its time budget.
+	 */
+	private long expected(Tool<?> tool) {
+		final long[] e = this.elapsed.get(tool);
+		if (e == null || e[0] == 0) {
+			return tool.getTimeBudget() * 1000L;
+		}
+		return e[1] / e[0];
+	}
+
+	/**
+	 * Records the time taken by the execution of a tool.
+	 *
+	 * @param tool a {@link Tool}.
+	 * @param elapsed a {@code long}, the time in milliseconds.
+	 */
+	synchronized void record(Tool<?> tool, long elapsed) {
+		final long[] e = this.elapsed.computeIfAbsent(tool, t -> new long[2]);
+		++e[0];
+		e[1] += elapsed;
+	}
+
+	/**
+	 * Registers the replicas of the tasks of a tool that is about to
+	 * be executed, so they are cancelled when the global budget is
+	 * exhausted. If it is already exhausted they are cancelled at once.
+	 *
+	 * @param tasksFutures the futures of the replicas of the tasks.
+	 */
+	synchronized void register(List<? extends List<Future<ExecutionResult>>> tasksFutures) {
+		this.running.add(tasksFutures);
+		if (this.expired) {
+			for (List<Future<ExecutionResult>> futures : tasksFutures) {
+				for (Future<ExecutionResult> f : futures) {
+					Coordinator.cancel(f, TaskMetrics.Cancellation.GLOBAL_TIMEOUT);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Unregisters the replicas of the tasks of a tool that was executed.
+	 *
+	 * @param tasksFutures the futures of the replicas of the tasks, as
+	 *        passed to {@link #register(List)}.
+	 */
+	synchronized void unregister(List<? extends List<Future<ExecutionResult>>> tasksFutures) {
+		this.running.remove(tasksFutures);
+	}
+}
@@ -1,12 +1,88 @@
 package sushi.execution;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public abstract class Coordinator {
 	protected final Tool<?> tool;
+	private Consumer<Future<ExecutionResult>> launcher;
 	
 	public Coordinator(Tool<?> tool) { this.tool = tool; }
+	
+	final void setLauncher(Consumer<Future<ExecutionResult>> launcher) {
+		this.launcher = launcher;
+	}
+	
+	/**
+	 * Launches a replica that was not launched at the start of
+	 * the execution (see {@link Tool#replicasAtStart()}).
+	 * 
+	 * @param replica the {@link Future} of the replica, as found 
+	 *        in the {@code tasksFutures} parameter of 
+	 *        {@link #start(ArrayList, BlockingQueue) start}.
+	 */
+	protected final void launch(Future<ExecutionResult> replica) {
+		this.launcher.accept(replica);
+	}
 
-	public abstract ExecutionResult[] start(ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures);
+	/**
+	 * Cancels a replica, recording the cause in its
+	 * {@link TaskMetrics}.
+	 *
+	 * @param replica the {@link Future} of the replica, as found
+	 *        in the {@code tasksFutures} parameter of
+	 *        {@link #start(ArrayList, BlockingQueue) start}.
+	 * @param cause a {@link TaskMetrics.Cancellation}, the reason why
+	 *        {@code replica} is cancelled.
+	 */
+	protected static void cancel(Future<ExecutionResult> replica, TaskMetrics.Cancellation cause) {
+		if (replica.isDone()) {
+			return;
+		}
+		if (replica instanceof NotifyingFutureTask) {
+			((NotifyingFutureTask) replica).getMetrics().cancelling(cause);
+		}
+		replica.cancel(true);
+	}
+
+	/**
+	 * Coordinates the execution of the tasks of a tool and 
+	 * collects their results.
+	 * 
+	 * @param tasksFutures the futures of the replicas of the tasks, 
+	 *        in task order.
+	 * @param completions a {@link BlockingQueue} where each future in 
+	 *        {@code tasksFutures} is put as soon as it is done, i.e., when
+	 *        it completes, fails or is cancelled (see {@link NotifyingFutureTask}).
+	 *        Only the first {@link Tool#replicasAtStart()} replicas of each
+	 *        task are launched, the coordinator must either {@link #launch(Future) launch}
+	 *        or cancel the other ones.
+	 * @return an {@link ExecutionResult}{@code []} with the results of
+	 *         the replicas; The result of replica {@code r} of the task
+	 *         in position {@code t} is at position 
+	 *         {@code t * tool.redundance() + r}.
+	 */
+	public abstract ExecutionResult[] start(ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures, BlockingQueue<Future<ExecutionResult>> completions);
+	
+	/**
+	 * Maps each future to the position of its result in the array
+	 * returned by {@link #start(ArrayList, BlockingQueue)}.
+	 * 
+	 * @param tasksFutures the futures of the replicas of the tasks.
+	 * @return an {@link IdentityHashMap} mapping each future 
+	 *         to its position.
+	 */
+	protected final IdentityHashMap<Future<ExecutionResult>, Integer> positions(ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures) {
+		final IdentityHashMap<Future<ExecutionResult>, Integer> retVal = new IdentityHashMap<>();
+		for (int task = 0; task < tasksFutures.size(); ++task) {
+			final ArrayList<Future<ExecutionResult>> futures = tasksFutures.get(task);
+			for (int replica = 0; replica < futures.size(); ++replica) {
+				retVal.put(futures.get(replica), task * this.tool.redundance() + replica);
+			}
+		}
+		return retVal;
+	}
 }
@@ -1,14 +1,14 @@
 package sushi.execution;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.TimeUnit;
 
 import sushi.exceptions.TerminationException;
-import sushi.exceptions.WorkerException;
 import sushi.logging.Logger;
 
 public class DefaultCoordinator extends Coordinator {
@@ -16,90 +16,98 @@ public class DefaultCoordinator extends Coordinator {
 	
 	public DefaultCoordinator(Tool<?> tool) { super(tool); }
 	
-	private boolean terminate;
-	private String message;
-
 	@Override
-	public ExecutionResult[] start(ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures) {
-		setTerminate(false, null);
+	public ExecutionResult[] start(ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures, BlockingQueue<Future<ExecutionResult>> completions) {
 		final ExecutionResult[] retVal = new ExecutionResult[this.tool.tasks().size() * this.tool.redundance()];
-		final Thread[] takers = new Thread[retVal.length];
-		for (int i = 0; i < takers.length; ++i) {
-			final int threadNumber = i; //to make the compiler happy
-			final int taskNumber = threadNumber / this.tool.redundance();
-			final int replicaNumber = threadNumber % this.tool.redundance();
-			final ArrayList<Future<ExecutionResult>> futures = tasksFutures.get(taskNumber);
-			final Future<ExecutionResult> thisThreadFuture = futures.get(replicaNumber);
-			takers[i] = new Thread(() -> {
-				//waits for the result of its worker
-				try {
-					if (this.tool.delegateTimeoutToCoordinator()) {
-						retVal[threadNumber] = thisThreadFuture.get(this.tool.getTimeBudget(), TimeUnit.SECONDS);
-					} else {
-						retVal[threadNumber] = thisThreadFuture.get();
-					}
-				} catch (TimeoutException e) {
-					logger.debug("Task " + taskNumber + " replica " + replicaNumber + " timed out");
-					thisThreadFuture.cancel(true);
-					return;
-				} catch (CancellationException e) {
-					//the worker was cancelled: nothing left to do
-					return;
-				} catch (ExecutionException e) {
-					if (e.getCause() instanceof TerminationException) {
-						//schedules relaunch of exception
-						setTerminate(true, e.getCause().getMessage());
-						
-						//cancels all the workers and exits
-						cancelAll(tasksFutures);
-						return;
-					} else {
-						logger.fatal("Error occurred during execution of tool " + this.tool.getName());
-						throw new WorkerException(e);
+		final IdentityHashMap<Future<ExecutionResult>, Integer> positions = positions(tasksFutures);
+		final boolean[] done = new boolean[retVal.length];
+		int pending = positions.size();
+		long deadline = (this.tool.delegateTimeoutToCoordinator() ? System.currentTimeMillis() + this.tool.getGrantedBudget() * 1000L : Long.MAX_VALUE);
+		boolean terminate = false;
+		String message = null;
+		
+		//waits for the completion events of the workers
+		while (pending > 0) {
+			final Future<ExecutionResult> f;
+			try {
+				if (deadline == Long.MAX_VALUE) {
+					f = completions.take();
+				} else {
+					f = completions.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException e) {
+				//should never happen, but if it happens
+				//it's ok to cancel everything and shutdown
+				cancelAll(tasksFutures, TaskMetrics.Cancellation.TERMINATION);
+				break;
+			}
+			
+			if (f == null) {
+				//time budget exhausted: cancels all the workers that are 
+				//still running, the loop will then collect their cancellation
+				for (int task = 0; task < tasksFutures.size(); ++task) {
+					final ArrayList<Future<ExecutionResult>> futures = tasksFutures.get(task);
+					for (int replica = 0; replica < futures.size(); ++replica) {
+						if (!futures.get(replica).isDone()) {
+							logger.debug("Task " + task + " replica " + replica + " timed out");
+							cancel(futures.get(replica), TaskMetrics.Cancellation.TIMEOUT);
+						}
 					}
-				} catch (InterruptedException e)  {
-					//should never happen, but if it happens
-					//it's ok to fall through to shutdown
 				}
-				//cancels redundant workers
-				cancelReplicas(futures);
-			});
-			takers[i].start();
-		}
-		
-		//waits
-		for (int i = 0; i < takers.length; ++i) {
+				deadline = Long.MAX_VALUE;
+				continue;
+			}
+			
+			final Integer position = positions.get(f);
+			if (position == null || done[position]) {
+				continue;
+			}
+			done[position] = true;
+			--pending;
+			final int taskNumber = position / this.tool.redundance();
 			try {
-				takers[i].join();
+				retVal[position] = f.get();
+			} catch (CancellationException e) {
+				//the worker was cancelled: nothing left to do
+				continue;
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof TerminationException) {
+					//schedules relaunch of exception, cancels 
+					//all the workers and waits their cancellation
+					terminate = true;
+					message = e.getCause().getMessage();
+					cancelAll(tasksFutures, TaskMetrics.Cancellation.TERMINATION);
+				} else {
+					//the result of the worker is left null, as
+					//when the worker is cancelled
+					logger.fatal("Error occurred during execution of tool " + this.tool.getName(), e.getCause());
+				}
+				continue;
 			} catch (InterruptedException e) {
-				//does nothing
+				//cannot happen, the future is done
 			}
+			
+			//cancels redundant workers
+			cancelReplicas(tasksFutures.get(taskNumber), TaskMetrics.Cancellation.REPLICA_COMPLETED);
 		}
 		
-		//if a thread required termination, launches the exception
-		if (this.terminate) {
-			throw new TerminationException(this.message);
+		//if a worker required termination, launches the exception
+		if (terminate) {
+			throw new TerminationException(message);
 		}
 		
 		return retVal;
 	}
 	
-	private synchronized void setTerminate(boolean terminate, String message) {
-		this.terminate = terminate;
-		this.message = message;
-	}
-	
-	private synchronized void cancelAll(ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures) {
+	private void cancelAll(ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures, TaskMetrics.Cancellation cause) {
 		for (final ArrayList<Future<ExecutionResult>> group : tasksFutures) {
-			for (final Future<ExecutionResult> f : group) {
-				f.cancel(true);
-			}
+			cancelReplicas(group, cause);
 		}
 	}
 	
-	private synchronized void cancelReplicas(ArrayList<Future<ExecutionResult>> futures) {
+	private void cancelReplicas(ArrayList<Future<ExecutionResult>> futures, TaskMetrics.Cancellation cause) {
 		for (final Future<ExecutionResult> f : futures) {
-			f.cancel(true);
+			cancel(f, cause);
 		}
 	}
 }
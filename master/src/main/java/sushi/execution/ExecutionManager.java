@@ -1,29 +1,130 @@
 package sushi.execution;
 
 import java.util.ArrayList;
-import java.util.concurrent.ExecutorCompletionService;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import sushi.execution.remote.AgentPool;
+import sushi.logging.Logger;
+import sushi.util.LogContext;
 
 public class ExecutionManager {
+	private static final Logger logger = new Logger(ExecutionManager.class);
+	
 	public static ExecutionResult[] execute(Tool<?> tool) {
-		final ExecutorService executor = Executors.newFixedThreadPool(tool.degreeOfParallelism());
-		final ExecutorCompletionService<ExecutionResult> pool = new ExecutorCompletionService<>(executor);
+		final BudgetLedger ledger = BudgetLedger.get(tool);
+		final Metrics metrics = Metrics.get(tool);
+		ledger.grant(tool);
+		metrics.beginPhase(tool);
+		final long start = System.currentTimeMillis();
+		try {
+			tool.prepare();
+			return executeTasks(tool, ledger, metrics);
+		} finally {
+			ledger.record(tool, System.currentTimeMillis() - start);
+			metrics.endPhase(tool);
+		}
+	}
+	
+	private static ExecutionResult[] executeTasks(Tool<?> tool, BudgetLedger ledger, Metrics metrics) {
+		final ResourceGovernor governor = ResourceGovernor.get();
+		final ExecutorService executor = Executors.newFixedThreadPool(poolSize(tool));
+		final BlockingQueue<Future<ExecutionResult>> completions = new LinkedBlockingQueue<>();
+		
+		//submits the tasks longest-first (the executor starts them 
+		//in submission order), but keeps the futures in task order
+		//as the coordinator expects 
+		final List<Integer> tasks = tool.tasks();
 		final ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures = new ArrayList<>();
-		for (int task : tool.tasks()) {
-			final ArrayList<Future<ExecutionResult>> futures = new ArrayList<>();
-			for (int i = 1; i <= tool.redundance(); ++i) {
+		for (int i = 0; i < tasks.size(); ++i) {
+			tasksFutures.add(new ArrayList<>());
+		}
+		for (int i : scheduleOrder(tool)) {
+			final int task = tasks.get(i);
+			for (int replica = 1; replica <= tool.redundance(); ++replica) {
 				final Worker worker = tool.getWorker(task);
-				final Future<ExecutionResult> f = pool.submit(worker);
-				futures.add(f);
+				final TaskMetrics taskMetrics = metrics.newTask(tool, task, replica - 1);
+				worker.setMetrics(taskMetrics);
+				final NotifyingFutureTask f = new NotifyingFutureTask(LogContext.wrap(AgentPool.get().offload(tool, task, taskMetrics, governor.admit(tool, task, worker))), completions, taskMetrics);
+				if (replica <= tool.replicasAtStart()) {
+					f.submitTo(executor);
+				}
+				tasksFutures.get(i).add(f);
 			}
-			tasksFutures.add(futures);
 		}
-		executor.shutdown();
 
 		final Coordinator coordinator = tool.getCoordinator();
-		final ExecutionResult[] retVal = coordinator.start(tasksFutures);
-		return retVal;
+		coordinator.setLauncher(f -> ((NotifyingFutureTask) f).submitTo(executor));
+		ledger.register(tasksFutures);
+		try {
+			return coordinator.start(tasksFutures, completions);
+		} finally {
+			ledger.unregister(tasksFutures);
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Calculates the number of threads executing the tasks of a tool.
+	 * The tasks executed locally are limited to the cores by the 
+	 * {@link ResourceGovernor}, thus more threads than the cores
+	 * and the connected agents (see {@link AgentPool#slots()}) would
+	 * just wait for admission. 
+	 * 
+	 * @param tool a {@link Tool}.
+	 * @return an {@code int}, the number of threads.
+	 */
+	static int poolSize(Tool<?> tool) {
+		return Math.max(1, Math.min(tool.degreeOfParallelism(), ResourceGovernor.get().cores() + AgentPool.get().slots()));
+	}
+	
+	/**
+	 * Calculates the order in which the tasks of a tool must be 
+	 * started, longest (according to {@link Tool#estimatedCost(int)}) 
+	 * first. Tasks with the same predicted cost are started in the 
+	 * order of {@link Tool#tasks()}.
+	 * 
+	 * @param tool a {@link Tool}.
+	 * @return an {@code int[]} containing the positions in 
+	 *         {@code tool.}{@link Tool#tasks() tasks()} of the tasks,
+	 *         in the order they must be started.
+	 */
+	static int[] scheduleOrder(Tool<?> tool) {
+		final List<Integer> tasks = tool.tasks();
+		final long[] costs = new long[tasks.size()];
+		boolean allSame = true;
+		for (int i = 0; i < costs.length; ++i) {
+			costs[i] = tool.estimatedCost(tasks.get(i));
+			allSame = allSame && costs[i] == costs[0];
+		}
+		final Integer[] order = new Integer[costs.length];
+		for (int i = 0; i < order.length; ++i) {
+			order[i] = i;
+		}
+		if (!allSame) {
+			Arrays.sort(order, Comparator.comparingLong((Integer i) -> costs[i]).reversed()); //stable
+			logger.debug("Tool " + tool.getName() + ": scheduling tasks longest-first, order " + Arrays.toString(order));
+		}
+		return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+	}
+	
+	/**
+	 * Executes a sequence of {@link Tool}s as a pipeline, where each
+	 * task starts as soon as the tasks it depends on in the previous
+	 * tool are completed.
+	 * 
+	 * @param stages a varargs of {@link Tool}s, the stages of the pipeline.
+	 * @return an {@link ExecutionResult}{@code [][]}, where the 
+	 *         {@code i}-th member is the result of the {@code i}-th stage.
+	 */
+	public static ExecutionResult[][] executePipeline(Tool<?>... stages) {
+		final Pipeline pipeline = new Pipeline(stages);
+		return pipeline.execute();
 	}
 }
@@ -1,6 +1,10 @@
 package sushi.execution;
 
-public class ExecutionResult {
+import java.io.Serializable;
+
+public class ExecutionResult implements Serializable {
+	private static final long serialVersionUID = 3284930174562981406L;
+	
 	private int exitStatus;
 
 	public ExecutionResult() { }
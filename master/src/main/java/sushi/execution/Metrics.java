@@ -0,0 +1,328 @@
+package sushi.execution;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import sushi.Options;
+import sushi.logging.Logger;
+import sushi.util.DirectoryUtils;
+
+/**
+ * Collects the metrics of the phases of a run and of their tasks, and
+ * writes them to the temporary directory both as a JSON file and as a
+ * Prometheus text-format file after each phase. A phase is an execution
+ * of a {@link Tool} by the {@link ExecutionManager}; Besides the metrics
+ * of its tasks (see {@link TaskMetrics}), a phase has counters that the
+ * tools increment (see {@link #count(Tool, String, long)}).
+ *
+ * @author Pietro Braione
+ */
+public final class Metrics {
+	private static final Logger logger = new Logger(Metrics.class);
+
+	/** Counter: the traces produced by symbolic execution. */
+	public static final String TRACES_PRODUCED = "traces_produced";
+
+	/** Counter: the branches to be covered. */
+	public static final String BRANCHES_TO_COVER = "branches_to_cover";
+
+	/** Counter: the tests emitted to the output directory. */
+	public static final String TESTS_EMITTED = "tests_emitted";
+
+	/** The metrics of the tools that do not belong to a configured run; They are not saved. */
+	private static final Metrics unconfigured = new Metrics(null, null);
+
+	/**
+	 * Configures the metrics of a run, i.e., of the execution
+	 * of the tools for a target. Many runs may be executed at
+	 * the same time (see the {@code -target_classes} option),
+	 * each with its metrics.
+	 *
+	 * @param options an {@link Options} object, from which the
+	 *        paths of the metrics files are taken.
+	 * @param tools a {@link Tool}{@code []}, the tools of the run.
+	 */
+	public static void configure(Options options, Tool<?>[] tools) {
+		final Metrics metrics = new Metrics(DirectoryUtils.getMetricsJsonFilePath(options), DirectoryUtils.getMetricsPrometheusFilePath(options));
+		for (Tool<?> tool : tools) {
+			tool.setMetrics(metrics);
+		}
+	}
+
+	/**
+	 * Returns the metrics of the run a tool belongs to.
+	 *
+	 * @param tool a {@link Tool}.
+	 * @return the {@link Metrics} of the run of {@code tool}.
+	 */
+	public static Metrics get(Tool<?> tool) {
+		final Metrics retVal = tool.getMetrics();
+		return (retVal == null ? unconfigured : retVal);
+	}
+
+	private static final class Phase {
+		final int number;
+		final String toolName;
+		final long start = System.currentTimeMillis();
+		long end = -1L;
+		final ArrayList<TaskMetrics> tasks = new ArrayList<>();
+		final TreeMap<String, Long> counters = new TreeMap<>();
+
+		Phase(int number, String toolName) {
+			this.number = number;
+			this.toolName = toolName;
+		}
+
+		long elapsed() {
+			return (this.end >= 0 ? this.end : System.currentTimeMillis()) - this.start;
+		}
+	}
+
+	private final Path jsonFile;
+	private final Path prometheusFile;
+	private final ArrayList<Phase> phases = new ArrayList<>();
+	private final IdentityHashMap<Tool<?>, Phase> current = new IdentityHashMap<>();
+
+	private Metrics(Path jsonFile, Path prometheusFile) {
+		this.jsonFile = jsonFile;
+		this.prometheusFile = prometheusFile;
+	}
+
+	/**
+	 * Starts a new phase.
+	 *
+	 * @param tool the {@link Tool} executed in the phase.
+	 */
+	synchronized void beginPhase(Tool<?> tool) {
+		final Phase phase = new Phase(this.phases.size() + 1, tool.getName());
+		this.phases.add(phase);
+		this.current.put(tool, phase);
+	}
+
+	/**
+	 * Ends the current phase of a tool, and writes the metrics files.
+	 *
+	 * @param tool the {@link Tool} executed in the phase.
+	 */
+	synchronized void endPhase(Tool<?> tool) {
+		final Phase phase = this.current.remove(tool);
+		if (phase == null) {
+			return;
+		}
+		phase.end = System.currentTimeMillis();
+		logger.debug("Phase " + phase.number + " (" + phase.toolName + ") ended, elapsed " + phase.elapsed() / 1000 + " seconds");
+		save();
+	}
+
+	/**
+	 * Creates the metrics of a replica of a task in the current
+	 * phase of a tool.
+	 *
+	 * @param tool the {@link Tool} of the task.
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @param replica an {@code int}, the replica.
+	 * @return a {@link TaskMetrics}.
+	 */
+	synchronized TaskMetrics newTask(Tool<?> tool, int taskNumber, int replica) {
+		final TaskMetrics retVal = new TaskMetrics(tool.getName(), taskNumber, replica);
+		final Phase phase = this.current.get(tool);
+		if (phase != null) {
+			phase.tasks.add(retVal);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Increments a counter of the current phase of a tool. Does
+	 * nothing if the tool is not being executed.
+	 *
+	 * @param tool a {@link Tool}.
+	 * @param counter a {@link String}, the name of the counter.
+	 * @param delta a {@code long}, the increment.
+	 */
+	public synchronized void count(Tool<?> tool, String counter, long delta) {
+		final Phase phase = this.current.get(tool);
+		if (phase != null) {
+			phase.counters.merge(counter, delta, Long::sum);
+		}
+	}
+
+	private void save() {
+		if (this.jsonFile == null) {
+			return;
+		}
+		try (final BufferedWriter w = Files.newBufferedWriter(this.jsonFile)) {
+			writeJson(w);
+		} catch (IOException e) {
+			logger.warn("Unable to write metrics file " + this.jsonFile.toString());
+		}
+		try (final BufferedWriter w = Files.newBufferedWriter(this.prometheusFile)) {
+			writePrometheus(w);
+		} catch (IOException e) {
+			logger.warn("Unable to write metrics file " + this.prometheusFile.toString());
+		}
+	}
+
+	private void writeJson(BufferedWriter w) throws IOException {
+		w.write("{\n  \"phases\": [");
+		boolean firstPhase = true;
+		for (Phase phase : this.phases) {
+			w.write(firstPhase ? "\n" : ",\n");
+			firstPhase = false;
+			final int[] outcomes = outcomes(phase);
+			w.write("    {\n");
+			w.write("      \"phase\": " + phase.number + ",\n");
+			w.write("      \"tool\": \"" + escape(phase.toolName) + "\",\n");
+			w.write("      \"start_ms\": " + phase.start + ",\n");
+			w.write("      \"elapsed_ms\": " + phase.elapsed() + ",\n");
+			w.write("      \"replicas\": " + phase.tasks.size() + ",\n");
+			w.write("      \"completed\": " + outcomes[0] + ",\n");
+			w.write("      \"failed\": " + outcomes[1] + ",\n");
+			w.write("      \"cancelled\": " + outcomes[2] + ",\n");
+			w.write("      \"queue_wait_ms\": " + totalQueueWait(phase) + ",\n");
+			w.write("      \"run_ms\": " + totalRunTime(phase) + ",\n");
+			w.write("      \"counters\": {");
+			boolean firstCounter = true;
+			for (Map.Entry<String, Long> counter : phase.counters.entrySet()) {
+				w.write((firstCounter ? " " : ", ") + "\"" + escape(counter.getKey()) + "\": " + counter.getValue());
+				firstCounter = false;
+			}
+			w.write(firstCounter ? "},\n" : " },\n");
+			w.write("      \"tasks\": [");
+			boolean firstTask = true;
+			for (TaskMetrics task : phase.tasks) {
+				w.write(firstTask ? "\n" : ",\n");
+				firstTask = false;
+				w.write("        { \"task\": " + task.getTaskNumber() +
+						", \"replica\": " + task.getReplica() +
+						", \"queue_wait_ms\": " + task.getQueueWait() +
+						", \"run_ms\": " + task.getRunTime() +
+						", \"exit_status\": " + task.getExitStatus() +
+						", \"failure\": " + (task.getFailure() == null ? "null" : "\"" + escape(task.getFailure()) + "\"") +
+						", \"cancellation\": " + (task.getCancellation() == null ? "null" : "\"" + task.getCancellation().name() + "\"") + " }");
+			}
+			w.write(firstTask ? "]\n" : "\n      ]\n");
+			w.write("    }");
+		}
+		w.write(firstPhase ? "]\n}\n" : "\n  ]\n}\n");
+	}
+
+	private void writePrometheus(BufferedWriter w) throws IOException {
+		w.write("# HELP sushi_phase_elapsed_seconds Wall-clock duration of the phase.\n");
+		w.write("# TYPE sushi_phase_elapsed_seconds gauge\n");
+		for (Phase phase : this.phases) {
+			w.write("sushi_phase_elapsed_seconds" + labels(phase) + " " + seconds(phase.elapsed()) + "\n");
+		}
+		w.write("# HELP sushi_phase_replicas Replicas of the tasks of the phase, by outcome.\n");
+		w.write("# TYPE sushi_phase_replicas gauge\n");
+		for (Phase phase : this.phases) {
+			final int[] outcomes = outcomes(phase);
+			w.write("sushi_phase_replicas" + labels(phase, "outcome", "completed") + " " + outcomes[0] + "\n");
+			w.write("sushi_phase_replicas" + labels(phase, "outcome", "failed") + " " + outcomes[1] + "\n");
+			w.write("sushi_phase_replicas" + labels(phase, "outcome", "cancelled") + " " + outcomes[2] + "\n");
+		}
+		w.write("# HELP sushi_phase_queue_wait_seconds Total time the replicas of the phase waited to start.\n");
+		w.write("# TYPE sushi_phase_queue_wait_seconds gauge\n");
+		for (Phase phase : this.phases) {
+			w.write("sushi_phase_queue_wait_seconds" + labels(phase) + " " + seconds(totalQueueWait(phase)) + "\n");
+		}
+		w.write("# HELP sushi_phase_run_seconds Total time the replicas of the phase ran.\n");
+		w.write("# TYPE sushi_phase_run_seconds gauge\n");
+		for (Phase phase : this.phases) {
+			w.write("sushi_phase_run_seconds" + labels(phase) + " " + seconds(totalRunTime(phase)) + "\n");
+		}
+		w.write("# HELP sushi_phase_counter Counters of the phase (traces produced, branches to cover, tests emitted).\n");
+		w.write("# TYPE sushi_phase_counter gauge\n");
+		for (Phase phase : this.phases) {
+			for (Map.Entry<String, Long> counter : phase.counters.entrySet()) {
+				w.write("sushi_phase_counter" + labels(phase, "counter", counter.getKey()) + " " + counter.getValue() + "\n");
+			}
+		}
+		w.write("# HELP sushi_task_queue_wait_seconds Time the replica waited to start.\n");
+		w.write("# TYPE sushi_task_queue_wait_seconds gauge\n");
+		for (Phase phase : this.phases) {
+			for (TaskMetrics task : phase.tasks) {
+				if (task.getQueueWait() >= 0) {
+					w.write("sushi_task_queue_wait_seconds" + labels(phase, task) + " " + seconds(task.getQueueWait()) + "\n");
+				}
+			}
+		}
+		w.write("# HELP sushi_task_run_seconds Time the replica ran.\n");
+		w.write("# TYPE sushi_task_run_seconds gauge\n");
+		for (Phase phase : this.phases) {
+			for (TaskMetrics task : phase.tasks) {
+				if (task.getRunTime() >= 0) {
+					w.write("sushi_task_run_seconds" + labels(phase, task) + " " + seconds(task.getRunTime()) + "\n");
+				}
+			}
+		}
+		w.write("# HELP sushi_task_exit_status Exit status of the replica, if it completed.\n");
+		w.write("# TYPE sushi_task_exit_status gauge\n");
+		for (Phase phase : this.phases) {
+			for (TaskMetrics task : phase.tasks) {
+				if (task.getExitStatus() != null) {
+					w.write("sushi_task_exit_status" + labels(phase, task) + " " + task.getExitStatus() + "\n");
+				}
+			}
+		}
+		w.write("# HELP sushi_task_cancelled Whether the replica was cancelled, and why.\n");
+		w.write("# TYPE sushi_task_cancelled gauge\n");
+		for (Phase phase : this.phases) {
+			for (TaskMetrics task : phase.tasks) {
+				if (task.getCancellation() != null) {
+					final String taskLabels = labels(phase, task);
+					w.write("sushi_task_cancelled" + taskLabels.substring(0, taskLabels.length() - 1) + ",cause=\"" + task.getCancellation().name() + "\"} 1\n");
+				}
+			}
+		}
+	}
+
+	/** Returns the number of completed, failed and cancelled replicas of a phase. */
+	private static int[] outcomes(Phase phase) {
+		final int[] retVal = new int[3];
+		for (TaskMetrics task : phase.tasks) {
+			if (task.getExitStatus() != null) {
+				++retVal[0];
+			} else if (task.getFailure() != null) {
+				++retVal[1];
+			} else if (task.getCancellation() != null) {
+				++retVal[2];
+			}
+		}
+		return retVal;
+	}
+
+	private static long totalQueueWait(Phase phase) {
+		return phase.tasks.stream().mapToLong(TaskMetrics::getQueueWait).filter(t -> t >= 0).sum();
+	}
+
+	private static long totalRunTime(Phase phase) {
+		return phase.tasks.stream().mapToLong(TaskMetrics::getRunTime).filter(t -> t >= 0).sum();
+	}
+
+	private static String seconds(long millis) {
+		return Double.toString(millis / 1000.0);
+	}
+
+	private static String labels(Phase phase) {
+		return "{phase=\"" + phase.number + "\",tool=\"" + escape(phase.toolName) + "\"}";
+	}
+
+	private static String labels(Phase phase, String name, String value) {
+		return "{phase=\"" + phase.number + "\",tool=\"" + escape(phase.toolName) + "\"," + name + "=\"" + escape(value) + "\"}";
+	}
+
+	private static String labels(Phase phase, TaskMetrics task) {
+		return "{phase=\"" + phase.number + "\",tool=\"" + escape(phase.toolName) + "\",task=\"" + task.getTaskNumber() + "\",replica=\"" + task.getReplica() + "\"}";
+	}
+
+	private static String escape(String s) {
+		return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
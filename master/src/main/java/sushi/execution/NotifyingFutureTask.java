@@ -0,0 +1,63 @@
+package sushi.execution;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A {@link FutureTask} that puts itself in a queue when it is done, 
+ * so a {@link Coordinator} can wait for the completion events of all 
+ * the tasks with a single thread. Differently from an 
+ * {@link java.util.concurrent.ExecutorCompletionService}, a task 
+ * is put in the queue also as soon as it is cancelled, without 
+ * waiting for a thread of the executor to pick it. The task also
+ * records its outcome in its {@link TaskMetrics}.
+ * 
+ * @author Pietro Braione
+ */
+class NotifyingFutureTask extends FutureTask<ExecutionResult> {
+	private final BlockingQueue<Future<ExecutionResult>> completions;
+	private final TaskMetrics metrics;
+	
+	NotifyingFutureTask(Callable<ExecutionResult> callable, BlockingQueue<Future<ExecutionResult>> completions, TaskMetrics metrics) {
+		super(callable);
+		this.completions = completions;
+		this.metrics = metrics;
+	}
+	
+	TaskMetrics getMetrics() {
+		return this.metrics;
+	}
+	
+	/**
+	 * Submits this task to an executor.
+	 * 
+	 * @param executor an {@link Executor}.
+	 */
+	void submitTo(Executor executor) {
+		this.metrics.submitted();
+		executor.execute(this);
+	}
+	
+	@Override
+	protected void done() {
+		if (isCancelled()) {
+			this.metrics.cancelled();
+		} else {
+			try {
+				final ExecutionResult result = get();
+				if (result != null) {
+					this.metrics.completed(result.getExitStatus());
+				}
+			} catch (ExecutionException e) {
+				this.metrics.failed(e.getCause());
+			} catch (InterruptedException e) {
+				//cannot happen, the task is done
+			}
+		}
+		this.completions.add(this);
+	}
+}
@@ -0,0 +1,277 @@
+package sushi.execution;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import sushi.exceptions.TerminationException;
+import sushi.execution.remote.AgentPool;
+import sushi.logging.Logger;
+import sushi.util.LogContext;
+
+/**
+ * Executes a sequence of {@link Tool}s as a pipeline, i.e., 
+ * a task of a tool starts as soon as all the tasks of the 
+ * previous tool it depends on (see {@link Tool#upstreamTasks(int)})
+ * completed successfully, rather than when all the tasks
+ * of the previous tool completed. 
+ * 
+ * @author Pietro Braione
+ */
+final class Pipeline {
+	private static final Logger logger = new Logger(Pipeline.class);
+	
+	/** The tools in the pipeline, in order. */
+	private final Tool<?>[] stages;
+	
+	/** The executors, one for each stage. */
+	private final ExecutorService[] executors;
+	
+	/** For each stage, the queue where its futures are put when done. */
+	private final ArrayList<BlockingQueue<Future<ExecutionResult>>> stagesCompletions = new ArrayList<>();
+	
+	/** For each stage, the futures of all the replicas of all its tasks. */
+	private final ArrayList<ArrayList<ArrayList<Future<ExecutionResult>>>> stagesFutures = new ArrayList<>();
+	
+	/** 
+	 * For each stage and task, the number of tasks of the previous
+	 * stage that must still complete before the task can start.
+	 */
+	private final int[][] pending;
+	
+	/** For each stage and task, the tasks of the next stage that depend on it. */
+	private final ArrayList<ArrayList<ArrayList<Integer>>> downstream = new ArrayList<>();
+	
+	/** For each stage and task, whether the task completed (successfully or not). */
+	private final boolean[][] completed;
+	
+	Pipeline(Tool<?>... stages) {
+		this.stages = stages.clone();
+		this.executors = new ExecutorService[stages.length];
+		this.pending = new int[stages.length][];
+		this.completed = new boolean[stages.length][];
+		if (stages.length > 0) {
+			//the stages overlap, thus they share the budget of the pipeline
+			BudgetLedger.get(stages[0]).grant(this.stages);
+		}
+		for (int stage = 0; stage < stages.length; ++stage) {
+			final Tool<?> tool = stages[stage];
+			final List<Integer> tasks = tool.tasks();
+			Metrics.get(tool).beginPhase(tool);
+			this.executors[stage] = Executors.newFixedThreadPool(ExecutionManager.poolSize(tool));
+			this.pending[stage] = new int[tasks.size()];
+			this.completed[stage] = new boolean[tasks.size()];
+			
+			//creates the (not yet submitted) futures
+			final BlockingQueue<Future<ExecutionResult>> completions = new LinkedBlockingQueue<>();
+			this.stagesCompletions.add(completions);
+			final ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures = new ArrayList<>();
+			for (int i = 0; i < tasks.size(); ++i) {
+				final ArrayList<Future<ExecutionResult>> futures = new ArrayList<>();
+				for (int replica = 1; replica <= tool.redundance(); ++replica) {
+					final Worker worker = tool.getWorker(tasks.get(i));
+					final TaskMetrics taskMetrics = Metrics.get(tool).newTask(tool, tasks.get(i), replica - 1);
+					worker.setMetrics(taskMetrics);
+					futures.add(new StageTask(stage, i, LogContext.wrap(AgentPool.get().offload(tool, tasks.get(i), taskMetrics, ResourceGovernor.get().admit(tool, tasks.get(i), worker))), completions, taskMetrics));
+				}
+				tasksFutures.add(futures);
+			}
+			this.stagesFutures.add(tasksFutures);
+			
+			//calculates the dependencies with the previous stage
+			final ArrayList<ArrayList<Integer>> downstreamOfStage = new ArrayList<>();
+			for (int i = 0; i < tasks.size(); ++i) {
+				downstreamOfStage.add(new ArrayList<>());
+			}
+			this.downstream.add(downstreamOfStage);
+			if (stage > 0) {
+				final List<Integer> tasksPrevious = stages[stage - 1].tasks();
+				final HashMap<Integer, Integer> positionPrevious = new HashMap<>();
+				for (int j = 0; j < tasksPrevious.size(); ++j) {
+					positionPrevious.put(tasksPrevious.get(j), j);
+				}
+				for (int i = 0; i < tasks.size(); ++i) {
+					final List<Integer> upstream = tool.upstreamTasks(tasks.get(i));
+					for (int taskPrevious : (upstream == null ? tasksPrevious : upstream)) {
+						final Integer j = positionPrevious.get(taskPrevious);
+						if (j != null) {
+							this.downstream.get(stage - 1).get(j).add(i);
+							++this.pending[stage][i];
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Executes the pipeline.
+	 * 
+	 * @return an {@link ExecutionResult}{@code [][]}, containing for each 
+	 *         stage the results returned by its {@link Coordinator}.
+	 * @throws TerminationException if some stage requires termination.
+	 */
+	ExecutionResult[][] execute() {
+		//starts the coordinators
+		final long start = System.currentTimeMillis();
+		for (Tool<?> tool : this.stages) {
+			tool.prepare();
+		}
+		final ExecutionResult[][] retVal = new ExecutionResult[this.stages.length][];
+		final RuntimeException[] exceptions = new RuntimeException[this.stages.length];
+		final Thread[] coordinators = new Thread[this.stages.length];
+		for (int stage = 0; stage < this.stages.length; ++stage) {
+			final int thisStage = stage; //to make the compiler happy
+			final Coordinator coordinator = this.stages[stage].getCoordinator();
+			coordinator.setLauncher(f -> ((StageTask) f).submitTo(this.executors[thisStage]));
+			BudgetLedger.get(this.stages[thisStage]).register(this.stagesFutures.get(thisStage));
+			coordinators[stage] = new Thread(() -> {
+				try {
+					retVal[thisStage] = coordinator.start(this.stagesFutures.get(thisStage), this.stagesCompletions.get(thisStage));
+				} catch (RuntimeException e) {
+					exceptions[thisStage] = e;
+					cancelAll();
+				} finally {
+					BudgetLedger.get(this.stages[thisStage]).unregister(this.stagesFutures.get(thisStage));
+					BudgetLedger.get(this.stages[thisStage]).record(this.stages[thisStage], System.currentTimeMillis() - start);
+					Metrics.get(this.stages[thisStage]).endPhase(this.stages[thisStage]);
+				}
+			});
+			coordinators[stage].start();
+		}
+		
+		//submits all the tasks that depend on nothing, longest-first
+		synchronized (this) {
+			for (int stage = 0; stage < this.stages.length; ++stage) {
+				for (int i : ExecutionManager.scheduleOrder(this.stages[stage])) {
+					if (this.pending[stage][i] == 0) {
+						submit(stage, i);
+					}
+				}
+			}
+		}
+		
+		//waits
+		for (int stage = 0; stage < this.stages.length; ++stage) {
+			try {
+				coordinators[stage].join();
+			} catch (InterruptedException e) {
+				//does nothing
+			}
+		}
+		for (ExecutorService executor : this.executors) {
+			executor.shutdown();
+		}
+		
+		//relaunches the first exception, giving priority to termination
+		for (RuntimeException e : exceptions) {
+			if (e instanceof TerminationException) {
+				throw e;
+			}
+		}
+		for (RuntimeException e : exceptions) {
+			if (e != null) {
+				throw e;
+			}
+		}
+		return retVal;
+	}
+	
+	private synchronized void submit(int stage, int task) {
+		logger.debug("Pipeline: starting tool " + this.stages[stage].getName() + " task " + task);
+		final ArrayList<Future<ExecutionResult>> replicas = this.stagesFutures.get(stage).get(task);
+		for (int replica = 0; replica < this.stages[stage].replicasAtStart(); ++replica) {
+			((StageTask) replicas.get(replica)).submitTo(this.executors[stage]);
+		}
+	}
+	
+	private synchronized void onReplicaDone(int stage, int task, StageTask replica) {
+		if (this.completed[stage][task]) {
+			return;
+		}
+		
+		//checks the outcome of the replica
+		boolean success = false;
+		try {
+			final ExecutionResult result = replica.get();
+			success = (result != null && result.getExitStatus() == 0);
+		} catch (CancellationException | InterruptedException e) {
+			//the replica did not succeed
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof TerminationException) {
+				cancelAll();
+				return;
+			}
+		}
+		
+		//if the replica failed, the task fails only if all 
+		//the other replicas failed
+		if (!success) {
+			for (Future<ExecutionResult> f : this.stagesFutures.get(stage).get(task)) {
+				if (!f.isDone()) {
+					return;
+				}
+			}
+		}
+		
+		//the task completed: releases or cancels the dependent tasks
+		this.completed[stage][task] = true;
+		if (stage == this.stages.length - 1) {
+			return;
+		}
+		for (int taskDownstream : this.downstream.get(stage).get(task)) {
+			if (success) {
+				--this.pending[stage + 1][taskDownstream];
+				if (this.pending[stage + 1][taskDownstream] == 0) {
+					submit(stage + 1, taskDownstream);
+				}
+			} else {
+				logger.debug("Pipeline: tool " + this.stages[stage + 1].getName() + " task " + taskDownstream + " cancelled because tool " + this.stages[stage].getName() + " task " + task + " failed");
+				for (Future<ExecutionResult> f : this.stagesFutures.get(stage + 1).get(taskDownstream)) {
+					Coordinator.cancel(f, TaskMetrics.Cancellation.UPSTREAM_FAILED);
+				}
+			}
+		}
+	}
+	
+	private synchronized void cancelAll() {
+		for (ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures : this.stagesFutures) {
+			for (ArrayList<Future<ExecutionResult>> futures : tasksFutures) {
+				for (Future<ExecutionResult> f : futures) {
+					Coordinator.cancel(f, TaskMetrics.Cancellation.TERMINATION);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * A {@link NotifyingFutureTask} for a replica of a task of a stage,
+	 * that also notifies the pipeline upon completion.
+	 * 
+	 * @author Pietro Braione
+	 */
+	private final class StageTask extends NotifyingFutureTask {
+		private final int stage;
+		private final int task;
+		
+		StageTask(int stage, int task, Callable<ExecutionResult> worker, BlockingQueue<Future<ExecutionResult>> completions, TaskMetrics metrics) {
+			super(worker, completions, metrics);
+			this.stage = stage;
+			this.task = task;
+		}
+		
+		@Override
+		protected void done() {
+			super.done();
+			onReplicaDone(this.stage, this.task, this);
+		}
+	}
+}
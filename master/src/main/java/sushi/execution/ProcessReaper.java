@@ -0,0 +1,187 @@
+package sushi.execution;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import sushi.logging.Logger;
+import sushi.util.LogContext;
+
+/**
+ * Watches child processes with a small, shared pool of threads
+ * rather than with one or more dedicated threads per process.
+ * Periodically, the reaper reads without blocking the output of
+ * each watched process, passes it line by line to a listener, and
+ * detects the termination of the process.
+ *
+ * @author Pietro Braione
+ */
+public final class ProcessReaper {
+	private static final Logger logger = new Logger(ProcessReaper.class);
+
+	/** The number of threads of the reaper. */
+	private static final int REAPER_THREADS = 2;
+
+	/** How often the watched processes are polled. */
+	private static final long POLL_INTERVAL_MILLIS = 100L;
+
+	/** The size of the buffer used to read the output of the processes. */
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final ProcessReaper instance = new ProcessReaper();
+
+	/**
+	 * Returns the reaper.
+	 *
+	 * @return the (only) {@link ProcessReaper}.
+	 */
+	public static ProcessReaper get() {
+		return instance;
+	}
+
+	/**
+	 * Receives the output of a watched process.
+	 */
+	public interface OutputListener {
+		/**
+		 * Invoked for each line printed by the process.
+		 *
+		 * @param line a {@link String}, the line without the terminator.
+		 * @throws IOException if some I/O error occurs while processing
+		 *         {@code line}; In this case the process is no longer
+		 *         listened to.
+		 */
+		void onLine(String line) throws IOException;
+
+		/**
+		 * Invoked once, after the process terminated and its last line
+		 * was passed to {@link #onLine(String)}, or after {@link #onLine(String)}
+		 * failed.
+		 */
+		void onEnd();
+	}
+
+	private final ScheduledExecutorService pollers;
+
+	private ProcessReaper() {
+		this.pollers = Executors.newScheduledThreadPool(REAPER_THREADS, r -> {
+			final Thread t = new Thread(r, "process-reaper");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Starts watching a process.
+	 *
+	 * @param process the {@link Process} to watch. Its standard
+	 *        error should be redirected to its standard output.
+	 * @param listener the {@link OutputListener} that receives the
+	 *        output of {@code process}.
+	 * @return a {@link CompletableFuture}{@code <}{@link Integer}{@code >}
+	 *         that completes with the exit status of {@code process}
+	 *         after its output was passed to {@code listener}.
+	 */
+	public CompletableFuture<Integer> watch(Process process, OutputListener listener) {
+		final Watch watch = new Watch(process, listener);
+		watch.poll = this.pollers.scheduleWithFixedDelay(LogContext.wrap((Runnable) watch::poll), 0, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		if (watch.exitStatus.isDone()) {
+			//the process ended before watch.poll was set
+			watch.poll.cancel(false);
+		}
+		return watch.exitStatus;
+	}
+
+	private static final class Watch {
+		private final Process process;
+		private final InputStream output;
+		private final OutputListener listener;
+		private final ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private final CompletableFuture<Integer> exitStatus = new CompletableFuture<>();
+		private volatile ScheduledFuture<?> poll;
+		private boolean listening = true;
+		private boolean closed = false;
+
+		Watch(Process process, OutputListener listener) {
+			this.process = process;
+			this.output = process.getInputStream();
+			this.listener = listener;
+		}
+
+		synchronized void poll() {
+			if (this.exitStatus.isDone()) {
+				return;
+			}
+
+			//checks termination before reading, so that after the
+			//process is dead we read all its output before ending
+			final boolean alive = this.process.isAlive();
+			try {
+				int available;
+				while (!this.closed && (available = this.output.available()) > 0) {
+					final int read = this.output.read(this.buffer, 0, Math.min(available, this.buffer.length));
+					if (read < 0) {
+						break;
+					}
+					if (!this.listening) {
+						//keeps draining the output, lest the process
+						//blocks on a full pipe, but discards it
+						continue;
+					}
+					for (int i = 0; i < read; ++i) {
+						if (this.buffer[i] == '\n') {
+							emitLine();
+						} else {
+							this.currentLine.write(this.buffer[i]);
+						}
+					}
+				}
+			} catch (IOException e) {
+				//an abrupt closure of the stream is possible
+				this.closed = true;
+				stopListening();
+			}
+			if (!alive) {
+				if (this.listening && this.currentLine.size() > 0) {
+					emitLine();
+				}
+				stopListening();
+				this.exitStatus.complete(this.process.exitValue());
+				if (this.poll != null) {
+					this.poll.cancel(false);
+				}
+			}
+		}
+
+		private void emitLine() {
+			if (!this.listening) {
+				this.currentLine.reset();
+				return;
+			}
+			String line = this.currentLine.toString();
+			this.currentLine.reset();
+			if (line.endsWith("\r")) {
+				line = line.substring(0, line.length() - 1);
+			}
+			try {
+				this.listener.onLine(line);
+			} catch (IOException | RuntimeException e) {
+				logger.debug("Stopped listening to a process after an error: " + e);
+				stopListening();
+			}
+		}
+
+		private void stopListening() {
+			if (this.listening) {
+				this.listening = false;
+				this.listener.onEnd();
+			}
+		}
+	}
+}
@@ -0,0 +1,355 @@
+package sushi.execution;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.Callable;
+import java.util.function.LongConsumer;
+
+import sushi.Options;
+import sushi.logging.Logger;
+
+/**
+ * Admits the tasks of all the {@link Tool}s to execution based on the
+ * cores and memory of the host, so that the tasks running at the same
+ * time (possibly of different tools, see {@link Pipeline}) do not
+ * overcommit the host. Every task takes a core; Additionally, a task
+ * running inside the SUSHI JVM reserves {@link Tool#taskMemory()} MB
+ * of the SUSHI heap, while a task running in a child process reserves
+ * the same amount of the host memory that is not used by the SUSHI JVM.
+ * The idle child processes kept alive for reuse also hold the memory
+ * of the host (see {@link #reserveIdle(long)}), that they give back
+ * when a task needs it (see {@link #setIdleReclaimer(LongConsumer)}).
+ *
+ * @author Pietro Braione
+ */
+public final class ResourceGovernor {
+	private static final Logger logger = new Logger(ResourceGovernor.class);
+
+	/** Memory in MB left to the operating system and to the other processes. */
+	private static final long OS_RESERVED_MEMORY = 512L;
+
+	/** The least memory in MB a child process can be given. */
+	private static final int MIN_CHILD_MEMORY = 768;
+
+	/** The most memory in MB a child process is given (the EvoSuite default). */
+	private static final int MAX_CHILD_MEMORY = 6144;
+
+	private static ResourceGovernor instance = new ResourceGovernor(0, 0);
+
+	/**
+	 * Configures the governor used by the {@link ExecutionManager}.
+	 *
+	 * @param options an {@link Options} object, from which the
+	 *        host cores and memory are taken.
+	 */
+	public static synchronized void configure(Options options) {
+		instance = new ResourceGovernor(options.getHostCores(), options.getHostMemory());
+	}
+
+	/**
+	 * Returns the governor used by the {@link ExecutionManager}.
+	 *
+	 * @return a {@link ResourceGovernor}.
+	 */
+	public static synchronized ResourceGovernor get() {
+		return instance;
+	}
+
+	/** Total cores. */
+	private final int cores;
+
+	/** Total memory in MB for the tasks running in the SUSHI JVM. */
+	private final long heapMemory;
+
+	/** Total memory in MB for the tasks running in child processes. */
+	private final long childMemory;
+
+	private int freeCores;
+	private long freeHeapMemory;
+	private long freeChildMemory;
+
+	/** The memory in MB held by the idle child processes. */
+	private long idleChildMemory = 0L;
+
+	/** Closes idle child processes to free memory, {@code null} if none. */
+	private LongConsumer idleReclaimer = null;
+
+	private ResourceGovernor(int hostCores, int hostMemory) {
+		this.cores = (hostCores > 0 ? hostCores : Runtime.getRuntime().availableProcessors());
+		this.heapMemory = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+		final long totalMemory = (hostMemory > 0 ? hostMemory : physicalMemory());
+		long childMemory = totalMemory - this.heapMemory - OS_RESERVED_MEMORY;
+		if (childMemory < MIN_CHILD_MEMORY) {
+			logger.warn("Host memory " + totalMemory + " MB leaves less than " + MIN_CHILD_MEMORY + " MB to child processes, assuming " + MIN_CHILD_MEMORY + " MB");
+			childMemory = MIN_CHILD_MEMORY;
+		}
+		this.childMemory = childMemory;
+		this.freeCores = this.cores;
+		this.freeHeapMemory = this.heapMemory;
+		this.freeChildMemory = this.childMemory;
+		logger.debug("Resource governor: " + this.cores + " cores, " + this.heapMemory + " MB for in-process tasks, " + this.childMemory + " MB for child processes");
+	}
+
+	private static long physicalMemory() {
+		final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize() / (1024 * 1024);
+		}
+		logger.warn("Unable to detect the physical memory of the host, assuming it is unlimited (use -host_memory to set it)");
+		return Long.MAX_VALUE / 2;
+	}
+
+	/**
+	 * Returns the number of cores.
+	 *
+	 * @return an {@code int}, the maximum number of 
+	 *         tasks that may run at the same time.
+	 */
+	public int cores() {
+		return this.cores;
+	}
+
+	/**
+	 * Returns the number of free cores.
+	 *
+	 * @return an {@code int}, the number of cores 
+	 *         not used by any admitted task.
+	 */
+	public synchronized int freeCores() {
+		return this.freeCores;
+	}
+
+	/**
+	 * Calculates the memory to be given to each child process
+	 * when many run concurrently.
+	 *
+	 * @param concurrentTasks an {@code int}, the maximum number of
+	 *        child processes that may run at the same time.
+	 * @param minMemory an {@code int}, the least memory in MB the
+	 *        child process needs to run. When the child memory does
+	 *        not suffice to run {@code concurrentTasks} processes with
+	 *        at least this memory, fewer of them run at the same time,
+	 *        since the others wait to be admitted until memory is free.
+	 * @return an {@code int}, the memory in MB for each child process,
+	 *         so that as many of them as the cores can run at the
+	 *         same time (when memory suffices to the purpose).
+	 */
+	public int childMemoryShare(int concurrentTasks, int minMemory) {
+		final int concurrent = Math.max(1, Math.min(concurrentTasks, this.cores));
+		final int floor = Math.max(MIN_CHILD_MEMORY, minMemory);
+		final int retVal = (int) Math.max(floor, Math.min(MAX_CHILD_MEMORY, this.childMemory / concurrent));
+		if (retVal > this.childMemory) {
+			logger.warn("Child processes need " + retVal + " MB, but only " + this.childMemory + " MB are available to them (use -host_memory to set it)");
+		}
+		logger.debug("Resource governor: sizing child processes to " + retVal + " MB for " + concurrent + " concurrent tasks");
+		return retVal;
+	}
+
+	/**
+	 * The resources a task holds.
+	 *
+	 * @author Pietro Braione
+	 */
+	public static final class Slot {
+		private final String taskName;
+		private final boolean inProcess;
+		private final long memory;
+		private boolean held = false;
+
+		/** The memory passed to an idle child process (see {@link ResourceGovernor#reserveIdle(long)}). */
+		private long lent = 0L;
+
+		private Slot(String taskName, boolean inProcess, long memory) {
+			this.taskName = taskName;
+			this.inProcess = inProcess;
+			this.memory = memory;
+		}
+	}
+
+	/** The slot of the task the current thread executes, if admitted by {@link #admit(Tool, int, Worker)}. */
+	private final ThreadLocal<Slot> currentSlot = new ThreadLocal<>();
+
+	private Slot slot(Tool<?> tool, String taskName) {
+		final boolean inProcess = tool.runsInProcess();
+		final long memory = Math.min(tool.taskMemory(), (inProcess ? this.heapMemory : this.childMemory));
+		return new Slot(taskName, inProcess, memory);
+	}
+
+	/**
+	 * Wraps a {@link Worker} so that it starts only
+	 * after this governor admits it.
+	 *
+	 * @param tool the {@link Tool} of the task.
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @param worker the {@link Worker} that executes the task.
+	 * @return a {@link Callable} that waits for a core and for the
+	 *         memory required by the task, then invokes {@code worker},
+	 *         and finally releases the resources.
+	 */
+	public Callable<ExecutionResult> admit(Tool<?> tool, int taskNumber, Worker worker) {
+		final String taskName = tool.getName() + " task " + taskNumber;
+		return () -> {
+			final Slot slot = slot(tool, taskName);
+			acquire(slot);
+			this.currentSlot.set(slot);
+			worker.getMetrics().started();
+			try {
+				return worker.call();
+			} finally {
+				this.currentSlot.remove();
+				release(slot);
+			}
+		};
+	}
+
+	/**
+	 * Wraps a subtask of a task (e.g., the exploration of a subregion
+	 * of a method) so that it starts only after this governor admits it.
+	 * The subtask requires the same resources as the task.
+	 *
+	 * @param tool the {@link Tool} of the task.
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @param subtask a {@link Callable}, the subtask.
+	 * @return a {@link Callable} that waits for a core and for the
+	 *         memory required by the task, then invokes {@code subtask},
+	 *         and finally releases the resources.
+	 */
+	public <V> Callable<V> admitSubtask(Tool<?> tool, int taskNumber, Callable<V> subtask) {
+		final String taskName = tool.getName() + " task " + taskNumber + " (subtask)";
+		return () -> {
+			final Slot slot = slot(tool, taskName);
+			acquire(slot);
+			try {
+				return subtask.call();
+			} finally {
+				release(slot);
+			}
+		};
+	}
+
+	/**
+	 * Releases the resources of the task the current thread executes,
+	 * while it waits for its subtasks (see {@link #admitSubtask(Tool, int, Callable)}),
+	 * that otherwise might wait for them forever.
+	 *
+	 * @return the {@link Slot} of the task, to be passed to {@link #resume(Slot)},
+	 *         or {@code null} if the current thread was not admitted
+	 *         by this governor (e.g., it runs a task of an agent).
+	 */
+	public Slot suspend() {
+		final Slot slot = this.currentSlot.get();
+		if (slot != null) {
+			release(slot);
+		}
+		return slot;
+	}
+
+	/**
+	 * Acquires again the resources of a task after {@link #suspend()}.
+	 * If the wait is interrupted the task does not hold its resources
+	 * any longer, and it must terminate.
+	 *
+	 * @param slot the {@link Slot} returned by {@link #suspend()}.
+	 * @throws InterruptedException if interrupted while waiting
+	 *         for the resources.
+	 */
+	public void resume(Slot slot) throws InterruptedException {
+		if (slot != null) {
+			acquire(slot);
+		}
+	}
+
+	/**
+	 * Sets how the idle child processes are closed when a task 
+	 * needs their memory.
+	 * 
+	 * @param idleReclaimer a {@link LongConsumer} that receives
+	 *        the memory in MB that is needed, and closes idle child 
+	 *        processes, invoking {@link #releaseIdle(long)} for each 
+	 *        of them. It is invoked with the lock of this governor
+	 *        held, so it must not hold any lock while invoking this
+	 *        governor from another thread.
+	 */
+	public synchronized void setIdleReclaimer(LongConsumer idleReclaimer) {
+		this.idleReclaimer = idleReclaimer;
+	}
+
+	/**
+	 * Reserves the memory of a child process that stays alive, idle,
+	 * to be reused. If the current thread executes a task admitted
+	 * by this governor in a child process, the child process is the
+	 * one of the task, and the memory is taken from the task.
+	 * 
+	 * @param memory a {@code long}, the memory in MB of the child process.
+	 * @return {@code true} iff the memory was reserved; Otherwise 
+	 *         the child process must be closed.
+	 */
+	public synchronized boolean reserveIdle(long memory) {
+		final Slot slot = this.currentSlot.get();
+		if (slot != null && slot.held && !slot.inProcess && slot.memory - slot.lent >= memory) {
+			slot.lent += memory;
+		} else if (this.freeChildMemory >= memory) {
+			this.freeChildMemory -= memory;
+		} else {
+			return false;
+		}
+		this.idleChildMemory += memory;
+		return true;
+	}
+
+	/**
+	 * Releases the memory of an idle child process, that
+	 * is closed or leased to a task.
+	 * 
+	 * @param memory a {@code long}, the memory in MB passed
+	 *        to {@link #reserveIdle(long)}.
+	 */
+	public synchronized void releaseIdle(long memory) {
+		this.idleChildMemory -= memory;
+		this.freeChildMemory += memory;
+		notifyAll();
+	}
+
+	private synchronized void acquire(Slot slot) throws InterruptedException {
+		boolean waited = false;
+		while (this.freeCores == 0 || (slot.inProcess ? this.freeHeapMemory : this.freeChildMemory) < slot.memory) {
+			if (this.freeCores > 0 && !slot.inProcess && this.idleChildMemory > 0 && this.idleReclaimer != null) {
+				//idle child processes hold the memory the task needs
+				final long idleBefore = this.idleChildMemory;
+				this.idleReclaimer.accept(slot.memory - this.freeChildMemory);
+				if (this.idleChildMemory < idleBefore) {
+					continue;
+				}
+			}
+			if (!waited) {
+				logger.debug("Resource governor: " + slot.taskName + " waits (free cores " + this.freeCores + ", free memory " + (slot.inProcess ? this.freeHeapMemory : this.freeChildMemory) + " MB, requested " + slot.memory + " MB)");
+				waited = true;
+			}
+			wait();
+		}
+		--this.freeCores;
+		if (slot.inProcess) {
+			this.freeHeapMemory -= slot.memory;
+		} else {
+			this.freeChildMemory -= slot.memory;
+		}
+		slot.held = true;
+		logger.debug("Resource governor: admitted " + slot.taskName + " with " + slot.memory + " MB " + (slot.inProcess ? "in process" : "in child process") + " (free cores " + this.freeCores + "/" + this.cores + ", free memory " + this.freeHeapMemory + "/" + this.heapMemory + " MB in process, " + this.freeChildMemory + "/" + this.childMemory + " MB for child processes)");
+	}
+
+	private synchronized void release(Slot slot) {
+		if (!slot.held) {
+			return; //suspended, and not resumed
+		}
+		slot.held = false;
+		++this.freeCores;
+		if (slot.inProcess) {
+			this.freeHeapMemory += slot.memory;
+		} else {
+			this.freeChildMemory += slot.memory - slot.lent;
+			slot.lent = 0L;
+		}
+		logger.debug("Resource governor: released " + slot.taskName);
+		notifyAll();
+	}
+}
@@ -0,0 +1,186 @@
+package sushi.execution;
+
+/**
+ * The metrics of a replica of a task: how long it waited to
+ * start, how long it ran, and how it ended (exit status, failure
+ * or cancellation with its cause). All times are in milliseconds.
+ *
+ * @author Pietro Braione
+ */
+public final class TaskMetrics {
+	/**
+	 * Why a replica was cancelled.
+	 */
+	public enum Cancellation {
+		/** The time budget of the tool was exhausted. */
+		TIMEOUT,
+
+		/** The global time budget was exhausted. */
+		GLOBAL_TIMEOUT,
+
+		/** Another replica of the same task completed. */
+		REPLICA_COMPLETED,
+
+		/** The branches of the task were covered by the tests of other tasks. */
+		COVERED,
+
+		/** Some task required the termination of the run. */
+		TERMINATION,
+
+		/** A task of the previous tool in a pipeline, the replica depends on, failed. */
+		UPSTREAM_FAILED,
+
+		/** The replica was not launched because it was not needed (hedging). */
+		NOT_LAUNCHED,
+
+		/** The cancellation cause was not recorded. */
+		UNKNOWN
+	}
+
+	private final String toolName;
+	private final int taskNumber;
+	private final int replica;
+	private long submitted = -1L;
+	private long started = -1L;
+	private long ended = -1L;
+	private Integer exitStatus = null;
+	private String failure = null;
+	private Cancellation cancellationRequested = null;
+	private Cancellation cancellation = null;
+
+	TaskMetrics(String toolName, int taskNumber, int replica) {
+		this.toolName = toolName;
+		this.taskNumber = taskNumber;
+		this.replica = replica;
+	}
+
+	/**
+	 * Returns metrics that are not recorded anywhere, for
+	 * the workers that are not executed by the
+	 * {@link ExecutionManager}.
+	 *
+	 * @return a {@link TaskMetrics}.
+	 */
+	static TaskMetrics detached() {
+		return new TaskMetrics("", 0, 0);
+	}
+
+	public String getToolName() {
+		return this.toolName;
+	}
+
+	public int getTaskNumber() {
+		return this.taskNumber;
+	}
+
+	public int getReplica() {
+		return this.replica;
+	}
+
+	/** Records that the replica was submitted for execution. */
+	synchronized void submitted() {
+		if (this.submitted < 0) {
+			this.submitted = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Records that the replica started running, i.e., that it was
+	 * admitted by the {@link ResourceGovernor} or sent to an agent.
+	 */
+	public synchronized void started() {
+		if (this.started < 0) {
+			this.started = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Records the cause of a cancellation that is about to be requested.
+	 * Only the first cause is recorded, and it is ignored if the replica
+	 * is not actually cancelled.
+	 *
+	 * @param cause a {@link Cancellation}.
+	 */
+	synchronized void cancelling(Cancellation cause) {
+		if (this.cancellationRequested == null) {
+			this.cancellationRequested = cause;
+		}
+	}
+
+	/** Records that the replica completed with an exit status. */
+	synchronized void completed(int exitStatus) {
+		this.ended = System.currentTimeMillis();
+		this.exitStatus = exitStatus;
+	}
+
+	/** Records that the replica failed with an exception. */
+	synchronized void failed(Throwable e) {
+		this.ended = System.currentTimeMillis();
+		this.failure = e.getClass().getSimpleName();
+	}
+
+	/** Records that the replica was cancelled. */
+	synchronized void cancelled() {
+		this.ended = System.currentTimeMillis();
+		this.cancellation = (this.cancellationRequested == null ? Cancellation.UNKNOWN : this.cancellationRequested);
+	}
+
+	/**
+	 * Returns the time the replica waited before starting.
+	 *
+	 * @return a {@code long}, the time from submission to start,
+	 *         or from submission to end if the replica never started,
+	 *         or {@code -1} if the replica was never submitted.
+	 */
+	public synchronized long getQueueWait() {
+		if (this.submitted < 0) {
+			return -1L;
+		}
+		final long until = (this.started >= 0 ? this.started : this.ended >= 0 ? this.ended : System.currentTimeMillis());
+		return until - this.submitted;
+	}
+
+	/**
+	 * Returns the time the replica ran.
+	 *
+	 * @return a {@code long}, the time from start to end, or
+	 *         {@code -1} if the replica never started.
+	 */
+	public synchronized long getRunTime() {
+		if (this.started < 0) {
+			return -1L;
+		}
+		return (this.ended >= 0 ? this.ended : System.currentTimeMillis()) - this.started;
+	}
+
+	/**
+	 * Returns the exit status of the replica.
+	 *
+	 * @return an {@link Integer}, or {@code null} if
+	 *         the replica did not complete.
+	 */
+	public synchronized Integer getExitStatus() {
+		return this.exitStatus;
+	}
+
+	/**
+	 * Returns the failure of the replica.
+	 *
+	 * @return a {@link String}, the simple name of the class of
+	 *         the exception that the replica raised, or {@code null}
+	 *         if the replica did not fail.
+	 */
+	public synchronized String getFailure() {
+		return this.failure;
+	}
+
+	/**
+	 * Returns the cancellation cause of the replica.
+	 *
+	 * @return a {@link Cancellation}, or {@code null} if
+	 *         the replica was not cancelled.
+	 */
+	public synchronized Cancellation getCancellation() {
+		return this.cancellation;
+	}
+}
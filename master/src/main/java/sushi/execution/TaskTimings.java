@@ -0,0 +1,113 @@
+package sushi.execution;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import sushi.logging.Logger;
+
+/**
+ * The running times of the tasks of the tools measured in the
+ * current and in earlier runs, persisted in a file so they can
+ * be used to predict the cost of the tasks and schedule them.
+ * Timings are keyed by tool name and by a key chosen by the tool
+ * (e.g., the signature of the target method), and the average
+ * over all the recorded timings is kept.
+ *
+ * @author Pietro Braione
+ */
+public final class TaskTimings {
+	private static final Logger logger = new Logger(TaskTimings.class);
+
+	/** The instances, one for each timings file. */
+	private static final HashMap<Path, TaskTimings> instances = new HashMap<>();
+
+	private final Path file;
+
+	/** Maps tool name + key to {count, total time in milliseconds}. */
+	private final HashMap<String, long[]> timings = new HashMap<>();
+
+	/**
+	 * Returns the timings stored in a file, so that all the 
+	 * tools share the same {@link TaskTimings} object for it.
+	 *
+	 * @param file the {@link Path} of the timings file.
+	 * @return the {@link TaskTimings} for {@code file}. 
+	 */
+	public static synchronized TaskTimings forFile(Path file) {
+		return instances.computeIfAbsent(file.toAbsolutePath(), TaskTimings::new);
+	}
+
+	/**
+	 * Constructor. Loads the timings in {@code file}, if it exists.
+	 *
+	 * @param file the {@link Path} of the timings file.
+	 */
+	private TaskTimings(Path file) {
+		this.file = file;
+		if (!Files.exists(file)) {
+			return;
+		}
+		try (final BufferedReader r = Files.newBufferedReader(file)) {
+			String line;
+			while ((line = r.readLine()) != null) {
+				final String[] fields = line.split(",");
+				if (fields.length != 3) {
+					continue;
+				}
+				this.timings.put(fields[0].trim(), new long[] { Long.parseLong(fields[1].trim()), Long.parseLong(fields[2].trim()) });
+			}
+		} catch (IOException | NumberFormatException e) {
+			logger.warn("Unable to read timings file " + file.toString() + ", ignoring it");
+			this.timings.clear();
+		}
+	}
+
+	private static String entry(Tool<?> tool, String key) {
+		return tool.getName() + ":" + key;
+	}
+
+	/**
+	 * Records the running time of a task.
+	 *
+	 * @param tool the {@link Tool} the task belongs to.
+	 * @param key a {@link String} identifying the task across runs.
+	 * @param elapsed a {@code long}, the running time in milliseconds.
+	 */
+	public synchronized void record(Tool<?> tool, String key, long elapsed) {
+		final long[] timing = this.timings.computeIfAbsent(entry(tool, key), k -> new long[2]);
+		++timing[0];
+		timing[1] += elapsed;
+	}
+
+	/**
+	 * Returns the average running time of a task.
+	 *
+	 * @param tool the {@link Tool} the task belongs to.
+	 * @param key a {@link String} identifying the task across runs.
+	 * @return a {@code long}, the average running time in milliseconds of
+	 *         the task, or {@code -1} if it was never recorded.
+	 */
+	public synchronized long average(Tool<?> tool, String key) {
+		final long[] timing = this.timings.get(entry(tool, key));
+		return (timing == null || timing[0] == 0 ? -1 : timing[1] / timing[0]);
+	}
+
+	/**
+	 * Saves the timings to the timings file.
+	 */
+	public synchronized void save() {
+		try (final BufferedWriter w = Files.newBufferedWriter(this.file)) {
+			for (Map.Entry<String, long[]> e : this.timings.entrySet()) {
+				w.write(e.getKey() + ", " + e.getValue()[0] + ", " + e.getValue()[1]);
+				w.newLine();
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to write timings file " + this.file.toString());
+		}
+	}
+}
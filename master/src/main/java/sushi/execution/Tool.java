@@ -1,15 +1,58 @@
 package sushi.execution;
 
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.List;
 
+import sushi.execution.remote.RemoteTask;
+
 public abstract class Tool<T> {
+	private int budgetGrant = -1;
+	
+	/** The metrics of the run the tool belongs to, see {@link Metrics#configure(sushi.Options, Tool[])}. */
+	private Metrics metrics = null;
+	
+	/** The budget ledger of the run the tool belongs to, see {@link BudgetLedger#configure(sushi.Options, Tool[])}. */
+	private BudgetLedger ledger = null;
+	
 	public final String getName() {
 		return this.getClass().getSimpleName();
 	}
 	
 	public List<Integer> tasks() { return Collections.singletonList(0); }
 	
+	/**
+	 * Invoked at the start of each execution of the tool, after its
+	 * budget is granted and before its tasks start, to do the work
+	 * that the tasks need (e.g., a pre-flight of the tasks). Its time
+	 * is charged to the phase of the tool. By default it does nothing.
+	 */
+	public void prepare() { }
+	
+	/**
+	 * Returns the tasks of the previous tool in a pipeline 
+	 * whose completion a task of this tool depends on.
+	 * 
+	 * @param taskNumber an {@code int}, the number of a task of this tool.
+	 * @return a {@link List}{@code <}{@link Integer}{@code >} of task numbers
+	 *         of the previous tool, or {@code null} if the task depends on
+	 *         all the tasks of the previous tool.
+	 */
+	public List<Integer> upstreamTasks(int taskNumber) { return null; }
+	
+	/**
+	 * Returns the predicted cost of a task, used to schedule 
+	 * the tasks longest-first. 
+	 * 
+	 * @param taskNumber an {@code int}, the number of a task of this tool.
+	 * @return a {@code long}, the predicted cost of the task (e.g., its
+	 *         predicted running time in milliseconds). Only the relative
+	 *         order of the costs of the tasks of a tool matters. 
+	 *         By default all the tasks have cost {@code 0}, so they are 
+	 *         scheduled in the order of {@link #tasks()}.
+	 */
+	public long estimatedCost(int taskNumber) { return 0L; }
+	
 	public abstract T getInvocationParameters(int taskNumber);
 	
 	/**
@@ -22,11 +65,86 @@ public abstract class Tool<T> {
 
 	public abstract int getTimeBudget();
 	
+	final Metrics getMetrics() {
+		return this.metrics;
+	}
+	
+	final void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	final BudgetLedger getBudgetLedger() {
+		return this.ledger;
+	}
+	
+	final void setBudgetLedger(BudgetLedger ledger) {
+		this.ledger = ledger;
+	}
+	
+	final void setBudgetGrant(int budgetGrant) {
+		this.budgetGrant = budgetGrant;
+	}
+	
+	/**
+	 * Returns the time budget of the tool for its current 
+	 * execution, that is, its {@link #getTimeBudget() time budget}
+	 * possibly reduced to the share of the global time budget 
+	 * granted by the {@link BudgetLedger}. 
+	 * 
+	 * @return an {@code int}, the time budget in seconds.
+	 */
+	public final int getGrantedBudget() {
+		return (this.budgetGrant < 0 ? getTimeBudget() : Math.min(this.budgetGrant, getTimeBudget()));
+	}
+	
 	public abstract Worker getWorker(int taskNumber);
 	
+	/**
+	 * Returns a task in a form that can be executed by a remote agent.
+	 * 
+	 * @param taskNumber an {@code int}, the number of a task of this tool.
+	 * @return a {@link RemoteTask}, or {@code null} if the task must be 
+	 *         executed locally (the default).
+	 */
+	public RemoteTask remoteTask(int taskNumber) { return null; }
+	
+	/**
+	 * Invoked when a task executed by a remote agent produces an event.
+	 * 
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @param event a {@link Serializable}, the event. 
+	 */
+	public void onRemoteEvent(int taskNumber, Serializable event) { }
+	
 	public Coordinator getCoordinator() { return new DefaultCoordinator(this); } 
 
 	public int degreeOfParallelism() { return 1; }
 	
+	/**
+	 * Returns the memory each task of this tool must reserve
+	 * (see {@link ResourceGovernor}).
+	 * 
+	 * @return an {@code int}, the memory in MB.
+	 */
+	public int taskMemory() { return 0; }
+	
+	/**
+	 * Returns whether the tasks of this tool run in the SUSHI JVM
+	 * (and thus use its heap) or in child processes.
+	 * 
+	 * @return {@code true} iff the tasks run in the SUSHI JVM.
+	 */
+	public boolean runsInProcess() { return true; }
+	
 	public int redundance() { return 1; }
+	
+	/**
+	 * Returns how many replicas of each task are launched
+	 * at the start of the execution. The {@link Coordinator} 
+	 * of the tool must launch or cancel the remaining 
+	 * {@link #redundance()}{@code  - replicasAtStart()} ones.
+	 * 
+	 * @return an {@code int} between {@code 1} and {@link #redundance()}.
+	 */
+	public int replicasAtStart() { return redundance(); }
 }
@@ -4,10 +4,25 @@ import java.util.concurrent.Callable;
 
 public abstract class Worker implements Callable<ExecutionResult> {
 	protected final int taskNumber;
+	private TaskMetrics metrics = TaskMetrics.detached();
 	
 	public Worker(int taskNumber) {
 		this.taskNumber = taskNumber;
 	}
 	
 	public Worker() { this(0); }
+	
+	final void setMetrics(TaskMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * Returns the metrics of the replica of the task this
+	 * worker executes.
+	 * 
+	 * @return a {@link TaskMetrics}.
+	 */
+	public final TaskMetrics getMetrics() {
+		return this.metrics;
+	}
 }
@@ -1,6 +1,5 @@
 package sushi.execution.bestpath;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -9,6 +8,7 @@ import sushi.exceptions.BestPathException;
 import sushi.execution.ExecutionResult;
 import sushi.execution.Worker;
 import sushi.logging.Logger;
+import sushi.util.CoverageStore;
 
 public class BestPathWorker extends Worker {
 	private static final Logger logger = new Logger(BestPathWorker.class);
@@ -28,30 +28,20 @@ public class BestPathWorker extends Worker {
 		int bestTraceLocal = 0;  //to keep the compiler happy
 		int bestWeight = 0; //to keep the compiler happy
 		
-		int traceGlobal = 0;
-		try (final BufferedReader r = Files.newBufferedReader(p.getCoverageFilePath())) {
-			String line;
-			boolean first = true;
-			while ((line = r.readLine()) != null) {
-				final String[] fields = line.split(",");
-				final int method = Integer.parseInt(fields[0].trim());
-				final int traceLocal = Integer.parseInt(fields[1].trim());
-				final int weight = Integer.parseInt(fields[2].trim());
-				if (first || weight < bestWeight) {
+		try {
+			final CoverageStore coverage = CoverageStore.open(p.getCoverageFilePath());
+			for (int traceGlobal = 0; traceGlobal < coverage.traces(); ++traceGlobal) {
+				final int weight = coverage.hardness(traceGlobal);
+				if (traceGlobal == 0 || weight < bestWeight) {
 					bestTraceGlobal = traceGlobal;
-					bestMethod = method;
-					bestTraceLocal = traceLocal;
+					bestMethod = coverage.method(traceGlobal);
+					bestTraceLocal = coverage.localTrace(traceGlobal);
 					bestWeight = weight;
-					first = false;
 				}
-				++traceGlobal;
 			}
 		} catch (IOException e) {
 			logger.error("I/O error while reading file " + p.getCoverageFilePath().toString());
 			throw new BestPathException(e);
-		} catch (NumberFormatException e) {
-			logger.error("File " + p.getCoverageFilePath().toString() + " has wrong format, expected number is missing");
-			throw new BestPathException(e);
 		}
 
 		try (final BufferedWriter w = Files.newBufferedWriter(p.getOutputFilePath())) {
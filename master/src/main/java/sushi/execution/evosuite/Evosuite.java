@@ -2,6 +2,7 @@ package sushi.execution.evosuite;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Serializable;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
@@ -9,8 +10,10 @@ import java.util.List;
 import sushi.Options;
 import sushi.exceptions.EvosuiteException;
 import sushi.execution.Coordinator;
+import sushi.execution.ResourceGovernor;
 import sushi.execution.Tool;
 import sushi.execution.Worker;
+import sushi.execution.remote.RemoteTask;
 import sushi.logging.Logger;
 import sushi.util.ArrayUtils;
 import sushi.util.DirectoryUtils;
@@ -19,10 +22,18 @@ import sushi.util.IOUtils;
 public class Evosuite extends Tool<String[]> {
 	private static final Logger logger = new Logger(Evosuite.class);
 	
+	/** 
+	 * The least memory in MB of a task, split between the EvoSuite 
+	 * master (1 GB) and client (512 MB) JVMs; Below it, EvoSuite 
+	 * does not run. 
+	 */
+	private static final int MIN_TASK_MEMORY = 1536;
+	
 	private final Options options;
 	private final EvosuiteCoordinator evosuiteCoordinator;
 	private String commandLine;
 	private ArrayList<Integer> tasks = null;
+	private int numPaths;
 
 	public Evosuite(Options options) { 
 		this.options = options;
@@ -43,8 +54,8 @@ public class Evosuite extends Tool<String[]> {
 			this.tasks = new ArrayList<>();
 			final int numTasks;
 			try {
-				final int numPaths = (int) Files.lines(DirectoryUtils.getMinimizerOutFilePath(this.options)).count();
-				numTasks = (numPaths / this.options.getNumMOSATargets()) + (numPaths % this.options.getNumMOSATargets() == 0 ? 0 : 1);
+				this.numPaths = (int) Files.lines(DirectoryUtils.getMinimizerOutFilePath(this.options)).count();
+				numTasks = (this.numPaths / this.options.getNumMOSATargets()) + (this.numPaths % this.options.getNumMOSATargets() == 0 ? 0 : 1);
 			} catch (IOException e) {
 				logger.error("Unable to find and open minimizer output file " + DirectoryUtils.getMinimizerOutFilePath(this.options).toString());
 				throw new EvosuiteException(e);
@@ -56,6 +67,17 @@ public class Evosuite extends Tool<String[]> {
 		return this.tasks;
 	}
 	
+	@Override
+	public List<Integer> upstreamTasks(int taskNumber) {
+		//depends on the compilation of the wrappers of all its MOSA targets
+		tasks(); //sets this.numPaths
+		final ArrayList<Integer> retVal = new ArrayList<>();
+		for (int i = this.options.getNumMOSATargets() * taskNumber; i < Math.min(this.options.getNumMOSATargets() * (taskNumber + 1), this.numPaths); ++i) {
+			retVal.add(i);
+		}
+		return retVal;
+	}
+	
 	@Override
 	public String[] getInvocationParameters(int taskNumber) {
 		final ArrayList<Integer> targetMethodNumbers = new ArrayList<>();
@@ -125,13 +147,16 @@ public class Evosuite extends Tool<String[]> {
 		} else {
 			evo.add("java");
 		}
-		evo.add("-Xmx4G");
+		//splits the task memory between the EvoSuite master and client
+		//JVMs, with the same 2:1 proportion as the default 4 GB:2 GB 
+		final int taskMemory = taskMemory();
+		evo.add("-Xmx" + (2 * taskMemory / 3) + "M");
 		evo.add("-jar");
 		evo.add(this.options.getEvosuitePath().toString());
 		evo.add("-class");
 		evo.add(targetClassName);
 		evo.add("-mem");
-		evo.add("2048");
+		evo.add(Integer.toString(taskMemory / 3));
 		evo.add("-Dmock_if_no_generator=false");
 		evo.add("-Dreplace_system_in=false");
 		evo.add("-Dreplace_gui=false");
@@ -140,7 +165,7 @@ public class Evosuite extends Tool<String[]> {
 		evo.add("-Dassertions=false");
 		evo.add("-Dreport_dir=" + DirectoryUtils.getTmpDirPath(this.options).toString());
 		evo.add("-Djunit_suffix=_Test");
-		evo.add("-Dsearch_budget=" + getTimeBudget());
+		evo.add("-Dsearch_budget=" + getGrantedBudget());
 		evo.add("-Dtest_dir=" + DirectoryUtils.getTmpDirPath(this.options).toString());
 		evo.add("-Dvirtual_fs=false");
 		evo.add("-Dselection_function=ROULETTEWHEEL");
@@ -220,8 +245,43 @@ public class Evosuite extends Tool<String[]> {
 		return (this.options.getParallelismEvosuite() == 0 ? tasks().size() * redundance() : this.options.getParallelismEvosuite());
 	}
 	
+	@Override
+	public int taskMemory() {
+		if (this.options.getTaskMemoryEvosuite() > 0) {
+			return this.options.getTaskMemoryEvosuite();
+		}
+		return ResourceGovernor.get().childMemoryShare(degreeOfParallelism(), MIN_TASK_MEMORY);
+	}
+	
+	@Override
+	public boolean runsInProcess() {
+		return false;
+	}
+	
 	@Override
 	public int redundance() {
 		return this.options.getRedundanceEvosuite();
 	}
+	
+	@Override
+	public int replicasAtStart() {
+		return (this.options.getHedgingEvosuite() ? 1 : redundance());
+	}
+	
+	@Override
+	public RemoteTask remoteTask(int taskNumber) {
+		final String[] p = getInvocationParameters(taskNumber);
+		logger.debug("Task " + taskNumber + ": invoking remotely " + getCommandLine());
+		return new EvosuiteTask(p, taskNumber, DirectoryUtils.getTmpDirPath(this.options));
+	}
+	
+	@Override
+	public void onRemoteEvent(int taskNumber, Serializable event) {
+		if (event instanceof EvosuiteTask.Started) {
+			this.evosuiteCoordinator.onReplicaStarted(taskNumber);
+		} else if (event instanceof EvosuiteTask.TestGenerated) {
+			final EvosuiteTask.TestGenerated testGenerated = (EvosuiteTask.TestGenerated) event;
+			this.evosuiteCoordinator.onTestGenerated(taskNumber, testGenerated.methodNumber, testGenerated.localTraceNumber);
+		}
+	}
 }
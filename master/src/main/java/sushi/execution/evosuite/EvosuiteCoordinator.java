@@ -7,10 +7,16 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import sushi.Coverage;
 import sushi.Options;
@@ -18,22 +24,36 @@ import sushi.exceptions.CoordinatorException;
 import sushi.exceptions.WorkerException;
 import sushi.execution.Coordinator;
 import sushi.execution.ExecutionResult;
+import sushi.execution.Metrics;
+import sushi.execution.ResourceGovernor;
+import sushi.execution.TaskMetrics;
 import sushi.execution.Tool;
 import sushi.logging.Logger;
+import sushi.util.CoverageStore;
 import sushi.util.DirectoryUtils;
 
 public class EvosuiteCoordinator extends Coordinator implements TestGenerationNotifier {
 	private static final Logger logger = new Logger(EvosuiteCoordinator.class);
 	
+	/** How often the coordinator checks whether to launch further replicas, when hedging. */
+	private static final long HEDGING_PERIOD_MILLIS = 1000L;
+	
+	/** How many times to first test must be known before their percentile is used as hedging delay. */
+	private static final int HEDGING_MIN_SAMPLES = 5;
+	
 	private final Options options;
 	private ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures; //alias for coordination
 	private final HashSet<Integer> coveredBranches = new HashSet<>();
 	private ArrayList<String[]> methods;
-	private ArrayList<HashSet<Integer>> coverageData;
+	private CoverageStore coverageData;
 	private ArrayList<HashSet<Integer>> tracesOfTask;
 	private ArrayList<int[]> minimizerOutput;
 	private HashSet<Integer> branchesToIgnore;
 	private HashSet<Integer> cancelledTasks = new HashSet<>();
+	private long[] firstStart; //for hedging: when the first replica of each task started, 0 if none did
+	private int[] launched; //for hedging: how many replicas of each task were launched
+	private boolean[] generated; //for hedging: whether each task generated a test
+	private final ArrayList<Long> timesToFirstTest = new ArrayList<>();
 	
 	public EvosuiteCoordinator(Tool<?> tool, Options options) { 
 		super(tool);
@@ -41,7 +61,7 @@ public class EvosuiteCoordinator extends Coordinator implements TestGenerationNo
 	}
 	
 	@Override
-	public ExecutionResult[] start(ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures) {
+	public ExecutionResult[] start(ArrayList<ArrayList<Future<ExecutionResult>>> tasksFutures, BlockingQueue<Future<ExecutionResult>> completions) {
 		final ExecutionResult[] retVal = new ExecutionResult[this.tool.tasks().size() * this.tool.redundance()];
 		this.tasksFutures = tasksFutures;
 		try {
@@ -59,26 +79,61 @@ public class EvosuiteCoordinator extends Coordinator implements TestGenerationNo
 		}
 		//from here this.coverageData and this.traceOfTask are read-only
 		
-		for (int i = 0; i < retVal.length; ++i) {
-			final int threadNumber = i; //to make the compiler happy
-			final int taskNumber = threadNumber / this.tool.redundance();
-			final int replicaNumber = threadNumber % this.tool.redundance();
-			final Future<ExecutionResult> thisThreadFuture = tasksFutures.get(taskNumber).get(replicaNumber);
-			//waits for the result of its worker
+		//waits for the completion events of all the workers, 
+		//meanwhile possibly launching further replicas
+		final boolean hedging = (this.tool.replicasAtStart() < this.tool.redundance());
+		initHedging();
+		final IdentityHashMap<Future<ExecutionResult>, Integer> positions = positions(tasksFutures);
+		final boolean[] done = new boolean[retVal.length];
+		int pending = positions.size();
+		while (pending > 0) {
+			final Future<ExecutionResult> f;
 			try {
-				retVal[i] = thisThreadFuture.get();
+				f = (hedging ? completions.poll(HEDGING_PERIOD_MILLIS, TimeUnit.MILLISECONDS) : completions.take());
+			} catch (InterruptedException e) {
+				//should never happen, but if it happens
+				//it's ok to fall through to shutdown
+				break;
+			}
+			if (hedging) {
+				hedge();
+			}
+			if (f == null) {
+				continue;
+			}
+			final Integer position = positions.get(f);
+			if (position == null || done[position]) {
+				continue;
+			}
+			done[position] = true;
+			--pending;
+			try {
+				retVal[position] = f.get();
 			} catch (CancellationException e) {
 				//the worker was cancelled
-				retVal[i] = null;
+				retVal[position] = null;
 			} catch (ExecutionException e) {
 				logger.fatal("Error occurred during execution of tool " + this.tool.getName());
 				throw new WorkerException(e);
 			} catch (InterruptedException e)  {
-				//should never happen, but if it happens
-				//it's ok to fall through to shutdown
+				//cannot happen, the future is done
+			}
+			if (hedging && retVal[position] != null) {
+				final int task = position / this.tool.redundance();
+				if (retVal[position].getExitStatus() == 0) {
+					//the task had its chance
+					cancelUnlaunchedReplicas(task);
+				} else {
+					//the replica crashed, another one takes its place
+					launchReplicaAfterFailure(task);
+				}
 			}
 		}
 		
+		synchronized (this) {
+			this.firstStart = null; //next execution will reinitialize
+		}
+		
 		this.coveredBranches.removeAll(this.branchesToIgnore);
 		try (final BufferedWriter w = Files.newBufferedWriter(DirectoryUtils.getCoveredByTestFilePath(this.options))) {
 			for (Integer branch : this.coveredBranches) {
@@ -103,18 +158,14 @@ public class EvosuiteCoordinator extends Coordinator implements TestGenerationNo
 		}
 	}
 	
-	private void loadCoverageData() throws IOException, NumberFormatException {
-		this.coverageData = new ArrayList<>();
-		try (final BufferedReader r = Files.newBufferedReader(DirectoryUtils.getCoverageFilePath(this.options))) {
-			String line;
-			while ((line = r.readLine()) != null) {
-				final HashSet<Integer> coverage = new HashSet<>();
-				final String[] fields = line.split(",");
-				for (int i = 3; i < fields.length; ++i) {
-					coverage.add(Integer.parseInt(fields[i].trim()));
-				}
-				this.coverageData.add(coverage);
-			}
+	private void loadCoverageData() throws IOException {
+		this.coverageData = CoverageStore.open(DirectoryUtils.getCoverageFilePath(this.options));
+	}
+	
+	private void addBranchesOfTrace(HashSet<Integer> branches, int trace) {
+		final int count = this.coverageData.coveredCount(trace);
+		for (int i = 0; i < count; ++i) {
+			branches.add(this.coverageData.covered(trace, i));
 		}
 	}
 	
@@ -168,8 +219,117 @@ public class EvosuiteCoordinator extends Coordinator implements TestGenerationNo
 		}
 	}
 	
+	private synchronized void initHedging() {
+		if (this.firstStart == null) {
+			final int numTasks = this.tool.tasks().size();
+			this.firstStart = new long[numTasks];
+			this.launched = new int[numTasks];
+			Arrays.fill(this.launched, this.tool.replicasAtStart());
+			this.generated = new boolean[numTasks];
+		}
+	}
+	
+	/**
+	 * Invoked by the workers when the EvoSuite process of a
+	 * replica of a task starts.
+	 * 
+	 * @param taskNumber an {@code int}, the number of the task.
+	 */
+	synchronized void onReplicaStarted(int taskNumber) {
+		initHedging();
+		if (this.firstStart[taskNumber] == 0) {
+			this.firstStart[taskNumber] = System.currentTimeMillis();
+		}
+	}
+	
+	/**
+	 * Launches a further replica of each task that did not generate a test 
+	 * yet and either was started for longer than the hedging delay (per launched 
+	 * replica), or can run on an idle core.
+	 */
+	private synchronized void hedge() {
+		final long now = System.currentTimeMillis();
+		final long budget = this.tool.getGrantedBudget() * 1000L;
+		final long delay = hedgingDelay(budget);
+		int idleCores = ResourceGovernor.get().freeCores();
+		final Integer[] tasksByStart = new Integer[this.firstStart.length];
+		for (int task = 0; task < tasksByStart.length; ++task) {
+			tasksByStart[task] = task;
+		}
+		Arrays.sort(tasksByStart, Comparator.comparingLong((Integer task) -> this.firstStart[task]));
+		for (int task : tasksByStart) {
+			if (this.firstStart[task] == 0 || this.generated[task] || this.cancelledTasks.contains(task) || this.launched[task] >= this.tool.redundance()) {
+				continue;
+			}
+			final long elapsed = now - this.firstStart[task];
+			if (elapsed >= budget) {
+				continue;
+			}
+			if (elapsed >= delay * this.launched[task]) {
+				logger.debug("Task " + task + " generated no test after " + elapsed / 1000 + " seconds, launching replica " + this.launched[task]);
+			} else if (idleCores > 0) {
+				logger.debug("Idle cores, launching replica " + this.launched[task] + " of task " + task);
+				--idleCores;
+			} else {
+				continue;
+			}
+			launch(this.tasksFutures.get(task).get(this.launched[task]));
+			++this.launched[task];
+		}
+	}
+	
+	/**
+	 * Calculates the hedging delay.
+	 * 
+	 * @param budget a {@code long}, the time budget of a task in milliseconds.
+	 * @return a {@code long}, the configured percentile of the times (in milliseconds)
+	 *         the tasks took to generate their first test or, if too few tasks generated 
+	 *         a test so far, the budget split evenly among the replicas.
+	 */
+	private synchronized long hedgingDelay(long budget) {
+		if (this.timesToFirstTest.size() < HEDGING_MIN_SAMPLES) {
+			return budget / this.tool.redundance();
+		}
+		final ArrayList<Long> sorted = new ArrayList<>(this.timesToFirstTest);
+		Collections.sort(sorted);
+		final int index = (int) Math.ceil(this.options.getHedgingPercentileEvosuite() / 100.0 * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+	}
+	
+	private synchronized void cancelUnlaunchedReplicas(int task) {
+		final ArrayList<Future<ExecutionResult>> futures = this.tasksFutures.get(task);
+		for (int replica = this.launched[task]; replica < futures.size(); ++replica) {
+			cancel(futures.get(replica), TaskMetrics.Cancellation.NOT_LAUNCHED);
+		}
+		this.launched[task] = futures.size();
+	}
+	
+	private synchronized void launchReplicaAfterFailure(int task) {
+		if (this.generated[task] || this.cancelledTasks.contains(task) || this.launched[task] >= this.tool.redundance()) {
+			return;
+		}
+		logger.debug("A replica of task " + task + " failed, launching replica " + this.launched[task]);
+		if (this.firstStart[task] == 0) {
+			//no replica started, the hedging delay counts from now
+			this.firstStart[task] = System.currentTimeMillis();
+		}
+		launch(this.tasksFutures.get(task).get(this.launched[task]));
+		++this.launched[task];
+	}
+	
 	@Override
 	public synchronized void onTestGenerated(int taskNumber, int methodNumber, int localTraceNumber) {
+		if (this.firstStart != null && !this.generated[taskNumber]) {
+			this.generated[taskNumber] = true;
+			if (this.firstStart[taskNumber] > 0) {
+				this.timesToFirstTest.add(System.currentTimeMillis() - this.firstStart[taskNumber]);
+			}
+			if (this.tasksFutures != null) {
+				//the task succeeded, its further replicas are not needed
+				cancelUnlaunchedReplicas(taskNumber);
+			}
+		}
+
 		final HashSet<Integer> branchesOfTarget = branchesOfTarget(taskNumber, methodNumber, localTraceNumber);
 		final HashSet<Integer> branchesNew = new HashSet<>(branchesOfTarget);
 		branchesNew.removeAll(this.coveredBranches);
@@ -196,7 +356,7 @@ public class EvosuiteCoordinator extends Coordinator implements TestGenerationNo
 			if (row[1] == methodNumber && row[2] == localTraceNumber) {
 				final int trace = row[0];
 				final HashSet<Integer> retVal = new HashSet<>();
-				retVal.addAll(this.coverageData.get(trace));
+				addBranchesOfTrace(retVal, trace);
 				return retVal;
 			}
 		}
@@ -216,7 +376,7 @@ public class EvosuiteCoordinator extends Coordinator implements TestGenerationNo
 	private synchronized void cancelTask(int task) {
 		final ArrayList<Future<ExecutionResult>> futures = this.tasksFutures.get(task);
 		for (Future<ExecutionResult> f : futures) {
-			f.cancel(true);
+			cancel(f, TaskMetrics.Cancellation.COVERED);
 		}
 		this.cancelledTasks.add(task);
 	}
@@ -240,6 +400,7 @@ public class EvosuiteCoordinator extends Coordinator implements TestGenerationNo
             final Path source = DirectoryUtils.getTmpDirPath(this.options).resolve(relativeTestFileName);
             final Path destination = this.options.getOutDirPath().resolve(relativeTestFileName);
             Files.copy(source, destination, StandardCopyOption.REPLACE_EXISTING);
+            Metrics.get(this.tool).count(this.tool, Metrics.TESTS_EMITTED, 1);
 
             //possibly copies the scaffolding file
             if (!this.options.getEvosuiteNoDependency()) {
@@ -261,7 +422,7 @@ public class EvosuiteCoordinator extends Coordinator implements TestGenerationNo
 	
 	private synchronized HashSet<Integer> branchesOfTask(int taskNumber) {
 		final HashSet<Integer> retVal = new HashSet<>();
-		this.tracesOfTask.get(taskNumber).stream().map(trace -> this.coverageData.get(trace)).forEach(coverage -> retVal.addAll(coverage));
+		this.tracesOfTask.get(taskNumber).forEach(trace -> addBranchesOfTrace(retVal, trace));
 		return retVal;
 	}
 }
@@ -0,0 +1,87 @@
+package sushi.execution.evosuite;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+
+import sushi.exceptions.EvosuiteException;
+import sushi.execution.ExecutionResult;
+import sushi.execution.ProcessReaper;
+import sushi.execution.remote.EventSink;
+import sushi.execution.remote.RemoteTask;
+import sushi.logging.Logger;
+
+/**
+ * Runs an EvoSuite process, either locally (see {@link EvosuiteWorker})
+ * or on a remote agent. The process is watched by the {@link ProcessReaper}, 
+ * and its start and the tests it generates are reported as events.
+ * 
+ * @author Pietro Braione
+ */
+final class EvosuiteTask implements RemoteTask {
+	private static final long serialVersionUID = -3470154729025521733L;
+	
+	private static final Logger logger = new Logger(EvosuiteTask.class);
+	
+	/** Event: the EvoSuite process started. */
+	static final class Started implements Serializable {
+		private static final long serialVersionUID = 2157738806513212412L;
+	}
+	
+	/** Event: the EvoSuite process generated a test. */
+	static final class TestGenerated implements Serializable {
+		private static final long serialVersionUID = -8801934117437095106L;
+		
+		final int methodNumber;
+		final int localTraceNumber;
+		
+		TestGenerated(int methodNumber, int localTraceNumber) {
+			this.methodNumber = methodNumber;
+			this.localTraceNumber = localTraceNumber;
+		}
+	}
+	
+	private final String[] commandLine;
+	private final int taskNumber;
+	private final String logDirectory;
+	
+	EvosuiteTask(String[] commandLine, int taskNumber, Path logDirectory) {
+		this.commandLine = commandLine.clone();
+		this.taskNumber = taskNumber;
+		this.logDirectory = logDirectory.toAbsolutePath().toString();
+	}
+
+	@Override
+	public ExecutionResult run(EventSink sink) throws EvosuiteException, InterruptedException {
+		final Path logFilePath = Paths.get(this.logDirectory).resolve("evosuite-task-" + this.taskNumber + "-" + Thread.currentThread().getName() + ".log");		
+		final ProcessBuilder pb = new ProcessBuilder(this.commandLine).redirectErrorStream(true);
+		Process process = null; //to keep the compiler happy
+		try {
+			final long start = System.currentTimeMillis();
+			process = pb.start();
+			sink.emit(new Started());
+			final TestDetector td = new TestDetector(this.taskNumber, logFilePath, (taskNumber, methodNumber, localTraceNumber) -> sink.emit(new TestGenerated(methodNumber, localTraceNumber)));
+			final int exitStatus = ProcessReaper.get().watch(process, td).get();
+			final long elapsed = System.currentTimeMillis() - start;
+			logger.debug("Task " + this.taskNumber + " ended, elapsed " + elapsed/1000 + " seconds");
+			final ExecutionResult result = new ExecutionResult();
+			result.setExitStatus(exitStatus);
+			return result;
+		} catch (IOException e) {
+			logger.error("I/O error while creating evosuite process or log file");
+			throw new EvosuiteException(e);
+		} catch (ExecutionException e) {
+			//cannot happen, the reaper never completes exceptionally
+			throw new EvosuiteException(e);
+		} catch (InterruptedException e) {
+			//the reaper will detect the death of the process 
+			//and stop listening to it
+			if (process != null) {
+				process.destroy();
+			}
+			throw e;
+		}
+	}
+}
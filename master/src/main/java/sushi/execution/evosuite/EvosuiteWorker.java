@@ -1,8 +1,5 @@
 package sushi.execution.evosuite;
 
-import java.io.IOException;
-import java.nio.file.Path;
-
 import sushi.Options;
 import sushi.exceptions.EvosuiteException;
 import sushi.execution.ExecutionResult;
@@ -26,32 +23,7 @@ public class EvosuiteWorker extends Worker {
 	public ExecutionResult call() throws EvosuiteException, InterruptedException {
 		final String[] p = this.evosuite.getInvocationParameters(this.taskNumber);
 		logger.debug("Task " + this.taskNumber + ": invoking " + this.evosuite.getCommandLine());
-		
-		final Path logFilePath = DirectoryUtils.getTmpDirPath(this.options).resolve("evosuite-task-" + this.taskNumber + "-" + Thread.currentThread().getName() + ".log");		
-		final ProcessBuilder pb = new ProcessBuilder(p).redirectErrorStream(true);
-		Process process = null; //to keep the compiler happy
-		TestDetector td = null; //to keep the compiler happy
-		try {
-			final long start = System.currentTimeMillis();
-			process = pb.start();
-			td = new TestDetector(this.taskNumber, process.getInputStream(), logFilePath, this.evosuite.getTestGenerationNotifier());
-			td.start();
-			final int exitStatus = process.waitFor();
-			final long elapsed = System.currentTimeMillis() - start;
-			logger.debug("Task " + this.taskNumber + " ended, elapsed " + elapsed/1000 + " seconds");
-			td.join();
-			final ExecutionResult result = new ExecutionResult();
-			result.setExitStatus(exitStatus);
-			return result;
-		} catch (IOException e) {
-			logger.error("I/O error while creating evosuite process or log file");
-			throw new EvosuiteException(e);
-		} catch (InterruptedException e) {
-			if (td != null) {
-				td.interrupt();
-			}
-			process.destroy();
-			throw e;
-		}
+		final EvosuiteTask task = new EvosuiteTask(p, this.taskNumber, DirectoryUtils.getTmpDirPath(this.options));
+		return task.run(event -> this.evosuite.onRemoteEvent(this.taskNumber, event));
 	}
 }
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import sushi.Options;
@@ -55,6 +56,12 @@ public final class Javac extends Tool<String[]> {
 		}
 		return this.tasks;
 	}
+	
+	@Override
+	public List<Integer> upstreamTasks(int taskNumber) {
+		//compiles the wrapper emitted by the same task of JBSETraces
+		return Collections.singletonList(taskNumber);
+	}
 
 	@Override
 	public String[] getInvocationParameters(int i) {
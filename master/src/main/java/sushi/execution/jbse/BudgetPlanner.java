@@ -0,0 +1,332 @@
+package sushi.execution.jbse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import sushi.exceptions.JBSEException;
+import sushi.execution.BudgetLedger;
+import sushi.execution.ResourceGovernor;
+import sushi.execution.Tool;
+import sushi.logging.Logger;
+import sushi.util.LogContext;
+
+/**
+ * Splits the time budget of the exploration across the methods. Before
+ * the tasks start, each method is explored for a short pre-flight budget,
+ * collecting the {@link ExplorationStatistics} of its state tree. The
+ * pre-flight explorations are admitted by the {@link ResourceGovernor}
+ * as subtasks of the tasks, and stop when the global budget of the
+ * {@link BudgetLedger} is exhausted. Then the total budget, that is, the granted
+ * budget of a task times the number of tasks, less the time of the
+ * pre-flight explorations, is allotted as follows:
+ * <ul>
+ * <li>The methods whose pre-flight exploration did not fail and ended
+ * before its budget expired have a small state tree, and receive twice
+ * the time of their pre-flight;</li>
+ * <li>The other methods share the rest of the budget in proportion to
+ * the new coverage they are expected to yield, i.e., the branches they
+ * covered during the pre-flight scaled by the fraction of their state
+ * tree that is still unexplored, estimated from the pending branch
+ * points and the branching factor.</li>
+ * </ul>
+ * The budget that a task does not use when it ends goes back to a pool,
+ * from which the tasks that reach their deadline draw extensions. The
+ * deadlines are enforced through the cancellation of the explorations
+ * (see {@link JBSEParameters#setCancellation(java.util.function.BooleanSupplier)}).
+ *
+ * @author Pietro Braione
+ */
+final class BudgetPlanner {
+	private static final Logger logger = new Logger(BudgetPlanner.class);
+
+	/** The least budget in milliseconds allotted to a task. */
+	private static final long MIN_BUDGET_MILLIS = 1000L;
+
+	/**
+	 * The most budget allotted to a task, including its extensions,
+	 * as a multiple of the granted budget.
+	 */
+	private static final long MAX_FACTOR = 4L;
+
+	/**
+	 * The most budget a task may draw from the pool in a single
+	 * extension, as a fraction of the granted budget.
+	 */
+	private static final long EXTENSION_DIVISOR = 4L;
+
+	private final IntFunction<JBSEParameters> parameters;
+	private final int preflightBudget;
+
+	/** The statistics of the pre-flight explorations; {@code null} if failed. */
+	private final HashMap<Integer, ExplorationStatistics> statistics = new HashMap<>();
+
+	/** The total time in milliseconds of the pre-flight explorations. */
+	private long preflightElapsed = 0L;
+
+	/** The granted budget in milliseconds, {@code -1} before planning. */
+	private long granted = -1L;
+
+	/** The budget in milliseconds allotted to each task, including extensions. */
+	private final HashMap<Integer, Long> allotted = new HashMap<>();
+
+	/** The deadlines of the started tasks, read at every step without locking. */
+	private final ConcurrentHashMap<Integer, Long> deadlines = new ConcurrentHashMap<>();
+
+	/** The budget in milliseconds that the tasks did not use. */
+	private long pool = 0L;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param parameters an {@link IntFunction}{@code <}{@link JBSEParameters}{@code >}
+	 *        returning the parameters for exploring a task.
+	 * @param preflightBudget a positive {@code int}, the budget in seconds
+	 *        of the pre-flight exploration of a method.
+	 */
+	BudgetPlanner(IntFunction<JBSEParameters> parameters, int preflightBudget) {
+		this.parameters = parameters;
+		this.preflightBudget = preflightBudget;
+	}
+
+	/**
+	 * Explores the methods of some tasks for the pre-flight budget,
+	 * in parallel, and forgets the previous plan. The explorations 
+	 * that did not start when the global budget is exhausted are 
+	 * skipped, and those running are stopped.
+	 *
+	 * @param tool the {@link Tool} of the tasks.
+	 * @param tasks a {@link List}{@code <}{@link Integer}{@code >}, the
+	 *        tasks.
+	 */
+	void preflight(Tool<?> tool, List<Integer> tasks) {
+		final ResourceGovernor governor = ResourceGovernor.get();
+		final BudgetLedger ledger = BudgetLedger.get(tool);
+		final ArrayList<Callable<ExplorationStatistics>> preflights = new ArrayList<>();
+		final AtomicLong elapsed = new AtomicLong(0L);
+		for (int task : tasks) {
+			preflights.add(LogContext.wrap(governor.admitSubtask(tool, task, () -> {
+				if (ledger.expired()) {
+					return null; //the task will be cancelled anyway
+				}
+				final long start = System.currentTimeMillis();
+				try {
+					return preflight(task, ledger);
+				} finally {
+					elapsed.addAndGet(System.currentTimeMillis() - start);
+				}
+			})));
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(tasks.size(), governor.cores())));
+		final HashMap<Integer, ExplorationStatistics> statistics = new HashMap<>();
+		try {
+			final List<Future<ExplorationStatistics>> futures = executor.invokeAll(preflights);
+			for (int i = 0; i < tasks.size(); ++i) {
+				statistics.put(tasks.get(i), futures.get(i).get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JBSEException(e);
+		} catch (ExecutionException e) {
+			logger.error("Unexpected error during the pre-flight explorations", e.getCause());
+			throw new JBSEException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		synchronized (this) {
+			reset();
+			this.statistics.putAll(statistics);
+			this.preflightElapsed = elapsed.get();
+		}
+		logger.debug("Pre-flight explorations took " + elapsed.get() + " milliseconds");
+	}
+
+	private ExplorationStatistics preflight(int taskNumber, BudgetLedger ledger) {
+		final JBSEParameters p = this.parameters.apply(taskNumber);
+		final ExplorationStatistics retVal = new ExplorationStatistics();
+		p.setTimeout(this.preflightBudget, TimeUnit.SECONDS);
+		p.setCancellation(ledger::expired);
+		p.setMustLogCoverageData(false);
+		p.setStateFormatMode(null);
+		p.setExplorationStatistics(retVal);
+		final long start = System.currentTimeMillis();
+		final int exitStatus = new RunJBSE_Sushi(p).run();
+		retVal.elapsed = System.currentTimeMillis() - start;
+		if (exitStatus != 0) {
+			logger.debug("Pre-flight exploration of task " + taskNumber + " failed, it will receive the granted budget");
+			return null;
+		}
+		logger.debug("Pre-flight exploration of task " + taskNumber + ": " + retVal.toString());
+		return retVal;
+	}
+
+	/**
+	 * Allots the budget to the tasks, if not yet done.
+	 *
+	 * @param grantedBudget an {@code int}, the budget in seconds
+	 *        granted to each task.
+	 */
+	private void plan(int grantedBudget) {
+		if (this.granted >= 0) {
+			return;
+		}
+		this.granted = TimeUnit.SECONDS.toMillis(grantedBudget);
+		final long cap = MAX_FACTOR * this.granted;
+
+		//first the tasks with a known demand...
+		long remaining = Math.max(0L, this.granted * this.statistics.size() - this.preflightElapsed);
+		final HashMap<Integer, Double> weights = new HashMap<>();
+		double sumWeights = 0.0;
+		for (Map.Entry<Integer, ExplorationStatistics> entry : this.statistics.entrySet()) {
+			final ExplorationStatistics s = entry.getValue();
+			final long demand;
+			if (s == null) {
+				demand = this.granted;
+			} else if (!s.timedOut) {
+				demand = Math.min(this.granted, Math.max(MIN_BUDGET_MILLIS, 2 * s.elapsed));
+			} else {
+				final double open = s.pendingBranchPoints * (s.branchingFactor() - 1.0);
+				final double weight = (s.branches + 1) * (open + 1.0) / (open + s.traces + 1.0);
+				weights.put(entry.getKey(), weight);
+				sumWeights += weight;
+				continue;
+			}
+			this.allotted.put(entry.getKey(), demand);
+			remaining -= demand;
+		}
+
+		//...then the others, in proportion to their expected new coverage
+		long rest = remaining;
+		for (Map.Entry<Integer, Double> entry : weights.entrySet()) {
+			final long share = Math.round(remaining * entry.getValue() / sumWeights);
+			final long budget = Math.max(MIN_BUDGET_MILLIS, Math.min(cap, share));
+			this.allotted.put(entry.getKey(), budget);
+			rest -= budget;
+		}
+		this.pool = Math.max(0L, rest);
+		logger.debug("Budget plan (milliseconds): " + this.allotted.toString() + ", pool " + this.pool);
+	}
+
+	/**
+	 * Returns the budget allotted to a task.
+	 *
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @param grantedBudget an {@code int}, the budget in seconds
+	 *        granted to each task.
+	 * @return a {@code long}, the budget of the task in milliseconds,
+	 *         or {@code -1} if the task had no pre-flight.
+	 */
+	synchronized long budget(int taskNumber, int grantedBudget) {
+		plan(grantedBudget);
+		final Long retVal = this.allotted.get(taskNumber);
+		return (retVal == null ? -1L : retVal);
+	}
+
+	/**
+	 * Returns the timeout of the exploration of a task. Since
+	 * the planner enforces the deadlines of the tasks (see
+	 * {@link #apply(int, int, JBSEParameters)}), this is only
+	 * a backstop.
+	 *
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @param grantedBudget an {@code int}, the budget in seconds
+	 *        granted to each task.
+	 * @return a {@code long}, the timeout in milliseconds, or
+	 *         {@code -1} if the task had no pre-flight.
+	 */
+	synchronized long timeout(int taskNumber, int grantedBudget) {
+		return (budget(taskNumber, grantedBudget) < 0 ? -1L : MAX_FACTOR * this.granted);
+	}
+
+	/**
+	 * Makes the exploration of a task respect its budget. The
+	 * deadline of the task starts with the first invocation of
+	 * this method, so all the explorations of a task (e.g., of
+	 * its subregions, see {@link SubregionExplorer}) share it.
+	 *
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @param grantedBudget an {@code int}, the budget in seconds
+	 *        granted to each task.
+	 * @param p the {@link JBSEParameters} of the exploration.
+	 */
+	synchronized void apply(int taskNumber, int grantedBudget, JBSEParameters p) {
+		final long budget = budget(taskNumber, grantedBudget);
+		if (budget < 0) {
+			return; //no plan for this task
+		}
+		this.deadlines.putIfAbsent(taskNumber, System.currentTimeMillis() + budget);
+		p.setCancellation(() -> expired(taskNumber));
+	}
+
+	/**
+	 * Checks whether a task is beyond its deadline.
+	 *
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @return {@code true} iff the task must stop.
+	 */
+	private boolean expired(int taskNumber) {
+		final Long deadline = this.deadlines.get(taskNumber);
+		if (deadline == null || System.currentTimeMillis() < deadline) {
+			return false;
+		}
+		return !extend(taskNumber);
+	}
+
+	/**
+	 * Extends the deadline of a task with budget from the pool.
+	 *
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @return {@code true} iff the deadline was extended.
+	 */
+	private synchronized boolean extend(int taskNumber) {
+		final long now = System.currentTimeMillis();
+		final Long deadline = this.deadlines.get(taskNumber);
+		if (deadline == null || now < deadline) {
+			return true; //finished, or extended by another thread
+		}
+		final long allotted = this.allotted.get(taskNumber);
+		final long extension = Math.min(this.pool, Math.min(this.granted / EXTENSION_DIVISOR, MAX_FACTOR * this.granted - allotted));
+		if (extension <= 0) {
+			return false;
+		}
+		logger.debug("Task " + taskNumber + " extended by " + extension + " milliseconds");
+		this.pool -= extension;
+		this.allotted.put(taskNumber, allotted + extension);
+		this.deadlines.put(taskNumber, now + extension);
+		return true;
+	}
+
+	/**
+	 * Returns the budget that a task did not use to the pool.
+	 *
+	 * @param taskNumber an {@code int}, the number of the task.
+	 */
+	synchronized void finished(int taskNumber) {
+		final Long deadline = this.deadlines.remove(taskNumber);
+		if (deadline != null) {
+			this.pool += Math.max(0L, deadline - System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Forgets the plan and the statistics of the pre-flight.
+	 */
+	synchronized void reset() {
+		this.statistics.clear();
+		this.preflightElapsed = 0L;
+		this.granted = -1L;
+		this.allotted.clear();
+		this.deadlines.clear();
+		this.pool = 0L;
+	}
+}
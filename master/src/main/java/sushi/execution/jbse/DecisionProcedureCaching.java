@@ -0,0 +1,181 @@
+package sushi.execution.jbse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import jbse.bc.ClassFile;
+import jbse.common.exc.InvalidInputException;
+import jbse.common.exc.UnexpectedInternalException;
+import jbse.dec.DecisionProcedure;
+import jbse.dec.exc.DecisionException;
+import jbse.mem.Clause;
+import jbse.mem.ClauseAssume;
+import jbse.mem.Objekt;
+import jbse.val.Calculator;
+import jbse.val.Expression;
+import jbse.val.Primitive;
+import jbse.val.PrimitiveSymbolic;
+import jbse.val.ReferenceSymbolic;
+import jbse.val.Simplex;
+
+/**
+ * A {@link DecisionProcedure} that answers the satisfiability queries
+ * on numeric conditions from a {@link SolverCache}, and only forwards
+ * to the decision procedure it wraps the queries whose result is not
+ * cached. The other queries are always forwarded.
+ *
+ * @author Pietro Braione
+ */
+final class DecisionProcedureCaching implements DecisionProcedure {
+	private final DecisionProcedure next;
+	private final SolverCache cache;
+
+	/** The target method, followed by the assumptions in the order they were pushed. */
+	private final ArrayList<String> assumptions = new ArrayList<>();
+
+	/** Set when going fast and imprecise, when the results must not be cached. */
+	private boolean imprecise = false;
+
+	/**
+	 * The last query answered from the cache, if the last
+	 * query was, otherwise {@code null}.
+	 */
+	private Expression lastCachedQuery = null;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param next the {@link DecisionProcedure} to which the
+	 *        queries are forwarded.
+	 * @param cache the {@link SolverCache}.
+	 * @param methodKey a {@link String} identifying the target
+	 *        method of the symbolic execution.
+	 */
+	DecisionProcedureCaching(DecisionProcedure next, SolverCache cache, String methodKey) {
+		this.next = next;
+		this.cache = cache;
+		this.assumptions.add(methodKey);
+	}
+
+	private static String render(Clause c) {
+		return (c instanceof ClauseAssume ? ((ClauseAssume) c).getCondition().toString() : c.toString());
+	}
+
+	@Override
+	public Calculator getCalculator() {
+		return this.next.getCalculator();
+	}
+
+	@Override
+	public void goFastAndImprecise() {
+		this.imprecise = true;
+		this.next.goFastAndImprecise();
+	}
+
+	@Override
+	public void stopFastAndImprecise() {
+		this.imprecise = false;
+		this.next.stopFastAndImprecise();
+	}
+
+	@Override
+	public void pushAssumption(Clause c) throws InvalidInputException, DecisionException {
+		this.next.pushAssumption(c);
+		this.assumptions.add(render(c));
+	}
+
+	@Override
+	public void clearAssumptions() throws DecisionException {
+		this.next.clearAssumptions();
+		this.assumptions.subList(1, this.assumptions.size()).clear();
+	}
+
+	@Override
+	public void setAssumptions(Collection<Clause> newAssumptions) throws InvalidInputException, DecisionException {
+		this.next.setAssumptions(newAssumptions);
+		this.assumptions.subList(1, this.assumptions.size()).clear();
+		for (Clause c : newAssumptions) {
+			this.assumptions.add(render(c));
+		}
+	}
+
+	@Override
+	public List<Clause> getAssumptions() throws DecisionException {
+		return this.next.getAssumptions();
+	}
+
+	@Override
+	public boolean isSat(Expression expression) throws InvalidInputException, DecisionException {
+		final ArrayList<String> query = new ArrayList<>(this.assumptions);
+		query.add(expression.toString());
+		final Boolean cached = this.cache.lookup(query);
+		if (cached != null) {
+			this.lastCachedQuery = expression;
+			return cached;
+		}
+		this.lastCachedQuery = null;
+		final boolean retVal = this.next.isSat(expression);
+		if (!this.imprecise) {
+			this.cache.record(query, retVal);
+		}
+		return retVal;
+	}
+
+	@Override
+	public boolean isSatNull(ReferenceSymbolic r) throws InvalidInputException, DecisionException {
+		this.lastCachedQuery = null;
+		return this.next.isSatNull(r);
+	}
+
+	@Override
+	public boolean isSatAliases(ReferenceSymbolic r, long heapPos, Objekt o) throws InvalidInputException, DecisionException {
+		this.lastCachedQuery = null;
+		return this.next.isSatAliases(r, heapPos, o);
+	}
+
+	@Override
+	public boolean isSatExpands(ReferenceSymbolic r, ClassFile classFile) throws InvalidInputException, DecisionException {
+		this.lastCachedQuery = null;
+		return this.next.isSatExpands(r, classFile);
+	}
+
+	@Override
+	public boolean isSatInitialized(ClassFile classFile) throws InvalidInputException, DecisionException {
+		this.lastCachedQuery = null;
+		return this.next.isSatInitialized(classFile);
+	}
+
+	@Override
+	public boolean isSatNotInitialized(ClassFile classFile) throws InvalidInputException, DecisionException {
+		this.lastCachedQuery = null;
+		return this.next.isSatNotInitialized(classFile);
+	}
+
+	@Override
+	public Map<PrimitiveSymbolic, Simplex> getModel() throws DecisionException {
+		if (this.lastCachedQuery != null) {
+			//the wrapped decision procedure has no model for the
+			//last query, so it must be asked the query
+			try {
+				this.next.isSat(this.lastCachedQuery);
+			} catch (InvalidInputException e) {
+				//this should never happen
+				throw new UnexpectedInternalException(e);
+			}
+			this.lastCachedQuery = null;
+		}
+		return this.next.getModel();
+	}
+
+	@Override
+	public Primitive simplify(Primitive p) throws DecisionException {
+		return this.next.simplify(p);
+	}
+
+	@Override
+	public void close() throws DecisionException {
+		this.next.close();
+	}
+}
@@ -0,0 +1,431 @@
+package sushi.execution.jbse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jbse.common.exc.UnexpectedInternalException;
+import sushi.Options;
+import sushi.exceptions.ReflectionUtilsException;
+import sushi.logging.Logger;
+import sushi.util.ClassFileUtils;
+import sushi.util.ClassFileUtils.ClassSummary;
+import sushi.util.DirectoryUtils;
+
+/**
+ * The results of the explorations of the methods, kept across runs in
+ * a directory in the base of the files shared by subsequent runs (see
+ * {@link DirectoryUtils#getExplorationCacheDirPath(Options)}). Each
+ * result is stored in a subdirectory named after the key of the
+ * exploration, and contains the branches, coverage and traces files
+ * and the wrappers of the method.
+ *
+ * The key of an exploration is a hash of the method number and
+ * signature, of the options that affect the exploration (settings
+ * files, scopes, rewriters...), of the content of the JBSE library,
+ * and of the classfiles of the classes on the classpath of the target
+ * (see {@link Options#getClassesPath()}) the class of the method
+ * depends on. These are the classes the class of the method
+ * transitively refers to, its superclasses and interfaces, and their
+ * subclasses and implementors on the classpath, since the symbolic
+ * execution expands the symbolic receivers of the virtual invocations
+ * to any of them, and the symbolic objects depend on the fields of
+ * their classes. The classes are hashed by name rather than by path,
+ * so the key does not change when the classpath moves. The classes of
+ * the JDK are not followed. Only the
+ * explorations of the whole state tree are stored, so the budget of
+ * the exploration and the search strategy are not part of the key.
+ *
+ * @author Pietro Braione
+ */
+final class ExplorationCache {
+	private static final Logger logger = new Logger(ExplorationCache.class);
+
+	/** Changes when the format of the results or of the key changes. */
+	private static final String VERSION = "4";
+
+	/** 
+	 * The classes on the classpaths, so that the classpath of all 
+	 * the targets and tasks in the process is read once. 
+	 */
+	private static final HashMap<List<Path>, ClassIndex> classIndexes = new HashMap<>();
+
+	/** The hashes of the JBSE libraries, computed once in the process. */
+	private static final HashMap<Path, String> libraryDigests = new HashMap<>();
+
+	private static final String BRANCHES_FILE_NAME = "branches.txt";
+	private static final String COVERAGE_FILE_NAME = "coverage.txt";
+	private static final String TRACES_FILE_NAME = "alltraces.txt";
+	private static final String WRAPPERS_DIR_NAME = "wrappers";
+
+	private final Options options;
+	private final boolean emitWrappers;
+	private final List<List<String>> testMethods;
+	private final Path dir;
+	private final HashMap<Integer, String> keys = new HashMap<>();
+
+	ExplorationCache(Options options, boolean emitWrappers, List<List<String>> testMethods) {
+		this.options = options;
+		this.emitWrappers = emitWrappers;
+		this.testMethods = testMethods;
+		this.dir = DirectoryUtils.getExplorationCacheDirPath(options);
+	}
+
+	/**
+	 * Restores the result of the exploration of a method in
+	 * the temporary directory, if it is cached.
+	 *
+	 * @param methodNumber an {@code int}, the number of the method.
+	 * @return {@code true} iff the result was cached and restored.
+	 */
+	synchronized boolean restore(int methodNumber) {
+		final Path entry = this.dir.resolve(key(methodNumber));
+		if (!Files.isDirectory(entry)) {
+			return false;
+		}
+		try {
+			Files.copy(entry.resolve(BRANCHES_FILE_NAME), DirectoryUtils.getBranchesFilePath(this.options, methodNumber), StandardCopyOption.REPLACE_EXISTING);
+			Files.copy(entry.resolve(COVERAGE_FILE_NAME), DirectoryUtils.getCoverageFilePath(this.options, methodNumber), StandardCopyOption.REPLACE_EXISTING);
+			Files.copy(entry.resolve(TRACES_FILE_NAME), DirectoryUtils.getTracesFilePath(this.options, methodNumber), StandardCopyOption.REPLACE_EXISTING);
+			final Path outDir = DirectoryUtils.getJBSEOutDirPath(this.options);
+			try (final DirectoryStream<Path> wrappers = Files.newDirectoryStream(entry.resolve(WRAPPERS_DIR_NAME))) {
+				for (Path wrapper : wrappers) {
+					Files.copy(wrapper, outDir.resolve(wrapper.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			logger.warn("Unable to restore the exploration of method " + methodNumber + " from cache entry " + entry.toString() + ", exploring it");
+			return false;
+		}
+	}
+
+	/**
+	 * Stores the result of the exploration of a method from
+	 * the temporary directory. It must be invoked only if the
+	 * exploration explored the whole state tree of the method. The entry is written aside and
+	 * then moved in place, so a partially written entry is
+	 * never restored.
+	 *
+	 * @param methodNumber an {@code int}, the number of the method.
+	 */
+	synchronized void store(int methodNumber) {
+		final String key = key(methodNumber);
+		final Path entry = this.dir.resolve(key);
+		if (Files.isDirectory(entry)) {
+			return;
+		}
+		Path tmpEntry = null;
+		try {
+			Files.createDirectories(this.dir);
+			tmpEntry = Files.createTempDirectory(this.dir, key + ".");
+			Files.copy(DirectoryUtils.getBranchesFilePath(this.options, methodNumber), tmpEntry.resolve(BRANCHES_FILE_NAME));
+			Files.copy(DirectoryUtils.getCoverageFilePath(this.options, methodNumber), tmpEntry.resolve(COVERAGE_FILE_NAME));
+			Files.copy(DirectoryUtils.getTracesFilePath(this.options, methodNumber), tmpEntry.resolve(TRACES_FILE_NAME));
+			final Path wrappersDir = Files.createDirectory(tmpEntry.resolve(WRAPPERS_DIR_NAME));
+			final String wrapperPrefix = DirectoryUtils.jbseGeneratedOutClass + "_" + methodNumber + "_";
+			try (final DirectoryStream<Path> wrappers = Files.newDirectoryStream(DirectoryUtils.getJBSEOutDirPath(this.options), wrapperPrefix + "*.java")) {
+				for (Path wrapper : wrappers) {
+					Files.copy(wrapper, wrappersDir.resolve(wrapper.getFileName()));
+				}
+			}
+			Files.move(tmpEntry, entry, StandardCopyOption.ATOMIC_MOVE);
+			tmpEntry = null;
+		} catch (IOException e) {
+			logger.warn("Unable to store the exploration of method " + methodNumber + " in the exploration cache");
+		} finally {
+			if (tmpEntry != null) {
+				deleteRecursively(tmpEntry);
+			}
+		}
+	}
+
+	private static void deleteRecursively(Path path) {
+		try (final Stream<Path> paths = Files.walk(path)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+				try {
+					Files.delete(p);
+				} catch (IOException e) {
+					//really this does not care
+				}
+			});
+		} catch (IOException e) {
+			//really this does not care
+		}
+	}
+
+	private String key(int methodNumber) {
+		return this.keys.computeIfAbsent(methodNumber, this::computeKey);
+	}
+
+	private String computeKey(int methodNumber) {
+		final MessageDigest digest = newDigest();
+
+		//the options
+		final List<String> signature = this.testMethods.get(methodNumber);
+		update(digest, VERSION);
+		update(digest, Integer.toString(methodNumber));
+		update(digest, String.join(":", signature));
+		update(digest, Boolean.toString(this.emitWrappers));
+		update(digest, String.valueOf(this.options.getCoverage()));
+		for (Path hexFile : this.options.getHEXFiles()) {
+			try {
+				digest.update(Files.readAllBytes(hexFile));
+			} catch (IOException e) {
+				update(digest, hexFile.toString());
+			}
+		}
+		update(digest, new TreeMap<>(this.options.getHeapScope()).toString());
+		update(digest, Integer.toString(this.options.getDepthScope()));
+		update(digest, Integer.toString(this.options.getCountScope()));
+		update(digest, this.options.getUninterpreted().toString());
+		update(digest, this.options.getRewriters().toString());
+		update(digest, Boolean.toString(this.options.getDoSignAnalysis()));
+		update(digest, Boolean.toString(this.options.getDoEqualityAnalysis()));
+		update(digest, Boolean.toString(this.options.getDedupJBSE()));
+
+		//the code
+		update(digest, libraryDigest(this.options.getJBSELibraryPath()));
+		update(digest, classIndex(this.options.getClassesPath()).closureDigest(signature.get(0)));
+
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			//this should never happen
+			throw new UnexpectedInternalException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		final StringBuilder retVal = new StringBuilder();
+		for (byte b : bytes) {
+			retVal.append(String.format("%02x", b));
+		}
+		return retVal.toString();
+	}
+
+	private static void update(MessageDigest digest, String s) {
+		digest.update(s.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Returns the hash of the content of the JBSE library, 
+	 * computed once in the process.
+	 *
+	 * @param path the {@link Path} of the JBSE library, a jar
+	 *        or a directory.
+	 * @return a {@link String}.
+	 */
+	private static String libraryDigest(Path path) {
+		final Path key = path.toAbsolutePath().normalize();
+		synchronized (libraryDigests) {
+			String retVal = libraryDigests.get(key);
+			if (retVal == null) {
+				final MessageDigest digest = newDigest();
+				try {
+					if (Files.isDirectory(path)) {
+						final List<Path> files;
+						try (final Stream<Path> walk = Files.walk(path)) {
+							files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+						}
+						for (Path file : files) {
+							update(digest, path.relativize(file).toString().replace(File.separatorChar, '/'));
+							digest.update(Files.readAllBytes(file));
+						}
+					} else {
+						digest.update(Files.readAllBytes(path));
+					}
+				} catch (IOException e) {
+					//the key must not match any other key
+					logger.warn("Unable to read " + path.toString() + ", the explorations will not hit the exploration cache");
+					update(digest, Long.toString(System.nanoTime()));
+				}
+				retVal = toHex(digest.digest());
+				libraryDigests.put(key, retVal);
+			}
+			return retVal;
+		}
+	}
+
+	/**
+	 * Returns the index of the classes on a classpath,
+	 * built once in the process.
+	 *
+	 * @param classpath a {@link List}{@code <}{@link Path}{@code >}.
+	 * @return a {@link ClassIndex}.
+	 */
+	private static ClassIndex classIndex(List<Path> classpath) {
+		final List<Path> key = classpath.stream().map(p -> p.toAbsolutePath().normalize()).collect(Collectors.toList());
+		synchronized (classIndexes) {
+			ClassIndex retVal = classIndexes.get(key);
+			if (retVal == null) {
+				retVal = new ClassIndex(classpath);
+				classIndexes.put(key, retVal);
+			}
+			return retVal;
+		}
+	}
+
+	/**
+	 * The classes on a classpath, with the hashes of their
+	 * classfiles and the classes they depend on.
+	 *
+	 * @author Pietro Braione
+	 */
+	private static final class ClassIndex {
+		/** The classes on the classpath, by internal name. */
+		private final HashMap<String, IndexedClass> classes = new HashMap<>();
+
+		/** The direct subclasses and implementors of each class. */
+		private final HashMap<String, List<String>> subtypes = new HashMap<>();
+
+		/** The digests of the classes each class depends on, computed so far. */
+		private final HashMap<String, String> closureDigests = new HashMap<>();
+
+		/** Whether some element of the classpath could not be read. */
+		private boolean unreadable = false;
+
+		ClassIndex(List<Path> classpath) {
+			for (Path path : classpath) {
+				try {
+					if (Files.isDirectory(path)) {
+						final List<Path> files;
+						try (final Stream<Path> walk = Files.walk(path)) {
+							files = walk.filter(f -> f.toString().endsWith(".class")).collect(Collectors.toList());
+						}
+						for (Path file : files) {
+							add(path.relativize(file).toString().replace(File.separatorChar, '/'), Files.readAllBytes(file));
+						}
+					} else if (Files.isRegularFile(path)) {
+						try (final JarFile jar = new JarFile(path.toFile())) {
+							for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+								final JarEntry entry = entries.nextElement();
+								if (entry.getName().endsWith(".class")) {
+									try (final InputStream is = jar.getInputStream(entry)) {
+										add(entry.getName(), readAllBytes(is));
+									}
+								}
+							}
+						}
+					}
+				} catch (IOException e) {
+					logger.warn("Unable to read " + path.toString() + ", the explorations will not hit the exploration cache");
+					this.unreadable = true;
+				}
+			}
+			for (Map.Entry<String, IndexedClass> entry : this.classes.entrySet()) {
+				final ClassSummary summary = entry.getValue().summary;
+				if (summary.getSuperclassName() != null) {
+					this.subtypes.computeIfAbsent(summary.getSuperclassName(), k -> new ArrayList<>()).add(entry.getKey());
+				}
+				for (String interfaceName : summary.getInterfaceNames()) {
+					this.subtypes.computeIfAbsent(interfaceName, k -> new ArrayList<>()).add(entry.getKey());
+				}
+			}
+		}
+
+		private static byte[] readAllBytes(InputStream is) throws IOException {
+			final ByteArrayOutputStream retVal = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			for (int n = is.read(buffer); n >= 0; n = is.read(buffer)) {
+				retVal.write(buffer, 0, n);
+			}
+			return retVal.toByteArray();
+		}
+
+		private void add(String classFileName, byte[] classfile) {
+			final String className = classFileName.substring(0, classFileName.length() - ".class".length());
+			if (className.endsWith("module-info") || this.classes.containsKey(className)) {
+				return; //the first class on the classpath shadows the others
+			}
+			try {
+				final MessageDigest digest = newDigest();
+				digest.update(classfile);
+				this.classes.put(className, new IndexedClass(toHex(digest.digest()), ClassFileUtils.getClassSummary(classfile)));
+			} catch (ReflectionUtilsException e) {
+				logger.warn("Unable to read the classfile of " + className + ", the explorations will not hit the exploration cache");
+				this.unreadable = true;
+			}
+		}
+
+		/**
+		 * Returns the hash of the classfiles of the classes
+		 * on the classpath a class depends on.
+		 *
+		 * @param className a {@link String}, the name of a class
+		 *        in internal format.
+		 * @return a {@link String}.
+		 */
+		synchronized String closureDigest(String className) {
+			if (this.unreadable) {
+				//the key must not match any other key
+				return Long.toString(System.nanoTime());
+			}
+			return this.closureDigests.computeIfAbsent(className, this::computeClosureDigest);
+		}
+
+		private String computeClosureDigest(String className) {
+			final TreeMap<String, String> closure = new TreeMap<>();
+			final ArrayDeque<String> toVisit = new ArrayDeque<>();
+			toVisit.add(className);
+			while (!toVisit.isEmpty()) {
+				final String current = toVisit.poll();
+				final IndexedClass indexed = this.classes.get(current);
+				if (closure.containsKey(current) || indexed == null) {
+					continue; //visited, or not on the classpath (e.g., in the JDK)
+				}
+				closure.put(current, indexed.digest);
+				if (indexed.summary.getSuperclassName() != null) {
+					toVisit.add(indexed.summary.getSuperclassName());
+				}
+				toVisit.addAll(indexed.summary.getInterfaceNames());
+				toVisit.addAll(indexed.summary.getReferencedClassNames());
+				toVisit.addAll(this.subtypes.getOrDefault(current, new ArrayList<>()));
+			}
+			
+			final MessageDigest digest = newDigest();
+			update(digest, className);
+			for (Map.Entry<String, String> entry : closure.entrySet()) {
+				update(digest, entry.getKey());
+				update(digest, entry.getValue());
+			}
+			logger.debug("Exploration cache: class " + className + " depends on " + closure.size() + " classes on the classpath");
+			return toHex(digest.digest());
+		}
+	}
+
+	private static final class IndexedClass {
+		private final String digest;
+		private final ClassSummary summary;
+
+		IndexedClass(String digest, ClassSummary summary) {
+			this.digest = digest;
+			this.summary = summary;
+		}
+	}
+}
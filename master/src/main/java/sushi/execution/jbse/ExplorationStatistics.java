@@ -0,0 +1,49 @@
+package sushi.execution.jbse;
+
+/**
+ * Statistics about the state tree explored by a {@link RunJBSE_Sushi},
+ * collected when set in its {@link JBSEParameters} (see
+ * {@link JBSEParameters#setExplorationStatistics(ExplorationStatistics)}).
+ * They must be read after the run ended.
+ *
+ * @author Pietro Braione
+ */
+final class ExplorationStatistics {
+	/** The number of branch points the exploration met. */
+	long branchPoints = 0;
+
+	/** The number of traces the exploration completed. */
+	long traces = 0;
+
+	/** The maximum number of open branch points along a trace. */
+	int maxDepth = 0;
+
+	/** The number of distinct branches the exploration covered. */
+	int branches = 0;
+
+	/** The number of branch points still open when the exploration ended. */
+	int pendingBranchPoints = 0;
+
+	/** Whether the exploration ended because its time budget expired. */
+	boolean timedOut = false;
+
+	/** The time in milliseconds the exploration took. */
+	long elapsed = 0;
+
+	/**
+	 * Returns the average number of alternatives of the
+	 * branch points.
+	 *
+	 * @return a {@code double}.
+	 */
+	double branchingFactor() {
+		return (this.branchPoints == 0 ? 1.0 : 1.0 + ((double) Math.max(0, this.traces - 1)) / this.branchPoints);
+	}
+
+	@Override
+	public String toString() {
+		return "branch points: " + this.branchPoints + ", traces: " + this.traces + ", max depth: " + this.maxDepth +
+		       ", branching factor: " + String.format("%.2f", branchingFactor()) + ", branches: " + this.branches +
+		       ", pending branch points: " + this.pendingBranchPoints + ", timed out: " + this.timedOut + ", elapsed: " + this.elapsed + " ms";
+	}
+}
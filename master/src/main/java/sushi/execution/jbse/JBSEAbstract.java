@@ -4,6 +4,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -20,11 +21,15 @@ import sushi.ParseException;
 import sushi.Rewriter;
 import sushi.Visibility;
 import sushi.exceptions.JBSEException;
+import sushi.exceptions.ReflectionUtilsException;
+import sushi.execution.TaskTimings;
 import sushi.execution.Tool;
 import sushi.execution.Worker;
+import sushi.execution.remote.RemoteTask;
 import sushi.execution.jbse.JBSEParameters.StateFormatMode;
 import sushi.logging.Logger;
 import sushi.util.ArrayUtils;
+import sushi.util.ClassFileUtils;
 import sushi.util.CollectionUtils;
 import sushi.util.DirectoryUtils;
 import sushi.util.ClassReflectionUtils;
@@ -32,8 +37,24 @@ import sushi.util.ClassReflectionUtils;
 public abstract class JBSEAbstract extends Tool<JBSEParameters> {	
 	private static final Logger logger = new Logger(JBSEAbstract.class);
 	
+	/** 
+	 * The weight of a branch w.r.t. a bytecode byte in the static cost 
+	 * of a method: The number of paths, and thus the exploration time, 
+	 * grows much faster with the branches than with the code size. 
+	 */
+	private static final long BRANCH_WEIGHT = 16L;
+	
 	private final boolean emitWrappers;
 	private final boolean mustLogCoverageData;
+	private final TaskTimings timings;
+	private final SolverCache solverCache;
+	private long[] staticCosts = null;
+	
+	/** 
+	 * The timeout in milliseconds of the task, when the tool is rebuilt
+	 * to execute it in a child JVM or in an agent; {@code -1} otherwise.
+	 */
+	private long timeoutFromMaster = -1L;
 	
 	protected final Options options;
 	protected List<List<String>> testMethods = null;	
@@ -42,6 +63,9 @@ public abstract class JBSEAbstract extends Tool<JBSEParameters> {
 		this.options = options;
 		this.emitWrappers = emitWrappers;
 		this.mustLogCoverageData = mustLogCoverageData;
+		this.timings = TaskTimings.forFile(DirectoryUtils.getTimingsFilePath(options));
+		//the child JVMs cannot share the cache, nor give it back to be saved
+		this.solverCache = (options.getSolverCache() && !options.getForkJBSE() ? SolverCache.forFile(DirectoryUtils.getSolverCacheFilePath(options), options.getSolverCacheOnDisk()) : null);
 		if (this.options.getTargetMethod() == null) {
 			final String targetClass = this.options.getTargetClass();
 			if (targetClass == null) {
@@ -68,10 +92,12 @@ public abstract class JBSEAbstract extends Tool<JBSEParameters> {
 		p.setMethodNumber(taskNumber);
 		final String[] methodSignature = this.testMethods.get(taskNumber).toArray(ArrayUtils.EMPTY_STRING_ARRAY);
 		p.setMethodSignature(methodSignature[0], methodSignature[1], methodSignature[2]);
-		p.setTimeout(this.options.getJBSEBudget(), TimeUnit.SECONDS);
+		p.setTimeout(timeout(taskNumber), TimeUnit.MILLISECONDS);
 		p.setExternalDecisionProcedurePath(this.options.getZ3Path().toString());
 		p.setStateFormatMode(this.emitWrappers ? StateFormatMode.SUSHI_PATH_CONDITION : null);
 		p.setMustLogCoverageData(this.mustLogCoverageData);
+		p.setCoverageFlushInterval(this.options.getFlushIntervalJBSE());
+		p.setDeduplicateTraces(this.options.getDedupJBSE());
 		p.setWrapperFilePathBuilder((t1, t2) -> DirectoryUtils.getJBSEOutFilePath(this.options, t1, t2));
 		p.setCoverageFilePathBuilder((t) -> DirectoryUtils.getCoverageFilePath(this.options, t));
 		p.setBranchesFilePathBuilder((t) -> DirectoryUtils.getBranchesFilePath(this.options, t));
@@ -99,6 +125,11 @@ public abstract class JBSEAbstract extends Tool<JBSEParameters> {
 		p.setDoSignAnalysis(this.options.getDoSignAnalysis());
 		p.setDoEqualityAnalysis(this.options.getDoEqualityAnalysis());
 		setRewriters(this.options.getRewriters(), p);
+		if (this.solverCache != null) {
+			final SolverCache cache = this.solverCache;
+			final String methodKey = methodKey(taskNumber);
+			p.addDecisionProcedureCreationStrategy((core, calc) -> new DecisionProcedureCaching(core, cache, methodKey));
+		}
 		return p;
 	}
 	
@@ -130,16 +161,192 @@ public abstract class JBSEAbstract extends Tool<JBSEParameters> {
 		}
 	}
 	
+	/**
+	 * Returns the number of the target method of a task.
+	 * 
+	 * @param taskNumber an {@code int}, the number of a task.
+	 * @return an {@code int}, the position in {@link #testMethods}
+	 *         of the method explored by the task.
+	 */
+	protected int methodNumber(int taskNumber) {
+		return taskNumber;
+	}
+	
+	private String methodKey(int methodNumber) {
+		return String.join(":", this.testMethods.get(methodNumber));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The cost of a task is the average running time of the earlier
+	 * explorations of the same method, if there are any. Otherwise it
+	 * is estimated from the code size and the number of branches of the 
+	 * method, scaled to milliseconds by the ratio between the measured 
+	 * times and the static costs of the methods that have both.
+	 */
+	@Override
+	public long estimatedCost(int taskNumber) {
+		final int methodNumber = methodNumber(taskNumber);
+		final long measured = this.timings.average(this, methodKey(methodNumber));
+		if (measured >= 0) {
+			return measured;
+		}
+		final long[] staticCosts = staticCosts();
+		long sumMeasured = 0, sumStatic = 0;
+		for (int i = 0; i < staticCosts.length; ++i) {
+			final long measuredOther = this.timings.average(this, methodKey(i));
+			if (measuredOther >= 0 && staticCosts[i] > 0) {
+				sumMeasured += measuredOther;
+				sumStatic += staticCosts[i];
+			}
+		}
+		final double millisPerUnit = (sumStatic == 0 ? 1.0 : ((double) sumMeasured) / sumStatic);
+		return Math.round(staticCosts[methodNumber] * millisPerUnit);
+	}
+	
+	private long[] staticCosts() {
+		if (this.staticCosts == null) {
+			this.staticCosts = new long[this.testMethods.size()];
+			final ClassLoader classLoader = ClassReflectionUtils.getInternalClassloader(this.options);
+			final HashMap<String, Map<String, byte[]>> bytecodes = new HashMap<>();
+			for (int i = 0; i < this.staticCosts.length; ++i) {
+				final List<String> signature = this.testMethods.get(i);
+				try {
+					final Map<String, byte[]> classBytecode = bytecodes.computeIfAbsent(signature.get(0), c -> ClassFileUtils.getMethodsBytecode(classLoader, c));
+					final byte[] code = classBytecode.get(signature.get(2) + signature.get(1));
+					this.staticCosts[i] = (code == null ? 0 : code.length + BRANCH_WEIGHT * ClassFileUtils.countBranches(code));
+				} catch (ReflectionUtilsException e) {
+					logger.debug("Unable to read the bytecode of method " + methodKey(i) + ", assuming zero cost");
+				}
+			}
+		}
+		return this.staticCosts;
+	}
+	
+	/**
+	 * Records the running time of a task, to be used
+	 * by the cost prediction of later runs.
+	 * 
+	 * @param taskNumber an {@code int}, the number of a task.
+	 * @param elapsed a {@code long}, its running time in milliseconds.
+	 */
+	void recordElapsed(int taskNumber, long elapsed) {
+		this.timings.record(this, methodKey(methodNumber(taskNumber)), elapsed);
+	}
+	
+	@Override
+	public void reset() {
+		this.timings.save();
+		if (this.solverCache != null) {
+			this.solverCache.save();
+		}
+	}
+	
 	@Override
 	public int getTimeBudget() {
 		return this.options.getJBSEBudget();
 	}
 
+	@Override
+	public RemoteTask remoteTask(int taskNumber) {
+		return new JBSERemoteTask(this.options, this instanceof JBSETraces, this.emitWrappers, taskNumber, remoteTimeout(taskNumber));
+	}
+	
+	/**
+	 * Sets the timeout of the tasks of a tool rebuilt in a child 
+	 * JVM or in an agent, that has not the budget granted to the 
+	 * tool on the master.
+	 * 
+	 * @param timeout a {@code long}, the timeout in milliseconds
+	 *        computed on the master (see {@link #remoteTimeout(int)}).
+	 */
+	void setTimeoutFromMaster(long timeout) {
+		this.timeoutFromMaster = timeout;
+	}
+
 	@Override
 	public final Worker getWorker(int taskNumber) {
 		return new JBSEWorker(this, taskNumber);
 	}
 	
+	@Override
+	public int taskMemory() {
+		return this.options.getTaskMemoryJBSE();
+	}
+	
+	/**
+	 * Returns whether the tasks run in the {@link JBSEChildPool}.
+	 * 
+	 * @return {@code true} iff the tasks run in child JVMs.
+	 */
+	boolean forks() {
+		return this.options.getForkJBSE();
+	}
+	
+	@Override
+	public boolean runsInProcess() {
+		return !forks();
+	}
+	
+	/**
+	 * Invoked after a task explored successfully the whole 
+	 * state tree of its method, i.e., without being cancelled, 
+	 * stopped by its time budget, or pruning stalled traces. 
+	 * 
+	 * @param taskNumber an {@code int}, the number of the task.
+	 */
+	void explored(int taskNumber) {
+		//nothing by default
+	}
+	
+	/**
+	 * Returns the timeout of the exploration of a task.
+	 * 
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @return a {@code long}, the timeout in milliseconds; the one 
+	 *         computed on the master if the tool was rebuilt to 
+	 *         execute the task remotely, otherwise {@link #taskTimeout(int)}.
+	 */
+	final long timeout(int taskNumber) {
+		return (this.timeoutFromMaster < 0 ? taskTimeout(taskNumber) : this.timeoutFromMaster);
+	}
+	
+	/**
+	 * Returns the timeout of the exploration of a task
+	 * executed by this tool.
+	 * 
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @return a {@code long}, the timeout in milliseconds; By
+	 *         default, the granted budget.
+	 */
+	long taskTimeout(int taskNumber) {
+		return TimeUnit.SECONDS.toMillis(getGrantedBudget());
+	}
+	
+	/**
+	 * Returns the timeout of the exploration of a task
+	 * executed in a child JVM or in an agent.
+	 * 
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @return a {@code long}, the timeout in milliseconds; By
+	 *         default, {@link #timeout(int)}.
+	 */
+	long remoteTimeout(int taskNumber) {
+		return timeout(taskNumber);
+	}
+	
+	/**
+	 * Returns the depth of the frontier where the exploration 
+	 * of a method is split in subregions (see {@link SubregionExplorer}).
+	 * 
+	 * @return an {@code int}, {@code 0} if the exploration 
+	 *         must not be split.
+	 */
+	int splitDepth() {
+		return 0;
+	}
+	
 	@Override
 	public int degreeOfParallelism() {
 		return (this.options.getParallelismJBSE() == 0 ? tasks().size() * redundance() : this.options.getParallelismJBSE());
@@ -0,0 +1,103 @@
+package sushi.execution.jbse;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+
+import sushi.execution.ExecutionResult;
+import sushi.execution.remote.AgentMessage;
+import sushi.execution.remote.RemoteTask;
+import sushi.logging.Logger;
+
+/**
+ * The main class of the child JVMs of the {@link JBSEChildPool}. A
+ * child receives the tasks from its standard input and sends back
+ * their results on its standard output, with the same messages the
+ * agents exchange with the master (see {@link AgentMessage}). It
+ * executes the tasks one at a time, and exits when its standard
+ * input is closed, or when it runs out of memory (the pool launches
+ * it with {@code -XX:+ExitOnOutOfMemoryError}). Everything the tasks
+ * print goes to the standard error, so it does not mix with the
+ * messages.
+ *
+ * @author Pietro Braione
+ */
+public final class JBSEChild {
+	private static final Logger logger = new Logger(JBSEChild.class);
+
+	private JBSEChild() {
+		//do not instantiate!
+	}
+
+	private static void execute(RemoteTask task, ObjectOutputStream out) {
+		AgentMessage answer;
+		try {
+			final ExecutionResult result = task.run(event -> { }); //events of JBSE tasks are not forwarded
+			answer = AgentMessage.result(result);
+		} catch (InterruptedException e) {
+			answer = AgentMessage.failure("cancelled");
+		} catch (Exception e) {
+			logger.error("Task failed: " + e);
+			answer = AgentMessage.failure(e.toString());
+		}
+		send(out, answer);
+	}
+
+	private static void send(ObjectOutputStream out, AgentMessage message) {
+		synchronized (out) {
+			try {
+				out.writeObject(message);
+				out.reset();
+				out.flush();
+			} catch (IOException e) {
+				//the main thread will detect that the pipe is closed
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		final PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), false);
+		System.setOut(System.err);
+
+		//this child runs one task at a time
+		Z3Pool.configure(1);
+		try {
+			final ObjectOutputStream out = new ObjectOutputStream(protocol);
+			out.flush();
+			final ObjectInputStream in = new ObjectInputStream(System.in);
+			Thread taskThread = null;
+			while (true) {
+				final AgentMessage message = (AgentMessage) in.readObject();
+				switch (message.getKind()) {
+				case RUN:
+					if (taskThread != null) {
+						taskThread.join();
+					}
+					final RemoteTask task = message.getTask();
+					taskThread = new Thread(() -> execute(task, out), "jbse-child-task");
+					taskThread.start();
+					break;
+				case CANCEL:
+					if (taskThread != null) {
+						taskThread.interrupt();
+					}
+					break;
+				default:
+					logger.warn("Unexpected message " + message.getKind() + " from SUSHI, ignoring it");
+				}
+			}
+		} catch (IOException e) {
+			//the pool closed the pipe: exits
+		} catch (ClassNotFoundException | ClassCastException e) {
+			logger.error("Received unexpected object from SUSHI, exiting: " + e);
+		} catch (InterruptedException e) {
+			//nothing to do, just exits
+		} finally {
+			Z3Pool.get().close();
+		}
+		System.exit(0);
+	}
+}
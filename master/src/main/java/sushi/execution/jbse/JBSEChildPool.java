@@ -0,0 +1,361 @@
+package sushi.execution.jbse;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import sushi.exceptions.WorkerException;
+import sushi.execution.ExecutionResult;
+import sushi.execution.ResourceGovernor;
+import sushi.execution.remote.AgentMessage;
+import sushi.execution.remote.RemoteTask;
+import sushi.logging.Logger;
+
+/**
+ * A pool of child JVMs that execute the tasks of {@link JBSEMethods}
+ * and {@link JBSETraces} (see {@link JBSEChild}), so that a symbolic
+ * execution exhausting its heap does not bring down SUSHI, and the
+ * static state of JBSE is not shared by concurrent tasks. Each child
+ * executes one task at a time and is reused by the next tasks, so its
+ * JIT-compiled code is not lost. A child that crashes (e.g., because
+ * it runs out of memory) is discarded, and its task is retried once
+ * by another child. The idle children hold their memory in the
+ * {@link ResourceGovernor}, and are closed when a task needs it.
+ *
+ * @author Pietro Braione
+ */
+public final class JBSEChildPool {
+	private static final Logger logger = new Logger(JBSEChildPool.class);
+
+	/** How many times a task is retried after its child crashed. */
+	private static final int MAX_RETRIES = 1;
+
+	/** How long a cancelled task may take to stop before its child is killed. */
+	private static final long CANCEL_GRACE_MILLIS = 5000L;
+
+	private static JBSEChildPool instance = new JBSEChildPool(0);
+
+	/**
+	 * Configures the pool used by the {@link JBSEWorker}s, so that it
+	 * keeps up to an idle child per core, as long as the memory of the
+	 * host suffices. The children of the previously configured pool
+	 * are closed.
+	 */
+	public static void configure() {
+		final JBSEChildPool old;
+		final JBSEChildPool pool = new JBSEChildPool(ResourceGovernor.get().cores());
+		synchronized (JBSEChildPool.class) {
+			old = instance;
+			instance = pool;
+		}
+		old.close();
+		pool.governor.setIdleReclaimer(pool::reclaim);
+	}
+
+	/**
+	 * Returns the pool used by the {@link JBSEWorker}s.
+	 *
+	 * @return a {@link JBSEChildPool}.
+	 */
+	public static synchronized JBSEChildPool get() {
+		return instance;
+	}
+
+	private static final class ChildCrashedException extends Exception {
+		private static final long serialVersionUID = -2480917347127630451L;
+
+		ChildCrashedException(String message) {
+			super(message);
+		}
+	}
+
+	/** The maximum number of idle children. */
+	private final int capacity;
+
+	/** The governor where the idle children hold their memory. */
+	private final ResourceGovernor governor;
+
+	/** The idle children, by command line. */
+	private final HashMap<List<String>, ArrayDeque<Child>> idle = new HashMap<>();
+	private int idleCount = 0;
+	private boolean closed = false;
+
+	private JBSEChildPool(int capacity) {
+		this.capacity = capacity;
+		this.governor = ResourceGovernor.get();
+	}
+
+	/**
+	 * Builds the command line of a child. The child runs on the
+	 * same JVM and with the same classpath as SUSHI.
+	 *
+	 * @param heapMemory an {@code int}, the maximum heap
+	 *        of the child in MB.
+	 * @return a {@link List}{@code <}{@link String}{@code >}.
+	 */
+	private static List<String> commandLine(int heapMemory) {
+		final ArrayList<String> retVal = new ArrayList<>();
+		retVal.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		retVal.add("-Xmx" + heapMemory + "M");
+		retVal.add("-XX:+ExitOnOutOfMemoryError");
+		retVal.add("-cp");
+		retVal.add(System.getProperty("java.class.path"));
+		retVal.add(JBSEChild.class.getName());
+		return retVal;
+	}
+
+	/**
+	 * Executes a task in a child.
+	 *
+	 * @param heapMemory an {@code int}, the maximum heap of
+	 *        the child in MB.
+	 * @param task the {@link RemoteTask} to execute.
+	 * @return the {@link ExecutionResult} of {@code task}.
+	 * @throws InterruptedException if the task is cancelled.
+	 * @throws WorkerException if the task fails, or its children
+	 *         crash more than the allowed retries.
+	 */
+	public ExecutionResult run(int heapMemory, RemoteTask task) throws InterruptedException {
+		final List<String> commandLine = commandLine(heapMemory);
+		for (int attempt = 0; ; ++attempt) {
+			final Child child = lease(commandLine, heapMemory);
+			try {
+				final ExecutionResult retVal = child.run(task);
+				giveBack(commandLine, child);
+				return retVal;
+			} catch (ChildCrashedException e) {
+				child.kill();
+				if (Thread.currentThread().isInterrupted()) {
+					//the task was cancelled, it must not be retried
+					throw new InterruptedException();
+				}
+				if (attempt >= MAX_RETRIES) {
+					throw new WorkerException("JBSE child process crashed: " + e.getMessage());
+				}
+				logger.warn("JBSE child process crashed (" + e.getMessage() + "), retrying the task with a new child process");
+			} catch (InterruptedException | RuntimeException e) {
+				if (child.isAlive()) {
+					giveBack(commandLine, child);
+				} else {
+					child.kill();
+				}
+				throw e;
+			}
+		}
+	}
+
+	private Child lease(List<String> commandLine, int heapMemory) {
+		while (true) {
+			final Child child;
+			synchronized (this) {
+				final ArrayDeque<Child> children = this.idle.get(commandLine);
+				if (children == null || children.isEmpty()) {
+					break;
+				}
+				child = children.poll();
+				--this.idleCount;
+			}
+			this.governor.releaseIdle(child.memory); //the task holds it now
+			if (child.isAlive()) {
+				return child;
+			}
+		}
+		try {
+			return new Child(commandLine, heapMemory);
+		} catch (IOException e) {
+			throw new WorkerException("Unable to launch a JBSE child process", e);
+		}
+	}
+
+	private void giveBack(List<String> commandLine, Child child) {
+		if (!this.governor.reserveIdle(child.memory)) {
+			child.close();
+			return;
+		}
+		synchronized (this) {
+			if (!this.closed && this.idleCount < this.capacity) {
+				this.idle.computeIfAbsent(commandLine, k -> new ArrayDeque<>()).push(child);
+				++this.idleCount;
+				return;
+			}
+		}
+		this.governor.releaseIdle(child.memory);
+		child.close();
+	}
+
+	/**
+	 * Closes the idle children that have been idle the longest, 
+	 * until enough memory is free.
+	 * 
+	 * @param memory a {@code long}, the memory in MB that is needed.
+	 */
+	private void reclaim(long memory) {
+		final ArrayList<Child> toClose = new ArrayList<>();
+		synchronized (this) {
+			long reclaimed = 0L;
+			for (ArrayDeque<Child> children : this.idle.values()) {
+				while (reclaimed < memory && !children.isEmpty()) {
+					final Child child = children.pollLast();
+					--this.idleCount;
+					reclaimed += child.memory;
+					toClose.add(child);
+				}
+			}
+		}
+		for (Child child : toClose) {
+			logger.debug("Closing an idle JBSE child process to free " + child.memory + " MB");
+			child.close();
+			this.governor.releaseIdle(child.memory);
+		}
+	}
+
+	/**
+	 * Closes all the idle children. The children executing
+	 * a task at the moment are closed when the task ends.
+	 */
+	public void close() {
+		final ArrayList<Child> toClose = new ArrayList<>();
+		synchronized (this) {
+			this.closed = true;
+			for (ArrayDeque<Child> children : this.idle.values()) {
+				toClose.addAll(children);
+			}
+			this.idle.clear();
+			this.idleCount = 0;
+		}
+		for (Child child : toClose) {
+			child.close();
+			this.governor.releaseIdle(child.memory);
+		}
+	}
+
+	private static final class Child {
+		private final Process process;
+		private final int memory;
+		private final ObjectOutputStream out;
+		private final BlockingQueue<AgentMessage> inbox = new LinkedBlockingQueue<>();
+		private volatile boolean broken = false;
+
+		Child(List<String> commandLine, int memory) throws IOException {
+			this.memory = memory;
+			final ProcessBuilder pb = new ProcessBuilder(commandLine);
+			pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+			this.process = pb.start();
+			this.out = new ObjectOutputStream(this.process.getOutputStream());
+			this.out.flush();
+			final Thread reader = new Thread(this::read, "jbse-child-reader");
+			reader.setDaemon(true);
+			reader.start();
+			logger.debug("Launched JBSE child process");
+		}
+
+		private void read() {
+			try {
+				final ObjectInputStream in = new ObjectInputStream(this.process.getInputStream());
+				while (true) {
+					this.inbox.add((AgentMessage) in.readObject());
+				}
+			} catch (IOException | ClassNotFoundException | ClassCastException e) {
+				this.broken = true;
+				this.inbox.add(AgentMessage.failure(null)); //wakes up the task, if any
+			}
+		}
+
+		boolean isAlive() {
+			return !this.broken && this.process.isAlive();
+		}
+
+		private void send(AgentMessage message) throws ChildCrashedException {
+			try {
+				this.out.writeObject(message);
+				this.out.reset();
+				this.out.flush();
+			} catch (IOException e) {
+				this.broken = true;
+				throw new ChildCrashedException("unable to send a message: " + e.getMessage());
+			}
+		}
+
+		ExecutionResult run(RemoteTask task) throws ChildCrashedException, InterruptedException {
+			boolean cancelled = false;
+			send(AgentMessage.run(task));
+			while (true) {
+				AgentMessage message;
+				try {
+					message = (cancelled ? this.inbox.poll(CANCEL_GRACE_MILLIS, TimeUnit.MILLISECONDS) : this.inbox.take());
+				} catch (InterruptedException e) {
+					//the task was cancelled: waits the child to stop it
+					if (!cancelled) {
+						cancelled = true;
+						try {
+							send(AgentMessage.cancel());
+						} catch (ChildCrashedException e1) {
+							//cannot stop the task: the child must die, 
+							//and the task must not be retried
+							kill();
+							throw new InterruptedException();
+						}
+					}
+					continue;
+				}
+				if (message == null) {
+					//the child did not stop the task in time
+					kill();
+					throw new InterruptedException();
+				}
+				if (this.broken) {
+					if (cancelled) {
+						throw new InterruptedException();
+					}
+					throw new ChildCrashedException(exitDescription());
+				}
+				switch (message.getKind()) {
+				case RESULT:
+					if (cancelled) {
+						throw new InterruptedException();
+					}
+					return message.getResult();
+				case FAILURE:
+					if (cancelled) {
+						throw new InterruptedException();
+					}
+					throw new WorkerException("JBSE task failed in child process: " + message.getFailureMessage());
+				default:
+					//unexpected, ignores it
+				}
+			}
+		}
+
+		private String exitDescription() {
+			try {
+				if (this.process.waitFor(1, TimeUnit.SECONDS)) {
+					return "exit status " + this.process.exitValue();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "connection lost";
+		}
+
+		void close() {
+			try {
+				this.out.close(); //the child exits at the end of its input
+			} catch (IOException e) {
+				kill();
+			}
+		}
+
+		void kill() {
+			this.broken = true;
+			this.process.destroyForcibly();
+		}
+	}
+}
@@ -3,8 +3,12 @@ package sushi.execution.jbse;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import sushi.Coverage;
 import sushi.Options;
@@ -16,9 +20,14 @@ public final class JBSEMethods extends JBSEAbstract {
 	private static final Logger logger = new Logger(JBSEMethods.class);
 	
 	private List<Integer> tasks = null;
+	private final ExplorationCache cache;
+	private final BudgetPlanner planner;
+	private Set<String> branchesCoveredByTests = null;
 
 	public JBSEMethods(Options options, boolean emitWrappers) {
 		super(options, emitWrappers, true);
+		this.cache = (options.getCacheJBSE() ? new ExplorationCache(options, emitWrappers, this.testMethods) : null);
+		this.planner = (options.getAdaptiveBudgetJBSE() && !forks() ? new BudgetPlanner(this::plainInvocationParameters, options.getPreflightBudgetJBSE()) : null);
 	}
 	
 	@Override
@@ -26,7 +35,13 @@ public final class JBSEMethods extends JBSEAbstract {
 		if (this.tasks == null) {
 			this.tasks = new ArrayList<>(this.testMethods.size());
 			for (int i = 0; i < this.testMethods.size(); ++i) {
-				this.tasks.add(i);
+				//the methods whose exploration is cached are not explored
+				if (this.cache == null || !this.cache.restore(i)) {
+					this.tasks.add(i);
+				}
+			}
+			if (this.cache != null) {
+				logger.info("Restored the exploration of " + (this.testMethods.size() - this.tasks.size()) + " methods out of " + this.testMethods.size() + " from the exploration cache");
 			}
 			
 			try (final BufferedWriter w = Files.newBufferedWriter(DirectoryUtils.getMethodsFilePath(this.options))) {
@@ -46,20 +61,138 @@ public final class JBSEMethods extends JBSEAbstract {
 		return this.tasks;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * With adaptive budgets, explores the methods of the tasks
+	 * for the pre-flight budget.
+	 */
+	@Override
+	public void prepare() {
+		if (this.planner != null) {
+			this.planner.preflight(this, tasks());
+		}
+	}
+	
 	@Override
 	public JBSEParameters getInvocationParameters(int taskNumber) {
-		JBSEParameters p = super.getInvocationParameters(taskNumber);
+		final JBSEParameters p = plainInvocationParameters(taskNumber);
+		if (this.planner != null) {
+			this.planner.apply(taskNumber, getGrantedBudget(), p);
+		}
+		return p;
+	}
+	
+	/**
+	 * Returns the parameters of a task, not subject 
+	 * to the budget planner.
+	 * 
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @return a {@link JBSEParameters}.
+	 */
+	private JBSEParameters plainInvocationParameters(int taskNumber) {
+		final JBSEParameters p = super.getInvocationParameters(taskNumber);
 		p.setShowSafe(this.options.getCoverage() == Coverage.UNSAFE ? false : true);
 		p.setShowUnsafe(true);
 		p.setShowOutOfScope(false);
 		p.setShowContradictory(false);
 		p.setShowUnmanageable(false);
+		if (this.options.getSearchStallJBSE() > 0) {
+			p.setSearchStallThreshold(this.options.getSearchStallJBSE());
+			p.setBranchesCoveredByTests(branchesCoveredByTests());
+		}
 		return p;
 	}
 	
+	/**
+	 * Returns the branches covered by the tests generated in the
+	 * previous iterations, if any.
+	 * 
+	 * @return a {@link Set}{@code <}{@link String}{@code >}, the
+	 *         covered branches in the format of the branches file.
+	 */
+	private synchronized Set<String> branchesCoveredByTests() {
+		if (this.branchesCoveredByTests == null) {
+			final HashSet<String> covered = new HashSet<>();
+			final Path coveredByTestFilePath = DirectoryUtils.getCoveredByTestFilePath(this.options);
+			final Path branchesFilePath = DirectoryUtils.getBranchesFilePath(this.options);
+			if (Files.exists(coveredByTestFilePath) && Files.exists(branchesFilePath)) {
+				try {
+					final List<String> branches = Files.readAllLines(branchesFilePath);
+					for (String line : Files.readAllLines(coveredByTestFilePath)) {
+						final int branchNumber = Integer.parseInt(line.trim());
+						if (branchNumber >= 0 && branchNumber < branches.size()) {
+							covered.add(branches.get(branchNumber).trim());
+						}
+					}
+				} catch (IOException | NumberFormatException e) {
+					logger.warn("Unable to read the branches covered by the tests, assuming none");
+					covered.clear();
+				}
+			}
+			this.branchesCoveredByTests = Collections.unmodifiableSet(covered);
+		}
+		return this.branchesCoveredByTests;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * With adaptive budgets, the cost of a task is its planned budget.
+	 */
+	@Override
+	public long estimatedCost(int taskNumber) {
+		final long planned = (this.planner == null ? -1L : this.planner.budget(taskNumber, getGrantedBudget()));
+		return (planned < 0 ? super.estimatedCost(taskNumber) : planned);
+	}
+	
+	@Override
+	long taskTimeout(int taskNumber) {
+		final long planned = (this.planner == null ? -1L : this.planner.timeout(taskNumber, getGrantedBudget()));
+		return (planned < 0 ? super.taskTimeout(taskNumber) : planned);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The planner cannot enforce the deadlines of the remote
+	 * tasks, so with adaptive budgets their timeout is their 
+	 * planned budget.
+	 */
+	@Override
+	long remoteTimeout(int taskNumber) {
+		final long planned = (this.planner == null ? -1L : this.planner.budget(taskNumber, getGrantedBudget()));
+		return (planned < 0 ? super.remoteTimeout(taskNumber) : planned);
+	}
+	
+	@Override
+	void recordElapsed(int taskNumber, long elapsed) {
+		super.recordElapsed(taskNumber, elapsed);
+		if (this.planner != null) {
+			this.planner.finished(taskNumber);
+		}
+	}
+	
+	@Override
+	void explored(int taskNumber) {
+		if (this.cache != null) {
+			this.cache.store(taskNumber);
+		}
+	}
+	
+	@Override
+	int splitDepth() {
+		return (forks() ? 0 : this.options.getSplitDepthJBSE());
+	}
+	
 	@Override
 	public void reset() {
+		super.reset();
 		this.tasks = null;
+		this.branchesCoveredByTests = null;
+		if (this.planner != null) {
+			this.planner.reset();
+		}
 	}
 	
 	//TODO getTimeBudget(), degreeOfParallelism()
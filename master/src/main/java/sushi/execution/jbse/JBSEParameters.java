@@ -10,8 +10,11 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import jbse.apps.run.CannotBuildDecisionProcedureException;
@@ -185,9 +188,45 @@ final class JBSEParameters implements Cloneable {
 	/** The start number of the trace counter. */
 	private long traceCounterStart = 0;
 	
+	/** The bound (exclusive) of the trace counter. */
+	private long traceCounterLimit = Long.MAX_VALUE;
+	
 	/** Whether it must emit coverage, branches and traces log files. */
 	private boolean mustLogCoverageData = true;
 	
+	/** The interval in milliseconds between two flushes of the coverage and traces log files. */
+	private long coverageFlushInterval = 1000L;
+	
+	/** 
+	 * The depth, in branches, of the frontier where the exploration
+	 * stops, {@code 0} means no frontier. 
+	 */
+	private int frontierDepth = 0;
+	
+	/** Receives the identifiers of the states at the frontier. */
+	private Consumer<String> frontierConsumer = null;
+	
+	/** 
+	 * How many branch points a trace may pass without covering a
+	 * new branch before it is abandoned, {@code 0} means never. 
+	 */
+	private int searchStallThreshold = 0;
+	
+	/** The branches already covered by the generated tests. */
+	private Set<String> branchesCoveredByTests = Collections.emptySet();
+	
+	/** Tells whether the symbolic execution was cancelled. */
+	private BooleanSupplier cancellation = () -> false;
+	
+	/** 
+	 * Whether the traces covering the same branches are deduplicated,
+	 * keeping the one with the smallest path condition.
+	 */
+	private boolean deduplicateTraces = false;
+	
+	/** Collects the statistics of the exploration, {@code null} means do not. */
+	private ExplorationStatistics explorationStatistics = null;
+	
 	/** The builder function for the wrapper file path. */
 	private BiFunction<Long, Long, Path> wrapperFilePathBuilder = null;
 
@@ -370,6 +409,30 @@ final class JBSEParameters implements Cloneable {
 		this.mustLogCoverageData = mustLogCoverageData;
 	}
 	
+	/**
+	 * Gets the interval between two flushes of the coverage 
+	 * and traces log files.
+	 * 
+	 * @return a {@code long}, the interval in milliseconds.
+	 */
+	public long getCoverageFlushInterval() {
+		return this.coverageFlushInterval;
+	}
+	
+	/**
+	 * Sets the interval between two flushes of the coverage 
+	 * and traces log files. The files are always flushed at 
+	 * the end of the symbolic execution, so the interval only
+	 * bounds the records lost if the symbolic execution crashes.
+	 * 
+	 * @param coverageFlushInterval a {@code long}, the interval
+	 *        in milliseconds; {@code 0} means that the files are
+	 *        flushed after every trace.
+	 */
+	public void setCoverageFlushInterval(long coverageFlushInterval) {
+		this.coverageFlushInterval = coverageFlushInterval;
+	}
+	
 	/**
 	 * Returns the path of the wrapper file.
 	 * 
@@ -566,6 +629,31 @@ final class JBSEParameters implements Cloneable {
 		this.traceCounterStart = traceCounterStart;
 	}
 	
+	/**
+	 * Gets the bound of the trace counter.
+	 * 
+	 * @return a {@code long}.
+	 */
+	public long getTraceCounterLimit() {
+		return this.traceCounterLimit;
+	}
+	
+	/**
+	 * Sets the bound of the trace counter: The symbolic execution
+	 * stops before emitting a trace numbered {@code traceCounterLimit},
+	 * so it does not overwrite the traces of the runs whose trace 
+	 * numbers start there.
+	 * 
+	 * @param traceCounterLimit a {@code long}, the bound (exclusive).
+	 * @throws IllegalArgumentException if {@code traceCounterLimit < 0}.
+	 */
+	public void setTraceCounterLimit(long traceCounterLimit) {
+		if (traceCounterLimit < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.traceCounterLimit = traceCounterLimit;
+	}
+	
 	/**
 	 * Sets the identifier of the initial state in the state space subregion 
 	 * to be explored.
@@ -580,6 +668,182 @@ final class JBSEParameters implements Cloneable {
 		this.runnerParameters.setIdentifierSubregion(identifierSubregion);
 	}
 	
+	/**
+	 * Sets a frontier for the exploration. When a trace reaches
+	 * the frontier, its exploration stops, the identifier of its 
+	 * current state is passed to a consumer, and the trace is not 
+	 * emitted. The states at the frontier can be later explored 
+	 * by setting them as identifiers of the subregion (see 
+	 * {@link #setIdentifierSubregion(String)}).
+	 * 
+	 * @param frontierDepth an {@code int}, the number of branches
+	 *        after which a trace reaches the frontier; {@code 0}
+	 *        means no frontier.
+	 * @param frontierConsumer a {@link Consumer}{@code <}{@link String}{@code >}
+	 *        receiving the identifiers of the states at the frontier.
+	 * @throws IllegalArgumentException if {@code frontierDepth < 0}.
+	 * @throws NullPointerException if {@code frontierDepth > 0 && frontierConsumer == null}.
+	 */
+	public void setFrontier(int frontierDepth, Consumer<String> frontierConsumer) {
+		if (frontierDepth < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (frontierDepth > 0 && frontierConsumer == null) {
+			throw new NullPointerException();
+		}
+		this.frontierDepth = frontierDepth;
+		this.frontierConsumer = frontierConsumer;
+	}
+	
+	/**
+	 * Gets the depth of the frontier.
+	 * 
+	 * @return an {@code int}, {@code 0} if there is no frontier.
+	 */
+	public int getFrontierDepth() {
+		return this.frontierDepth;
+	}
+	
+	/**
+	 * Gets the consumer of the identifiers of the states at the frontier.
+	 * 
+	 * @return a {@link Consumer}{@code <}{@link String}{@code >}, or
+	 *         {@code null} if there is no frontier.
+	 */
+	public Consumer<String> getFrontierConsumer() {
+		return this.frontierConsumer;
+	}
+	
+	/**
+	 * Sets how many branch points a trace may pass without covering
+	 * a new branch before its exploration is abandoned (the trace is
+	 * not emitted), so the budget is spent on the other alternatives
+	 * of the branch points that were passed. A branch is new if it
+	 * was not covered by the exploration so far nor by the generated 
+	 * tests (see {@link #setBranchesCoveredByTests(Set)}).
+	 * 
+	 * @param searchStallThreshold an {@code int}; {@code 0} means that 
+	 *        the traces are never abandoned.
+	 * @throws IllegalArgumentException if {@code searchStallThreshold < 0}.
+	 */
+	public void setSearchStallThreshold(int searchStallThreshold) {
+		if (searchStallThreshold < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.searchStallThreshold = searchStallThreshold;
+	}
+	
+	/**
+	 * Gets how many branch points a trace may pass without 
+	 * covering a new branch.
+	 * 
+	 * @return an {@code int}, {@code 0} if the traces are never
+	 *         abandoned.
+	 */
+	public int getSearchStallThreshold() {
+		return this.searchStallThreshold;
+	}
+	
+	/**
+	 * Sets the branches already covered by the generated tests, 
+	 * that are not new when covered by the exploration.
+	 * 
+	 * @param branchesCoveredByTests a {@link Set}{@code <}{@link String}{@code >},
+	 *        the branches in the format of the branches files.
+	 * @throws NullPointerException if {@code branchesCoveredByTests == null}.
+	 */
+	public void setBranchesCoveredByTests(Set<String> branchesCoveredByTests) {
+		if (branchesCoveredByTests == null) {
+			throw new NullPointerException();
+		}
+		this.branchesCoveredByTests = branchesCoveredByTests;
+	}
+	
+	/**
+	 * Gets the branches already covered by the generated tests.
+	 * 
+	 * @return a {@link Set}{@code <}{@link String}{@code >}.
+	 */
+	public Set<String> getBranchesCoveredByTests() {
+		return this.branchesCoveredByTests;
+	}
+	
+	/**
+	 * Sets how the symbolic execution detects that it was cancelled, 
+	 * besides the interruption of the thread that runs it. 
+	 * 
+	 * @param cancellation a {@link BooleanSupplier} returning
+	 *        {@code true} when the symbolic execution must stop.
+	 * @throws NullPointerException if {@code cancellation == null}.
+	 */
+	public void setCancellation(BooleanSupplier cancellation) {
+		if (cancellation == null) {
+			throw new NullPointerException();
+		}
+		this.cancellation = cancellation;
+	}
+	
+	/**
+	 * Returns whether the symbolic execution was cancelled.
+	 * 
+	 * @return a {@code boolean}.
+	 */
+	public boolean isCancelled() {
+		return this.cancellation.getAsBoolean();
+	}
+	
+	/**
+	 * Sets whether the traces covering the same branches must be
+	 * deduplicated. If so, only the trace with the smallest path
+	 * condition is emitted, and the traces file records how many
+	 * traces it represents.
+	 * 
+	 * @param deduplicateTraces a {@code boolean}.
+	 */
+	public void setDeduplicateTraces(boolean deduplicateTraces) {
+		this.deduplicateTraces = deduplicateTraces;
+	}
+	
+	/**
+	 * Gets whether the traces covering the same branches must be
+	 * deduplicated.
+	 * 
+	 * @return a {@code boolean}.
+	 */
+	public boolean getDeduplicateTraces() {
+		return this.deduplicateTraces;
+	}
+	
+	/**
+	 * Gets how the symbolic execution detects that it was cancelled.
+	 * 
+	 * @return a {@link BooleanSupplier}.
+	 */
+	public BooleanSupplier getCancellation() {
+		return this.cancellation;
+	}
+	
+	/**
+	 * Sets where the symbolic execution collects the statistics
+	 * of the explored state tree.
+	 * 
+	 * @param explorationStatistics an {@link ExplorationStatistics},
+	 *        or {@code null} for not collecting them.
+	 */
+	void setExplorationStatistics(ExplorationStatistics explorationStatistics) {
+		this.explorationStatistics = explorationStatistics;
+	}
+	
+	/**
+	 * Gets where the symbolic execution collects the statistics
+	 * of the explored state tree.
+	 * 
+	 * @return an {@link ExplorationStatistics}, or {@code null}.
+	 */
+	ExplorationStatistics getExplorationStatistics() {
+		return this.explorationStatistics;
+	}
+	
 	/**
 	 * Loads a set of HEX configuration files.
 	 * 
@@ -0,0 +1,47 @@
+package sushi.execution.jbse;
+
+import sushi.Options;
+import sushi.execution.ExecutionResult;
+import sushi.execution.remote.EventSink;
+import sushi.execution.remote.RemoteTask;
+
+/**
+ * A task of {@link JBSEMethods} or {@link JBSETraces} to be executed 
+ * by a remote agent. Since the {@link JBSEParameters} of a task cannot
+ * be serialized, the agent rebuilds the tool from the {@link Options},
+ * and then the parameters of the task from the tool. The rebuilt tool
+ * has no budget ledger, so the timeout of the task is computed on the
+ * master and carried by the task.
+ * 
+ * @author Pietro Braione
+ */
+final class JBSERemoteTask implements RemoteTask {
+	private static final long serialVersionUID = 7756314412378126952L;
+	
+	private final Options options;
+	private final boolean traces;
+	private final boolean emitWrappers;
+	private final int taskNumber;
+	private final long timeout;
+	
+	JBSERemoteTask(Options options, boolean traces, boolean emitWrappers, int taskNumber, long timeout) {
+		this.options = options;
+		this.traces = traces;
+		this.emitWrappers = emitWrappers;
+		this.taskNumber = taskNumber;
+		this.timeout = timeout;
+	}
+
+	@Override
+	public ExecutionResult run(EventSink sink) throws InterruptedException {
+		final JBSEAbstract jbse;
+		if (this.traces) {
+			jbse = new JBSETraces(this.options);
+			jbse.tasks(); //loads the traces
+		} else {
+			jbse = new JBSEMethods(this.options, this.emitWrappers);
+		}
+		jbse.setTimeoutFromMaster(this.timeout);
+		return new JBSEWorker(jbse, this.taskNumber).callInProcess();
+	}
+}
@@ -10,6 +10,7 @@ import sushi.Options;
 import sushi.exceptions.JBSEException;
 import sushi.logging.Logger;
 import sushi.util.DirectoryUtils;
+import sushi.util.TracesIndex;
 
 public final class JBSETraces extends JBSEAbstract {
 	private static final Logger logger = new Logger(JBSETraces.class);
@@ -46,20 +47,14 @@ public final class JBSETraces extends JBSEAbstract {
 				throw new JBSEException(e);
 			}
 
+			//looks up the identifiers of the traces by their global numbers
 			this.traceIds = new String[traceNumbersGlobal.size()];
-			try (final BufferedReader r = Files.newBufferedReader(DirectoryUtils.getTracesFilePath(this.options))) {
-				String line;					
-				int currentPos = 0;
-				while ((line = r.readLine()) != null) {
-					if (traceNumbersGlobal.contains(currentPos)) {
-						final String[] fields = line.split(",");
-						String traceId = fields[2].split(" ")[1].trim();
-						this.traceIds[traceNumbersGlobal.indexOf(currentPos)] = traceId;
-					}
-					++currentPos;
+			try (final TracesIndex index = TracesIndex.open(DirectoryUtils.getTracesIndexFilePath(this.options), DirectoryUtils.getTracesFilePath(this.options))) {
+				for (int task = 0; task < traceNumbersGlobal.size(); ++task) {
+					this.traceIds[task] = index.identifier(traceNumbersGlobal.get(task));
 				}
 			} catch (IOException e) {
-				logger.error("Unable to find and open traces output file " + DirectoryUtils.getTracesFilePath(this.options).toString());
+				logger.error("Unable to find and read traces output file " + DirectoryUtils.getTracesFilePath(this.options).toString() + " through its index " + DirectoryUtils.getTracesIndexFilePath(this.options).toString());
 				throw new JBSEException(e);
 			}
 		}
@@ -75,8 +70,14 @@ public final class JBSETraces extends JBSEAbstract {
 		return p;
 	}
 	
+	@Override
+	protected int methodNumber(int taskNumber) {
+		return this.methodNumbers.get(taskNumber);
+	}
+	
 	@Override
 	public void reset() {
+		super.reset();
 		this.tasks = null;
 	}
 	
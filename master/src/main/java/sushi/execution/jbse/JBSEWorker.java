@@ -15,14 +15,45 @@ public class JBSEWorker extends Worker {
 	}
 
 	@Override
-	public ExecutionResult call() {
-		//TODO run in spawned process or make RunJBSE_Sushi friendlier with the rest of sushi
-		final JBSEParameters p = this.jbse.getInvocationParameters(this.taskNumber);
-		final RunJBSE_Sushi r = new RunJBSE_Sushi(p);
+	public ExecutionResult call() throws InterruptedException {
+		if (!this.jbse.forks()) {
+			return callInProcess();
+		}
 		final long start = System.currentTimeMillis();
-		final int exitStatus = r.run();
+		final ExecutionResult result = JBSEChildPool.get().run(this.jbse.taskMemory(), this.jbse.remoteTask(this.taskNumber));
+		final long elapsed = System.currentTimeMillis() - start;
+		logger.debug("Task " + this.taskNumber + " ended in child process, elapsed " + elapsed/1000 + " seconds");
+		this.jbse.recordElapsed(this.taskNumber, elapsed);
+		return result;
+	}
+
+	/**
+	 * Executes the task in the current JVM.
+	 * 
+	 * @return the {@link ExecutionResult} of the task.
+	 * @throws InterruptedException if the task is cancelled
+	 *         while exploring its subregions.
+	 */
+	ExecutionResult callInProcess() throws InterruptedException {
+		final long start = System.currentTimeMillis();
+		final int exitStatus;
+		final boolean complete;
+		if (this.jbse.splitDepth() > 0) {
+			final SubregionExplorer explorer = new SubregionExplorer(this.jbse, this.taskNumber, this.jbse.splitDepth());
+			exitStatus = explorer.explore();
+			complete = explorer.isComplete();
+		} else {
+			final JBSEParameters p = this.jbse.getInvocationParameters(this.taskNumber);
+			final RunJBSE_Sushi run = new RunJBSE_Sushi(p);
+			exitStatus = run.run();
+			complete = run.isComplete();
+		}
 		final long elapsed = System.currentTimeMillis() - start;
 		logger.debug("Task " + this.taskNumber + " ended, elapsed " + elapsed/1000 + " seconds");
+		this.jbse.recordElapsed(this.taskNumber, elapsed);
+		if (exitStatus == 0 && complete) {
+			this.jbse.explored(this.taskNumber);
+		}
 		final ExecutionResult result = new ExecutionResult();
 		result.setExitStatus(exitStatus);
 		return result;
@@ -12,11 +12,14 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeSet;
 
 import jbse.algo.exc.CannotManageStateException;
 import jbse.algo.exc.NotYetImplementedException;
@@ -27,17 +30,16 @@ import jbse.apps.run.DecisionProcedureConservativeRepOk;
 import jbse.apps.run.DecisionProcedureGuidance;
 import jbse.apps.run.DecisionProcedureGuidanceJDI;
 import jbse.bc.Opcodes;
+import jbse.bc.Signature;
 import jbse.bc.exc.InvalidClassFileFactoryClassException;
 import jbse.common.exc.ClasspathException;
 import jbse.common.exc.InvalidInputException;
 import jbse.common.exc.UnexpectedInternalException;
 import jbse.dec.DecisionProcedure;
 import jbse.dec.DecisionProcedureAlgorithms;
-import jbse.dec.DecisionProcedureAlwSat;
 import jbse.dec.DecisionProcedureClassInit;
 import jbse.dec.DecisionProcedureEquality;
 import jbse.dec.DecisionProcedureLICS;
-import jbse.dec.DecisionProcedureSMTLIB2_AUFNIRA;
 import jbse.dec.DecisionProcedureSignAnalysis;
 import jbse.dec.exc.DecisionException;
 import jbse.jvm.Engine;
@@ -66,7 +68,6 @@ import jbse.rewr.RewriterFunctionApplicationOnSimplex;
 import jbse.rewr.RewriterNegationElimination;
 import jbse.rewr.RewriterZeroUnit;
 import jbse.tree.StateTree.BranchPoint;
-import jbse.val.HistoryPoint;
 import jbse.val.PrimitiveSymbolic;
 import jbse.val.Reference;
 import jbse.val.ReferenceConcrete;
@@ -80,6 +81,7 @@ import sushi.execution.jbse.JBSEParameters.TraceTypes;
 import sushi.formatters.FormatterSushi;
 import sushi.formatters.StateFormatterSushiPartialHeap;
 import sushi.formatters.StateFormatterSushiPathCondition;
+import sushi.util.LongIntHashMap;
 
 public class RunJBSE_Sushi {
 	/** The {@link JBSEParameters} of the symbolic execution. */
@@ -109,12 +111,27 @@ public class RunJBSE_Sushi {
 	 */
 	private DecisionProcedureGuidance guidance = null;
 	
+	/** 
+	 * Set by {@link #build()}, the Z3 processes leased from the {@link Z3Pool}, 
+	 * to be given back after the run. 
+	 */
+	private final ArrayList<DecisionProcedure> solverLeases = new ArrayList<>();
+	
+	/** Set by {@link #build()}, the {@link ActionsRun} of {@code runner}. */
+	private ActionsRun actions = null;
+	
 	/** Set by {@link #run()}, the error code. */
 	private int errorCodeAfterRun = 0;
 	
 	/** Set by {@link #run()}, the final value of the trace counter. */
 	private long traceCounter;
 	
+	/** 
+	 * Set by {@link #run()}, whether the run explored the whole 
+	 * state tree below its subregion and above its frontier. 
+	 */
+	private boolean complete = false;
+	
 	/**
 	 * Constructor.
 	 * 
@@ -125,30 +142,173 @@ public class RunJBSE_Sushi {
 		this.traceCounter = parameters.getTraceCounterStart();
 	}
 	
+	/**
+	 * A node of a persistent set of covered branches, 
+	 * holding a branch and the node of the branches 
+	 * covered before it.
+	 */
+	private static final class CoverageNode {
+		private final int branchNumber;
+		private final CoverageNode previous;
+		
+		CoverageNode(int branchNumber, CoverageNode previous) {
+			this.branchNumber = branchNumber;
+			this.previous = previous;
+		}
+	}
+	
+	/**
+	 * A node of a persistent log of the changes to the map from
+	 * heap positions to string literals, holding a changed heap 
+	 * position, the value it had before the change, and the node
+	 * of the changes made before it.
+	 */
+	private static final class StringLiteralNode {
+		private final long heapPosition;
+		private final String replacedValue;
+		private final StringLiteralNode previous;
+		
+		StringLiteralNode(long heapPosition, String replacedValue, StringLiteralNode previous) {
+			this.heapPosition = heapPosition;
+			this.replacedValue = replacedValue;
+			this.previous = previous;
+		}
+	}
+	
+	/**
+	 * The trace that represents all the traces covering the same
+	 * branches: the one with the smallest path condition, i.e.,
+	 * the easiest to solve. 
+	 */
+	private static final class Representative {
+		private long traceNumber;
+		private int hardness;
+		private String identifier;
+		private long count = 1;
+	}
+	
+	/**
+	 * A node of the tree of the open branch points of the
+	 * exploration, mirroring the JBSE state tree. It holds
+	 * what must be restored when backtracking to the branch
+	 * point: whether the branch was taken at a jumping bytecode,
+	 * the covered branches, the string literals, and how many
+	 * branch points the trace had passed since it last covered
+	 * a new branch, and how many branch points are open.
+	 */
+	private static final class BranchPointNode {
+		private final BranchPoint branchPoint;
+		private final BranchPointNode parent;
+		private final boolean atJump;
+		private final int jumpPC;
+		private final CoverageNode coverage;
+		private final StringLiteralNode stringLiterals;
+		private final int stall;
+		private final int depth;
+		
+		BranchPointNode(BranchPoint branchPoint, BranchPointNode parent, boolean atJump, int jumpPC, CoverageNode coverage, StringLiteralNode stringLiterals, int stall) {
+			this.branchPoint = branchPoint;
+			this.parent = parent;
+			this.atJump = atJump;
+			this.jumpPC = jumpPC;
+			this.coverage = coverage;
+			this.stringLiterals = stringLiterals;
+			this.stall = stall;
+			this.depth = (parent == null ? 1 : parent.depth + 1);
+		}
+	}
+	
 	private class ActionsRun extends Runner.Actions {
 		private TraceTypes traceKind;
-		private long branchCounter = 0;
-		private final HashMap<String, Long> branchNumberOf = new HashMap<>();
-		private final ArrayList<String> branchTargets = new ArrayList<>();
-		private final HashMap<String, TreeSet<Long>> coverage = new HashMap<>();
-		private final HashMap<String, HashMap<Long, String>> stringLiterals = new HashMap<>();
-		private final HashMap<BranchPoint, Boolean> atJumpBacktrack = new HashMap<>();
-		private final HashMap<BranchPoint, Integer> jumpPCBacktrack = new HashMap<>();
-		private TreeSet<Long> coverageCurrentTrace = new TreeSet<>();
+		
+		/** 
+		 * Maps the key of each branch target (see {@link #branchKey(int, int, int)}) 
+		 * to its branch number. 
+		 */
+		private final LongIntHashMap branchNumberOf = new LongIntHashMap();
+		
+		/** The keys of the branch targets, by branch number. */
+		private long[] branchKeys = new long[64];
+		
+		/** The methods of the branch targets, by method number. */
+		private final ArrayList<Signature> methods = new ArrayList<>();
+		
+		/** Maps the {@link Signature}s met so far to their method numbers. */
+		private final IdentityHashMap<Signature, Integer> methodNumberOfInstance = new IdentityHashMap<>();
+		
+		/** Maps the method signatures to their method numbers. */
+		private final HashMap<Signature, Integer> methodNumberOf = new HashMap<>();
+
+		/** 
+		 * The deepest open branch point of the current trace; The 
+		 * branch points of the explored subtrees are unreachable. 
+		 */
+		private BranchPointNode currentBranchPoint = null;
+		private CoverageNode coverageCurrentTraceHead = null;
+		private StringLiteralNode stringLiteralsCurrentTraceHead = null;
+		private BitSet coverageCurrentTrace = new BitSet();
 		private HashMap<Long, String> stringLiteralsCurrentTrace = new HashMap<>();
 		private Frame stringLiteralFrame = null;
 		private boolean atJump = false;
 		private int jumpPC = 0;
 		private boolean atLoadConstant = false;
 		
+		/** The writer of the coverage file, open during the whole run. */
+		private BufferedWriter wCoverage = null;
+		
+		/** The writer of the traces file, open during the whole run. */
+		private BufferedWriter wTraces = null;
+		
+		/** When the coverage and traces files were last flushed. */
+		private long lastFlush = 0L;
+		
+		/** Whether the last step created a branch point. */
+		private boolean branched = false;
+		
+		/** Whether the current trace reached the frontier. */
+		private boolean atFrontier = false;
+		
+		/** 
+		 * How many branch points the current trace passed since 
+		 * it last covered a new branch, i.e., a branch that neither 
+		 * this run nor the tests generated so far cover.
+		 */
+		private int stall = 0;
+		
+		/** Whether the current trace was stopped because it stalled. */
+		private boolean stalled = false;
+		
+		/** 
+		 * Whether the current trace, since its last backtrack, 
+		 * covered a new branch.
+		 */
+		private boolean coveredNew = false;
+		
+		/** Whether some trace was stopped because it stalled. */
+		private boolean pruned = false;
+		
+		/** Whether the run was stopped because it was cancelled. */
+		private boolean cancelled = false;
+		
+		/** Whether the run was stopped because its time budget expired. */
+		private boolean timedOut = false;
+		
+		/** Whether the run was stopped because it ran out of trace numbers. */
+		private boolean outOfTraceNumbers = false;
+		
+		/** 
+		 * Maps the covered branches of the traces to their
+		 * representatives, when the traces are deduplicated.
+		 */
+		private final HashMap<BitSet, Representative> representatives = new HashMap<>();
+		
 		@Override
 		public boolean atStart() {
 			if (RunJBSE_Sushi.this.parameters.getMustLogCoverageData()) {
 				try {
-					Files.deleteIfExists(RunJBSE_Sushi.this.parameters.getCoverageFilePath());
-					Files.createFile(RunJBSE_Sushi.this.parameters.getCoverageFilePath());
-					Files.deleteIfExists(RunJBSE_Sushi.this.parameters.getTracesFilePath());
-					Files.createFile(RunJBSE_Sushi.this.parameters.getTracesFilePath());
+					this.wCoverage = Files.newBufferedWriter(RunJBSE_Sushi.this.parameters.getCoverageFilePath());
+					this.wTraces = Files.newBufferedWriter(RunJBSE_Sushi.this.parameters.getTracesFilePath());
+					this.lastFlush = System.currentTimeMillis();
 				} catch (IOException e) {
 					System.err.println("ERROR: exception raised:");
 					e.printStackTrace(System.err);
@@ -163,30 +323,168 @@ public class RunJBSE_Sushi {
 		public boolean atPathStart() {
 			//trace initially assumed to be safe
 			this.traceKind = TraceTypes.SAFE;
+			this.atFrontier = false;
+			this.stalled = false;
+			
+			//after a backtrack the trace may start at the frontier, 
+			//or stalled
+			checkFrontier(RunJBSE_Sushi.this.engine.getCurrentState());
+			checkStall();
 			return false;
 		}
 		
-		private void doUpdateCoverage(String currentStateIdentifier, String branchTarget) {
-			final long branchNumber;
-			if (this.branchNumberOf.containsKey(branchTarget)) {
-				branchNumber = this.branchNumberOf.get(branchTarget);
-			} else {
-				branchNumber = this.branchCounter++;
-				this.branchNumberOf.put(branchTarget, branchNumber);
-				this.branchTargets.add(branchTarget);
+		/**
+		 * Stops the current trace if it passed too many branch points 
+		 * without covering a new branch, so the budget goes to the 
+		 * other pending branch points. Since the trace is explored
+		 * depth-first, this gives priority to the branch points whose
+		 * alternatives lead to new branches. A trace that covered a
+		 * new branch is not stopped, lest the branch remain without
+		 * a trace covering it, but the alternatives of the branch 
+		 * points it passes after stalling inherit its stall, and are
+		 * stopped when the exploration backtracks to them.
+		 */
+		private void checkStall() {
+			final int threshold = RunJBSE_Sushi.this.parameters.getSearchStallThreshold();
+			if (threshold == 0 || this.stalled || this.atFrontier || this.coveredNew || this.stall < threshold) {
+				return;
+			}
+			this.stalled = true;
+			this.pruned = true;
+			RunJBSE_Sushi.this.engine.stopCurrentPath();
+		}
+		
+		/**
+		 * Stops the current trace if it reached the frontier, 
+		 * and passes its state identifier to the consumer of
+		 * the frontier.
+		 * 
+		 * @param currentState the current {@link State}.
+		 */
+		private void checkFrontier(State currentState) {
+			final int frontierDepth = RunJBSE_Sushi.this.parameters.getFrontierDepth();
+			if (frontierDepth == 0 || this.atFrontier) {
+				return;
+			}
+			final String identifier = currentState.getBranchIdentifier();
+			int depth = 0;
+			for (int i = 0; i < identifier.length(); ++i) {
+				if (identifier.charAt(i) == '.') {
+					++depth;
+				}
+			}
+			if (depth >= frontierDepth) {
+				this.atFrontier = true;
+				RunJBSE_Sushi.this.parameters.getFrontierConsumer().accept(identifier);
+				RunJBSE_Sushi.this.engine.stopCurrentPath();
+			}
+		}
+		
+		/**
+		 * Builds the key of a branch target.
+		 * 
+		 * @param methodNumber an {@code int}, the number of the method 
+		 *        of the branch (see {@link #methodNumber(Signature)}).
+		 * @param branchPC an {@code int}, the program counter of the 
+		 *        jump, or {@code -1} for the entry point of the method.
+		 * @param targetPC an {@code int}, the program counter of the 
+		 *        branch target.
+		 * @return a {@code long}. Since the program counters are less
+		 *         than 65536, the key is unique.
+		 */
+		private long branchKey(int methodNumber, int branchPC, int targetPC) {
+			return (((long) methodNumber) << 34) | (((long) (branchPC + 1)) << 17) | targetPC;
+		}
+		
+		private int methodNumber(Signature method) {
+			final Integer fast = this.methodNumberOfInstance.get(method);
+			if (fast != null) {
+				return fast;
+			}
+			Integer retVal = this.methodNumberOf.get(method);
+			if (retVal == null) {
+				retVal = this.methods.size();
+				this.methods.add(method);
+				this.methodNumberOf.put(method, retVal);
+			}
+			this.methodNumberOfInstance.put(method, retVal);
+			return retVal;
+		}
+		
+		/**
+		 * Renders a branch target as it is written in the branches file.
+		 * 
+		 * @param branchKey a {@code long}, the key of the branch target.
+		 * @return a {@link String}, the signature of the method, followed
+		 *         by the program counter of the jump (if the branch is not
+		 *         the entry point of the method) and the program counter
+		 *         of the target, all separated by colons.
+		 */
+		private String branchTarget(long branchKey) {
+			final int methodNumber = (int) (branchKey >>> 34);
+			final int branchPC = (int) ((branchKey >>> 17) & 0x1FFFFL) - 1;
+			final int targetPC = (int) (branchKey & 0x1FFFFL);
+			return this.methods.get(methodNumber).toString() + (branchPC < 0 ? "" : ":" + branchPC) + ":" + targetPC;
+		}
+		
+		private void doUpdateCoverage(long branchKey) {
+			int branchNumber = this.branchNumberOf.get(branchKey, -1);
+			if (branchNumber < 0) {
+				branchNumber = this.branchNumberOf.size();
+				this.branchNumberOf.put(branchKey, branchNumber);
+				if (branchNumber == this.branchKeys.length) {
+					this.branchKeys = Arrays.copyOf(this.branchKeys, 2 * this.branchKeys.length);
+				}
+				this.branchKeys[branchNumber] = branchKey;
+				
+				//first time the run covers the branch: it is new 
+				//unless the tests already cover it
+				if (!RunJBSE_Sushi.this.parameters.getBranchesCoveredByTests().contains(branchTarget(branchKey))) {
+					this.stall = 0;
+					this.coveredNew = true;
+				}
+			}
+			if (!this.coverageCurrentTrace.get(branchNumber)) {
+				this.coverageCurrentTrace.set(branchNumber);
+				this.coverageCurrentTraceHead = new CoverageNode(branchNumber, this.coverageCurrentTraceHead);
 			}
-			this.coverageCurrentTrace.add(branchNumber);
-			this.coverage.put(currentStateIdentifier, new TreeSet<>(this.coverageCurrentTrace));
+		}
+		
+		private void updateStringLiterals(long heapPosition, String s) {
+			final String replacedValue = this.stringLiteralsCurrentTrace.put(heapPosition, s);
+			if (!s.equals(replacedValue)) {
+				this.stringLiteralsCurrentTraceHead = new StringLiteralNode(heapPosition, replacedValue, this.stringLiteralsCurrentTraceHead);
+			}
+		}
+		
+		/**
+		 * Restores the covered branches and the string literals of the
+		 * current trace to those of an earlier state of the same trace.
+		 * 
+		 * @param coverage the {@link CoverageNode} of the earlier state.
+		 * @param stringLiterals the {@link StringLiteralNode} of the earlier state.
+		 */
+		private void restore(CoverageNode coverage, StringLiteralNode stringLiterals) {
+			for (CoverageNode n = this.coverageCurrentTraceHead; n != coverage && n != null; n = n.previous) {
+				this.coverageCurrentTrace.clear(n.branchNumber);
+			}
+			this.coverageCurrentTraceHead = coverage;
+			for (StringLiteralNode n = this.stringLiteralsCurrentTraceHead; n != stringLiterals && n != null; n = n.previous) {
+				if (n.replacedValue == null) {
+					this.stringLiteralsCurrentTrace.remove(n.heapPosition);
+				} else {
+					this.stringLiteralsCurrentTrace.put(n.heapPosition, n.replacedValue);
+				}
+			}
+			this.stringLiteralsCurrentTraceHead = stringLiterals;
 		}
 		
 		private void updateCoverage(State currentState) throws ThreadStackEmptyException, FrozenStateException {
-			final String branchTarget = currentState.getCurrentMethodSignature().toString() + ":" + currentState.getCurrentProgramCounter();
-			doUpdateCoverage(currentState.getBranchIdentifier(), branchTarget);
+			doUpdateCoverage(branchKey(methodNumber(currentState.getCurrentMethodSignature()), -1, currentState.getCurrentProgramCounter()));
 		}
 		
 		private void updateCoverage(State currentState, int branchPC) throws ThreadStackEmptyException, FrozenStateException {
-			final String branchTarget = currentState.getCurrentMethodSignature().toString() + ":" + branchPC + ":" + currentState.getCurrentProgramCounter();
-			doUpdateCoverage(currentState.getBranchIdentifier(), branchTarget);
+			doUpdateCoverage(branchKey(methodNumber(currentState.getCurrentMethodSignature()), branchPC, currentState.getCurrentProgramCounter()));
 		}
 		
 		@Override
@@ -250,8 +548,14 @@ public class RunJBSE_Sushi {
 		
 		@Override
 		public boolean atBranch(BranchPoint bp) {
-			this.atJumpBacktrack.put(bp, this.atJump);
-			this.jumpPCBacktrack.put(bp, this.jumpPC);
+			this.currentBranchPoint = new BranchPointNode(bp, this.currentBranchPoint, this.atJump, this.jumpPC, this.coverageCurrentTraceHead, this.stringLiteralsCurrentTraceHead, this.stall);
+			this.branched = true;
+			++this.stall;
+			final ExplorationStatistics statistics = RunJBSE_Sushi.this.parameters.getExplorationStatistics();
+			if (statistics != null) {
+				++statistics.branchPoints;
+				statistics.maxDepth = Math.max(statistics.maxDepth, this.currentBranchPoint.depth);
+			}
 			return false;
 		}
 		
@@ -261,6 +565,18 @@ public class RunJBSE_Sushi {
 			if (currentState.phase() == Phase.PRE_INITIAL) {
 				return super.atStepPre();
 			}
+			
+			//stops if the task was cancelled
+			if (Thread.currentThread().isInterrupted() || RunJBSE_Sushi.this.parameters.isCancelled()) {
+				this.cancelled = true;
+				return true;
+			}
+			
+			//stops the trace if the step reached the frontier
+			if (this.branched) {
+				this.branched = false;
+				checkFrontier(currentState);
+			}
 
 			//if we stepped a branching bytecode, records coverage
 			if (this.atJump) {
@@ -285,8 +601,7 @@ public class RunJBSE_Sushi {
 							if (o != null && JAVA_STRING.equals(o.getType().getClassName())) {
 								final String s = valueString(currentState, r);
 								final long heapPosition = (r instanceof ReferenceConcrete ? ((ReferenceConcrete) r).getHeapPosition() : currentState.getResolution((ReferenceSymbolic) r));
-								this.stringLiteralsCurrentTrace.put(heapPosition, s);
-								this.stringLiterals.put(currentState.getBranchIdentifier(), new HashMap<>(this.stringLiteralsCurrentTrace));
+								updateStringLiterals(heapPosition, s);
 							}
 						}
 					}
@@ -298,33 +613,38 @@ public class RunJBSE_Sushi {
 				}
 			}
 			
+			//stops the trace if it stalled
+			checkStall();
+			
 			return false;
 		}
 		
 		@Override
 		public boolean atBacktrackPost(BranchPoint bp) {
 			final State currentState = RunJBSE_Sushi.this.engine.getCurrentState();
-			String uptraceId = currentState.getBranchIdentifier();
-			{
-				TreeSet<Long> uptraceCoverage = this.coverage.get(uptraceId);
-				while (uptraceCoverage == null && uptraceId.lastIndexOf(HistoryPoint.BRANCH_IDENTIFIER_SEPARATOR_COMPACT) != -1) {
-					uptraceId = uptraceId.substring(0, uptraceId.lastIndexOf(HistoryPoint.BRANCH_IDENTIFIER_SEPARATOR_COMPACT));
-					uptraceCoverage = this.coverage.get(uptraceId);
-				}
-				this.coverageCurrentTrace = (uptraceCoverage == null ? new TreeSet<>() : new TreeSet<>(uptraceCoverage));
+			
+			//the branch points opened after bp are in its explored
+			//subtrees, thus they can be released
+			BranchPointNode node = this.currentBranchPoint;
+			while (node != null && node.branchPoint != bp) {
+				node = node.parent;
 			}
-			{
-				HashMap<Long, String> uptraceStringLiterals = this.stringLiterals.get(uptraceId);
-				while (uptraceStringLiterals == null && uptraceId.lastIndexOf(HistoryPoint.BRANCH_IDENTIFIER_SEPARATOR_COMPACT) != -1) {
-					uptraceId = uptraceId.substring(0, uptraceId.lastIndexOf(HistoryPoint.BRANCH_IDENTIFIER_SEPARATOR_COMPACT));
-					uptraceStringLiterals = this.stringLiterals.get(uptraceId);
-				}
-				this.stringLiteralsCurrentTrace = (uptraceStringLiterals == null ? new HashMap<>() : new HashMap<>(uptraceStringLiterals));
+			this.currentBranchPoint = node;
+			
+			//restores the state at bp; the branches covered before 
+			//bp were covered by the trace that opened it
+			this.coveredNew = false;
+			if (node == null) {
+				restore(null, null);
+				this.atJump = false;
+				this.jumpPC = 0;
+				this.stall = 0;
+			} else {
+				restore(node.coverage, node.stringLiterals);
+				this.atJump = node.atJump;
+				this.jumpPC = node.jumpPC;
+				this.stall = node.stall + 1;
 			}
-			final Boolean atJump_ = this.atJumpBacktrack.get(bp);
-			this.atJump = (atJump_ == null ? false : atJump_);
-			final Integer jumpPC_ = this.jumpPCBacktrack.get(bp);
-			this.jumpPC = (jumpPC_ == null ? 0 : jumpPC_);
 
 			if (this.atJump) {
 				try {
@@ -378,11 +698,46 @@ public class RunJBSE_Sushi {
 
 		@Override
 		public boolean atPathEnd() {
+			final ExplorationStatistics statistics = RunJBSE_Sushi.this.parameters.getExplorationStatistics();
+			if (statistics != null) {
+				++statistics.traces;
+			}
+			if (this.atFrontier || this.stalled) {
+				//the trace will be explored by another run, or 
+				//it was abandoned since it covered no new branch
+				return false;
+			}
 			if (RunJBSE_Sushi.this.parameters.getTracesToShow().contains(this.traceKind)) {
+				//stops if the trace number belongs to another run
+				if (RunJBSE_Sushi.this.traceCounter >= RunJBSE_Sushi.this.parameters.getTraceCounterLimit()) {
+					System.err.println("WARNING: the traces exceed the trace numbers up to " + RunJBSE_Sushi.this.parameters.getTraceCounterLimit() + ", stopping the exploration");
+					this.outOfTraceNumbers = true;
+					return true;
+				}
 				final State currentState = RunJBSE_Sushi.this.engine.getCurrentState();
+				final int hardness = currentState.getPathCondition().size();
+				
+				//when deduplicating, only the traces that cover new
+				//branch sets, or that cover a known branch set with 
+				//a smaller path condition, are emitted
+				final boolean deduplicate = RunJBSE_Sushi.this.parameters.getDeduplicateTraces() && 
+				                            RunJBSE_Sushi.this.parameters.getMustLogCoverageData() && 
+				                            !this.coverageCurrentTrace.isEmpty();
+				Representative representative = null;
+				boolean mustEmit = true;
+				if (deduplicate) {
+					representative = this.representatives.get(this.coverageCurrentTrace);
+					if (representative == null) {
+						representative = new Representative();
+						this.representatives.put((BitSet) this.coverageCurrentTrace.clone(), representative);
+					} else {
+						++representative.count;
+						mustEmit = (hardness < representative.hardness);
+					}
+				}
 				
 				final StateFormatMode stateFormatMode = RunJBSE_Sushi.this.parameters.getStateFormatMode();
-				if (stateFormatMode != null) {
+				if (stateFormatMode != null && mustEmit) {
 					//emits the wrapper
 					final Path f =  RunJBSE_Sushi.this.parameters.getWrapperFilePath(RunJBSE_Sushi.this.traceCounter);
 					try (final BufferedWriter w = Files.newBufferedWriter(f)) {
@@ -401,19 +756,41 @@ public class RunJBSE_Sushi {
 				}
 				
 				//updates the coverage and traces files
-				if (this.coverageCurrentTrace.size() == 0) {
+				if (this.coverageCurrentTrace.isEmpty()) {
 					//does nothing, the trace does not cover any branch
+				} else if (deduplicate) {
+					//the representatives are written at the end
+					if (mustEmit) {
+						if (representative.count > 1 && stateFormatMode != null) {
+							//the wrapper of the replaced representative is useless
+							try {
+								Files.deleteIfExists(RunJBSE_Sushi.this.parameters.getWrapperFilePath(representative.traceNumber));
+							} catch (IOException e) {
+								System.err.println("ERROR: exception raised:");
+								e.printStackTrace(System.err);
+								RunJBSE_Sushi.this.errorCodeAfterRun = 1;
+								return true;
+							}
+						}
+						representative.traceNumber = RunJBSE_Sushi.this.traceCounter;
+						representative.hardness = hardness;
+						representative.identifier = currentState.getBranchIdentifier();
+					}
 				} else if (RunJBSE_Sushi.this.parameters.getMustLogCoverageData()) {
-					final int hardness = currentState.getPathCondition().size();
-					try (final BufferedWriter wCoverage = Files.newBufferedWriter(RunJBSE_Sushi.this.parameters.getCoverageFilePath(), StandardOpenOption.APPEND);
-						 final BufferedWriter wTraces = Files.newBufferedWriter(RunJBSE_Sushi.this.parameters.getTracesFilePath(), StandardOpenOption.APPEND)) {
-						wCoverage.write(RunJBSE_Sushi.this.traceCounter + ", " + hardness);
-						for (long branchNumber : this.coverageCurrentTrace) {
-							wCoverage.write(", " + branchNumber);
+					try {
+						writeCoverage(this.wCoverage, RunJBSE_Sushi.this.traceCounter, hardness, this.coverageCurrentTrace);
+						this.wTraces.write(Long.toString(RunJBSE_Sushi.this.traceCounter));
+						this.wTraces.write(", ");
+						this.wTraces.write(currentState.getBranchIdentifier());
+						this.wTraces.newLine();
+						
+						//flushes periodically, so a crash loses few records
+						final long now = System.currentTimeMillis();
+						if (now - this.lastFlush >= RunJBSE_Sushi.this.parameters.getCoverageFlushInterval()) {
+							this.wCoverage.flush();
+							this.wTraces.flush();
+							this.lastFlush = now;
 						}
-						wCoverage.newLine();
-						wTraces.write(RunJBSE_Sushi.this.traceCounter + ", " + RunJBSE_Sushi.this.engine.getCurrentState().getBranchIdentifier());
-						wTraces.newLine();
 					} catch (IOException e) {
 						System.err.println("ERROR: exception raised:");
 						e.printStackTrace(System.err);
@@ -427,12 +804,90 @@ public class RunJBSE_Sushi {
 			return false;
 		}
 		
+		/**
+		 * Writes a row of the coverage file.
+		 * 
+		 * @param w the {@link BufferedWriter} of the coverage file.
+		 * @param traceNumber a {@code long}, the number of the trace.
+		 * @param hardness an {@code int}, the size of the path condition
+		 *        of the trace.
+		 * @param coverage a {@link BitSet}, the branches covered by the trace.
+		 * @throws IOException if writing fails.
+		 */
+		private void writeCoverage(BufferedWriter w, long traceNumber, int hardness, BitSet coverage) throws IOException {
+			w.write(Long.toString(traceNumber));
+			w.write(", ");
+			w.write(Integer.toString(hardness));
+			for (int branchNumber = coverage.nextSetBit(0); branchNumber >= 0; branchNumber = coverage.nextSetBit(branchNumber + 1)) {
+				w.write(", ");
+				w.write(Integer.toString(branchNumber));
+			}
+			w.newLine();
+		}
+		
+		/**
+		 * Writes the representatives of the deduplicated traces, 
+		 * in trace order. Each row of the traces file also has the
+		 * number of traces the representative stands for.
+		 * 
+		 * @param wCoverage the {@link BufferedWriter} of the coverage file.
+		 * @param wTraces the {@link BufferedWriter} of the traces file.
+		 * @throws IOException if writing fails.
+		 */
+		private void writeRepresentatives(BufferedWriter wCoverage, BufferedWriter wTraces) throws IOException {
+			final ArrayList<Map.Entry<BitSet, Representative>> entries = new ArrayList<>(this.representatives.entrySet());
+			entries.sort(Comparator.comparingLong(e -> e.getValue().traceNumber));
+			for (Map.Entry<BitSet, Representative> entry : entries) {
+				final Representative representative = entry.getValue();
+				writeCoverage(wCoverage, representative.traceNumber, representative.hardness, entry.getKey());
+				wTraces.write(Long.toString(representative.traceNumber));
+				wTraces.write(", ");
+				wTraces.write(representative.identifier);
+				wTraces.write(", ");
+				wTraces.write(Long.toString(representative.count));
+				wTraces.newLine();
+			}
+			this.representatives.clear();
+		}
+		
+		/**
+		 * Writes the representatives of the deduplicated traces,
+		 * if any, and flushes and closes the coverage and traces
+		 * files. It can be invoked many times.
+		 * 
+		 * @throws IOException if writing, flushing or closing fails.
+		 */
+		private void closeCoverageLogs() throws IOException {
+			final BufferedWriter wCoverage = this.wCoverage;
+			final BufferedWriter wTraces = this.wTraces;
+			this.wCoverage = null;
+			this.wTraces = null;
+			try (final BufferedWriter c = wCoverage; final BufferedWriter t = wTraces) {
+				//closes both, null writers are skipped
+				if (c != null && t != null) {
+					writeRepresentatives(c, t);
+				}
+			}
+		}
+		
 		@Override
 		public void atEnd() {
+			final ExplorationStatistics statistics = RunJBSE_Sushi.this.parameters.getExplorationStatistics();
+			if (statistics != null) {
+				statistics.branches = this.branchNumberOf.size();
+				statistics.pendingBranchPoints = (this.currentBranchPoint == null ? 0 : this.currentBranchPoint.depth);
+			}
 			if (RunJBSE_Sushi.this.parameters.getMustLogCoverageData()) {
+				try {
+					closeCoverageLogs();
+				} catch (IOException e) {
+					System.err.println("ERROR: exception raised:");
+					e.printStackTrace(System.err);
+					RunJBSE_Sushi.this.errorCodeAfterRun = 1;
+				}
 				try (final BufferedWriter wBranches = Files.newBufferedWriter(RunJBSE_Sushi.this.parameters.getBranchesFilePath())) {
-					for (String branchTarget : this.branchTargets) {
-						wBranches.write(branchTarget);
+					for (int branchNumber = 0; branchNumber < this.branchNumberOf.size(); ++branchNumber) {
+						wBranches.write(branchTarget(this.branchKeys[branchNumber]));
 						wBranches.write("\n");
 					}
 				} catch (IOException e) {
@@ -447,6 +902,11 @@ public class RunJBSE_Sushi {
 		public void atTimeout() {
 			//same as atEnd;
 			atEnd();
+			this.timedOut = true;
+			final ExplorationStatistics statistics = RunJBSE_Sushi.this.parameters.getExplorationStatistics();
+			if (statistics != null) {
+				statistics.timedOut = true;
+			}
 		}
 	}
 
@@ -462,6 +922,7 @@ public class RunJBSE_Sushi {
 		// sets up this object
 		int retVal = build();
 		if (retVal > 0) {
+			releaseSolvers();
 			return retVal;
 		}
 
@@ -469,6 +930,7 @@ public class RunJBSE_Sushi {
 		try {
 			this.runner.run();
 			retVal = this.errorCodeAfterRun;
+			this.complete = (retVal == 0 && !this.actions.cancelled && !this.actions.timedOut && !this.actions.pruned && !this.actions.outOfTraceNumbers);
 		} catch (ClasspathException | 
 		         DecisionException | CannotManageStateException | 
 				 EngineStuckException | CannotBacktrackException e) {
@@ -482,17 +944,46 @@ public class RunJBSE_Sushi {
 			retVal = 2;
 		}
 		
+		// closes the coverage and traces files, if the run 
+		// ended without invoking atEnd/atTimeout
+		try {
+			this.actions.closeCoverageLogs();
+		} catch (IOException e) {
+			System.err.println("ERROR: exception raised:");
+			e.printStackTrace(System.err);
+			retVal = (retVal == 0 ? 1 : retVal);
+			this.complete = false;
+		}
+		
 		// quits the engine
 		try {
 			this.engine.close();
 		} catch (DecisionException | UnexpectedInternalException e) {
 			//really this does not care
 		}
+		
+		// gives back the Z3 processes not released by the engine
+		releaseSolvers();
 
 		// returns the error code
 		return retVal;
 	}
 	
+	/**
+	 * Returns whether the last run explored the whole state tree,
+	 * i.e., it ended successfully, and was neither cancelled nor 
+	 * stopped by its time budget or by running out of trace numbers,
+	 * nor it abandoned stalled traces.
+	 * The traces stopped at the frontier do not count, since they
+	 * are explored by other runs.
+	 * 
+	 * @return a {@code boolean}; {@code false} if the method 
+	 *         was not run.
+	 */
+	public boolean isComplete() {
+		return this.complete;
+	}
+	
 	/**
 	 * Processes the provided {@link RunParameters} and builds the {@link Engine}
 	 * which will be used by the runner to perform the symbolic execution.
@@ -507,7 +998,8 @@ public class RunJBSE_Sushi {
 		try {
 			createFormatter();
 			final RunnerParameters runnerParameters = this.parameters.getRunnerParameters();
-			runnerParameters.setActions(new ActionsRun());
+			this.actions = new ActionsRun();
+			runnerParameters.setActions(this.actions);
 			runnerParameters.setUseHashMapModel(true);
 			runnerParameters.addUninterpreted(JAVA_STRING, "(" + REFERENCE + JAVA_OBJECT + TYPEEND + ")" + BOOLEAN, "equals");
 			runnerParameters.addUninterpreted(JAVA_STRING, "(" + REFERENCE + JAVA_CHARSEQUENCE + TYPEEND + ")" + BOOLEAN, "contains");
@@ -545,7 +1037,13 @@ public class RunJBSE_Sushi {
 		return 0;
 	}
 	
-	private long getTraceCounter() {
+	/**
+	 * Returns the number of the next trace, i.e., after 
+	 * the run the first number it did not use.
+	 * 
+	 * @return a {@code long}.
+	 */
+	long getTraceCounter() {
 		return this.traceCounter;
 	}
 	
@@ -598,21 +1096,19 @@ public class RunJBSE_Sushi {
 	throws CannotBuildDecisionProcedureException {
         final Path path = this.parameters.getExternalDecisionProcedurePath();       
 
-		//initializes cores
         final boolean needHeapCheck = this.parameters.getUseConservativeRepOks();
-		DecisionProcedure core = new DecisionProcedureAlwSat(calc);
-		DecisionProcedure coreNumeric = (needHeapCheck ? new DecisionProcedureAlwSat(calc) : null);
 		
 		try {
-			//wraps cores with external numeric decision procedure
+			//initializes cores with external numeric decision procedure, 
+			//leasing the Z3 processes from the pool
 			final String switchChar = System.getProperty("os.name").toLowerCase().contains("windows") ? "/" : "-";
 			final ArrayList<String> z3CommandLine = new ArrayList<>();
 			z3CommandLine.add(path == null ? "z3" : path.toString());
 			z3CommandLine.add(switchChar + "smt2");
 			z3CommandLine.add(switchChar + "in");
 			z3CommandLine.add(switchChar + "t:10");
-			core = new DecisionProcedureSMTLIB2_AUFNIRA(core, z3CommandLine);
-			coreNumeric = (needHeapCheck ? new DecisionProcedureSMTLIB2_AUFNIRA(coreNumeric, z3CommandLine) : null);
+			DecisionProcedure core = leaseSolver(z3CommandLine, calc);
+			DecisionProcedure coreNumeric = (needHeapCheck ? leaseSolver(z3CommandLine, calc) : null);
 
 			//further wraps cores with sign analysis, if required
 			if (this.parameters.getDoSignAnalysis()) {
@@ -664,5 +1160,22 @@ public class RunJBSE_Sushi {
 			//this should never happen
 			throw new UnexpectedInternalException(e);
 		}
-	}    
+	}
+	
+	private DecisionProcedure leaseSolver(List<String> z3CommandLine, CalculatorRewriting calc) throws DecisionException {
+		final DecisionProcedure retVal = Z3Pool.get().lease(z3CommandLine, this.parameters.getRewriters(), calc);
+		this.solverLeases.add(retVal);
+		return retVal;
+	}
+	
+	private void releaseSolvers() {
+		for (DecisionProcedure lease : this.solverLeases) {
+			try {
+				lease.close();
+			} catch (DecisionException | UnexpectedInternalException e) {
+				//really this does not care
+			}
+		}
+		this.solverLeases.clear();
+	}
 }
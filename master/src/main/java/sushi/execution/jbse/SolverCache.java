@@ -0,0 +1,226 @@
+package sushi.execution.jbse;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import sushi.logging.Logger;
+
+/**
+ * The results of the satisfiability queries of the symbolic executions,
+ * shared by all the JBSE tasks of a run and across the iterations of its
+ * main loop, and possibly persisted in a file in the temporary directory.
+ *
+ * A query is a sequence of strings: the target method, the assumptions
+ * in the order they were pushed, and finally the queried condition. Since
+ * the symbolic execution of a method is deterministic, equal sequences
+ * denote equal formulas. The results are stored in a trie, so that a
+ * query is also answered by the results of the other queries it is a
+ * prefix of (if some of them is satisfiable, so is the query) and of
+ * the queries that are a prefix of it (if some of them is unsatisfiable,
+ * so is the query).
+ *
+ * @author Pietro Braione
+ */
+public final class SolverCache {
+	private static final Logger logger = new Logger(SolverCache.class);
+
+	/** The most results a cache records, to bound its memory. */
+	private static final int MAX_RESULTS = 1_000_000;
+
+	/** Separates the elements of a query in the cache file. */
+	private static final char SEPARATOR = '\u0000';
+
+	private static final String SAT = "S";
+	private static final String UNSAT = "U";
+
+	/** The instances, one for each cache file. */
+	private static final HashMap<Path, SolverCache> instances = new HashMap<>();
+
+	/**
+	 * Returns the cache for a file, so that all the tools
+	 * share the same {@link SolverCache} object for it.
+	 *
+	 * @param file the {@link Path} of the cache file.
+	 * @param persistent a {@code boolean}, whether the cache
+	 *        is loaded from {@code file} when created and
+	 *        saved to it by {@link #save()}.
+	 * @return the {@link SolverCache} for {@code file}.
+	 */
+	public static synchronized SolverCache forFile(Path file, boolean persistent) {
+		return instances.computeIfAbsent(file.toAbsolutePath(), f -> new SolverCache(f, persistent));
+	}
+
+	private static final class Node {
+		private HashMap<String, Node> children = null;
+
+		/**
+		 * {@link Boolean#TRUE} if the query ending here is satisfiable,
+		 * {@link Boolean#FALSE} if it is unsatisfiable, {@code null}
+		 * if unknown.
+		 */
+		private Boolean sat = null;
+
+		/** Whether the query ending here, or one it is a prefix of, is satisfiable. */
+		private boolean satBelow = false;
+	}
+
+	private final Path file;
+	private final boolean persistent;
+	private final Node root = new Node();
+	private int results = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * Constructor. Loads the results in {@code file}, if
+	 * {@code persistent} and {@code file} exists.
+	 *
+	 * @param file the {@link Path} of the cache file.
+	 * @param persistent a {@code boolean}.
+	 */
+	private SolverCache(Path file, boolean persistent) {
+		this.file = file;
+		this.persistent = persistent;
+		if (!persistent || !Files.exists(file)) {
+			return;
+		}
+		try (final BufferedReader r = Files.newBufferedReader(file)) {
+			String line;
+			while ((line = r.readLine()) != null) {
+				final String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+				if (fields.length < 2 || !(SAT.equals(fields[0]) || UNSAT.equals(fields[0]))) {
+					continue;
+				}
+				record(Arrays.asList(fields).subList(1, fields.length), SAT.equals(fields[0]));
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to read solver cache file " + file.toString() + ", ignoring it");
+		}
+		logger.debug("Loaded " + this.results + " results from solver cache file " + file.toString());
+	}
+
+	/**
+	 * Looks up the result of a query.
+	 *
+	 * @param query a {@link List}{@code <}{@link String}{@code >}, the query.
+	 * @return {@link Boolean#TRUE} if the query is known to be satisfiable,
+	 *         {@link Boolean#FALSE} if it is known to be unsatisfiable,
+	 *         {@code null} if its result is unknown.
+	 */
+	public synchronized Boolean lookup(List<String> query) {
+		Node node = this.root;
+		for (String element : query) {
+			if (node.sat == Boolean.FALSE) {
+				break;
+			}
+			node = (node.children == null ? null : node.children.get(element));
+			if (node == null) {
+				++this.misses;
+				return null;
+			}
+		}
+		final Boolean retVal = (node.sat == Boolean.FALSE ? Boolean.FALSE : node.satBelow ? Boolean.TRUE : null);
+		if (retVal == null) {
+			++this.misses;
+		} else {
+			++this.hits;
+		}
+		return retVal;
+	}
+
+	/**
+	 * Records the result of a query.
+	 *
+	 * @param query a {@link List}{@code <}{@link String}{@code >}, the query.
+	 * @param sat a {@code boolean}, whether {@code query} is satisfiable.
+	 */
+	public synchronized void record(List<String> query, boolean sat) {
+		if (this.results >= MAX_RESULTS) {
+			return;
+		}
+		final ArrayList<Node> path = new ArrayList<>(query.size() + 1);
+		Node node = this.root;
+		path.add(node);
+		for (String element : query) {
+			if (node.sat == Boolean.FALSE) {
+				//already implied by a prefix
+				return;
+			}
+			if (node.children == null) {
+				node.children = new HashMap<>();
+			}
+			node = node.children.computeIfAbsent(element, k -> new Node());
+			path.add(node);
+		}
+		if (node.sat == null) {
+			++this.results;
+		}
+		node.sat = sat;
+		if (sat) {
+			for (Node n : path) {
+				n.satBelow = true;
+			}
+		} else {
+			//all the queries it is a prefix of are unsatisfiable
+			node.children = null;
+		}
+	}
+
+	private static boolean storable(String element) {
+		return element.indexOf(SEPARATOR) < 0 && element.indexOf('\n') < 0 && element.indexOf('\r') < 0;
+	}
+
+	/**
+	 * Saves the results to the cache file, if the cache is persistent.
+	 */
+	public synchronized void save() {
+		logger.debug("Solver cache: " + this.hits + " hits, " + this.misses + " misses, " + this.results + " results");
+		if (!this.persistent) {
+			return;
+		}
+		try (final BufferedWriter w = Files.newBufferedWriter(this.file)) {
+			final ArrayDeque<Map.Entry<String, Node>> stack = new ArrayDeque<>();
+			stack.push(new AbstractMap.SimpleEntry<>("", this.root));
+			final ArrayList<String> query = new ArrayList<>();
+			final ArrayDeque<Integer> depths = new ArrayDeque<>();
+			depths.push(0);
+			while (!stack.isEmpty()) {
+				final Map.Entry<String, Node> e = stack.pop();
+				final int depth = depths.pop();
+				while (query.size() > Math.max(0, depth - 1)) {
+					query.remove(query.size() - 1);
+				}
+				if (depth > 0) {
+					query.add(e.getKey());
+				}
+				final Node node = e.getValue();
+				if (node.sat != null && query.stream().allMatch(SolverCache::storable)) {
+					w.write(node.sat ? SAT : UNSAT);
+					for (String element : query) {
+						w.write(SEPARATOR);
+						w.write(element);
+					}
+					w.newLine();
+				}
+				if (node.children != null) {
+					for (Map.Entry<String, Node> child : node.children.entrySet()) {
+						stack.push(child);
+						depths.push(depth + 1);
+					}
+				}
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to write solver cache file " + this.file.toString());
+		}
+	}
+}
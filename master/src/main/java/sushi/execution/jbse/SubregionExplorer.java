@@ -0,0 +1,324 @@
+package sushi.execution.jbse;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import sushi.exceptions.JBSEException;
+import sushi.execution.ResourceGovernor;
+import sushi.logging.Logger;
+import sushi.util.LogContext;
+
+/**
+ * Explores the state space of a method in parallel. It first explores
+ * the method up to a frontier (see {@link JBSEParameters#setFrontier(int, java.util.function.Consumer)}),
+ * and then explores the subregions rooted at the states on the frontier
+ * as tasks of a {@link ForkJoinPool} shared by all the methods, so the
+ * idle threads steal the subregions of the busy ones. The subregions
+ * are admitted by the {@link ResourceGovernor} as any other task, and
+ * the task of the method releases its resources while it waits for them. Each subregion
+ * numbers its traces in a separate range, and writes its own coverage,
+ * branches and traces files, that are merged in the files of the
+ * method at the end.
+ *
+ * @author Pietro Braione
+ */
+final class SubregionExplorer {
+	private static final Logger logger = new Logger(SubregionExplorer.class);
+
+	/** The pool of the threads exploring the subregions. */
+	private static ForkJoinPool pool = null;
+
+	private static synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(ResourceGovernor.get().cores());
+		}
+		return pool;
+	}
+
+	private final JBSEAbstract jbse;
+	private final int taskNumber;
+	private final int frontierDepth;
+	private final AtomicBoolean cancelled = new AtomicBoolean(false);
+	
+	/** Whether some region was not explored up to its end. */
+	private final AtomicBoolean incomplete = new AtomicBoolean(false);
+
+	/** The number of subregions being explored. */
+	private int running = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param jbse the {@link JBSEAbstract} tool of the task.
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @param frontierDepth a positive {@code int}, the depth in
+	 *        branches of the frontier.
+	 */
+	SubregionExplorer(JBSEAbstract jbse, int taskNumber, int frontierDepth) {
+		this.jbse = jbse;
+		this.taskNumber = taskNumber;
+		this.frontierDepth = frontierDepth;
+	}
+
+	private static Path regionFilePath(Path methodFilePath, int region) {
+		return methodFilePath.resolveSibling(methodFilePath.getFileName().toString() + "." + region);
+	}
+
+	/**
+	 * Returns the parameters of the exploration of a region.
+	 *
+	 * @param region an {@code int}, the number of the region;
+	 *        {@code 0} is the region above the frontier.
+	 * @param traceCounterStart a {@code long}, the first trace
+	 *        number of the region.
+	 * @param traceCounterLimit a {@code long}, the first trace
+	 *        number of the next region.
+	 * @return a {@link JBSEParameters}.
+	 */
+	private JBSEParameters regionParameters(int region, long traceCounterStart, long traceCounterLimit) {
+		final JBSEParameters p = this.jbse.getInvocationParameters(this.taskNumber);
+		final Path coverageFilePath = p.getCoverageFilePath();
+		final Path branchesFilePath = p.getBranchesFilePath();
+		final Path tracesFilePath = p.getTracesFilePath();
+		p.setCoverageFilePathBuilder(t -> regionFilePath(coverageFilePath, region));
+		p.setBranchesFilePathBuilder(t -> regionFilePath(branchesFilePath, region));
+		p.setTracesFilePathBuilder(t -> regionFilePath(tracesFilePath, region));
+		p.setTraceCounterStart(traceCounterStart);
+		p.setTraceCounterLimit(traceCounterLimit);
+		final BooleanSupplier cancellation = p.getCancellation();
+		p.setCancellation(() -> this.cancelled.get() || cancellation.getAsBoolean());
+		return p;
+	}
+
+	/**
+	 * Explores the method.
+	 *
+	 * @return an {@code int}, the worst exit status of the
+	 *         explorations of the regions (see {@link RunJBSE_Sushi#run()}).
+	 * @throws InterruptedException if the exploration is cancelled.
+	 */
+	int explore() throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + this.jbse.timeout(this.taskNumber);
+
+		//explores up to the frontier
+		final List<String> frontier = Collections.synchronizedList(new ArrayList<>());
+		final JBSEParameters p0 = regionParameters(0, 0, Integer.MAX_VALUE);
+		p0.setFrontier(this.frontierDepth, frontier::add);
+		final RunJBSE_Sushi run0 = new RunJBSE_Sushi(p0);
+		int retVal = run0.run();
+		if (!run0.isComplete()) {
+			this.incomplete.set(true);
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedException();
+		}
+
+		//explores the subregions in parallel, each admitted by the
+		//governor as the task; the trace numbers after those of the
+		//region above the frontier are partitioned in equal ranges, 
+		//one for each subregion, and a subregion stops when it runs
+		//out of its range
+		final int regions = frontier.size() + 1;
+		final long first = run0.getTraceCounter();
+		final long stride = (Integer.MAX_VALUE - first) / Math.max(1, regions - 1);
+		logger.debug("Task " + this.taskNumber + " split into " + frontier.size() + " subregions");
+		final ResourceGovernor governor = ResourceGovernor.get();
+		final ArrayList<ForkJoinTask<Integer>> subregionTasks = new ArrayList<>();
+		for (int region = 1; region < regions; ++region) {
+			final long traceCounterStart = first + (region - 1) * stride;
+			final JBSEParameters p = regionParameters(region, traceCounterStart, traceCounterStart + stride);
+			p.setIdentifierSubregion(frontier.get(region - 1));
+			final Callable<Integer> admitted = governor.admitSubtask(this.jbse, this.taskNumber, () -> {
+				if (!enter()) {
+					this.incomplete.set(true);
+					return 0;
+				}
+				try {
+					final long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						this.incomplete.set(true);
+						return 0;
+					}
+					p.setTimeout(remaining, TimeUnit.MILLISECONDS);
+					final RunJBSE_Sushi run = new RunJBSE_Sushi(p);
+					final int exitStatus = run.run();
+					if (!run.isComplete()) {
+						this.incomplete.set(true);
+					}
+					return exitStatus;
+				} finally {
+					exit();
+				}
+			});
+			subregionTasks.add(ForkJoinTask.adapt(LogContext.wrap(() -> {
+				if (this.cancelled.get()) {
+					this.incomplete.set(true);
+					return 0;
+				}
+				return admitted.call();
+			})));
+		}
+		
+		//while waiting the subregions the task releases its resources,
+		//lest the subregions wait for them, and takes them back to merge
+		//their files (if the task fails it does not need them any longer)
+		final ResourceGovernor.Slot slot = governor.suspend();
+		final Future<?> all = pool().submit(() -> ForkJoinTask.invokeAll(subregionTasks));
+		try {
+			all.get();
+		} catch (InterruptedException e) {
+			cancelAndAwait();
+			throw e;
+		} catch (ExecutionException e) {
+			cancelAndAwait();
+			logger.error("Unexpected error while exploring the subregions of task " + this.taskNumber, e.getCause());
+			throw new JBSEException(e.getCause());
+		}
+		governor.resume(slot);
+		for (ForkJoinTask<Integer> t : subregionTasks) {
+			retVal = Math.max(retVal, t.join());
+		}
+
+		if (p0.getMustLogCoverageData()) {
+			merge(regions);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns whether the last exploration explored the whole 
+	 * state tree of the method (see {@link RunJBSE_Sushi#isComplete()}).
+	 * 
+	 * @return a {@code boolean}.
+	 */
+	boolean isComplete() {
+		return !this.incomplete.get();
+	}
+	
+	/**
+	 * Registers the start of the exploration of a subregion.
+	 *
+	 * @return {@code false} iff the task was cancelled, and
+	 *         the subregion must not be explored.
+	 */
+	private synchronized boolean enter() {
+		if (this.cancelled.get()) {
+			return false;
+		}
+		++this.running;
+		return true;
+	}
+
+	/**
+	 * Registers the end of the exploration of a subregion.
+	 */
+	private synchronized void exit() {
+		--this.running;
+		notifyAll();
+	}
+
+	/**
+	 * Cancels the exploration of the subregions, and waits until
+	 * the running ones stop, so they do not write their files
+	 * after the task ended.
+	 */
+	private synchronized void cancelAndAwait() {
+		this.cancelled.set(true);
+		boolean interrupted = false;
+		while (this.running > 0) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Merges the coverage, branches and traces files of the regions
+	 * in the files of the method, and deletes them. Since each region
+	 * numbers its branches independently, the branch numbers in the
+	 * coverage files of the regions are translated.
+	 *
+	 * @param regions an {@code int}, the number of regions.
+	 */
+	private void merge(int regions) {
+		final JBSEParameters p = this.jbse.getInvocationParameters(this.taskNumber);
+		final HashMap<String, Integer> branchNumbers = new HashMap<>();
+		final ArrayList<String> branches = new ArrayList<>();
+		try (final BufferedWriter wCoverage = Files.newBufferedWriter(p.getCoverageFilePath());
+			 final BufferedWriter wTraces = Files.newBufferedWriter(p.getTracesFilePath())) {
+			for (int region = 0; region < regions; ++region) {
+				final Path branchesFilePath = regionFilePath(p.getBranchesFilePath(), region);
+				final Path coverageFilePath = regionFilePath(p.getCoverageFilePath(), region);
+				final Path tracesFilePath = regionFilePath(p.getTracesFilePath(), region);
+				if (!Files.exists(branchesFilePath) || !Files.exists(coverageFilePath) || !Files.exists(tracesFilePath)) {
+					//the exploration of the region failed or was skipped
+					Files.deleteIfExists(branchesFilePath);
+					Files.deleteIfExists(coverageFilePath);
+					Files.deleteIfExists(tracesFilePath);
+					continue;
+				}
+
+				final ArrayList<Integer> regionToMethod = new ArrayList<>();
+				for (String branch : Files.readAllLines(branchesFilePath)) {
+					regionToMethod.add(branchNumbers.computeIfAbsent(branch, b -> { branches.add(b); return branches.size() - 1; }));
+				}
+				try (final BufferedReader r = Files.newBufferedReader(coverageFilePath)) {
+					String line;
+					while ((line = r.readLine()) != null) {
+						final String[] fields = line.split(",");
+						wCoverage.write(fields[0].trim());
+						wCoverage.write(", ");
+						wCoverage.write(fields[1].trim());
+						for (int i = 2; i < fields.length; ++i) {
+							wCoverage.write(", ");
+							wCoverage.write(regionToMethod.get(Integer.parseInt(fields[i].trim())).toString());
+						}
+						wCoverage.newLine();
+					}
+				}
+				try (final BufferedReader r = Files.newBufferedReader(tracesFilePath)) {
+					String line;
+					while ((line = r.readLine()) != null) {
+						wTraces.write(line);
+						wTraces.newLine();
+					}
+				}
+				Files.delete(branchesFilePath);
+				Files.delete(coverageFilePath);
+				Files.delete(tracesFilePath);
+			}
+		} catch (IOException | NumberFormatException | IndexOutOfBoundsException e) {
+			logger.error("Unable to merge the coverage files of the subregions of task " + this.taskNumber);
+			throw new JBSEException(e);
+		}
+		try (final BufferedWriter wBranches = Files.newBufferedWriter(p.getBranchesFilePath())) {
+			for (String branch : branches) {
+				wBranches.write(branch);
+				wBranches.write("\n");
+			}
+		} catch (IOException e) {
+			logger.error("Unable to write branches file " + p.getBranchesFilePath().toString());
+			throw new JBSEException(e);
+		}
+	}
+}
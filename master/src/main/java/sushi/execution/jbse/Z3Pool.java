@@ -0,0 +1,387 @@
+package sushi.execution.jbse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import jbse.bc.ClassFile;
+import jbse.common.exc.InvalidInputException;
+import jbse.common.exc.UnexpectedInternalException;
+import jbse.dec.DecisionProcedure;
+import jbse.dec.DecisionProcedureAlwSat;
+import jbse.dec.DecisionProcedureSMTLIB2_AUFNIRA;
+import jbse.dec.exc.DecisionException;
+import jbse.mem.Clause;
+import jbse.mem.Objekt;
+import jbse.rewr.CalculatorRewriting;
+import jbse.rewr.RewriterCalculatorRewriting;
+import jbse.val.Calculator;
+import jbse.val.Expression;
+import jbse.val.Primitive;
+import jbse.val.PrimitiveSymbolic;
+import jbse.val.ReferenceSymbolic;
+import jbse.val.Simplex;
+import sushi.Options;
+import sushi.execution.ResourceGovernor;
+import sushi.logging.Logger;
+
+/**
+ * A pool of long-lived Z3 processes shared by the symbolic executions
+ * run by {@link RunJBSE_Sushi}. Each process is owned by a
+ * {@link DecisionProcedureSMTLIB2_AUFNIRA}; A symbolic execution
+ * leases one, and when it closes the lease the pool resets the
+ * process (pops all the assumptions) and keeps it for the next
+ * lease, so that launching Z3 is paid once per process rather
+ * than once per symbolic execution.
+ *
+ * A process is discarded, and replaced at the next lease, when it
+ * fails to reset (e.g., because it crashed), when a query failed
+ * during the lease, or after {@link #MAX_LEASES} leases, so the
+ * memory of Z3 does not grow without bounds.
+ *
+ * @author Pietro Braione
+ */
+public final class Z3Pool {
+	private static final Logger logger = new Logger(Z3Pool.class);
+
+	/** How many times a process can be leased before it is replaced. */
+	private static final int MAX_LEASES = 200;
+
+	private static Z3Pool instance = new Z3Pool(0);
+
+	/**
+	 * Configures the pool used by the symbolic executions. Any
+	 * process kept by the previously configured pool is closed.
+	 *
+	 * @param options an {@link Options} object, from which the
+	 *        maximum number of idle processes is taken.
+	 */
+	public static void configure(Options options) {
+		final int size = options.getZ3PoolSize();
+		configure(size < 0 ? 2 * ResourceGovernor.get().cores() : size);
+	}
+
+	/**
+	 * Configures the pool used by the symbolic executions. Any
+	 * process kept by the previously configured pool is closed.
+	 *
+	 * @param capacity an {@code int}, the maximum number of idle
+	 *        processes the pool keeps; {@code 0} means that the
+	 *        processes are not reused.
+	 */
+	public static void configure(int capacity) {
+		final Z3Pool old;
+		synchronized (Z3Pool.class) {
+			old = instance;
+			instance = new Z3Pool(capacity);
+		}
+		old.close();
+		logger.debug("Z3 pool: keeping up to " + capacity + " idle processes");
+	}
+
+	/**
+	 * Returns the pool used by the symbolic executions.
+	 *
+	 * @return a {@link Z3Pool}.
+	 */
+	public static synchronized Z3Pool get() {
+		return instance;
+	}
+
+	/**
+	 * Processes can be shared only by symbolic executions with the
+	 * same solver command line and the same calculator rewriters,
+	 * since the calculator of a {@link DecisionProcedureSMTLIB2_AUFNIRA}
+	 * is fixed at its creation.
+	 */
+	private static final class Key {
+		private final List<String> commandLine;
+		private final List<Class<? extends RewriterCalculatorRewriting>> rewriters;
+
+		Key(List<String> commandLine, List<Class<? extends RewriterCalculatorRewriting>> rewriters) {
+			this.commandLine = new ArrayList<>(commandLine);
+			this.rewriters = new ArrayList<>(rewriters);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.commandLine, this.rewriters);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return this.commandLine.equals(other.commandLine) && this.rewriters.equals(other.rewriters);
+		}
+	}
+
+	private static final class Solver {
+		private final DecisionProcedure core;
+		private int leases = 0;
+
+		Solver(DecisionProcedure core) {
+			this.core = core;
+		}
+	}
+
+	private final int capacity;
+	private final HashMap<Key, ArrayDeque<Solver>> idle = new HashMap<>();
+	private int idleCount = 0;
+	private boolean closed = false;
+
+	private Z3Pool(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Leases a Z3 process.
+	 *
+	 * @param commandLine a {@link List}{@code <}{@link String}{@code >},
+	 *        the command line that launches Z3.
+	 * @param rewriters a {@link List} of the classes of the rewriters
+	 *        of {@code calc}, except the default ones.
+	 * @param calc the {@link CalculatorRewriting} of the symbolic execution.
+	 * @return a {@link DecisionProcedure} that decides through a
+	 *         (possibly already running) Z3 process. Closing it
+	 *         gives the process back to this pool.
+	 * @throws DecisionException if launching a new process fails.
+	 */
+	public DecisionProcedure lease(List<String> commandLine, List<Class<? extends RewriterCalculatorRewriting>> rewriters, CalculatorRewriting calc)
+	throws DecisionException {
+		final Key key = new Key(commandLine, rewriters);
+		Solver solver;
+		while ((solver = pollIdle(key)) != null) {
+			//health check: a crashed process fails to reset
+			try {
+				solver.core.clearAssumptions();
+				break;
+			} catch (DecisionException | RuntimeException e) {
+				logger.debug("Z3 pool: discarding a process that failed to reset: " + e);
+				discard(solver);
+			}
+		}
+		if (solver == null) {
+			try {
+				solver = new Solver(new DecisionProcedureSMTLIB2_AUFNIRA(new DecisionProcedureAlwSat(calc), commandLine));
+			} catch (InvalidInputException e) {
+				//this should never happen
+				throw new UnexpectedInternalException(e);
+			}
+		}
+		++solver.leases;
+		return new Lease(key, solver, calc);
+	}
+
+	private synchronized Solver pollIdle(Key key) {
+		final ArrayDeque<Solver> solvers = this.idle.get(key);
+		if (solvers == null || solvers.isEmpty()) {
+			return null;
+		}
+		--this.idleCount;
+		return solvers.poll();
+	}
+
+	private void giveBack(Key key, Solver solver) {
+		if (solver.leases >= MAX_LEASES) {
+			discard(solver);
+			return;
+		}
+		try {
+			solver.core.stopFastAndImprecise();
+			solver.core.clearAssumptions();
+		} catch (DecisionException | RuntimeException e) {
+			logger.debug("Z3 pool: discarding a process that failed to reset: " + e);
+			discard(solver);
+			return;
+		}
+		synchronized (this) {
+			if (!this.closed && this.idleCount < this.capacity) {
+				this.idle.computeIfAbsent(key, k -> new ArrayDeque<>()).push(solver);
+				++this.idleCount;
+				return;
+			}
+		}
+		discard(solver);
+	}
+
+	private static void discard(Solver solver) {
+		try {
+			solver.core.close();
+		} catch (DecisionException | RuntimeException e) {
+			//really this does not care
+		}
+	}
+
+	/**
+	 * Closes all the idle processes. The processes leased
+	 * at the moment are closed when their leases are.
+	 */
+	public void close() {
+		final ArrayList<Solver> toClose = new ArrayList<>();
+		synchronized (this) {
+			this.closed = true;
+			for (ArrayDeque<Solver> solvers : this.idle.values()) {
+				toClose.addAll(solvers);
+			}
+			this.idle.clear();
+			this.idleCount = 0;
+		}
+		for (Solver solver : toClose) {
+			discard(solver);
+		}
+	}
+
+	@FunctionalInterface
+	private interface Query<T> {
+		T ask() throws InvalidInputException, DecisionException;
+	}
+
+	/**
+	 * The {@link DecisionProcedure} leased to a symbolic execution. It
+	 * delegates to the pooled {@link DecisionProcedureSMTLIB2_AUFNIRA},
+	 * and remembers whether a query failed, since in this case the
+	 * dialogue with the process may be out of sync.
+	 */
+	private final class Lease implements DecisionProcedure {
+		private final Key key;
+		private final Solver solver;
+		private final CalculatorRewriting calc;
+		private boolean failed = false;
+		private boolean closed = false;
+
+		Lease(Key key, Solver solver, CalculatorRewriting calc) {
+			this.key = key;
+			this.solver = solver;
+			this.calc = calc;
+		}
+
+		private <T> T ask(Query<T> query) throws InvalidInputException, DecisionException {
+			if (this.closed) {
+				throw new DecisionException("The Z3 process lease was closed.");
+			}
+			try {
+				return query.ask();
+			} catch (InvalidInputException | DecisionException | RuntimeException e) {
+				this.failed = true;
+				throw e;
+			}
+		}
+
+		private void tell(Query<Void> command) throws DecisionException {
+			try {
+				ask(command);
+			} catch (InvalidInputException e) {
+				//this should never happen
+				throw new UnexpectedInternalException(e);
+			}
+		}
+
+		@Override
+		public Calculator getCalculator() {
+			return this.calc;
+		}
+
+		@Override
+		public void goFastAndImprecise() {
+			this.solver.core.goFastAndImprecise();
+		}
+
+		@Override
+		public void stopFastAndImprecise() {
+			this.solver.core.stopFastAndImprecise();
+		}
+
+		@Override
+		public void pushAssumption(Clause c) throws InvalidInputException, DecisionException {
+			ask(() -> { this.solver.core.pushAssumption(c); return null; });
+		}
+
+		@Override
+		public void clearAssumptions() throws DecisionException {
+			tell(() -> { this.solver.core.clearAssumptions(); return null; });
+		}
+
+		@Override
+		public List<Clause> getAssumptions() throws DecisionException {
+			try {
+				return ask(this.solver.core::getAssumptions);
+			} catch (InvalidInputException e) {
+				//this should never happen
+				throw new UnexpectedInternalException(e);
+			}
+		}
+
+		@Override
+		public boolean isSat(Expression expression) throws InvalidInputException, DecisionException {
+			return ask(() -> this.solver.core.isSat(expression));
+		}
+
+		@Override
+		public boolean isSatNull(ReferenceSymbolic r) throws InvalidInputException, DecisionException {
+			return ask(() -> this.solver.core.isSatNull(r));
+		}
+
+		@Override
+		public boolean isSatAliases(ReferenceSymbolic r, long heapPos, Objekt o) throws InvalidInputException, DecisionException {
+			return ask(() -> this.solver.core.isSatAliases(r, heapPos, o));
+		}
+
+		@Override
+		public boolean isSatExpands(ReferenceSymbolic r, ClassFile classFile) throws InvalidInputException, DecisionException {
+			return ask(() -> this.solver.core.isSatExpands(r, classFile));
+		}
+
+		@Override
+		public boolean isSatInitialized(ClassFile classFile) throws InvalidInputException, DecisionException {
+			return ask(() -> this.solver.core.isSatInitialized(classFile));
+		}
+
+		@Override
+		public boolean isSatNotInitialized(ClassFile classFile) throws InvalidInputException, DecisionException {
+			return ask(() -> this.solver.core.isSatNotInitialized(classFile));
+		}
+
+		@Override
+		public Map<PrimitiveSymbolic, Simplex> getModel() throws DecisionException {
+			try {
+				return ask(this.solver.core::getModel);
+			} catch (InvalidInputException e) {
+				//this should never happen
+				throw new UnexpectedInternalException(e);
+			}
+		}
+
+		@Override
+		public Primitive simplify(Primitive p) throws DecisionException {
+			try {
+				return ask(() -> this.solver.core.simplify(p));
+			} catch (InvalidInputException e) {
+				//this should never happen
+				throw new UnexpectedInternalException(e);
+			}
+		}
+
+		@Override
+		public void close() {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			if (this.failed) {
+				logger.debug("Z3 pool: discarding a process after a failed query");
+				discard(this.solver);
+			} else {
+				giveBack(this.key, this.solver);
+			}
+		}
+	}
+}
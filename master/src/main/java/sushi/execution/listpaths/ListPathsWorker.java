@@ -1,6 +1,5 @@
 package sushi.execution.listpaths;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -9,6 +8,7 @@ import sushi.exceptions.ListPathsException;
 import sushi.execution.ExecutionResult;
 import sushi.execution.Worker;
 import sushi.logging.Logger;
+import sushi.util.CoverageStore;
 
 public class ListPathsWorker extends Worker {
 	private static final Logger logger = new Logger(ListPathsWorker.class);
@@ -23,23 +23,14 @@ public class ListPathsWorker extends Worker {
 	public ExecutionResult call() throws ListPathsException {
 		final ListPathsParameters p = this.listPaths.getInvocationParameters(this.taskNumber);
 
-		int traceGlobal = 0;
-		try (final BufferedReader r = Files.newBufferedReader(p.getCoverageFilePath());
-			 final BufferedWriter w = Files.newBufferedWriter(p.getOutputFilePath())) {
-			String line;
-			while ((line = r.readLine()) != null) {
-				final String[] fields = line.split(",");
-				final int method = Integer.parseInt(fields[0].trim());
-				final int traceLocal = Integer.parseInt(fields[1].trim());
-				w.write(traceGlobal + ", " + method + ", " + traceLocal + "\n");
-				++traceGlobal;
+		try (final BufferedWriter w = Files.newBufferedWriter(p.getOutputFilePath())) {
+			final CoverageStore coverage = CoverageStore.open(p.getCoverageFilePath());
+			for (int traceGlobal = 0; traceGlobal < coverage.traces(); ++traceGlobal) {
+				w.write(traceGlobal + ", " + coverage.method(traceGlobal) + ", " + coverage.localTrace(traceGlobal) + "\n");
 			}
 		} catch (IOException e) {
 			logger.error("I/O error while reading file " + p.getCoverageFilePath().toString() + " or writing file " + p.getOutputFilePath().toString());
 			throw new ListPathsException(e);
-		} catch (NumberFormatException e) {
-			logger.error("File " + p.getCoverageFilePath().toString() + " has wrong format, expected number is missing");
-			throw new ListPathsException(e);
 		}
 		
 		final ExecutionResult result = new ExecutionResult();
@@ -5,7 +5,6 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.TreeSet;
 
 import sushi.exceptions.LoopMgrException;
@@ -13,6 +12,7 @@ import sushi.exceptions.TerminationException;
 import sushi.execution.ExecutionResult;
 import sushi.execution.Worker;
 import sushi.logging.Logger;
+import sushi.util.CoverageStore;
 
 public class LoopMgrWorker extends Worker {
 	private static final Logger logger = new Logger(LoopMgrWorker.class);
@@ -28,10 +28,12 @@ public class LoopMgrWorker extends Worker {
 		final LoopMgrParameters p = this.loopMgr.getInvocationParameters(this.taskNumber);
 		
 		//nBranches is the total number of branches, nTraces is the total number of traces
+		final CoverageStore coverage;
 		final int nBranches, nTraces;
 		try {
 			nBranches = (int) Files.lines(p.getBranchesFilePath()).count();
-			nTraces = (int) Files.lines(p.getCoverageFilePath()).count();
+			coverage = CoverageStore.open(p.getCoverageFilePath());
+			nTraces = coverage.traces();
 		} catch (IOException e) {
 			logger.error("I/O error while reading " + p.getBranchesFilePath().toString() + " or " + p.getCoverageFilePath().toString());
 			throw new LoopMgrException(e);
@@ -70,28 +72,18 @@ public class LoopMgrWorker extends Worker {
 		
 		//detects the traces that cover only branches to ignore and adds them 
 		//to the traces to ignore
-		final ArrayList<TreeSet<Integer>> coverage = new ArrayList<>();
-		try (final BufferedReader r = Files.newBufferedReader(p.getCoverageFilePath())) {
-			String line;
-			int traceNumber = 0;
-			while ((line = r.readLine()) != null) {
-				final String[] fields = line.split(",");
-				final TreeSet<Integer> traceCoverage = new TreeSet<>();
-				for (int i = 3; i < fields.length; ++i) {
-					final int branchNumber = Integer.parseInt(fields[i].trim());
-					traceCoverage.add(branchNumber);
-				}
-				coverage.add(traceCoverage);
-				final TreeSet<Integer> traceCoverageRelevant = new TreeSet<>(traceCoverage);
-				traceCoverageRelevant.removeAll(branchNumbersToIgnore);
-				if (traceCoverageRelevant.isEmpty()) {
-					traceNumbersToIgnore.add(traceNumber);
+		for (int traceNumber = 0; traceNumber < nTraces; ++traceNumber) {
+			boolean coversRelevant = false;
+			final int count = coverage.coveredCount(traceNumber);
+			for (int i = 0; i < count; ++i) {
+				if (!branchNumbersToIgnore.contains(coverage.covered(traceNumber, i))) {
+					coversRelevant = true;
+					break;
 				}
-				++traceNumber;
 			}
-		} catch (IOException e) {
-			logger.error("I/O error while reading " + p.getCoverageFilePath().toString());
-			throw new LoopMgrException(e);
+			if (!coversRelevant) {
+				traceNumbersToIgnore.add(traceNumber);
+			}
 		}
 		
 		//finished calculation of traceNumbersToIgnore:
@@ -105,8 +97,7 @@ public class LoopMgrWorker extends Worker {
 		for (int branchNumber : branchNumbersToCover) {
 			boolean mayBeCovered = false;
 			for (int traceNumber : traceNumbers) {
-				final TreeSet<Integer> traceCoverage = coverage.get(traceNumber);
-				if (traceCoverage.contains(branchNumber)) {
+				if (coverage.covers(traceNumber, branchNumber)) {
 					mayBeCovered = true;
 					break;
 				}
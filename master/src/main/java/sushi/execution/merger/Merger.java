@@ -17,7 +17,9 @@ public final class Merger extends Tool<MergerParameters> {
 		p.setMethodsFilePath(DirectoryUtils.getMethodsFilePath(this.options));
 		p.setBranchesFilePathGlobal(DirectoryUtils.getBranchesFilePath(this.options));
 		p.setCoverageFilePathGlobal(DirectoryUtils.getCoverageFilePath(this.options));
+		p.setCoverageTextFilePathGlobal(this.options.getCoverageText() ? DirectoryUtils.getCoverageTextFilePath(this.options) : null);
 		p.setTracesFilePathGlobal(DirectoryUtils.getTracesFilePath(this.options));
+		p.setTracesIndexFilePathGlobal(DirectoryUtils.getTracesIndexFilePath(this.options));
 		p.setBranchesFilePathLocal((n) -> DirectoryUtils.getBranchesFilePath(this.options, n));
 		p.setCoverageFilePathLocal((n) -> DirectoryUtils.getCoverageFilePath(this.options, n));
 		p.setTracesFilePathLocal((n) -> DirectoryUtils.getTracesFilePath(this.options, n));
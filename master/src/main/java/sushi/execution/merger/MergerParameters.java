@@ -8,7 +8,9 @@ class MergerParameters {
 	private Path fMethods;
 	private Path fBranches;
 	private Path fCoverage;
+	private Path fCoverageText;
 	private Path fTraces;
+	private Path fTracesIndex;
 	private Function<Integer, Path> branchesFilePath;
 	private Function<Integer, Path> coverageFilePath;
 	private Function<Integer, Path> tracesFilePath;
@@ -41,6 +43,14 @@ class MergerParameters {
 		this.fCoverage = f;
 	}
 	
+	public Path getCoverageTextFilePathGlobal() {
+		return this.fCoverageText;
+	}
+	
+	public void setCoverageTextFilePathGlobal(Path f) {
+		this.fCoverageText = f;
+	}
+	
 	public Path getTracesFilePathGlobal() {
 		return this.fTraces;
 	}
@@ -49,6 +59,14 @@ class MergerParameters {
 		this.fTraces = f;
 	}
 	
+	public Path getTracesIndexFilePathGlobal() {
+		return this.fTracesIndex;
+	}
+
+	public void setTracesIndexFilePathGlobal(Path f) {
+		this.fTracesIndex = f;
+	}
+	
 	public Path getBranchesFilePathLocal(int i) {
 		return this.branchesFilePath.apply(i);
 	}
@@ -4,7 +4,6 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -13,8 +12,11 @@ import java.util.regex.Pattern;
 
 import sushi.exceptions.MergerException;
 import sushi.execution.ExecutionResult;
+import sushi.execution.Metrics;
 import sushi.execution.Worker;
 import sushi.logging.Logger;
+import sushi.util.CoverageStore;
+import sushi.util.TracesIndex;
 
 public class MergerWorker extends Worker {
 	private static final Logger logger = new Logger(MergerWorker.class);
@@ -37,19 +39,29 @@ public class MergerWorker extends Worker {
 			throw new MergerException(e);
 		}
 		
+		//the global coverage file is replaced only when complete
+		final CoverageStore.Writer wCoverage;
 		try {
-			Files.deleteIfExists(p.getCoverageFilePathGlobal());
-			Files.createFile(p.getCoverageFilePathGlobal());
-			Files.deleteIfExists(p.getTracesFilePathGlobal());
-			Files.createFile(p.getTracesFilePathGlobal());
+			wCoverage = new CoverageStore.Writer(p.getCoverageFilePathGlobal());
 		} catch (IOException e) {
-			logger.error("I/O error while deleting/creating " + p.getCoverageFilePathGlobal().toString());
+			logger.error("I/O error while creating " + p.getCoverageFilePathGlobal().toString());
 			throw new MergerException(e);
 		}
+		
+		//the global alltraces file is indexed by global trace number
+		final TracesIndex.Writer wTraces;
+		try {
+			wTraces = new TracesIndex.Writer(p.getTracesFilePathGlobal(), p.getTracesIndexFilePathGlobal());
+		} catch (IOException e) {
+			logger.error("I/O error while creating " + p.getTracesFilePathGlobal().toString());
+			wCoverage.discard();
+			throw new MergerException(e);
+		}
+		final StringBuilder row = new StringBuilder();
+		int[] covered = new int[64];
 
 		final ArrayList<String> branches = new ArrayList<>();
 		final TreeMap<String, Integer> branchNumbers = new TreeMap<>();
-		int nTraces = 0;
 		final TreeSet<Integer> mayBeCoveredBranches = new TreeSet<>();
 		for (int method = 0; method < methods; ++method) {
 			final ArrayList<Integer> localToGlobal = new ArrayList<>();
@@ -71,56 +83,86 @@ public class MergerWorker extends Worker {
 				}
 			} catch (IOException e) {
 				logger.error("I/O error while reading " + p.getBranchesFilePathLocal(method).toString());
+				wCoverage.discard();
+				wTraces.discard();
 				throw new MergerException(e);
 			}
 			
 			//translates the local coverage file for the method and updates
 			//the global coverage file
-			try (final BufferedReader r = Files.newBufferedReader(p.getCoverageFilePathLocal(method));
-				 final BufferedWriter w = Files.newBufferedWriter(p.getCoverageFilePathGlobal(), StandardOpenOption.APPEND)) {
+			try (final BufferedReader r = Files.newBufferedReader(p.getCoverageFilePathLocal(method))) {
 				String line;
 				while ((line = r.readLine()) != null) {
-					w.write(Integer.toString(method));
-					w.write(", ");
 					final String[] fieldsRead = line.split(",");
-					w.write(fieldsRead[0].trim());
-					w.write(", ");
-					w.write(fieldsRead[1].trim());
+					final int traceNumberLocal = Integer.parseInt(fieldsRead[0].trim());
+					final int hardness = Integer.parseInt(fieldsRead[1].trim());
+					if (fieldsRead.length - 2 > covered.length) {
+						covered = new int[fieldsRead.length];
+					}
 					for (int i = 2; i < fieldsRead.length; ++i) {
-						w.write(", ");
 						final int branchNumberLocal = Integer.parseInt(fieldsRead[i].trim());
-						final Integer branchNumberGlobal = localToGlobal.get(branchNumberLocal); 
-						w.write(branchNumberGlobal.toString());
+						final int branchNumberGlobal = localToGlobal.get(branchNumberLocal); 
+						covered[i - 2] = branchNumberGlobal;
 						mayBeCoveredBranches.add(branchNumberGlobal);
 					}
-					w.newLine();
-					++nTraces;
+					wCoverage.addTrace(method, traceNumberLocal, hardness, covered, fieldsRead.length - 2);
 				}
 			} catch (IOException e) {
 				logger.error("I/O error while reading " + p.getCoverageFilePathLocal(method).toString() + " or writing " + p.getCoverageFilePathGlobal().toString());
+				wCoverage.discard();
+				wTraces.discard();
 				throw new MergerException(e);
 			}
 
 			//translates the local alltraces file for the method and updates
 			//the global alltraces file
-			try (final BufferedReader r = Files.newBufferedReader(p.getTracesFilePathLocal(method));
-				 final BufferedWriter w = Files.newBufferedWriter(p.getTracesFilePathGlobal(), StandardOpenOption.APPEND)) {
+			try (final BufferedReader r = Files.newBufferedReader(p.getTracesFilePathLocal(method))) {
 				String line;
 				while ((line = r.readLine()) != null) {
-					w.write(Integer.toString(method));
-					w.write(", ");
+					row.setLength(0);
+					row.append(method);
+					row.append(", ");
 					final String[] fieldsRead = line.split(",");
-					w.write(fieldsRead[0].trim());
-					w.write(", ");
-					w.write(fieldsRead[1].trim());
-					w.newLine();
+					row.append(fieldsRead[0].trim());
+					row.append(", ");
+					row.append(fieldsRead[1].trim());
+					if (fieldsRead.length > 2) {
+						//the number of traces represented by a deduplicated trace
+						row.append(", ");
+						row.append(fieldsRead[2].trim());
+					}
+					wTraces.addRow(row.toString());
 				}
 			} catch (IOException e) {
 				logger.error("I/O error while reading " + p.getTracesFilePathLocal(method).toString() + " or writing " + p.getTracesFilePathGlobal().toString());
+				wCoverage.discard();
+				wTraces.discard();
 				throw new MergerException(e);
 			}
 		}
 		
+		//emits the index of the global alltraces file
+		try {
+			wTraces.close();
+		} catch (IOException e) {
+			logger.error("I/O error while writing " + p.getTracesFilePathGlobal().toString() + " or " + p.getTracesIndexFilePathGlobal().toString());
+			wCoverage.discard();
+			throw new MergerException(e);
+		}
+		
+		//emits the global coverage file, and possibly its text export
+		final int nTraces = wCoverage.traces();
+		wCoverage.setBranches(branches.size());
+		try {
+			wCoverage.close();
+			if (p.getCoverageTextFilePathGlobal() != null) {
+				CoverageStore.open(p.getCoverageFilePathGlobal()).exportText(p.getCoverageTextFilePathGlobal());
+			}
+		} catch (IOException e) {
+			logger.error("I/O error while writing " + p.getCoverageFilePathGlobal().toString());
+			throw new MergerException(e);
+		}
+		
 		//emits the global branches file
 		try (final BufferedWriter w = Files.newBufferedWriter(p.getBranchesFilePathGlobal())) {
 			for (String branch : branches) {
@@ -184,6 +226,8 @@ public class MergerWorker extends Worker {
 		
 		//some logging
 		logger.info("Found " + nBranchesToCover + " branches to cover along " + nTraces + " paths.");
+		Metrics.get(this.merger).count(this.merger, Metrics.TRACES_PRODUCED, nTraces);
+		Metrics.get(this.merger).count(this.merger, Metrics.BRANCHES_TO_COVER, nBranchesToCover);
 		final ExecutionResult result = new ExecutionResult();
 		result.setExitStatus(0);
 
@@ -21,7 +21,7 @@ public class Minimizer extends Tool<MinimizerParameters> {
 		p.setBranchesToIgnoreFilePath(DirectoryUtils.getBranchesToIgnoreFilePath(this.options));
 		p.setTracesToIgnoreFilePath(DirectoryUtils.getTracesToIgnoreFilePath(this.options));
 		p.setNumberOfTasks(this.options.getParallelismEvosuite() / this.options.getRedundanceEvosuite());
-		p.setTimeout(this.options.getMinimizerBudget());
+		p.setTimeout(getGrantedBudget());
 		
 		return p;
 	}
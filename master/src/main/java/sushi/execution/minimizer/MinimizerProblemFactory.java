@@ -7,10 +7,14 @@ import java.util.List;
 import java.util.TreeSet;
 
 import sushi.exceptions.TerminationException;
+import sushi.util.CoverageStore;
 
 abstract class MinimizerProblemFactory<P extends MinimizerProblem> {
 	/** The parameters. */
 	protected final MinimizerParameters parameters;
+	
+	/** The coverage of the traces. */
+	protected final CoverageStore coverage;
 
 	/** The total number of branches. */
 	protected final int nBranches;
@@ -45,8 +49,9 @@ abstract class MinimizerProblemFactory<P extends MinimizerProblem> {
 	
 	MinimizerProblemFactory(MinimizerParameters parameters) throws IOException {
 		this.parameters = parameters;
+		this.coverage = CoverageStore.open(this.parameters.getCoverageFilePath());
 		this.nBranches = (int) Files.lines(this.parameters.getBranchesFilePath()).count();
-		this.nTraces = (int) Files.lines(this.parameters.getCoverageFilePath()).count();
+		this.nTraces = this.coverage.traces();
 		
 		//branch numbers are just all the numbers between 0 and nBranches - 1
 		this.branchNumbers = new TreeSet<>();
@@ -90,6 +95,10 @@ abstract class MinimizerProblemFactory<P extends MinimizerProblem> {
 	boolean isEmpty() {
 		return this.rows == 0 || this.cols == 0;
 	}
+	
+	CoverageStore coverage() {
+		return this.coverage;
+	}
 
 	private TreeSet<Integer> branchNumbersToIgnore() throws IOException {
 		final TreeSet<Integer> retVal = new TreeSet<>();
@@ -102,16 +111,12 @@ abstract class MinimizerProblemFactory<P extends MinimizerProblem> {
 		return retVal;
 	}
 	
-	private TreeSet<Integer> branchesThatMayNotBeCovered() throws IOException {
+	private TreeSet<Integer> branchesThatMayNotBeCovered() {
 		final TreeSet<Integer> retVal = new TreeSet<>(this.branchNumbers);
-		try (final BufferedReader r = Files.newBufferedReader(this.parameters.getCoverageFilePath())) {
-			String line;
-			while ((line = r.readLine()) != null) {
-				final String[] fields = line.split(",");
-				for (int i = 3; i < fields.length; ++i) {
-					final int branchNumber = Integer.parseInt(fields[i].trim());
-					retVal.remove(branchNumber);
-				}
+		for (int traceNumber = 0; traceNumber < this.nTraces; ++traceNumber) {
+			final int count = this.coverage.coveredCount(traceNumber);
+			for (int i = 0; i < count; ++i) {
+				retVal.remove(this.coverage.covered(traceNumber, i));
 			}
 		}
 		return retVal;
@@ -128,22 +133,15 @@ abstract class MinimizerProblemFactory<P extends MinimizerProblem> {
 		return retVal;
 	}
 	
-	private TreeSet<Integer> notCoveredBranches() throws IOException, NumberFormatException {
+	private TreeSet<Integer> notCoveredBranches() {
 		final TreeSet<Integer> mayBeCovered = new TreeSet<>();
-		try (final BufferedReader r = Files.newBufferedReader(this.parameters.getCoverageFilePath())) {
-			String line;
-			int traceNumber = 0;
-			while ((line = r.readLine()) != null) {
-				if (this.traceNumbersToIgnore.contains(traceNumber)) {
-					++traceNumber;
-					continue;
-				}
-				final String[] fields = line.split(",");
-				for (int i = 3; i < fields.length; ++i) {
-					final int branchNumber = Integer.parseInt(fields[i].trim());
-					mayBeCovered.add(branchNumber);
-				}
-				++traceNumber;
+		for (int traceNumber = 0; traceNumber < this.nTraces; ++traceNumber) {
+			if (this.traceNumbersToIgnore.contains(traceNumber)) {
+				continue;
+			}
+			final int count = this.coverage.coveredCount(traceNumber);
+			for (int i = 0; i < count; ++i) {
+				mayBeCovered.add(this.coverage.covered(traceNumber, i));
 			}
 		}
 		final TreeSet<Integer> retVal = new TreeSet<Integer>(this.branchNumbers);
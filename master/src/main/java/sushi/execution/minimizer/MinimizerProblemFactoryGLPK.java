@@ -1,8 +1,6 @@
 package sushi.execution.minimizer;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.TreeSet;
@@ -114,42 +112,35 @@ final class MinimizerProblemFactoryGLPK extends MinimizerProblemFactory<Minimize
 		}
 	}
 
-	private int fillArrays(SWIGTYPE_p_int ia, SWIGTYPE_p_int ja, SWIGTYPE_p_double ar, ArrayList<Integer> costs) throws IOException {
+	private int fillArrays(SWIGTYPE_p_int ia, SWIGTYPE_p_int ja, SWIGTYPE_p_double ar, ArrayList<Integer> costs) {
 		int pos = 1; //current position in ia, ja and ar; starts from position 1 as required by GLPK interface
-		try (final BufferedReader r = Files.newBufferedReader(this.parameters.getCoverageFilePath())) {
-			String line;
-			int traceNumber = 0;
-			while ((line = r.readLine()) != null) {
-				if (this.traceNumbersToIgnore.contains(traceNumber)) {
-					++traceNumber;
+		for (int traceNumber = 0; traceNumber < this.nTraces; ++traceNumber) {
+			if (this.traceNumbersToIgnore.contains(traceNumber)) {
+				continue;
+			}
+			//the method to test and the local trace number do not care here
+			final int cost = this.coverage.hardness(traceNumber);
+			costs.add(cost);
+			final TreeSet<Integer> uncoveredByTraceBranchNumbers = new TreeSet<>(this.relevantBranchNumbers); //the branch numbers not covered by this trace
+			final int count = this.coverage.coveredCount(traceNumber);
+			for (int i = 0; i < count; ++i) {
+				final int branchNumber = this.coverage.covered(traceNumber, i);
+				if (this.branchNumbersToIgnore.contains(branchNumber)) {
 					continue;
 				}
-				final String[] fields = line.split(",");
-				//field 0 is the method to test and field 1 is the local trace number, 
-				//do not care here
-				final int cost = Integer.parseInt(fields[2].trim());
-				costs.add(cost);
-				final TreeSet<Integer> uncoveredByTraceBranchNumbers = new TreeSet<>(this.relevantBranchNumbers); //the branch numbers not covered by this trace
-				for (int i = 3; i < fields.length; ++i) {
-					final int branchNumber = Integer.parseInt(fields[i].trim());
-					if (this.branchNumbersToIgnore.contains(branchNumber)) {
-						continue;
-					}
-					uncoveredByTraceBranchNumbers.remove(branchNumber);
-					//sets a_i_j to 1
-					GLPK.intArray_setitem(ia, pos, this.branches2Rows.get(branchNumber));
-					GLPK.intArray_setitem(ja, pos, this.traces2Cols.get(traceNumber));
-					GLPK.doubleArray_setitem(ar, pos, 1.0);
-					++pos;
-				}
-				for (int branchNumber : uncoveredByTraceBranchNumbers) {
-					//sets a_i_j to 0
-					GLPK.intArray_setitem(ia, pos, this.branches2Rows.get(branchNumber));
-					GLPK.intArray_setitem(ja, pos, this.traces2Cols.get(traceNumber));
-					GLPK.doubleArray_setitem(ar, pos, 0.0);
-					++pos;
-				}
-				++traceNumber;
+				uncoveredByTraceBranchNumbers.remove(branchNumber);
+				//sets a_i_j to 1
+				GLPK.intArray_setitem(ia, pos, this.branches2Rows.get(branchNumber));
+				GLPK.intArray_setitem(ja, pos, this.traces2Cols.get(traceNumber));
+				GLPK.doubleArray_setitem(ar, pos, 1.0);
+				++pos;
+			}
+			for (int branchNumber : uncoveredByTraceBranchNumbers) {
+				//sets a_i_j to 0
+				GLPK.intArray_setitem(ia, pos, this.branches2Rows.get(branchNumber));
+				GLPK.intArray_setitem(ja, pos, this.traces2Cols.get(traceNumber));
+				GLPK.doubleArray_setitem(ar, pos, 0.0);
+				++pos;
 			}
 		}
 		
@@ -3,9 +3,7 @@ package sushi.execution.minimizer;
 import static org.ojalgo.function.constant.BigMath.ONE;
 import static org.ojalgo.function.constant.BigMath.ZERO;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.TreeSet;
@@ -92,7 +90,7 @@ final class MinimizerProblemFactoryOjAlgo extends MinimizerProblemFactory<Minimi
 		}
 	}
 
-	private ExpressionsBasedModel createModel() throws IOException {
+	private ExpressionsBasedModel createModel() {
 		//creates the model
 		final ExpressionsBasedModel retVal = new ExpressionsBasedModel();
 		
@@ -108,42 +106,35 @@ final class MinimizerProblemFactoryOjAlgo extends MinimizerProblemFactory<Minimi
 			expressions[branchNumber] = retVal.addExpression("branch" + (branchNumber + 1)).lower(ONE);
 		}
 		
-		//reads the information from the file and builds the model
-		try (final BufferedReader r = Files.newBufferedReader(this.parameters.getCoverageFilePath())) {
-			String line;
-			int traceNumber = 0;
-			while ((line = r.readLine()) != null) {
-				if (this.traceNumbersToIgnore.contains(traceNumber)) {
-					++traceNumber;
+		//reads the information from the coverage and builds the model
+		for (int traceNumber = 0; traceNumber < this.nTraces; ++traceNumber) {
+			if (this.traceNumbersToIgnore.contains(traceNumber)) {
+				continue;
+			}
+			
+			final int col = this.traces2Cols.get(traceNumber);
+			
+			//the method to test and the local trace number do not care here
+			
+			//sets the cost
+			final int cost = this.coverage.hardness(traceNumber);
+			variables[col].weight(cost);
+			
+			//sets the constraint
+			final TreeSet<Integer> uncoveredByTraceBranchNumbers = new TreeSet<>(this.relevantBranchNumbers); //the branch numbers not covered by this trace
+			final int count = this.coverage.coveredCount(traceNumber);
+			for (int i = 0; i < count; ++i) {
+				final int branchNumber = this.coverage.covered(traceNumber, i);
+				if (this.branchNumbersToIgnore.contains(branchNumber)) {
 					continue;
 				}
-				
-				final int col = this.traces2Cols.get(traceNumber);
-				
-				final String[] fields = line.split(",");
-				//field 0 is the method to test and field 1 is the local trace number, 
-				//do not care here
-				
-				//sets the cost
-				final int cost = Integer.parseInt(fields[2].trim());
-				variables[col].weight(cost);
-				
-				//sets the constraint
-				final TreeSet<Integer> uncoveredByTraceBranchNumbers = new TreeSet<>(this.relevantBranchNumbers); //the branch numbers not covered by this trace
-				for (int i = 3; i < fields.length; ++i) {
-					final int branchNumber = Integer.parseInt(fields[i].trim());
-					if (this.branchNumbersToIgnore.contains(branchNumber)) {
-						continue;
-					}
-					uncoveredByTraceBranchNumbers.remove(branchNumber);
-					//sets a_i_j to 1
-					expressions[this.branches2Rows.get(branchNumber)].set(col, ONE);
-				}
-				for (int branchNumber : uncoveredByTraceBranchNumbers) {
-					//sets a_i_j to 0
-					expressions[this.branches2Rows.get(branchNumber)].set(col, ZERO);
-				}
-				++traceNumber;
+				uncoveredByTraceBranchNumbers.remove(branchNumber);
+				//sets a_i_j to 1
+				expressions[this.branches2Rows.get(branchNumber)].set(col, ONE);
+			}
+			for (int branchNumber : uncoveredByTraceBranchNumbers) {
+				//sets a_i_j to 0
+				expressions[this.branches2Rows.get(branchNumber)].set(col, ZERO);
 			}
 		}
 		
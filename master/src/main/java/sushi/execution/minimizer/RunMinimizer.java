@@ -1,6 +1,5 @@
 package sushi.execution.minimizer;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -10,6 +9,7 @@ import java.util.ArrayList;
 
 import sushi.exceptions.MinimizerException;
 import sushi.exceptions.TerminationException;
+import sushi.util.CoverageStore;
 
 public class RunMinimizer {
 	private final MinimizerParameters parameters;
@@ -54,7 +54,7 @@ public class RunMinimizer {
 					throw new TerminationException("Minimizer was unable to find a set of traces that covers the uncovered branches");
 				}
 				final ArrayList<Integer> solution = p.getSolution();
-				emitSolution(solution, !firstIteration);
+				emitSolution(factory.coverage(), solution, !firstIteration);
 				factory.ignore(solution);
 				emittedRows += solution.size();
 			} catch (IOException | NumberFormatException e) {
@@ -71,27 +71,15 @@ public class RunMinimizer {
 		return 0;
 	}
 
-	private void emitSolution(ArrayList<Integer> solution, boolean append) throws IOException {
+	private void emitSolution(CoverageStore coverage, ArrayList<Integer> solution, boolean append) throws IOException {
 		final OpenOption[] options = (append ? new OpenOption[]{ StandardOpenOption.APPEND } : new OpenOption[]{ StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE });
 		try (final BufferedWriter wOutput = Files.newBufferedWriter(this.parameters.getOutputFilePath(), options)) {
 			for (int traceNumberGlobal : solution) {
-				int methodNumber = -1, traceNumberLocal = -1;
-				try (final BufferedReader r = Files.newBufferedReader(this.parameters.getCoverageFilePath())) {
-					int current = 0;
-					String line;
-					while ((line = r.readLine()) != null) {
-						if (current == traceNumberGlobal) {
-							final String[] fields = line.split(",");
-							methodNumber = Integer.parseInt(fields[0].trim());
-							traceNumberLocal = Integer.parseInt(fields[1].trim());
-						}
-						++current;
-					}
-				}
-
-				if (methodNumber == -1 || traceNumberLocal == -1) {
+				if (traceNumberGlobal < 0 || traceNumberGlobal >= coverage.traces()) {
 					throw new MinimizerException("Method not found");
 				}
+				final int methodNumber = coverage.method(traceNumberGlobal);
+				final int traceNumberLocal = coverage.localTrace(traceNumberGlobal);
 
 				wOutput.write(Integer.toString(traceNumberGlobal));
 				wOutput.write(", ");
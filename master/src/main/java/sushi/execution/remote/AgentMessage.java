@@ -0,0 +1,83 @@
+package sushi.execution.remote;
+
+import java.io.Serializable;
+
+import sushi.execution.ExecutionResult;
+
+/**
+ * A message exchanged between the master and an agent. The master
+ * sends {@link Kind#RUN} and {@link Kind#CANCEL} messages, the agent
+ * answers to a {@link Kind#RUN} message with any number of 
+ * {@link Kind#EVENT} messages followed by exactly one {@link Kind#RESULT} 
+ * or {@link Kind#FAILURE} message.
+ * 
+ * @author Pietro Braione
+ */
+public final class AgentMessage implements Serializable {
+	private static final long serialVersionUID = -1629304658017764219L;
+
+	public enum Kind { 
+		/** Master to agent: run a task. */
+		RUN, 
+		
+		/** Master to agent: cancel the running task. */
+		CANCEL, 
+		
+		/** Agent to master: the running task produced an event. */
+		EVENT, 
+		
+		/** Agent to master: the running task completed. */
+		RESULT, 
+		
+		/** Agent to master: the running task failed or was cancelled. */
+		FAILURE 
+	}
+	
+	private final Kind kind;
+	private final Serializable payload;
+	
+	private AgentMessage(Kind kind, Serializable payload) {
+		this.kind = kind;
+		this.payload = payload;
+	}
+	
+	public static AgentMessage run(RemoteTask task) {
+		return new AgentMessage(Kind.RUN, task);
+	}
+	
+	public static AgentMessage cancel() {
+		return new AgentMessage(Kind.CANCEL, null);
+	}
+	
+	public static AgentMessage event(Serializable event) {
+		return new AgentMessage(Kind.EVENT, event);
+	}
+	
+	public static AgentMessage result(ExecutionResult result) {
+		return new AgentMessage(Kind.RESULT, result);
+	}
+	
+	public static AgentMessage failure(String message) {
+		return new AgentMessage(Kind.FAILURE, message);
+	}
+	
+	public Kind getKind() {
+		return this.kind;
+	}
+	
+	public RemoteTask getTask() {
+		return (RemoteTask) this.payload;
+	}
+	
+	public Serializable getEvent() {
+		return this.payload;
+	}
+	
+	public ExecutionResult getResult() {
+		return (ExecutionResult) this.payload;
+	}
+	
+	public String getFailureMessage() {
+		return (String) this.payload;
+	}
+}
@@ -0,0 +1,286 @@
+package sushi.execution.remote;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sushi.exceptions.WorkerException;
+import sushi.execution.ExecutionResult;
+import sushi.execution.TaskMetrics;
+import sushi.execution.Tool;
+import sushi.logging.Logger;
+
+/**
+ * The agents connected to the master. Agents (see the sushi-agent 
+ * module) connect to the port the pool listens to, one connection 
+ * per task they may execute in parallel, and authenticate by sending 
+ * a secret token shared with the master. When a task is about to 
+ * start and an agent connection is idle, the task is executed by 
+ * the agent rather than locally, provided its tool supports remote 
+ * execution (see {@link Tool#remoteTask(int)}).
+ * 
+ * @author Pietro Braione
+ */
+public final class AgentPool {
+	private static final Logger logger = new Logger(AgentPool.class);
+	
+	/** How long an agent may take to send its token after connecting. */
+	private static final int AUTHENTICATION_TIMEOUT_MILLIS = 10000;
+	
+	/** How long a cancelled task may take to stop before its connection is closed. */
+	private static final long CANCEL_GRACE_MILLIS = 5000L;
+	
+	private static AgentPool instance = new AgentPool();
+	
+	/**
+	 * Starts listening for agents. 
+	 * 
+	 * @param address a {@link String}, the address of the network 
+	 *        interface to listen to.
+	 * @param port an {@code int}, the port to listen to.
+	 * @param token a {@link String}, the secret the agents must 
+	 *        present when they connect.
+	 * @throws IOException if opening the port fails.
+	 */
+	public static synchronized void listen(String address, int port, String token) throws IOException {
+		final ServerSocket serverSocket = new ServerSocket(port, 0, InetAddress.getByName(address));
+		final byte[] expectedToken = token.getBytes(StandardCharsets.UTF_8);
+		final AgentPool pool = new AgentPool();
+		final Thread acceptor = new Thread(() -> {
+			while (true) {
+				Socket socket = null;
+				try {
+					socket = serverSocket.accept();
+					if (!authenticate(socket, expectedToken)) {
+						logger.warn("Rejected agent connection from " + socket.getRemoteSocketAddress() + ": wrong token");
+						socket.close();
+						continue;
+					}
+					pool.idle.add(pool.new Connection(socket));
+					logger.info("Agent connected from " + socket.getRemoteSocketAddress());
+				} catch (IOException e) {
+					logger.warn("Error while accepting an agent connection: " + e.getMessage());
+					if (socket != null) {
+						try {
+							socket.close();
+						} catch (IOException e1) {
+							//nothing to do
+						}
+					}
+				}
+			}
+		}, "agent-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		instance = pool;
+		logger.info("Listening for agents on " + address + ":" + port);
+	}
+	
+	/**
+	 * Checks the token an agent sends, as a modified UTF-8 string
+	 * (see {@link DataInputStream#readUTF()}), before any message.
+	 * 
+	 * @param socket the {@link Socket} connected to the agent.
+	 * @param expectedToken the expected token, as a {@code byte[]}.
+	 * @return {@code true} iff the agent sent the expected token.
+	 * @throws IOException if reading the token fails or times out.
+	 */
+	private static boolean authenticate(Socket socket, byte[] expectedToken) throws IOException {
+		socket.setSoTimeout(AUTHENTICATION_TIMEOUT_MILLIS);
+		final String token = new DataInputStream(socket.getInputStream()).readUTF();
+		socket.setSoTimeout(0);
+		return MessageDigest.isEqual(expectedToken, token.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Returns the pool.
+	 * 
+	 * @return the {@link AgentPool}; It is empty if 
+	 *         {@link #listen(String, int, String)} was not invoked.
+	 */
+	public static synchronized AgentPool get() {
+		return instance;
+	}
+	
+	/** The connections not executing any task. */
+	private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+	
+	/** The number of open connections, idle or not. */
+	private final AtomicInteger open = new AtomicInteger(0);
+	
+	private AgentPool() { }
+	
+	/**
+	 * Returns the number of tasks the connected agents 
+	 * may execute in parallel.
+	 * 
+	 * @return an {@code int}, the number of open connections
+	 *         with the agents.
+	 */
+	public int slots() {
+		return this.open.get();
+	}
+	
+	/**
+	 * Wraps the local execution of a task so that, when it starts,
+	 * it is executed by an idle agent if there is one.
+	 * 
+	 * @param tool the {@link Tool} of the task.
+	 * @param taskNumber an {@code int}, the number of the task.
+	 * @param metrics the {@link TaskMetrics} of the replica of the task.
+	 * @param local a {@link Callable} that executes the task locally.
+	 * @return a {@link Callable} that executes the task either on an
+	 *         agent or locally. If the connection with the agent is lost
+	 *         the task is executed locally.
+	 */
+	public Callable<ExecutionResult> offload(Tool<?> tool, int taskNumber, TaskMetrics metrics, Callable<ExecutionResult> local) {
+		return () -> {
+			if (this.idle.isEmpty()) {
+				return local.call();
+			}
+			final RemoteTask task = tool.remoteTask(taskNumber);
+			final Connection c = (task == null ? null : this.idle.poll());
+			if (c == null) {
+				return local.call();
+			}
+			logger.debug("Tool " + tool.getName() + " task " + taskNumber + " sent to agent " + c.socket.getRemoteSocketAddress());
+			metrics.started();
+			try {
+				return c.run(tool, taskNumber, task);
+			} catch (ConnectionLostException e) {
+				if (Thread.currentThread().isInterrupted()) {
+					//the task was cancelled, so it must not be executed locally
+					throw new InterruptedException();
+				}
+				logger.warn("Lost connection with agent " + c.socket.getRemoteSocketAddress() + ", executing tool " + tool.getName() + " task " + taskNumber + " locally");
+				return local.call();
+			}
+		};
+	}
+	
+	private static final class ConnectionLostException extends Exception {
+		private static final long serialVersionUID = 5091883756234418020L;
+	}
+	
+	private final class Connection {
+		private final Socket socket;
+		private final ObjectOutputStream out;
+		private final ObjectInputStream in;
+		private final BlockingQueue<AgentMessage> inbox = new LinkedBlockingQueue<>();
+		private volatile boolean broken = false;
+		private final AtomicBoolean closed = new AtomicBoolean(false);
+		
+		Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.out = new ObjectOutputStream(socket.getOutputStream());
+			this.out.flush();
+			this.in = new MessageInputStream(socket.getInputStream());
+			AgentPool.this.open.incrementAndGet();
+			final Thread reader = new Thread(this::read, "agent-reader");
+			reader.setDaemon(true);
+			reader.start();
+		}
+		
+		private void read() {
+			try {
+				while (true) {
+					this.inbox.add((AgentMessage) this.in.readObject());
+				}
+			} catch (IOException | ClassNotFoundException | ClassCastException e) {
+				this.broken = true;
+				this.inbox.add(AgentMessage.failure(null)); //wakes up the task, if any
+				close();
+			}
+		}
+		
+		private void close() {
+			this.broken = true;
+			AgentPool.this.idle.remove(this);
+			if (this.closed.compareAndSet(false, true)) {
+				AgentPool.this.open.decrementAndGet();
+			}
+			try {
+				this.socket.close();
+			} catch (IOException e) {
+				//nothing to do
+			}
+		}
+		
+		private synchronized void send(AgentMessage message) throws ConnectionLostException {
+			try {
+				this.out.writeObject(message);
+				this.out.reset();
+				this.out.flush();
+			} catch (IOException e) {
+				this.broken = true;
+				throw new ConnectionLostException();
+			}
+		}
+		
+		ExecutionResult run(Tool<?> tool, int taskNumber, RemoteTask task) throws ConnectionLostException, InterruptedException {
+			boolean cancelled = false;
+			send(AgentMessage.run(task));
+			while (true) {
+				final AgentMessage message;
+				try {
+					message = (cancelled ? this.inbox.poll(CANCEL_GRACE_MILLIS, TimeUnit.MILLISECONDS) : this.inbox.take());
+				} catch (InterruptedException e) {
+					//the task was cancelled: waits the agent to stop it
+					if (!cancelled) {
+						cancelled = true;
+						try {
+							send(AgentMessage.cancel());
+						} catch (ConnectionLostException e1) {
+							throw new InterruptedException();
+						}
+					}
+					continue;
+				}
+				if (message == null) {
+					//the agent did not stop the task in time
+					logger.warn("Agent " + this.socket.getRemoteSocketAddress() + " did not stop cancelled tool " + tool.getName() + " task " + taskNumber + " in time, closing the connection");
+					close();
+					throw new InterruptedException();
+				}
+				if (this.broken) {
+					if (cancelled) {
+						throw new InterruptedException();
+					}
+					throw new ConnectionLostException();
+				}
+				switch (message.getKind()) {
+				case EVENT:
+					tool.onRemoteEvent(taskNumber, message.getEvent());
+					break;
+				case RESULT:
+					AgentPool.this.idle.add(this);
+					if (cancelled) {
+						throw new InterruptedException();
+					}
+					return message.getResult();
+				case FAILURE:
+					AgentPool.this.idle.add(this);
+					if (cancelled) {
+						throw new InterruptedException();
+					}
+					throw new WorkerException("Tool " + tool.getName() + " task " + taskNumber + " failed on agent " + this.socket.getRemoteSocketAddress() + ": " + message.getFailureMessage());
+				default:
+					//unexpected, ignores it
+				}
+			}
+		}
+	}
+}
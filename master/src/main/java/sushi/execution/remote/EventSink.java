@@ -0,0 +1,15 @@
+package sushi.execution.remote;
+
+import java.io.Serializable;
+
+/**
+ * Receives the events produced by a {@link RemoteTask}, and 
+ * forwards them to the {@link sushi.execution.Tool#onRemoteEvent(int, Serializable) tool}
+ * of the task.
+ * 
+ * @author Pietro Braione
+ */
+@FunctionalInterface
+public interface EventSink {
+	void emit(Serializable event);
+}
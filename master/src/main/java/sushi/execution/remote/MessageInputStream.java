@@ -0,0 +1,76 @@
+package sushi.execution.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * An {@link ObjectInputStream} for the {@link AgentMessage}s exchanged
+ * by the master, its agents and its child JVMs. It only deserializes
+ * the classes of SUSHI and the few JDK classes that the messages,
+ * the {@link RemoteTask}s and the {@link sushi.Options} they carry
+ * are made of, so that a peer cannot make it instantiate any other
+ * class.
+ *
+ * @author Pietro Braione
+ */
+public final class MessageInputStream extends ObjectInputStream {
+	private static final String ALLOWED_PACKAGE = "sushi.";
+
+	/** The packages where the dependencies of SUSHI are relocated. */
+	private static final String[] RELOCATED_PACKAGES = { "sushi.javassist.", "sushi.org." };
+
+	private static final HashSet<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+		"java.lang.Boolean", "java.lang.Byte", "java.lang.Character", "java.lang.Double",
+		"java.lang.Enum", "java.lang.Float", "java.lang.Integer", "java.lang.Long",
+		"java.lang.Number", "java.lang.Short", "java.lang.String",
+		"java.util.ArrayList", "java.util.EnumSet$SerializationProxy", "java.util.HashMap",
+		"java.util.regex.Pattern"));
+
+	/**
+	 * Constructor.
+	 *
+	 * @param in the {@link InputStream} to read from.
+	 * @throws IOException if reading the stream header fails.
+	 */
+	public MessageInputStream(InputStream in) throws IOException {
+		super(in);
+	}
+
+	@Override
+	protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+		if (!allowed(desc.getName())) {
+			throw new InvalidClassException(desc.getName(), "class not allowed in a message");
+		}
+		return super.resolveClass(desc);
+	}
+
+	private static boolean allowed(String className) {
+		String name = className;
+		if (name.startsWith("[")) {
+			while (name.startsWith("[")) {
+				name = name.substring(1);
+			}
+			if (name.length() == 1) {
+				return true; //array of primitives
+			}
+			if (!name.startsWith("L") || !name.endsWith(";")) {
+				return false;
+			}
+			name = name.substring(1, name.length() - 1); //array of objects
+		}
+		if (name.startsWith(ALLOWED_PACKAGE)) {
+			for (String relocated : RELOCATED_PACKAGES) {
+				if (name.startsWith(relocated)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return ALLOWED_CLASSES.contains(name);
+	}
+}
@@ -0,0 +1,25 @@
+package sushi.execution.remote;
+
+import java.io.Serializable;
+
+import sushi.execution.ExecutionResult;
+
+/**
+ * A task of a tool that can be executed by a remote agent. It 
+ * is sent to the agent serialized, so it must carry all the 
+ * information necessary to execute it. 
+ * 
+ * @author Pietro Braione
+ */
+public interface RemoteTask extends Serializable {
+	/**
+	 * Executes the task.
+	 * 
+	 * @param sink an {@link EventSink} for the events the task 
+	 *        produces during its execution.
+	 * @return the {@link ExecutionResult} of the task.
+	 * @throws Exception if the execution fails. 
+	 * @throws InterruptedException if the execution is cancelled.
+	 */
+	ExecutionResult run(EventSink sink) throws Exception;
+}
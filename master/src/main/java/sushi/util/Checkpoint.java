@@ -0,0 +1,317 @@
+package sushi.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import sushi.Options;
+import sushi.exceptions.CheckpointException;
+import sushi.logging.Logger;
+
+/**
+ * A checkpoint of the main loop of SUSHI, recording the last
+ * completed phase and the fingerprints (size and last modification
+ * time) of the files in the temporary directory at the moment of its 
+ * completion, so that an interrupted run can be resumed from the 
+ * next phase. Since the phases rewrite some files in place (e.g., 
+ * the branches and traces to ignore, the minimizer output, the 
+ * wrappers), the checkpoint also keeps a copy of the files, 
+ * in a snapshot directory, from which the files that the interrupted 
+ * phase modified are restored when the run is resumed. Only the 
+ * files whose fingerprint changed since the previous checkpoint 
+ * are copied.
+ * 
+ * @author Pietro Braione
+ */
+public final class Checkpoint {
+	private static final Logger logger = new Logger(Checkpoint.class);
+	
+	private static final String KEY_PHASE = "phase";
+	private static final String KEY_TOOL_INDEX = "tool_index";
+	private static final String KEY_ITERATION = "iteration";
+	private static final String KEY_COVERAGE = "coverage";
+	private static final String KEY_TARGET = "target";
+	private static final String PREFIX_FINGERPRINT = "file.";
+	private static final String LOG_FILE_EXTENSION = ".log";
+	private static final String TMP_FILE_EXTENSION = ".tmp";
+	
+	private final int phase;
+	private final int toolIndex;
+	private final int iteration;
+	
+	private Checkpoint(int phase, int toolIndex, int iteration) {
+		this.phase = phase;
+		this.toolIndex = toolIndex;
+		this.iteration = iteration;
+	}
+	
+	/**
+	 * Returns the last completed phase.
+	 * 
+	 * @return an {@code int}, the number of the phase.
+	 */
+	public int getPhase() {
+		return this.phase;
+	}
+	
+	/**
+	 * Returns the tool of the last completed phase.
+	 * 
+	 * @return an {@code int}, the index of the tool
+	 *         in the tools array of the main loop.
+	 */
+	public int getToolIndex() {
+		return this.toolIndex;
+	}
+	
+	/**
+	 * Returns the iteration of the main loop during which
+	 * the last phase completed.
+	 * 
+	 * @return an {@code int}, the iteration number.
+	 */
+	public int getIteration() {
+		return this.iteration;
+	}
+	
+	/**
+	 * Writes a checkpoint in the temporary directory, replacing
+	 * the previous one, and updates the snapshot of the files.
+	 * 
+	 * @param options an {@link Options} object.
+	 * @param phase an {@code int}, the last completed phase.
+	 * @param toolIndex an {@code int}, the index of the tool of {@code phase}.
+	 * @param iteration an {@code int}, the current iteration of the main loop.
+	 * @throws CheckpointException if writing the checkpoint fails.
+	 */
+	public static void write(Options options, int phase, int toolIndex, int iteration) throws CheckpointException {
+		final Properties p = new Properties();
+		p.setProperty(KEY_PHASE, Integer.toString(phase));
+		p.setProperty(KEY_TOOL_INDEX, Integer.toString(toolIndex));
+		p.setProperty(KEY_ITERATION, Integer.toString(iteration));
+		p.setProperty(KEY_COVERAGE, options.getCoverage().toString());
+		p.setProperty(KEY_TARGET, target(options));
+		try {
+			//the snapshot keeps the previous copies of the files until
+			//the checkpoint is written, so the previous checkpoint stays
+			//valid if this one is not completed
+			final Path tmpDir = DirectoryUtils.getTmpDirPath(options);
+			final Path snapshotDir = DirectoryUtils.getCheckpointSnapshotDirPath(options);
+			final TreeMap<String, String> fingerprints = fingerprints(options);
+			final HashSet<Path> snapshots = new HashSet<>();
+			for (Map.Entry<String, String> e : fingerprints.entrySet()) {
+				p.setProperty(PREFIX_FINGERPRINT + e.getKey(), e.getValue());
+				final Path snapshot = snapshotPath(snapshotDir, e.getKey(), e.getValue());
+				snapshots.add(snapshot);
+				if (!Files.exists(snapshot)) {
+					//copies and then renames, so a crash never leaves a broken copy
+					Files.createDirectories(snapshot.getParent());
+					final Path tmpSnapshot = snapshot.resolveSibling(snapshot.getFileName() + TMP_FILE_EXTENSION);
+					Files.copy(tmpDir.resolve(e.getKey()), tmpSnapshot, StandardCopyOption.REPLACE_EXISTING);
+					Files.move(tmpSnapshot, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+			}
+			
+			//writes and then renames, so a crash never leaves a broken checkpoint
+			final Path checkpointFilePath = DirectoryUtils.getCheckpointFilePath(options);
+			final Path tmpFilePath = checkpointFilePath.resolveSibling(checkpointFilePath.getFileName() + TMP_FILE_EXTENSION);
+			try (final OutputStream w = Files.newOutputStream(tmpFilePath)) {
+				p.store(w, "SUSHI checkpoint");
+			}
+			Files.move(tmpFilePath, checkpointFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			
+			//deletes the copies that the checkpoint does not need
+			if (Files.isDirectory(snapshotDir)) {
+				try (final Stream<Path> walk = Files.walk(snapshotDir)) {
+					for (Path f : walk.filter(Files::isRegularFile).filter(f -> !snapshots.contains(f)).collect(Collectors.toList())) {
+						Files.deleteIfExists(f);
+					}
+				}
+			}
+		} catch (IOException e) {
+			logger.error("Unable to write checkpoint file " + DirectoryUtils.getCheckpointFilePath(options).toString());
+			throw new CheckpointException(e);
+		}
+		logger.debug("Written checkpoint after phase " + phase + ", iteration " + iteration);
+	}
+	
+	/**
+	 * Reads the checkpoint in the temporary directory, checks that
+	 * it is consistent with the options, and brings the files in the
+	 * directory back to the moment of the checkpoint: The files that
+	 * were modified after the checkpoint are restored from the snapshot,
+	 * and those that were created after it are deleted.
+	 * 
+	 * @param options an {@link Options} object.
+	 * @return the {@link Checkpoint}.
+	 * @throws CheckpointException if the checkpoint does not exist, 
+	 *         cannot be read, or is not valid, or if some file cannot
+	 *         be restored.
+	 */
+	public static Checkpoint read(Options options) throws CheckpointException {
+		final Path checkpointFilePath = DirectoryUtils.getCheckpointFilePath(options);
+		final Properties p = new Properties();
+		try (final InputStream r = Files.newInputStream(checkpointFilePath)) {
+			p.load(r);
+		} catch (IOException e) {
+			logger.error("Unable to read checkpoint file " + checkpointFilePath.toString());
+			throw new CheckpointException(e);
+		}
+		
+		//checks the options
+		if (!options.getCoverage().toString().equals(p.getProperty(KEY_COVERAGE)) || !target(options).equals(p.getProperty(KEY_TARGET))) {
+			logger.error("Checkpoint file " + checkpointFilePath.toString() + " was produced by a run with different target or coverage");
+			throw new CheckpointException("Checkpoint file " + checkpointFilePath.toString() + " was produced by a run with different target or coverage");
+		}
+		
+		//restores the files
+		final Path tmpDir = DirectoryUtils.getTmpDirPath(options);
+		final Path snapshotDir = DirectoryUtils.getCheckpointSnapshotDirPath(options);
+		final TreeMap<String, String> fingerprints;
+		try {
+			fingerprints = fingerprints(options);
+		} catch (IOException e) {
+			logger.error("Unable to read the files in " + tmpDir.toString());
+			throw new CheckpointException(e);
+		}
+		int restored = 0;
+		for (String key : p.stringPropertyNames()) {
+			if (key.startsWith(PREFIX_FINGERPRINT)) {
+				final String file = key.substring(PREFIX_FINGERPRINT.length());
+				final String fingerprint = p.getProperty(key);
+				if (!fingerprint.equals(fingerprints.remove(file))) {
+					restore(snapshotPath(snapshotDir, file, fingerprint), tmpDir.resolve(file), fingerprint);
+					++restored;
+				}
+			}
+		}
+		for (String file : fingerprints.keySet()) {
+			try {
+				Files.delete(tmpDir.resolve(file));
+			} catch (IOException e) {
+				logger.error("Unable to delete file " + file + ", created after the checkpoint");
+				throw new CheckpointException(e);
+			}
+		}
+		if (restored > 0 || fingerprints.size() > 0) {
+			logger.info("Restored " + restored + " files modified and deleted " + fingerprints.size() + " files created after the checkpoint");
+		}
+		
+		try {
+			return new Checkpoint(Integer.parseInt(p.getProperty(KEY_PHASE)), Integer.parseInt(p.getProperty(KEY_TOOL_INDEX)), Integer.parseInt(p.getProperty(KEY_ITERATION)));
+		} catch (NumberFormatException e) {
+			logger.error("Checkpoint file " + checkpointFilePath.toString() + " is ill-formed");
+			throw new CheckpointException(e);
+		}
+	}
+	
+	private static Path snapshotPath(Path snapshotDir, String file, String fingerprint) {
+		return snapshotDir.resolve(file + "@" + fingerprint.replace(':', '_'));
+	}
+	
+	/**
+	 * Restores a file from the snapshot, together 
+	 * with its last modification time.
+	 * 
+	 * @param snapshot the {@link Path} of the copy of the file.
+	 * @param file the {@link Path} of the file.
+	 * @param fingerprint a {@link String}, the fingerprint
+	 *        of {@code file} at the checkpoint.
+	 * @throws CheckpointException if the copy is missing or 
+	 *         restoring the file fails.
+	 */
+	private static void restore(Path snapshot, Path file, String fingerprint) throws CheckpointException {
+		try {
+			Files.createDirectories(file.getParent());
+			Files.copy(snapshot, file, StandardCopyOption.REPLACE_EXISTING);
+			Files.setLastModifiedTime(file, FileTime.fromMillis(Long.parseLong(fingerprint.substring(fingerprint.indexOf(':') + 1))));
+			if (!fingerprint.equals(fingerprint(file))) {
+				throw new IOException("The copy of " + file.toString() + " in the snapshot was modified after the checkpoint");
+			}
+		} catch (IOException | NumberFormatException e) {
+			logger.error("Unable to restore file " + file.toString() + " from the checkpoint snapshot");
+			throw new CheckpointException(e);
+		}
+	}
+	
+	private static String target(Options options) {
+		return (options.getTargetMethod() == null ? options.getTargetClass() : String.join(":", options.getTargetMethod()));
+	}
+	
+	/**
+	 * Calculates the fingerprints of the files in the temporary directory, 
+	 * but the log files, the metrics files, the solver cache, the 
+	 * checkpoint and its snapshot.
+	 *  
+	 * @param options an {@link Options} object.
+	 * @return a {@link TreeMap} mapping the path of each file, relative
+	 *         to the temporary directory, to its size and last 
+	 *         modification time.
+	 * @throws IOException if reading the attributes of some file fails. 
+	 */
+	private static TreeMap<String, String> fingerprints(Options options) throws IOException {
+		final Path tmpDir = DirectoryUtils.getTmpDirPath(options);
+		final Path checkpointFilePath = DirectoryUtils.getCheckpointFilePath(options);
+		final Path metricsJsonFilePath = DirectoryUtils.getMetricsJsonFilePath(options);
+		final Path metricsPrometheusFilePath = DirectoryUtils.getMetricsPrometheusFilePath(options);
+		final Path solverCacheFilePath = DirectoryUtils.getSolverCacheFilePath(options);
+		final Path snapshotDir = DirectoryUtils.getCheckpointSnapshotDirPath(options);
+		final List<Path> files;
+		try (final Stream<Path> walk = Files.walk(tmpDir)) {
+			files = walk.filter(Files::isRegularFile)
+			.filter(f -> !f.startsWith(snapshotDir))
+			.filter(f -> !f.getFileName().toString().endsWith(LOG_FILE_EXTENSION))
+			.filter(f -> !f.getFileName().toString().startsWith(checkpointFilePath.getFileName().toString()))
+			.filter(f -> !f.getFileName().equals(metricsJsonFilePath.getFileName()) && !f.getFileName().equals(metricsPrometheusFilePath.getFileName()))
+			.filter(f -> !f.getFileName().equals(solverCacheFilePath.getFileName()))
+			.collect(Collectors.toList());
+		}
+		final TreeMap<String, String> retVal = new TreeMap<>();
+		for (Path f : files) {
+			retVal.put(tmpDir.relativize(f).toString().replace('\\', '/'), fingerprint(f));
+		}
+		return retVal;
+	}
+	
+	private static String fingerprint(Path file) throws IOException {
+		final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		return attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+	}
+	
+	/**
+	 * Deletes the checkpoint in the temporary directory, 
+	 * and its snapshot, if any.
+	 * 
+	 * @param options an {@link Options} object.
+	 */
+	public static void delete(Options options) {
+		try {
+			Files.deleteIfExists(DirectoryUtils.getCheckpointFilePath(options));
+		} catch (IOException e) {
+			logger.warn("Unable to delete checkpoint file " + DirectoryUtils.getCheckpointFilePath(options).toString());
+		}
+		final Path snapshotDir = DirectoryUtils.getCheckpointSnapshotDirPath(options);
+		if (Files.isDirectory(snapshotDir)) {
+			try (final Stream<Path> walk = Files.walk(snapshotDir)) {
+				for (Path f : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+					Files.deleteIfExists(f);
+				}
+			} catch (IOException e) {
+				logger.warn("Unable to delete checkpoint snapshot directory " + snapshotDir.toString());
+			}
+		}
+	}
+}
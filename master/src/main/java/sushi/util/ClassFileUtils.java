@@ -0,0 +1,412 @@
+package sushi.util;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import sushi.exceptions.ReflectionUtilsException;
+
+/**
+ * Minimal reader for the bytecode of the methods in a classfile,
+ * used to obtain cheap static measures of the methods (code size,
+ * number of branches) and the classes a class depends on without
+ * loading the class.
+ *
+ * @author Pietro Braione
+ */
+public final class ClassFileUtils {
+	private static final int CONSTANT_Utf8 = 1;
+	private static final int CONSTANT_Integer = 3;
+	private static final int CONSTANT_Float = 4;
+	private static final int CONSTANT_Long = 5;
+	private static final int CONSTANT_Double = 6;
+	private static final int CONSTANT_Class = 7;
+	private static final int CONSTANT_String = 8;
+	private static final int CONSTANT_Fieldref = 9;
+	private static final int CONSTANT_Methodref = 10;
+	private static final int CONSTANT_InterfaceMethodref = 11;
+	private static final int CONSTANT_NameAndType = 12;
+	private static final int CONSTANT_MethodHandle = 15;
+	private static final int CONSTANT_MethodType = 16;
+	private static final int CONSTANT_Dynamic = 17;
+	private static final int CONSTANT_InvokeDynamic = 18;
+	private static final int CONSTANT_Module = 19;
+	private static final int CONSTANT_Package = 20;
+
+	private static final int OP_IFEQ = 0x99;
+	private static final int OP_IF_ACMPNE = 0xa6;
+	private static final int OP_TABLESWITCH = 0xaa;
+	private static final int OP_LOOKUPSWITCH = 0xab;
+	private static final int OP_WIDE = 0xc4;
+	private static final int OP_IINC = 0x84;
+	private static final int OP_IFNULL = 0xc6;
+	private static final int OP_IFNONNULL = 0xc7;
+
+	/**
+	 * The information about a class that can be read
+	 * from its classfile by this class.
+	 */
+	public static final class ClassSummary {
+		private final String superclassName;
+		private final List<String> interfaceNames;
+		private final Map<String, byte[]> bytecode;
+		private final Set<String> referencedClassNames;
+
+		private ClassSummary(String superclassName, List<String> interfaceNames, Map<String, byte[]> bytecode, Set<String> referencedClassNames) {
+			this.superclassName = superclassName;
+			this.interfaceNames = interfaceNames;
+			this.bytecode = bytecode;
+			this.referencedClassNames = referencedClassNames;
+		}
+
+		/**
+		 * Returns the name of the superclass.
+		 *
+		 * @return a {@link String} in internal format, or {@code null}
+		 *         if the class is {@code java/lang/Object}.
+		 */
+		public String getSuperclassName() {
+			return this.superclassName;
+		}
+
+		/**
+		 * Returns the names of the interfaces the class 
+		 * directly implements.
+		 *
+		 * @return a {@link List}{@code <}{@link String}{@code >} of names
+		 *         in internal format.
+		 */
+		public List<String> getInterfaceNames() {
+			return this.interfaceNames;
+		}
+
+		/**
+		 * Returns the bytecode of the methods of the class.
+		 *
+		 * @return a {@link Map}, see {@link ClassFileUtils#getMethodsBytecode(ClassLoader, String)}.
+		 */
+		public Map<String, byte[]> getBytecode() {
+			return this.bytecode;
+		}
+
+		/**
+		 * Returns the classes the class refers to.
+		 *
+		 * @return a sorted {@link Set}{@code <}{@link String}{@code >} of
+		 *         the names, in internal format, of the classes named in the 
+		 *         constant pool and in the types of the fields and of the 
+		 *         methods of the class, and of the fields and methods it 
+		 *         accesses. Array types are replaced by the class of their
+		 *         elements, if any. The class itself is not in the set.
+		 */
+		public Set<String> getReferencedClassNames() {
+			return this.referencedClassNames;
+		}
+	}
+
+	/**
+	 * Returns the bytecode of the methods of a class.
+	 *
+	 * @param classLoader the {@link ClassLoader} used to find the classfile.
+	 * @param className a {@link String}, the name of the class in internal
+	 *        (slash-separated) format.
+	 * @return a {@link Map}{@code <}{@link String}{@code , byte[]>} mapping
+	 *         the name concatenated with the descriptor of each method
+	 *         of the class (e.g., {@code "foo(I)V"}) to its bytecode.
+	 *         Abstract and native methods are not in the map.
+	 * @throws ReflectionUtilsException if the classfile cannot be found or read.
+	 */
+	public static Map<String, byte[]> getMethodsBytecode(ClassLoader classLoader, String className) {
+		return getClassSummary(classLoader, className).getBytecode();
+	}
+
+	/**
+	 * Reads a class.
+	 *
+	 * @param classLoader the {@link ClassLoader} used to find the classfile.
+	 * @param className a {@link String}, the name of the class in internal
+	 *        (slash-separated) format.
+	 * @return the {@link ClassSummary} of the class.
+	 * @throws ReflectionUtilsException if the classfile cannot be found or read.
+	 */
+	public static ClassSummary getClassSummary(ClassLoader classLoader, String className) {
+		final String resourceName = className.replace('.', '/') + ".class";
+		try (final InputStream is = classLoader.getResourceAsStream(resourceName)) {
+			if (is == null) {
+				throw new ReflectionUtilsException("Classfile " + resourceName + " not found");
+			}
+			return readClass(new DataInputStream(is));
+		} catch (IOException | IndexOutOfBoundsException e) {
+			throw new ReflectionUtilsException(e);
+		}
+	}
+
+	/**
+	 * Reads a class from the content of its classfile.
+	 *
+	 * @param classfile a {@code byte[]}, the content of the classfile.
+	 * @return the {@link ClassSummary} of the class.
+	 * @throws ReflectionUtilsException if the classfile cannot be read.
+	 */
+	public static ClassSummary getClassSummary(byte[] classfile) {
+		try {
+			return readClass(new DataInputStream(new ByteArrayInputStream(classfile)));
+		} catch (IOException | IndexOutOfBoundsException e) {
+			throw new ReflectionUtilsException(e);
+		}
+	}
+
+	private static ClassSummary readClass(DataInputStream in) throws IOException {
+		if (in.readInt() != 0xCAFEBABE) {
+			throw new IOException("Bad classfile magic number");
+		}
+		in.readUnsignedShort(); //minor_version
+		in.readUnsignedShort(); //major_version
+
+		//constant pool: we need the Utf8 entries, and the 
+		//entries that name classes and types
+		final int constantPoolCount = in.readUnsignedShort();
+		final String[] utf8 = new String[constantPoolCount];
+		final int[] first = new int[constantPoolCount];
+		final int[] second = new int[constantPoolCount];
+		final boolean[] classRef = new boolean[constantPoolCount];
+		final boolean[] nameAndType = new boolean[constantPoolCount];
+		for (int i = 1; i < constantPoolCount; ++i) {
+			final int tag = in.readUnsignedByte();
+			switch (tag) {
+			case CONSTANT_Utf8:
+				utf8[i] = in.readUTF();
+				break;
+			case CONSTANT_Class:
+				classRef[i] = true;
+				first[i] = in.readUnsignedShort();
+				break;
+			case CONSTANT_String:
+			case CONSTANT_MethodType:
+			case CONSTANT_Module:
+			case CONSTANT_Package:
+				in.skipBytes(2);
+				break;
+			case CONSTANT_MethodHandle:
+				in.skipBytes(3);
+				break;
+			case CONSTANT_NameAndType:
+				nameAndType[i] = true;
+				first[i] = in.readUnsignedShort();
+				second[i] = in.readUnsignedShort();
+				break;
+			case CONSTANT_Integer:
+			case CONSTANT_Float:
+			case CONSTANT_Fieldref:
+			case CONSTANT_Methodref:
+			case CONSTANT_InterfaceMethodref:
+			case CONSTANT_Dynamic:
+			case CONSTANT_InvokeDynamic:
+				in.skipBytes(4);
+				break;
+			case CONSTANT_Long:
+			case CONSTANT_Double:
+				in.skipBytes(8);
+				++i; //takes two slots
+				break;
+			default:
+				throw new IOException("Bad constant pool tag " + tag);
+			}
+		}
+
+		//the referenced classes and types
+		final TreeSet<String> referenced = new TreeSet<>();
+		for (int i = 1; i < constantPoolCount; ++i) {
+			if (classRef[i]) {
+				addClassName(referenced, utf8[first[i]]);
+			} else if (nameAndType[i]) {
+				addDescriptorClassNames(referenced, utf8[second[i]]);
+			}
+		}
+
+		in.readUnsignedShort(); //access_flags
+		final String className = utf8[first[in.readUnsignedShort()]];
+		final int superClass = in.readUnsignedShort();
+		final String superclassName = (superClass == 0 ? null : utf8[first[superClass]]);
+		final int interfacesCount = in.readUnsignedShort();
+		final ArrayList<String> interfaceNames = new ArrayList<>(interfacesCount);
+		for (int i = 0; i < interfacesCount; ++i) {
+			interfaceNames.add(utf8[first[in.readUnsignedShort()]]);
+		}
+
+		//fields
+		final int fieldsCount = in.readUnsignedShort();
+		for (int i = 0; i < fieldsCount; ++i) {
+			in.readUnsignedShort(); //access_flags
+			in.readUnsignedShort(); //name_index
+			addDescriptorClassNames(referenced, utf8[in.readUnsignedShort()]);
+			skipAttributes(in);
+		}
+
+		//methods
+		final HashMap<String, byte[]> bytecode = new HashMap<>();
+		final int methodsCount = in.readUnsignedShort();
+		for (int i = 0; i < methodsCount; ++i) {
+			in.readUnsignedShort(); //access_flags
+			final String name = utf8[in.readUnsignedShort()];
+			final String descriptor = utf8[in.readUnsignedShort()];
+			addDescriptorClassNames(referenced, descriptor);
+			final int attributesCount = in.readUnsignedShort();
+			for (int j = 0; j < attributesCount; ++j) {
+				final String attributeName = utf8[in.readUnsignedShort()];
+				final int attributeLength = in.readInt();
+				if ("Code".equals(attributeName)) {
+					in.readUnsignedShort(); //max_stack
+					in.readUnsignedShort(); //max_locals
+					final int codeLength = in.readInt();
+					final byte[] code = new byte[codeLength];
+					in.readFully(code);
+					bytecode.put(name + descriptor, code);
+					in.skipBytes(attributeLength - 8 - codeLength);
+				} else {
+					in.skipBytes(attributeLength);
+				}
+			}
+		}
+		referenced.remove(className);
+		return new ClassSummary(superclassName, Collections.unmodifiableList(interfaceNames), bytecode, Collections.unmodifiableSet(referenced));
+	}
+
+	private static void addClassName(Set<String> classNames, String name) {
+		if (name.startsWith("[")) {
+			addDescriptorClassNames(classNames, name); //array class
+		} else {
+			classNames.add(name);
+		}
+	}
+
+	private static void addDescriptorClassNames(Set<String> classNames, String descriptor) {
+		int start = descriptor.indexOf('L');
+		while (start >= 0) {
+			final int end = descriptor.indexOf(';', start);
+			if (end < 0) {
+				return;
+			}
+			classNames.add(descriptor.substring(start + 1, end));
+			start = descriptor.indexOf('L', end);
+		}
+	}
+
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		final int attributesCount = in.readUnsignedShort();
+		for (int j = 0; j < attributesCount; ++j) {
+			in.readUnsignedShort(); //attribute_name_index
+			in.skipBytes(in.readInt());
+		}
+	}
+
+	/**
+	 * Counts the branches in a method's bytecode.
+	 *
+	 * @param code a {@code byte[]}, the bytecode of a method.
+	 * @return an {@code int}, the number of branch targets of the
+	 *         conditional jumps and switches in {@code code}. Each
+	 *         conditional jump counts as two branches.
+	 */
+	public static int countBranches(byte[] code) {
+		int retVal = 0;
+		int pc = 0;
+		while (pc < code.length) {
+			final int opcode = code[pc] & 0xff;
+			if ((opcode >= OP_IFEQ && opcode <= OP_IF_ACMPNE) || opcode == OP_IFNULL || opcode == OP_IFNONNULL) {
+				retVal += 2;
+			} else if (opcode == OP_TABLESWITCH) {
+				final int base = pc + 1 + padding(pc);
+				final int low = readInt(code, base + 4);
+				final int high = readInt(code, base + 8);
+				retVal += high - low + 2;
+			} else if (opcode == OP_LOOKUPSWITCH) {
+				final int base = pc + 1 + padding(pc);
+				retVal += readInt(code, base + 4) + 1;
+			}
+			pc += instructionLength(code, pc);
+		}
+		return retVal;
+	}
+
+	private static int padding(int pc) {
+		return (4 - ((pc + 1) % 4)) % 4;
+	}
+
+	private static int readInt(byte[] code, int pos) {
+		return ((code[pos] & 0xff) << 24) | ((code[pos + 1] & 0xff) << 16) | ((code[pos + 2] & 0xff) << 8) | (code[pos + 3] & 0xff);
+	}
+
+	private static int instructionLength(byte[] code, int pc) {
+		final int opcode = code[pc] & 0xff;
+		switch (opcode) {
+		case 0x10: //bipush
+		case 0x12: //ldc
+		case 0xa9: //ret
+		case 0xbc: //newarray
+			return 2;
+		case 0x11: //sipush
+		case 0x13: //ldc_w
+		case 0x14: //ldc2_w
+		case OP_IINC:
+		case 0xa7: //goto
+		case 0xa8: //jsr
+		case 0xb2: //getstatic
+		case 0xb3: //putstatic
+		case 0xb4: //getfield
+		case 0xb5: //putfield
+		case 0xb6: //invokevirtual
+		case 0xb7: //invokespecial
+		case 0xb8: //invokestatic
+		case 0xbb: //new
+		case 0xbd: //anewarray
+		case 0xc0: //checkcast
+		case 0xc1: //instanceof
+		case OP_IFNULL:
+		case OP_IFNONNULL:
+			return 3;
+		case 0xc5: //multianewarray
+			return 4;
+		case 0xb9: //invokeinterface
+		case 0xba: //invokedynamic
+		case 0xc8: //goto_w
+		case 0xc9: //jsr_w
+			return 5;
+		case OP_WIDE:
+			return ((code[pc + 1] & 0xff) == OP_IINC ? 6 : 4);
+		case OP_TABLESWITCH: {
+			final int base = pc + 1 + padding(pc);
+			final int low = readInt(code, base + 4);
+			final int high = readInt(code, base + 8);
+			return 1 + padding(pc) + 12 + 4 * (high - low + 1);
+		}
+		case OP_LOOKUPSWITCH: {
+			final int base = pc + 1 + padding(pc);
+			final int npairs = readInt(code, base + 4);
+			return 1 + padding(pc) + 8 + 8 * npairs;
+		}
+		default:
+			if ((opcode >= 0x15 && opcode <= 0x19) || (opcode >= 0x36 && opcode <= 0x3a)) {
+				return 2; //xload, xstore with index
+			} else if (opcode >= OP_IFEQ && opcode <= OP_IF_ACMPNE) {
+				return 3;
+			}
+			return 1;
+		}
+	}
+
+	/**
+	 * Do not instantiate!
+	 */
+	private ClassFileUtils() {
+		//nothing to do
+	}
+}
@@ -1,18 +1,29 @@
 package sushi.util;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import sushi.Options;
 import sushi.exceptions.ReflectionUtilsException;
@@ -23,6 +34,12 @@ public final class ClassReflectionUtils {
 	
 	private static final Set<String> excluded;
 	
+	/** 
+	 * The classloaders for the classpaths, so that all the
+	 * targets with the same classpath share the loaded classes. 
+	 */
+	private static final HashMap<List<Path>, ClassLoader> classLoaders = new HashMap<>();
+	
 	static {
 		excluded = new HashSet<String>();
 		excluded.add("equals");
@@ -34,6 +51,21 @@ public final class ClassReflectionUtils {
 	
 	public static ClassLoader getInternalClassloader(Options options) {
 		final List<Path> classpath = options.getClassesPath();
+		if (classpath == null || classpath.size() == 0) {
+			return makeInternalClassloader(classpath);
+		}
+		final List<Path> key = classpath.stream().map(p -> p.toAbsolutePath().normalize()).collect(Collectors.toList());
+		synchronized (classLoaders) {
+			ClassLoader retVal = classLoaders.get(key);
+			if (retVal == null) {
+				retVal = makeInternalClassloader(classpath);
+				classLoaders.put(key, retVal);
+			}
+			return retVal;
+		}
+	}
+	
+	private static ClassLoader makeInternalClassloader(List<Path> classpath) {
 		final ClassLoader classLoader;
 		try {
 			ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
@@ -107,6 +139,53 @@ public final class ClassReflectionUtils {
 		return methods;
 	}
 	
+	/**
+	 * Returns the classes in the classpath whose names match a 
+	 * glob pattern.
+	 * 
+	 * @param options an {@link Options} object.
+	 * @param pattern a {@link String}, a glob pattern over the internal 
+	 *        names of the classes (e.g., {@code com/acme/**} matches all 
+	 *        the classes in package {@code com.acme} and in its subpackages). 
+	 *        Nested classes match only if {@code pattern} contains a {@code $}.
+	 * @return a sorted {@link List}{@code <}{@link String}{@code >} of the 
+	 *         internal names of the classes in the classpath that match
+	 *         {@code pattern}.
+	 * @throws IOException if some element of the classpath cannot be read.
+	 */
+	public static List<String> getClassesMatching(Options options, String pattern) throws IOException {
+		final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+		final boolean nested = pattern.contains("$");
+		final TreeSet<String> retVal = new TreeSet<>();
+		for (Path path : options.getClassesPath()) {
+			final List<String> classNames = new ArrayList<>();
+			if (Files.isDirectory(path)) {
+				try (final Stream<Path> files = Files.walk(path)) {
+					files.filter(f -> f.toString().endsWith(".class"))
+					.map(f -> path.relativize(f).toString().replace(File.separatorChar, '/'))
+					.forEach(classNames::add);
+				}
+			} else if (Files.isRegularFile(path) && path.toString().endsWith(".jar")) {
+				try (final JarFile jar = new JarFile(path.toFile())) {
+					for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+						final String entryName = entries.nextElement().getName();
+						if (entryName.endsWith(".class")) {
+							classNames.add(entryName);
+						}
+					}
+				}
+			}
+			for (String classFileName : classNames) {
+				final String className = classFileName.substring(0, classFileName.length() - ".class".length());
+				if ((nested || !className.contains("$")) && !className.endsWith("module-info") && 
+					matcher.matches(Paths.get(className))) {
+					retVal.add(className);
+				}
+			}
+		}
+		return new ArrayList<>(retVal);
+	}
+	
 	private static final String convertPrimitiveTypes(String s) {
 		if (s.equals("boolean")) {
 			return "Z";
@@ -0,0 +1,371 @@
+package sushi.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The coverage of all the traces, in a binary file that is memory-mapped
+ * and read without parsing nor copying. The file has:
+ * <ul>
+ * <li>A header with a magic number, the format version, the number of
+ * traces, the number of branches and the number of entries of the
+ * branch column;</li>
+ * <li>For each trace, its method number, its local trace number and its
+ * hardness (the size of its path condition), as three {@code int}s;</li>
+ * <li>For each trace, the position in the branch column of its first
+ * covered branch, as a {@code long}, plus a final position past the end
+ * of the column (the row pointers of a compressed sparse row matrix);</li>
+ * <li>The branch column, with the covered branches of all the traces as
+ * {@code int}s, sorted by trace and then by branch number.</li>
+ * </ul>
+ * The global trace number of a trace is its position in the file. The
+ * file is written by a {@link Writer}, that replaces it atomically, so
+ * the instances reading a previous version can still be used.
+ *
+ * @author Pietro Braione
+ */
+public final class CoverageStore {
+	private static final int MAGIC = 0x53434F56; //"SCOV"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8;
+	private static final int METADATA_INTS = 3;
+
+	/** The branch column is mapped in chunks of 2^CHUNK_SHIFT entries. */
+	private static final int CHUNK_SHIFT = 28;
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	private final int traces;
+	private final int branches;
+	private final IntBuffer metadata;
+	private final LongBuffer offsets;
+	private final IntBuffer[] column;
+
+	private CoverageStore(int traces, int branches, IntBuffer metadata, LongBuffer offsets, IntBuffer[] column) {
+		this.traces = traces;
+		this.branches = branches;
+		this.metadata = metadata;
+		this.offsets = offsets;
+		this.column = column;
+	}
+
+	/**
+	 * Opens a coverage file.
+	 *
+	 * @param path the {@link Path} of the file.
+	 * @return a {@link CoverageStore}.
+	 * @throws IOException if the file cannot be read, or
+	 *         is not a coverage file.
+	 */
+	public static CoverageStore open(Path path) throws IOException {
+		try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException("Coverage file " + path.toString() + " is truncated");
+			}
+			final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("File " + path.toString() + " is not a coverage file, or has an unsupported version");
+			}
+			final int traces = header.getInt();
+			final int branches = header.getInt();
+			final long entries = header.getLong();
+			final long metadataStart = HEADER_SIZE;
+			final long offsetsStart = metadataStart + 4L * METADATA_INTS * traces;
+			final long columnStart = offsetsStart + 8L * (traces + 1L);
+			if (traces < 0 || entries < 0 || size != columnStart + 4L * entries) {
+				throw new IOException("Coverage file " + path.toString() + " is truncated or corrupted");
+			}
+			final IntBuffer metadata = map(channel, path, metadataStart, offsetsStart - metadataStart).asIntBuffer();
+			final LongBuffer offsets = map(channel, path, offsetsStart, columnStart - offsetsStart).asLongBuffer();
+			final IntBuffer[] column = new IntBuffer[(int) ((entries + CHUNK_MASK) >>> CHUNK_SHIFT)];
+			for (int chunk = 0; chunk < column.length; ++chunk) {
+				final long chunkStart = ((long) chunk) << CHUNK_SHIFT;
+				final long chunkEntries = Math.min(CHUNK_MASK + 1, entries - chunkStart);
+				column[chunk] = map(channel, path, columnStart + 4L * chunkStart, 4L * chunkEntries).asIntBuffer();
+			}
+			return new CoverageStore(traces, branches, metadata, offsets, column);
+		}
+	}
+
+	private static ByteBuffer map(FileChannel channel, Path path, long position, long size) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Coverage file " + path.toString() + " has too many traces");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+	}
+
+	/**
+	 * Returns the number of traces.
+	 *
+	 * @return an {@code int}.
+	 */
+	public int traces() {
+		return this.traces;
+	}
+
+	/**
+	 * Returns the number of branches, i.e., the rows
+	 * of the global branches file.
+	 *
+	 * @return an {@code int}.
+	 */
+	public int branches() {
+		return this.branches;
+	}
+
+	/**
+	 * Returns the method of a trace.
+	 *
+	 * @param trace an {@code int}, the global trace number.
+	 * @return an {@code int}, the method number.
+	 */
+	public int method(int trace) {
+		return this.metadata.get(METADATA_INTS * trace);
+	}
+
+	/**
+	 * Returns the local trace number of a trace.
+	 *
+	 * @param trace an {@code int}, the global trace number.
+	 * @return an {@code int}, the number of the trace in
+	 *         the exploration of its method.
+	 */
+	public int localTrace(int trace) {
+		return this.metadata.get(METADATA_INTS * trace + 1);
+	}
+
+	/**
+	 * Returns the hardness of a trace.
+	 *
+	 * @param trace an {@code int}, the global trace number.
+	 * @return an {@code int}, the size of its path condition.
+	 */
+	public int hardness(int trace) {
+		return this.metadata.get(METADATA_INTS * trace + 2);
+	}
+
+	/**
+	 * Returns the number of branches covered by a trace.
+	 *
+	 * @param trace an {@code int}, the global trace number.
+	 * @return an {@code int}.
+	 */
+	public int coveredCount(int trace) {
+		return (int) (this.offsets.get(trace + 1) - this.offsets.get(trace));
+	}
+
+	/**
+	 * Returns a branch covered by a trace.
+	 *
+	 * @param trace an {@code int}, the global trace number.
+	 * @param i an {@code int} between {@code 0} and
+	 *        {@link #coveredCount(int) coveredCount}{@code (trace) - 1}.
+	 * @return an {@code int}, the {@code i}-th branch number,
+	 *         in increasing order, covered by {@code trace}.
+	 */
+	public int covered(int trace, int i) {
+		return entry(this.offsets.get(trace) + i);
+	}
+
+	/**
+	 * Checks whether a trace covers a branch.
+	 *
+	 * @param trace an {@code int}, the global trace number.
+	 * @param branch an {@code int}, a branch number.
+	 * @return {@code true} iff {@code trace} covers {@code branch}.
+	 */
+	public boolean covers(int trace, int branch) {
+		long low = this.offsets.get(trace);
+		long high = this.offsets.get(trace + 1) - 1;
+		while (low <= high) {
+			final long mid = (low + high) >>> 1;
+			final int entry = entry(mid);
+			if (entry < branch) {
+				low = mid + 1;
+			} else if (entry > branch) {
+				high = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int entry(long index) {
+		return this.column[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+	}
+
+	/**
+	 * Exports the coverage as text, one trace per row with
+	 * comma-separated method number, local trace number,
+	 * hardness and covered branches, for debugging.
+	 *
+	 * @param path the {@link Path} of the text file.
+	 * @throws IOException if writing the file fails.
+	 */
+	public void exportText(Path path) throws IOException {
+		try (final BufferedWriter w = Files.newBufferedWriter(path)) {
+			for (int trace = 0; trace < this.traces; ++trace) {
+				w.write(Integer.toString(method(trace)));
+				w.write(", ");
+				w.write(Integer.toString(localTrace(trace)));
+				w.write(", ");
+				w.write(Integer.toString(hardness(trace)));
+				final int count = coveredCount(trace);
+				for (int i = 0; i < count; ++i) {
+					w.write(", ");
+					w.write(Integer.toString(covered(trace, i)));
+				}
+				w.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Writes a coverage file. The traces are added one at a time;
+	 * the branch column goes to a temporary file, and the rest is
+	 * kept in memory until {@link #close()} assembles the file.
+	 *
+	 * @author Pietro Braione
+	 */
+	public static final class Writer implements Closeable {
+		private final Path path;
+		private final Path columnPath;
+		private final DataOutputStream column;
+		private int[] metadata = new int[METADATA_INTS * 1024];
+		private long[] offsets = new long[1025];
+		private int traces = 0;
+		private long entries = 0;
+		private int branches = 0;
+		private boolean closed = false;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param path the {@link Path} of the coverage file.
+		 * @throws IOException if the temporary file cannot be created.
+		 */
+		public Writer(Path path) throws IOException {
+			this.path = path;
+			this.columnPath = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".column");
+			this.column = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.columnPath)));
+		}
+
+		/**
+		 * Sets the number of branches.
+		 *
+		 * @param branches an {@code int}.
+		 */
+		public void setBranches(int branches) {
+			this.branches = branches;
+		}
+
+		/**
+		 * Adds a trace.
+		 *
+		 * @param method an {@code int}, the method number.
+		 * @param localTrace an {@code int}, the local trace number.
+		 * @param hardness an {@code int}, the size of the path condition.
+		 * @param covered an {@code int[]} whose first {@code count} elements
+		 *        are the branches covered by the trace; They are sorted in place.
+		 * @param count an {@code int}, the number of covered branches.
+		 * @throws IOException if writing the temporary file fails.
+		 */
+		public void addTrace(int method, int localTrace, int hardness, int[] covered, int count) throws IOException {
+			if (METADATA_INTS * (this.traces + 1) > this.metadata.length) {
+				this.metadata = Arrays.copyOf(this.metadata, 2 * this.metadata.length);
+				this.offsets = Arrays.copyOf(this.offsets, 2 * this.offsets.length);
+			}
+			this.metadata[METADATA_INTS * this.traces] = method;
+			this.metadata[METADATA_INTS * this.traces + 1] = localTrace;
+			this.metadata[METADATA_INTS * this.traces + 2] = hardness;
+			this.offsets[this.traces] = this.entries;
+			Arrays.sort(covered, 0, count);
+			for (int i = 0; i < count; ++i) {
+				this.column.writeInt(covered[i]);
+			}
+			this.entries += count;
+			++this.traces;
+		}
+
+		/**
+		 * Returns the number of traces added so far.
+		 *
+		 * @return an {@code int}.
+		 */
+		public int traces() {
+			return this.traces;
+		}
+
+		/**
+		 * Discards the traces added so far, leaving the previous
+		 * coverage file, if any, in place.
+		 */
+		public void discard() {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			try {
+				this.column.close();
+				Files.deleteIfExists(this.columnPath);
+			} catch (IOException e) {
+				//nothing to do, it is just a temporary file
+			}
+		}
+
+		/**
+		 * Assembles the coverage file and replaces the previous one,
+		 * if any.
+		 *
+		 * @throws IOException if writing the file fails.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			this.offsets[this.traces] = this.entries;
+			Path tmpPath = null;
+			try {
+				this.column.close();
+				tmpPath = Files.createTempFile(this.path.toAbsolutePath().getParent(), this.path.getFileName().toString(), ".tmp");
+				try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeInt(this.traces);
+					out.writeInt(this.branches);
+					out.writeLong(this.entries);
+					for (int i = 0; i < METADATA_INTS * this.traces; ++i) {
+						out.writeInt(this.metadata[i]);
+					}
+					for (int i = 0; i <= this.traces; ++i) {
+						out.writeLong(this.offsets[i]);
+					}
+					out.flush();
+					Files.copy(this.columnPath, out);
+				}
+				Files.move(tmpPath, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				tmpPath = null;
+			} finally {
+				Files.deleteIfExists(this.columnPath);
+				if (tmpPath != null) {
+					Files.deleteIfExists(tmpPath);
+				}
+			}
+		}
+	}
+}
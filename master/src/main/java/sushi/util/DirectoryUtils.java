@@ -15,14 +15,23 @@ public final class DirectoryUtils {
 	private static final String methodsFileName = "methods.txt"; 
 	private static final String branchesFileName = "branches.txt";
 	private static final String branchesFileNamePattern = "branches_$.txt";
-	private static final String coverageFileName = "coverage.txt"; 
+	private static final String coverageFileName = "coverage.bin"; 
+	private static final String coverageTextFileName = "coverage.txt"; 
 	private static final String coverageFileNamePattern = "coverage_$.txt"; 
 	private static final String tracesFileName = "alltraces.txt"; 
+	private static final String tracesIndexFileName = "alltraces.idx"; 
 	private static final String tracesFileNamePattern = "alltraces_$.txt"; 
 	private static final String branchesToIgnoreFileName = "branches_to_ignore.txt"; 
 	private static final String tracesToIgnoreFileName = "traces_to_ignore.txt"; 
 	private static final String minimizerOutFileName = "traces.txt"; 
 	private static final String coveredByTestFileName = "covered_by_test.txt"; 
+	private static final String timingsFileName = "timings.txt"; 
+	private static final String checkpointFileName = "checkpoint.properties"; 
+	private static final String checkpointSnapshotDirName = "checkpoint_snapshot"; 
+	private static final String metricsJsonFileName = "metrics.json"; 
+	private static final String metricsPrometheusFileName = "metrics.prom"; 
+	private static final String solverCacheFileName = "solver_cache.txt"; 
+	private static final String explorationCacheDirName = "exploration_cache"; 
 	
 	public static void possiblyCreateTmpDir(Options options) throws IOException {
 		logger.debug("Creating experiment directories");
@@ -80,6 +89,10 @@ public final class DirectoryUtils {
 		return getTmpDirPath(options).resolve(coverageFileName);
 	}
 
+	public static Path getCoverageTextFilePath(Options options) {
+		return getTmpDirPath(options).resolve(coverageTextFileName);
+	}
+
 	public static Path getCoverageFilePath(Options options, long i) {
 		return getTmpDirPath(options).resolve(coverageFileNamePattern.replace("$", Long.toString(i)));
 	}
@@ -88,6 +101,10 @@ public final class DirectoryUtils {
 		return getTmpDirPath(options).resolve(tracesFileName);
 	}
 	
+	public static Path getTracesIndexFilePath(Options options) {
+		return getTmpDirPath(options).resolve(tracesIndexFileName);
+	}
+	
 	public static Path getTracesFilePath(Options options, long i) {
 		return getTmpDirPath(options).resolve(tracesFileNamePattern.replace("$", Long.toString(i)));
 	}	
@@ -108,6 +125,52 @@ public final class DirectoryUtils {
 		return getTmpDirPath(options).resolve(coveredByTestFileName);
 	}
 	
+	public static Path getCheckpointFilePath(Options options) {
+		return getTmpDirPath(options).resolve(checkpointFileName);
+	}
+	
+	public static Path getCheckpointSnapshotDirPath(Options options) {
+		return getTmpDirPath(options).resolve(checkpointSnapshotDirName);
+	}
+	
+	public static Path getMetricsJsonFilePath(Options options) {
+		return getTmpDirPath(options).resolve(metricsJsonFileName);
+	}
+	
+	public static Path getMetricsPrometheusFilePath(Options options) {
+		return getTmpDirPath(options).resolve(metricsPrometheusFileName);
+	}
+	
+	public static Path getSolverCacheFilePath(Options options) {
+		return getTmpDirPath(options).resolve(solverCacheFileName);
+	}
+	
+	/**
+	 * Returns the path of the file of the task timings. Differently 
+	 * from the other files it is not in the temporary directory of 
+	 * the run, but in the base directory of the shared files (see 
+	 * {@link Options#getSharedDirectoryBase()}), so it is shared by 
+	 * subsequent runs.
+	 * 
+	 * @param options an {@link Options} object.
+	 * @return the {@link Path} of the timings file.
+	 */
+	public static Path getTimingsFilePath(Options options) {
+		return options.getSharedDirectoryBase().resolve(timingsFileName);
+	}
+	
+	/**
+	 * Returns the path of the directory of the exploration cache. 
+	 * As the timings file, it is in the base directory of the 
+	 * shared files, so it is shared by subsequent runs.
+	 * 
+	 * @param options an {@link Options} object.
+	 * @return the {@link Path} of the exploration cache directory.
+	 */
+	public static Path getExplorationCacheDirPath(Options options) {
+		return options.getSharedDirectoryBase().resolve(explorationCacheDirName);
+	}
+	
 	/**
 	 * Do not instantiate!
 	 */
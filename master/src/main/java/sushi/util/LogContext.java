@@ -0,0 +1,149 @@
+package sushi.util;
+
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+
+/**
+ * The context of the log lines, i.e., a prefix that marks all the lines
+ * the current thread writes on the standard output and error, so that,
+ * when many targets are processed at the same time (see the
+ * {@code -target_classes} option), the lines of the loggers of all the
+ * classes tell which target they are about. The prefix is inherited by
+ * the threads a thread creates, and carried by the tasks wrapped with
+ * {@link #wrap(Callable)} or {@link #wrap(Runnable)} to the (possibly
+ * shared) threads that execute them.
+ *
+ * @author Pietro Braione
+ */
+public final class LogContext {
+	private static final InheritableThreadLocal<String> PREFIX = new InheritableThreadLocal<String>() {
+		@Override
+		protected String initialValue() {
+			return "";
+		}
+	};
+
+	private static boolean installed = false;
+
+	/**
+	 * Replaces the standard output and error with streams that
+	 * prefix every line with the context of the thread writing it.
+	 * Must be invoked before the loggers write anything. Further
+	 * invocations have no effect.
+	 */
+	public static synchronized void install() {
+		if (installed) {
+			return;
+		}
+		installed = true;
+		System.setOut(new PrefixingPrintStream(System.out));
+		System.setErr(new PrefixingPrintStream(System.err));
+	}
+
+	/**
+	 * Returns the context of the current thread.
+	 *
+	 * @return a {@link String}, the prefix of the log lines,
+	 *         empty if there is no context.
+	 */
+	public static String get() {
+		return PREFIX.get();
+	}
+
+	/**
+	 * Sets the context of the current thread.
+	 *
+	 * @param prefix a {@link String}, the prefix of the log lines;
+	 *        {@code null} or empty means no context.
+	 */
+	public static void set(String prefix) {
+		PREFIX.set(prefix == null ? "" : prefix);
+	}
+
+	/**
+	 * Makes a task run in the context of the current thread.
+	 *
+	 * @param task a {@link Callable}.
+	 * @return a {@link Callable} that invokes {@code task} with
+	 *         the current context, and then restores the context
+	 *         of the thread that invoked it.
+	 */
+	public static <V> Callable<V> wrap(Callable<V> task) {
+		final String prefix = get();
+		return () -> {
+			final String previous = get();
+			set(prefix);
+			try {
+				return task.call();
+			} finally {
+				set(previous);
+			}
+		};
+	}
+
+	/**
+	 * Makes a task run in the context of the current thread.
+	 *
+	 * @param task a {@link Runnable}.
+	 * @return a {@link Runnable} that runs {@code task} with
+	 *         the current context, and then restores the context
+	 *         of the thread that ran it.
+	 */
+	public static Runnable wrap(Runnable task) {
+		final String prefix = get();
+		return () -> {
+			final String previous = get();
+			set(prefix);
+			try {
+				task.run();
+			} finally {
+				set(previous);
+			}
+		};
+	}
+
+	private static final class PrefixingPrintStream extends PrintStream {
+		private final ThreadLocal<Boolean> atLineStart = ThreadLocal.withInitial(() -> Boolean.TRUE);
+
+		PrefixingPrintStream(PrintStream out) {
+			super(out, true);
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			prefixIfAtLineStart();
+			super.write(b);
+			this.atLineStart.set(b == '\n');
+		}
+
+		@Override
+		public synchronized void write(byte[] buf, int off, int len) {
+			//writes line by line, prefixing each line
+			int start = off;
+			final int end = off + len;
+			for (int i = off; i < end; ++i) {
+				if (buf[i] == '\n') {
+					prefixIfAtLineStart();
+					super.write(buf, start, i + 1 - start);
+					this.atLineStart.set(Boolean.TRUE);
+					start = i + 1;
+				}
+			}
+			if (start < end) {
+				prefixIfAtLineStart();
+				super.write(buf, start, end - start);
+				this.atLineStart.set(Boolean.FALSE);
+			}
+		}
+
+		private void prefixIfAtLineStart() {
+			final String prefix = get();
+			if (this.atLineStart.get() && !prefix.isEmpty()) {
+				final byte[] bytes = prefix.getBytes(Charset.defaultCharset());
+				super.write(bytes, 0, bytes.length);
+			}
+			this.atLineStart.set(Boolean.FALSE);
+		}
+	}
+}
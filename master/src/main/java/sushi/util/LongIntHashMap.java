@@ -0,0 +1,107 @@
+package sushi.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from {@code long} keys to {@code int} values, with open
+ * addressing and linear probing, that does not box its keys and
+ * values, so lookups and updates do not allocate.
+ *
+ * @author Pietro Braione
+ */
+public final class LongIntHashMap {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private long[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size = 0;
+
+	public LongIntHashMap() {
+		this.keys = new long[INITIAL_CAPACITY];
+		this.values = new int[INITIAL_CAPACITY];
+		this.used = new boolean[INITIAL_CAPACITY];
+	}
+
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		h ^= (h >>> 32);
+		return ((int) h) & mask;
+	}
+
+	/**
+	 * Returns the value associated to a key.
+	 *
+	 * @param key a {@code long}.
+	 * @param missing an {@code int}, the value to return
+	 *        if {@code key} is not in the map.
+	 * @return the {@code int} associated to {@code key},
+	 *         or {@code missing}.
+	 */
+	public int get(long key, int missing) {
+		final int mask = this.keys.length - 1;
+		for (int i = slot(key, mask); this.used[i]; i = (i + 1) & mask) {
+			if (this.keys[i] == key) {
+				return this.values[i];
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Associates a value to a key.
+	 *
+	 * @param key a {@code long}.
+	 * @param value an {@code int}.
+	 */
+	public void put(long key, int value) {
+		if (2 * (this.size + 1) > this.keys.length) {
+			grow();
+		}
+		final int mask = this.keys.length - 1;
+		int i = slot(key, mask);
+		while (this.used[i]) {
+			if (this.keys[i] == key) {
+				this.values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		this.used[i] = true;
+		this.keys[i] = key;
+		this.values[i] = value;
+		++this.size;
+	}
+
+	/**
+	 * Returns the number of keys in the map.
+	 *
+	 * @return an {@code int}.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Removes all the keys from the map.
+	 */
+	public void clear() {
+		Arrays.fill(this.used, false);
+		this.size = 0;
+	}
+
+	private void grow() {
+		final long[] oldKeys = this.keys;
+		final int[] oldValues = this.values;
+		final boolean[] oldUsed = this.used;
+		this.keys = new long[2 * oldKeys.length];
+		this.values = new int[2 * oldKeys.length];
+		this.used = new boolean[2 * oldKeys.length];
+		this.size = 0;
+		for (int i = 0; i < oldKeys.length; ++i) {
+			if (oldUsed[i]) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package sushi.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An index of the global traces file, giving random access to the row
+ * of a trace from its global trace number. The index is a binary file
+ * with a header (magic number, format version, number of traces) and
+ * the byte offset of each row of the traces file, plus the offset of
+ * its end. Both files are written by a {@link Writer}.
+ *
+ * @author Pietro Braione
+ */
+public final class TracesIndex implements Closeable {
+	private static final int MAGIC = 0x53545258; //"STRX"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 4;
+
+	private final Path tracesPath;
+	private final int traces;
+	private final LongBuffer offsets;
+	private final FileChannel channel;
+
+	private TracesIndex(Path tracesPath, int traces, LongBuffer offsets, FileChannel channel) {
+		this.tracesPath = tracesPath;
+		this.traces = traces;
+		this.offsets = offsets;
+		this.channel = channel;
+	}
+
+	/**
+	 * Opens the index of a traces file.
+	 *
+	 * @param indexPath the {@link Path} of the index.
+	 * @param tracesPath the {@link Path} of the traces file.
+	 * @return a {@link TracesIndex}.
+	 * @throws IOException if the files cannot be read, or the
+	 *         index is not an index of the traces file.
+	 */
+	public static TracesIndex open(Path indexPath, Path tracesPath) throws IOException {
+		final LongBuffer offsets;
+		final int traces;
+		try (final FileChannel index = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+			final long size = index.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException("Traces index " + indexPath.toString() + " is truncated");
+			}
+			final ByteBuffer header = index.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("File " + indexPath.toString() + " is not a traces index, or has an unsupported version");
+			}
+			traces = header.getInt();
+			if (traces < 0 || size != HEADER_SIZE + 8L * (traces + 1L)) {
+				throw new IOException("Traces index " + indexPath.toString() + " is truncated or corrupted");
+			}
+			offsets = index.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, size - HEADER_SIZE).asLongBuffer();
+		}
+		final FileChannel channel = FileChannel.open(tracesPath, StandardOpenOption.READ);
+		if (channel.size() != offsets.get(traces)) {
+			channel.close();
+			throw new IOException("Traces index " + indexPath.toString() + " does not match traces file " + tracesPath.toString());
+		}
+		return new TracesIndex(tracesPath, traces, offsets, channel);
+	}
+
+	/**
+	 * Returns the number of traces.
+	 *
+	 * @return an {@code int}.
+	 */
+	public int traces() {
+		return this.traces;
+	}
+
+	/**
+	 * Returns the row of a trace in the traces file.
+	 *
+	 * @param trace an {@code int}, the global trace number.
+	 * @return a {@link String}, the row without its line terminator.
+	 * @throws IOException if {@code trace} is not in the traces file,
+	 *         or reading the file fails.
+	 */
+	public String row(int trace) throws IOException {
+		if (trace < 0 || trace >= this.traces) {
+			throw new IOException("Trace " + trace + " is not in traces file " + this.tracesPath.toString());
+		}
+		final long start = this.offsets.get(trace);
+		final ByteBuffer buffer = ByteBuffer.allocate((int) (this.offsets.get(trace + 1) - start - 1)); //without the final '\n'
+		while (buffer.hasRemaining()) {
+			if (this.channel.read(buffer, start + buffer.position()) < 0) {
+				throw new IOException("Traces file " + this.tracesPath.toString() + " is truncated");
+			}
+		}
+		return new String(buffer.array(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the method of a trace.
+	 *
+	 * @param trace an {@code int}, the global trace number.
+	 * @return an {@code int}, the method number.
+	 * @throws IOException if reading the traces file fails.
+	 */
+	public int method(int trace) throws IOException {
+		return Integer.parseInt(field(trace, 0));
+	}
+
+	/**
+	 * Returns the local trace number of a trace.
+	 *
+	 * @param trace an {@code int}, the global trace number.
+	 * @return an {@code int}, the number of the trace in
+	 *         the exploration of its method.
+	 * @throws IOException if reading the traces file fails.
+	 */
+	public int localTrace(int trace) throws IOException {
+		return Integer.parseInt(field(trace, 1));
+	}
+
+	/**
+	 * Returns the branch identifier of a trace.
+	 *
+	 * @param trace an {@code int}, the global trace number.
+	 * @return a {@link String}, the identifier of the
+	 *         trace in the JBSE state tree.
+	 * @throws IOException if reading the traces file fails.
+	 */
+	public String identifier(int trace) throws IOException {
+		return field(trace, 2);
+	}
+
+	private String field(int trace, int field) throws IOException {
+		final String[] fields = row(trace).split(",");
+		if (fields.length <= field) {
+			throw new IOException("Row of trace " + trace + " in traces file " + this.tracesPath.toString() + " is ill-formed");
+		}
+		return fields[field].trim();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/**
+	 * Writes a traces file and its index. The rows are
+	 * added one at a time, and the index is written by
+	 * {@link #close()}.
+	 *
+	 * @author Pietro Braione
+	 */
+	public static final class Writer implements Closeable {
+		private final Path indexPath;
+		private final OutputStream traces;
+		private long[] offsets = new long[1024];
+		private int rows = 0;
+		private long position = 0;
+		private boolean closed = false;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param tracesPath the {@link Path} of the traces file.
+		 * @param indexPath the {@link Path} of the index.
+		 * @throws IOException if the traces file cannot be created.
+		 */
+		public Writer(Path tracesPath, Path indexPath) throws IOException {
+			this.indexPath = indexPath;
+			this.traces = new BufferedOutputStream(Files.newOutputStream(tracesPath));
+		}
+
+		/**
+		 * Adds the row of a trace.
+		 *
+		 * @param row a {@link String}, the row without
+		 *        line terminator.
+		 * @throws IOException if writing the traces file fails.
+		 */
+		public void addRow(String row) throws IOException {
+			if (this.rows + 1 >= this.offsets.length) {
+				this.offsets = Arrays.copyOf(this.offsets, 2 * this.offsets.length);
+			}
+			this.offsets[this.rows] = this.position;
+			final byte[] bytes = row.getBytes(StandardCharsets.UTF_8);
+			this.traces.write(bytes);
+			this.traces.write('\n');
+			this.position += bytes.length + 1;
+			++this.rows;
+		}
+
+		/**
+		 * Closes the traces file without writing the index,
+		 * and deletes the previous index, if any. To be used
+		 * when writing the traces file fails.
+		 */
+		public void discard() {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			try {
+				this.traces.close();
+				Files.deleteIfExists(this.indexPath);
+			} catch (IOException e) {
+				//nothing to do, a stale index does not open anyway
+			}
+		}
+
+		/**
+		 * Closes the traces file and writes the index.
+		 *
+		 * @throws IOException if writing a file fails.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			this.offsets[this.rows] = this.position;
+			this.traces.close();
+			final Path tmpPath = Files.createTempFile(this.indexPath.toAbsolutePath().getParent(), this.indexPath.getFileName().toString(), ".tmp");
+			try {
+				try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeInt(this.rows);
+					for (int i = 0; i <= this.rows; ++i) {
+						out.writeLong(this.offsets[i]);
+					}
+				}
+				Files.move(tmpPath, this.indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmpPath);
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package sushi.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import sushi.Options;
+
+public class CheckpointTest {
+	private static final String TMP_NAME = "run";
+	private static final String TARGET_CLASS = "foo/Bar";
+	private static final String PARTWAY = "partway";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * The interrupted run, executed in a child JVM: Completes a phase,
+	 * checkpoints it, and then starts the next phase, that rewrites 
+	 * and creates some files, until it is killed.
+	 * 
+	 * @param args a {@link String}{@code []}, whose only member is the
+	 *        base of the temporary directories.
+	 * @throws Exception if something goes wrong.
+	 */
+	public static void main(String[] args) throws Exception {
+		final Options options = new Options();
+		options.setTmpDirectoryBase(Paths.get(args[0]));
+		options.setTmpDirectoryName(TMP_NAME);
+		options.setTargetClass(TARGET_CLASS);
+		DirectoryUtils.possiblyCreateTmpDir(options);
+		
+		//the completed phase
+		write(DirectoryUtils.getBranchesToIgnoreFilePath(options), "1", "2");
+		write(DirectoryUtils.getMinimizerOutFilePath(options), "0, 0, 3");
+		write(DirectoryUtils.getJBSEOutFilePath(options, 0, 0), "class EvoSuiteWrapper_0_0 { }");
+		write(DirectoryUtils.getTmpDirPath(options).resolve("statistics.csv"), "a");
+		Checkpoint.write(options, 3, 2, 1);
+		
+		//the interrupted phase
+		write(DirectoryUtils.getBranchesToIgnoreFilePath(options), "7");
+		write(DirectoryUtils.getMinimizerOutFilePath(options), "");
+		write(DirectoryUtils.getJBSEOutFilePath(options, 0, 1), "class EvoSuiteWrapper_0_1 {");
+		Files.write(DirectoryUtils.getTmpDirPath(options).resolve("statistics.csv"), "b\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		System.out.println(PARTWAY);
+		System.out.flush();
+		Thread.sleep(Long.MAX_VALUE);
+	}
+	
+	private static void write(Path file, String... lines) throws Exception {
+		Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+	}
+	
+	private static List<String> read(Path file) throws Exception {
+		return Files.readAllLines(file, StandardCharsets.UTF_8);
+	}
+	
+	@Test
+	public void testResumeAfterKillDuringPhase() throws Exception {
+		final Path tmpBase = this.folder.getRoot().toPath();
+		
+		//runs and kills the interrupted run
+		final ProcessBuilder pb = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(), 
+		                                             "-cp", System.getProperty("java.class.path"), 
+		                                             CheckpointTest.class.getName(), tmpBase.toString());
+		pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+		final Process process = pb.start();
+		try (final BufferedReader r = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = r.readLine()) != null && !PARTWAY.equals(line)) {
+				//waits
+			}
+			assertEquals(PARTWAY, line);
+		} finally {
+			process.destroyForcibly();
+			process.waitFor(30, TimeUnit.SECONDS);
+		}
+		
+		//resumes it
+		final Options options = new Options();
+		options.setResumeDirectory(tmpBase.resolve(TMP_NAME));
+		options.setTargetClass(TARGET_CLASS);
+		final Checkpoint checkpoint = Checkpoint.read(options);
+		assertEquals(3, checkpoint.getPhase());
+		assertEquals(2, checkpoint.getToolIndex());
+		assertEquals(1, checkpoint.getIteration());
+		assertEquals(Arrays.asList("1", "2"), read(DirectoryUtils.getBranchesToIgnoreFilePath(options)));
+		assertEquals(Arrays.asList("0, 0, 3"), read(DirectoryUtils.getMinimizerOutFilePath(options)));
+		assertEquals(Arrays.asList("a"), read(DirectoryUtils.getTmpDirPath(options).resolve("statistics.csv")));
+		assertTrue(Files.exists(DirectoryUtils.getJBSEOutFilePath(options, 0, 0)));
+		assertFalse(Files.exists(DirectoryUtils.getJBSEOutFilePath(options, 0, 1)));
+		
+		//the restored directory is consistent with the checkpoint
+		Checkpoint.read(options);
+	}
+	
+	@Test
+	public void testResumeFromLatestCheckpoint() throws Exception {
+		final Options options = new Options();
+		options.setTmpDirectoryBase(this.folder.getRoot().toPath());
+		options.setTmpDirectoryName(TMP_NAME);
+		options.setTargetClass(TARGET_CLASS);
+		DirectoryUtils.possiblyCreateTmpDir(options);
+		final Path branchesToIgnore = DirectoryUtils.getBranchesToIgnoreFilePath(options);
+		write(branchesToIgnore, "1");
+		Checkpoint.write(options, 1, 0, 0);
+		write(branchesToIgnore, "1", "2");
+		Checkpoint.write(options, 2, 1, 0);
+		write(branchesToIgnore, "");
+		
+		final Checkpoint checkpoint = Checkpoint.read(options);
+		assertEquals(2, checkpoint.getPhase());
+		assertEquals(Arrays.asList("1", "2"), read(branchesToIgnore));
+	}
+}